@@ -30,6 +30,7 @@ import org.apache.atlas.model.instance.AtlasEntity.AtlasEntityWithExtInfo;
 import org.apache.atlas.model.instance.EntityMutationResponse;
 import org.apache.atlas.model.lineage.AtlasLineageInfo;
 import org.apache.atlas.model.lineage.AtlasLineageInfo.LineageDirection;
+import org.apache.atlas.model.lineage.AtlasLineagePage;
 import org.apache.atlas.model.typedef.AtlasClassificationDef;
 import org.apache.atlas.model.typedef.AtlasEntityDef;
 import org.apache.atlas.model.typedef.AtlasEnumDef;
@@ -291,6 +292,23 @@ public class AtlasClientV2 extends AtlasBaseClient {
         return callAPI(LINEAGE_INFO, AtlasLineageInfo.class, queryParams, guid);
     }
 
+    /**
+     * @param cursor nextCursor of the previous page; null for the first page
+     */
+    public AtlasLineagePage getLineagePage(final String guid, final LineageDirection direction, final int depth,
+                                           final String cursor, final int limit) throws AtlasServiceException {
+        MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
+        queryParams.add("direction", direction.toString());
+        queryParams.add("depth", String.valueOf(depth));
+        queryParams.add("limit", String.valueOf(limit));
+
+        if (cursor != null) {
+            queryParams.add("cursor", cursor);
+        }
+
+        return callAPI(LINEAGE_INFO, AtlasLineagePage.class, queryParams, guid, "page");
+    }
+
     /* Entity Calls */
 
     public AtlasEntityWithExtInfo getEntityByGuid(String guid) throws AtlasServiceException {
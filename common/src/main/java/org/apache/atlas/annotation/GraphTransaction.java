@@ -25,4 +25,11 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
 public @interface GraphTransaction {
+    /**
+     * Whether the method only reads from the graph. A read-only transaction is rolled back instead of being committed,
+     * and methods that write to the graph can't be called within it. A read-only method that updates graph elements
+     * fails with IllegalStateException, and its updates are rolled back; updates made by Gremlin scripts are not
+     * detected, and are silently rolled back.
+     */
+    boolean readOnly() default false;
 }
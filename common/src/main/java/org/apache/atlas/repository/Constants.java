@@ -47,6 +47,16 @@ public final class Constants {
     //weird issue in TitanDB if __ added to this property key. Not adding it for now
     public static final String ENTITY_TEXT_PROPERTY_KEY = "entityText";
 
+    /**
+     * Full-text of the entity by source - entity attributes and each classification.
+     */
+    public static final String ENTITY_TEXT_SEGMENTS_PROPERTY_KEY = INTERNAL_PROPERTY_KEY_PREFIX + "entityTextSegments";
+
+    /**
+     * Set on entities whose full-text is yet to be updated in the background.
+     */
+    public static final String ENTITY_TEXT_PENDING_PROPERTY_KEY = INTERNAL_PROPERTY_KEY_PREFIX + "entityTextPending";
+
     /**
      * Properties for type store graph.
      */
@@ -188,6 +188,12 @@ public interface AtlasGraph<V, E> {
      */
     void rollback();
 
+    /**
+     * Returns whether the calling thread updated the graph, through the elements of this graph, since its
+     * transaction was last committed or rolled back. Updates made by Gremlin scripts are not tracked.
+     */
+    boolean hasUncommittedChanges();
+
     /**
      * Unloads and releases any resources associated with the graph.
      */
@@ -295,6 +301,18 @@ public interface AtlasGraph<V, E> {
      */
     Object executeGremlinScript(String query, boolean isPath) throws AtlasBaseException;
 
+    /**
+     * Executes a Gremlin script with the given bindings, returns an object with the result. Values passed as bindings,
+     * instead of being inlined in the script, let the compiled script be reused across calls.
+     *
+     * @param query
+     * @param bindings values of variables referenced in the script
+     * @param isPath whether this is a path query
+     *
+     * @return the result from executing the script
+     */
+    Object executeGremlinScript(String query, Map<String, Object> bindings, boolean isPath) throws AtlasBaseException;
+
     /**
      * Executes a Gremlin script using a ScriptEngineManager provided by consumer, returns an object with the result.
      * This is useful for scenarios where an operation executes large number of queries.
@@ -0,0 +1,194 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graphdb.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of Gremlin script engines, with scripts compiled by each engine cached for reuse.
+ *
+ * Compiling a Groovy script is much more expensive than running it; hence scripts should pass values as bindings,
+ * instead of inlining them in the script, so that the same compiled script is reused across calls. An engine that has
+ * compiled more than maxScriptsPerEngine scripts is closed when released, instead of being returned to the pool, so
+ * that classes of scripts that are not reused don't accumulate.
+ *
+ * At most maxActiveEngines engines are borrowed at any time; borrowEngine() waits up to borrowTimeoutMs for an engine
+ * to be released, once that many are in use.
+ */
+public class GremlinScriptEnginePool {
+    private static final Logger LOG = LoggerFactory.getLogger(GremlinScriptEnginePool.class);
+
+    // counts across all pools in this process; reported by admin metrics
+    private static final AtomicLong HIT_COUNT       = new AtomicLong();
+    private static final AtomicLong MISS_COUNT      = new AtomicLong();
+    private static final AtomicLong COMPILE_TIME_NS = new AtomicLong();
+
+    public interface ScriptEngineFactory {
+        ScriptEngine createScriptEngine();
+    }
+
+    private final ScriptEngineFactory                            engineFactory;
+    private final int                                            maxScriptsPerEngine;
+    private final long                                           borrowTimeoutMs;
+    private final BlockingQueue<ScriptEngine>                    idleEngines;
+    private final Semaphore                                      activeEnginePermits;
+    private final Set<ScriptEngine>                              activeEngines   = Collections.newSetFromMap(new ConcurrentHashMap<ScriptEngine, Boolean>());
+    private final Map<ScriptEngine, Map<String, CompiledScript>> compiledScripts = new ConcurrentHashMap<>();
+
+    public GremlinScriptEnginePool(ScriptEngineFactory engineFactory, int maxIdleEngines, int maxActiveEngines,
+                                   int maxScriptsPerEngine, long borrowTimeoutMs) {
+        this.engineFactory       = engineFactory;
+        this.maxScriptsPerEngine = maxScriptsPerEngine;
+        this.borrowTimeoutMs     = borrowTimeoutMs;
+        this.idleEngines         = new ArrayBlockingQueue<>(Math.max(1, maxIdleEngines));
+        this.activeEnginePermits = new Semaphore(Math.max(1, maxActiveEngines), true);
+    }
+
+    /**
+     * Returns an idle engine, or a new one if none is idle; returns null if maxActiveEngines engines remain borrowed
+     * for borrowTimeoutMs, or if the calling thread is interrupted while waiting.
+     */
+    public ScriptEngine borrowEngine() {
+        try {
+            if (!activeEnginePermits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                LOG.warn("no script engine released in {}ms; {} engines are in use", borrowTimeoutMs, activeEngines.size());
+
+                return null;
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+
+            return null;
+        }
+
+        ScriptEngine ret = null;
+
+        try {
+            ret = idleEngines.poll();
+
+            if (ret == null) {
+                ret = engineFactory.createScriptEngine();
+
+                compiledScripts.put(ret, new ConcurrentHashMap<String, CompiledScript>());
+            }
+
+            activeEngines.add(ret);
+        } finally {
+            if (ret == null) {
+                activeEnginePermits.release();
+            }
+        }
+
+        return ret;
+    }
+
+    public void releaseEngine(ScriptEngine engine) {
+        if (engine == null) {
+            return;
+        }
+
+        if (activeEngines.remove(engine)) {
+            activeEnginePermits.release();
+        }
+
+        Map<String, CompiledScript> scripts = compiledScripts.get(engine);
+
+        if (scripts == null) { // not from this pool
+            closeEngine(engine);
+        } else if (scripts.size() > maxScriptsPerEngine || !idleEngines.offer(engine)) {
+            compiledScripts.remove(engine);
+
+            closeEngine(engine);
+        }
+    }
+
+    /**
+     * Runs the script with the given engine, compiling the script only if it was not compiled earlier by the engine.
+     */
+    public Object eval(ScriptEngine engine, String script, Bindings bindings) throws ScriptException {
+        Map<String, CompiledScript> scripts = compiledScripts.get(engine);
+
+        if (scripts == null || !(engine instanceof Compilable)) {
+            return engine.eval(script, bindings);
+        }
+
+        CompiledScript compiledScript = scripts.get(script);
+
+        if (compiledScript != null) {
+            HIT_COUNT.incrementAndGet();
+        } else {
+            MISS_COUNT.incrementAndGet();
+
+            long startTime = System.nanoTime();
+
+            compiledScript = ((Compilable) engine).compile(script);
+
+            COMPILE_TIME_NS.addAndGet(System.nanoTime() - startTime);
+
+            scripts.put(script, compiledScript);
+        }
+
+        return compiledScript.eval(bindings);
+    }
+
+    public int getIdleEngineCount() {
+        return idleEngines.size();
+    }
+
+    public int getActiveEngineCount() {
+        return activeEngines.size();
+    }
+
+    public static long getHitCount() {
+        return HIT_COUNT.get();
+    }
+
+    public static long getMissCount() {
+        return MISS_COUNT.get();
+    }
+
+    public static long getCompileTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(COMPILE_TIME_NS.get());
+    }
+
+    private void closeEngine(ScriptEngine engine) {
+        if (engine instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) engine).close();
+            } catch (Exception excp) {
+                LOG.warn("failed to close script engine", excp);
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graphdb.utils;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+public class GremlinScriptEnginePoolTest {
+    private GremlinScriptEnginePool pool;
+
+    @BeforeMethod
+    public void setup() {
+        pool = new GremlinScriptEnginePool(new GremlinScriptEnginePool.ScriptEngineFactory() {
+            @Override
+            public ScriptEngine createScriptEngine() {
+                return createEngine();
+            }
+        }, 2, 2, 1, 10);
+    }
+
+    @Test
+    public void testScriptIsCompiledOncePerEngine() throws ScriptException {
+        ScriptEngine engine    = pool.borrowEngine();
+        long         hitCount  = GremlinScriptEnginePool.getHitCount();
+        long         missCount = GremlinScriptEnginePool.getMissCount();
+        Bindings     bindings  = mock(Bindings.class);
+
+        assertEquals(pool.eval(engine, "g.V(guid)", bindings), "result");
+        assertEquals(pool.eval(engine, "g.V(guid)", bindings), "result");
+
+        verify((Compilable) engine, times(1)).compile("g.V(guid)");
+        assertEquals(GremlinScriptEnginePool.getMissCount(), missCount + 1);
+        assertEquals(GremlinScriptEnginePool.getHitCount(), hitCount + 1);
+    }
+
+    @Test
+    public void testReleasedEngineIsReused() throws ScriptException {
+        ScriptEngine engine = pool.borrowEngine();
+
+        pool.eval(engine, "g.V(guid)", mock(Bindings.class));
+        pool.releaseEngine(engine);
+
+        assertEquals(pool.getIdleEngineCount(), 1);
+        assertSame(pool.borrowEngine(), engine);
+    }
+
+    @Test
+    public void testEngineWithTooManyScriptsIsNotReused() throws ScriptException {
+        ScriptEngine engine = pool.borrowEngine();
+
+        pool.eval(engine, "g.V('guid1')", mock(Bindings.class));
+        pool.eval(engine, "g.V('guid2')", mock(Bindings.class));
+        pool.releaseEngine(engine);
+
+        assertEquals(pool.getIdleEngineCount(), 0);
+        assertNotSame(pool.borrowEngine(), engine);
+    }
+
+    @Test
+    public void testActiveEnginesAreBounded() {
+        ScriptEngine engine1 = pool.borrowEngine();
+        ScriptEngine engine2 = pool.borrowEngine();
+
+        assertNotNull(engine1);
+        assertNotNull(engine2);
+        assertEquals(pool.getActiveEngineCount(), 2);
+
+        // no engine is released within the borrow timeout
+        assertNull(pool.borrowEngine());
+
+        pool.releaseEngine(engine1);
+        pool.releaseEngine(engine1); // releasing an engine again doesn't free another slot
+
+        assertEquals(pool.getActiveEngineCount(), 1);
+        assertSame(pool.borrowEngine(), engine1);
+        assertNull(pool.borrowEngine());
+
+        pool.releaseEngine(engine2);
+
+        assertNotNull(pool.borrowEngine());
+    }
+
+    private static ScriptEngine createEngine() {
+        ScriptEngine   engine         = mock(ScriptEngine.class, withSettings().extraInterfaces(Compilable.class));
+        CompiledScript compiledScript = mock(CompiledScript.class);
+
+        try {
+            when(((Compilable) engine).compile(anyString())).thenReturn(compiledScript);
+            when(compiledScript.eval(any(Bindings.class))).thenReturn("result");
+        } catch (ScriptException excp) {
+            throw new RuntimeException(excp);
+        }
+
+        return engine;
+    }
+}
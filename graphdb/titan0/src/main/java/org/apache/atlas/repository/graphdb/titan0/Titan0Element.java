@@ -65,6 +65,8 @@ public class Titan0Element<T extends Element> implements AtlasElement {
     @Override
     public <U> void setProperty(String propertyName, U value) {
         try {
+            graph.onUpdate();
+
             wrappedElement.setProperty(propertyName, value);
         } catch (SchemaViolationException e) {
             throw new AtlasSchemaViolationException(e);
@@ -101,6 +103,8 @@ public class Titan0Element<T extends Element> implements AtlasElement {
 
     @Override
     public void removeProperty(String propertyName) {
+        graph.onUpdate();
+
         wrappedElement.removeProperty(propertyName);
 
     }
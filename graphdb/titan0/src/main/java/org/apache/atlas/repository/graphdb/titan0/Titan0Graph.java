@@ -73,6 +73,9 @@ import java.util.Set;
 public class Titan0Graph implements AtlasGraph<Titan0Vertex, Titan0Edge> {
     private static final Logger LOG = LoggerFactory.getLogger(Titan0Graph.class);
 
+    // whether the current thread updated the graph in its open transaction
+    private static final ThreadLocal<Boolean> IS_UPDATED = new ThreadLocal<>();
+
     private final Set<String> multiProperties;
 
     public Titan0Graph() {
@@ -98,6 +101,8 @@ public class Titan0Graph implements AtlasGraph<Titan0Vertex, Titan0Edge> {
     public AtlasEdge<Titan0Vertex, Titan0Edge> addEdge(AtlasVertex<Titan0Vertex, Titan0Edge> outVertex,
             AtlasVertex<Titan0Vertex, Titan0Edge> inVertex, String edgeLabel) {
         try {
+            onUpdate();
+
             Edge edge = getGraph().addEdge(null, outVertex.getV().getWrappedElement(),
                     inVertex.getV().getWrappedElement(), edgeLabel);
             return GraphDbObjectFactory.createEdge(this, edge);
@@ -121,12 +126,16 @@ public class Titan0Graph implements AtlasGraph<Titan0Vertex, Titan0Edge> {
 
     @Override
     public void removeEdge(AtlasEdge<Titan0Vertex, Titan0Edge> edge) {
+        onUpdate();
+
         getGraph().removeEdge(edge.getE().getWrappedElement());
 
     }
 
     @Override
     public void removeVertex(AtlasVertex<Titan0Vertex, Titan0Edge> vertex) {
+        onUpdate();
+
         getGraph().removeVertex(vertex.getV().getWrappedElement());
 
     }
@@ -145,18 +154,37 @@ public class Titan0Graph implements AtlasGraph<Titan0Vertex, Titan0Edge> {
 
     @Override
     public AtlasVertex<Titan0Vertex, Titan0Edge> addVertex() {
+        onUpdate();
+
         Vertex result = getGraph().addVertex(null);
         return GraphDbObjectFactory.createVertex(this, result);
     }
 
     @Override
     public void commit() {
-        getGraph().commit();
+        try {
+            getGraph().commit();
+        } finally {
+            IS_UPDATED.remove();
+        }
     }
 
     @Override
     public void rollback() {
-        getGraph().rollback();
+        try {
+            getGraph().rollback();
+        } finally {
+            IS_UPDATED.remove();
+        }
+    }
+
+    @Override
+    public boolean hasUncommittedChanges() {
+        return IS_UPDATED.get() != null;
+    }
+
+    void onUpdate() {
+        IS_UPDATED.set(Boolean.TRUE);
     }
 
     @Override
@@ -270,8 +298,13 @@ public class Titan0Graph implements AtlasGraph<Titan0Vertex, Titan0Edge> {
 
     @Override
     public Object executeGremlinScript(String query, boolean isPath) throws AtlasBaseException {
+        return executeGremlinScript(query, null, isPath);
+    }
+
+    @Override
+    public Object executeGremlinScript(String query, Map<String, Object> userBindings, boolean isPath) throws AtlasBaseException {
 
-        Object result = executeGremlinScript(query);
+        Object result = executeGremlinScript(query, userBindings);
         return convertGremlinScriptResult(isPath, result);
     }
 
@@ -328,13 +361,17 @@ public class Titan0Graph implements AtlasGraph<Titan0Vertex, Titan0Edge> {
         return convertGremlinScriptResult(isPath, result);
     }
 
-    private Object executeGremlinScript(String gremlinQuery) throws AtlasBaseException {
+    private Object executeGremlinScript(String gremlinQuery, Map<String, Object> userBindings) throws AtlasBaseException {
         Object       result = null;
         ScriptEngine engine = getGremlinScriptEngine();
 
         try {
             Bindings bindings = engine.createBindings();
 
+            if (userBindings != null) {
+                bindings.putAll(userBindings);
+            }
+
             bindings.put("g", getGraph());
 
             result = engine.eval(gremlinQuery, bindings);
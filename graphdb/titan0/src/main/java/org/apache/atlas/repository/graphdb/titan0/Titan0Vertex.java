@@ -88,6 +88,8 @@ public class Titan0Vertex extends Titan0Element<Vertex> implements AtlasVertex<T
     @Override
     public <T> void addProperty(String propertyName, T value) {
         try {
+            graph.onUpdate();
+
             getAsTitanVertex().addProperty(propertyName, value);
         } catch (SchemaViolationException e) {
             if (getPropertyValues(propertyName, value.getClass()).contains(value)) {
@@ -99,6 +99,8 @@ public class Titan1Element<T extends Element> implements AtlasElement {
 
     @Override
     public void removeProperty(String propertyName) {
+        graph.onUpdate();
+
         Iterator<? extends Property<String>> it = getWrappedElement().properties(propertyName);
         while(it.hasNext()) {
             Property<String> property = it.next();
@@ -109,6 +111,8 @@ public class Titan1Element<T extends Element> implements AtlasElement {
     @Override
     public void setProperty(String propertyName, Object value) {
         try {
+            graph.onUpdate();
+
             getWrappedElement().property(propertyName, value);
         } catch(SchemaViolationException e) {
             throw new AtlasSchemaViolationException(e);
@@ -29,7 +29,9 @@ import com.thinkaurelius.titan.core.TitanIndexQuery;
 import com.thinkaurelius.titan.core.schema.TitanGraphIndex;
 import com.thinkaurelius.titan.core.schema.TitanManagement;
 import com.thinkaurelius.titan.core.util.TitanCleanup;
+import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasErrorCode;
+import org.apache.atlas.AtlasException;
 import org.apache.atlas.exception.AtlasBaseException;
 import org.apache.atlas.groovy.GroovyExpression;
 import org.apache.atlas.repository.graphdb.AtlasEdge;
@@ -41,8 +43,10 @@ import org.apache.atlas.repository.graphdb.AtlasSchemaViolationException;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
 import org.apache.atlas.repository.graphdb.GremlinVersion;
 import org.apache.atlas.repository.graphdb.titan1.query.Titan1GraphQuery;
+import org.apache.atlas.repository.graphdb.utils.GremlinScriptEnginePool;
 import org.apache.atlas.repository.graphdb.utils.IteratorToIterableAdapter;
 import org.apache.atlas.typesystem.types.IDataType;
+import org.apache.commons.configuration.Configuration;
 import org.apache.tinkerpop.gremlin.groovy.CompilerCustomizerProvider;
 import org.apache.tinkerpop.gremlin.groovy.DefaultImportCustomizerProvider;
 import org.apache.tinkerpop.gremlin.groovy.jsr223.GremlinGroovyScriptEngine;
@@ -55,6 +59,8 @@ import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.structure.io.IoCore;
 import org.apache.tinkerpop.gremlin.structure.io.graphson.GraphSONMapper;
 import org.apache.tinkerpop.gremlin.structure.io.graphson.GraphSONWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.script.Bindings;
 import javax.script.ScriptEngine;
@@ -82,9 +88,47 @@ public class Titan1Graph implements AtlasGraph<Titan1Vertex, Titan1Edge> {
         }
     }
 
-    private final Set<String> multiProperties;
+    private static final Logger LOG = LoggerFactory.getLogger(Titan1Graph.class);
+
+    public static final String SCRIPT_ENGINE_POOL_SIZE_PROPERTY      = "atlas.gremlin.script.engine.pool.size";
+    public static final String SCRIPT_ENGINE_MAX_ACTIVE_PROPERTY     = "atlas.gremlin.script.engine.max.active";
+    public static final String SCRIPT_ENGINE_MAX_SCRIPTS_PROPERTY    = "atlas.gremlin.script.engine.max.cached.scripts";
+    public static final String SCRIPT_ENGINE_BORROW_TIMEOUT_PROPERTY = "atlas.gremlin.script.engine.borrow.timeout.ms";
+    public static final int    DEFAULT_SCRIPT_ENGINE_POOL_SIZE       = 10;
+    public static final int    DEFAULT_SCRIPT_ENGINE_MAX_ACTIVE      = 50;
+    public static final int    DEFAULT_SCRIPT_ENGINE_MAX_SCRIPTS     = 1000;
+    public static final long   DEFAULT_SCRIPT_ENGINE_BORROW_TIMEOUT  = 30 * 1000L;
+
+    // whether the current thread updated the graph in its open transaction
+    private static final ThreadLocal<Boolean> IS_UPDATED = new ThreadLocal<>();
+
+    private final Set<String>             multiProperties;
+    private final GremlinScriptEnginePool scriptEnginePool;
 
     public Titan1Graph() {
+        int  poolSize      = DEFAULT_SCRIPT_ENGINE_POOL_SIZE;
+        int  maxActive     = DEFAULT_SCRIPT_ENGINE_MAX_ACTIVE;
+        int  maxScripts    = DEFAULT_SCRIPT_ENGINE_MAX_SCRIPTS;
+        long borrowTimeout = DEFAULT_SCRIPT_ENGINE_BORROW_TIMEOUT;
+
+        try {
+            Configuration configuration = ApplicationProperties.get();
+
+            poolSize      = configuration.getInt(SCRIPT_ENGINE_POOL_SIZE_PROPERTY, DEFAULT_SCRIPT_ENGINE_POOL_SIZE);
+            maxActive     = configuration.getInt(SCRIPT_ENGINE_MAX_ACTIVE_PROPERTY, DEFAULT_SCRIPT_ENGINE_MAX_ACTIVE);
+            maxScripts    = configuration.getInt(SCRIPT_ENGINE_MAX_SCRIPTS_PROPERTY, DEFAULT_SCRIPT_ENGINE_MAX_SCRIPTS);
+            borrowTimeout = configuration.getLong(SCRIPT_ENGINE_BORROW_TIMEOUT_PROPERTY, DEFAULT_SCRIPT_ENGINE_BORROW_TIMEOUT);
+        } catch (AtlasException e) {
+            LOG.warn("failed to read configuration; using default script engine pool settings", e);
+        }
+
+        scriptEnginePool = new GremlinScriptEnginePool(new GremlinScriptEnginePool.ScriptEngineFactory() {
+            @Override
+            public ScriptEngine createScriptEngine() {
+                return createGremlinScriptEngine();
+            }
+        }, poolSize, maxActive, maxScripts, borrowTimeout);
+
         //determine multi-properties once at startup
         TitanManagement mgmt = null;
         try {
@@ -109,6 +153,8 @@ public class Titan1Graph implements AtlasGraph<Titan1Vertex, Titan1Edge> {
                                                        String edgeLabel) {
 
         try {
+            onUpdate();
+
             Vertex oV = outVertex.getV().getWrappedElement();
             Vertex iV = inVertex.getV().getWrappedElement();
             Edge edge = oV.addEdge(edgeLabel, iV);
@@ -132,6 +178,7 @@ public class Titan1Graph implements AtlasGraph<Titan1Vertex, Titan1Edge> {
 
     @Override
     public void removeEdge(AtlasEdge<Titan1Vertex, Titan1Edge> edge) {
+        onUpdate();
 
         Edge wrapped = edge.getE().getWrappedElement();
         wrapped.remove();
@@ -140,6 +187,8 @@ public class Titan1Graph implements AtlasGraph<Titan1Vertex, Titan1Edge> {
 
     @Override
     public void removeVertex(AtlasVertex<Titan1Vertex, Titan1Edge> vertex) {
+        onUpdate();
+
         Vertex wrapped = vertex.getV().getWrappedElement();
         wrapped.remove();
     }
@@ -161,18 +210,37 @@ public class Titan1Graph implements AtlasGraph<Titan1Vertex, Titan1Edge> {
 
     @Override
     public AtlasVertex<Titan1Vertex, Titan1Edge> addVertex() {
+        onUpdate();
+
         Vertex result = getGraph().addVertex();
         return GraphDbObjectFactory.createVertex(this, result);
     }
 
     @Override
     public void commit() {
-        getGraph().tx().commit();
+        try {
+            getGraph().tx().commit();
+        } finally {
+            IS_UPDATED.remove();
+        }
     }
 
     @Override
     public void rollback() {
-        getGraph().tx().rollback();
+        try {
+            getGraph().tx().rollback();
+        } finally {
+            IS_UPDATED.remove();
+        }
+    }
+
+    @Override
+    public boolean hasUncommittedChanges() {
+        return IS_UPDATED.get() != null;
+    }
+
+    void onUpdate() {
+        IS_UPDATED.set(Boolean.TRUE);
     }
 
     @Override
@@ -295,7 +363,17 @@ public class Titan1Graph implements AtlasGraph<Titan1Vertex, Titan1Edge> {
     }
 
     @Override
-    public GremlinGroovyScriptEngine getGremlinScriptEngine() {
+    public ScriptEngine getGremlinScriptEngine() throws AtlasBaseException {
+        ScriptEngine ret = scriptEnginePool.borrowEngine();
+
+        if (ret == null) {
+            throw new AtlasBaseException(AtlasErrorCode.FAILED_TO_OBTAIN_GREMLIN_SCRIPT_ENGINE, "all script engines are in use");
+        }
+
+        return ret;
+    }
+
+    private GremlinGroovyScriptEngine createGremlinScriptEngine() {
         Set<String> extraImports = new HashSet<String>();
         extraImports.add(java.util.function.Function.class.getName());
 
@@ -311,31 +389,34 @@ public class Titan1Graph implements AtlasGraph<Titan1Vertex, Titan1Edge> {
 
     @Override
     public void releaseGremlinScriptEngine(ScriptEngine scriptEngine) {
-        if (scriptEngine instanceof GremlinGroovyScriptEngine) {
-            try {
-                ((GremlinGroovyScriptEngine)scriptEngine).close();
-            } catch (Exception e) {
-                // ignore
-            }
-        }
+        scriptEnginePool.releaseEngine(scriptEngine);
     }
 
     @Override
     public Object executeGremlinScript(String query, boolean isPath) throws AtlasBaseException {
-        Object result = executeGremlinScript(query);
+        return executeGremlinScript(query, null, isPath);
+    }
+
+    @Override
+    public Object executeGremlinScript(String query, Map<String, Object> userBindings, boolean isPath) throws AtlasBaseException {
+        Object result = executeGremlinScript(query, userBindings);
         return convertGremlinValue(result);
     }
 
-    private Object executeGremlinScript(String gremlinQuery) throws AtlasBaseException {
-        GremlinGroovyScriptEngine scriptEngine = getGremlinScriptEngine();
+    private Object executeGremlinScript(String gremlinQuery, Map<String, Object> userBindings) throws AtlasBaseException {
+        ScriptEngine scriptEngine = getGremlinScriptEngine();
 
         try {
             Bindings bindings = scriptEngine.createBindings();
 
+            if (userBindings != null) {
+                bindings.putAll(userBindings);
+            }
+
             bindings.put("graph", getGraph());
             bindings.put("g", getGraph().traversal());
 
-            Object result = scriptEngine.eval(gremlinQuery, bindings);
+            Object result = scriptEnginePool.eval(scriptEngine, gremlinQuery, bindings);
 
             return result;
         } catch (ScriptException e) {
@@ -354,7 +435,7 @@ public class Titan1Graph implements AtlasGraph<Titan1Vertex, Titan1Edge> {
         bindings.putAll(userBindings);
         bindings.put("g", getGraph());
 
-        Object result = scriptEngine.eval(query, bindings);
+        Object result = scriptEnginePool.eval(scriptEngine, query, bindings);
         return convertGremlinValue(result);
     }
 
@@ -46,6 +46,8 @@ public class Titan1Vertex extends Titan1Element<Vertex> implements AtlasVertex<T
     @Override
     public <T> void addProperty(String propertyName, T value) {
         try {
+            graph.onUpdate();
+
             getWrappedElement().property(VertexProperty.Cardinality.set, propertyName, value);
         } catch(SchemaViolationException e) {
             throw new AtlasSchemaViolationException(e);
@@ -42,6 +42,8 @@ public class AtlasImportRequest implements Serializable {
     private static final String START_GUID_KEY             = "startGuid";
     private static final String FILE_NAME_KEY              = "fileName";
     private static final String UPDATE_TYPE_DEFINITION_KEY = "updateTypeDefinition";
+    public  static final String BATCH_SIZE_KEY             = "batchSize";
+    public  static final String NUM_WORKERS_KEY            = "numWorkers";
 
     private Map<String, String> options;
 
@@ -97,6 +99,16 @@ public class AtlasImportRequest implements Serializable {
         return getOptionForKey(UPDATE_TYPE_DEFINITION_KEY);
     }
 
+    @JsonIgnore
+    public String getBatchSize() {
+        return getOptionForKey(BATCH_SIZE_KEY);
+    }
+
+    @JsonIgnore
+    public String getNumWorkers() {
+        return getOptionForKey(NUM_WORKERS_KEY);
+    }
+
     private String getOptionForKey(String key) {
         if (this.options == null || !this.options.containsKey(key)) {
             return null;
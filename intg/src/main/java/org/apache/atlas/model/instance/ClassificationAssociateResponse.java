@@ -0,0 +1,117 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.model.instance;
+
+import org.apache.atlas.model.typedef.AtlasBaseTypeDef;
+import org.codehaus.jackson.annotate.JsonAutoDetect;
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import static org.codehaus.jackson.annotate.JsonAutoDetect.Visibility.NONE;
+import static org.codehaus.jackson.annotate.JsonAutoDetect.Visibility.PUBLIC_ONLY;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Result of associating a classification to multiple entities: guids of entities the classification was added to,
+ * and the reason for each entity it could not be added to.
+ */
+@JsonAutoDetect(getterVisibility=PUBLIC_ONLY, setterVisibility=PUBLIC_ONLY, fieldVisibility=NONE)
+@JsonSerialize(include=JsonSerialize.Inclusion.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown=true)
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.PROPERTY)
+public class ClassificationAssociateResponse {
+    private List<String>        associatedEntityGuids = new ArrayList<>();
+    private Map<String, String> failedEntityGuids     = new LinkedHashMap<>();
+
+    public ClassificationAssociateResponse() {
+    }
+
+    public List<String> getAssociatedEntityGuids() { return associatedEntityGuids; }
+
+    public void setAssociatedEntityGuids(List<String> associatedEntityGuids) {
+        this.associatedEntityGuids = associatedEntityGuids != null ? associatedEntityGuids : new ArrayList<String>();
+    }
+
+    public Map<String, String> getFailedEntityGuids() { return failedEntityGuids; }
+
+    public void setFailedEntityGuids(Map<String, String> failedEntityGuids) {
+        this.failedEntityGuids = failedEntityGuids != null ? failedEntityGuids : new LinkedHashMap<String, String>();
+    }
+
+    public void addAssociatedEntityGuid(String guid) {
+        associatedEntityGuids.add(guid);
+    }
+
+    public void addFailedEntityGuid(String guid, String reason) {
+        failedEntityGuids.put(guid, reason);
+    }
+
+    public void add(ClassificationAssociateResponse other) {
+        if (other != null) {
+            associatedEntityGuids.addAll(other.getAssociatedEntityGuids());
+            failedEntityGuids.putAll(other.getFailedEntityGuids());
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) { return true; }
+
+        if (o == null || getClass() != o.getClass()) { return false; }
+
+        ClassificationAssociateResponse that = (ClassificationAssociateResponse) o;
+
+        return Objects.equals(associatedEntityGuids, that.associatedEntityGuids) && Objects.equals(failedEntityGuids, that.failedEntityGuids);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(associatedEntityGuids, failedEntityGuids);
+    }
+
+    public StringBuilder toString(StringBuilder sb) {
+        if (sb == null) {
+            sb = new StringBuilder();
+        }
+
+        sb.append("ClassificationAssociateResponse{");
+        sb.append("associatedEntityGuids=[");
+        AtlasBaseTypeDef.dumpObjects(associatedEntityGuids, sb);
+        sb.append("], failedEntityGuids={");
+        AtlasBaseTypeDef.dumpObjects(failedEntityGuids, sb);
+        sb.append("}");
+        sb.append('}');
+
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        return toString(new StringBuilder()).toString();
+    }
+}
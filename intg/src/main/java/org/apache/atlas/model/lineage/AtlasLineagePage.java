@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.model.lineage;
+
+import org.apache.atlas.model.instance.AtlasEntityHeader;
+import org.codehaus.jackson.annotate.JsonAutoDetect;
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.codehaus.jackson.annotate.JsonAutoDetect.Visibility.NONE;
+import static org.codehaus.jackson.annotate.JsonAutoDetect.Visibility.PUBLIC_ONLY;
+
+/**
+ * A page of the lineage of an entity: relations of one lineage level, along with headers of the entities in these
+ * relations. nextCursor is to be passed to get the next page; it is null in the last page.
+ *
+ * An entity can appear in more than one page; clients are expected to merge pages by guid.
+ */
+@JsonAutoDetect(getterVisibility = PUBLIC_ONLY, setterVisibility = PUBLIC_ONLY, fieldVisibility = NONE)
+@JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.PROPERTY)
+public class AtlasLineagePage extends AtlasLineageInfo {
+    private int    lineageLevel;
+    private String nextCursor;
+
+    public AtlasLineagePage() {}
+
+    /**
+     * @param lineageLevel level of the relations in this page; relations of level 1 are those of the base entity
+     * @param nextCursor   position of the next page; null if this is the last page
+     */
+    public AtlasLineagePage(String baseEntityGuid, Map<String, AtlasEntityHeader> guidEntityMap,
+                            Set<LineageRelation> relations, LineageDirection lineageDirection, int lineageDepth,
+                            int lineageLevel, String nextCursor) {
+        super(baseEntityGuid, guidEntityMap, relations, lineageDirection, lineageDepth);
+
+        this.lineageLevel = lineageLevel;
+        this.nextCursor   = nextCursor;
+    }
+
+    public int getLineageLevel() {
+        return lineageLevel;
+    }
+
+    public void setLineageLevel(int lineageLevel) {
+        this.lineageLevel = lineageLevel;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        AtlasLineagePage that = (AtlasLineagePage) o;
+        return lineageLevel == that.lineageLevel &&
+                Objects.equals(nextCursor, that.nextCursor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), lineageLevel, nextCursor);
+    }
+
+    @Override
+    public String toString() {
+        return "AtlasLineagePage{" +
+                "baseEntityGuid=" + getBaseEntityGuid() +
+                ", guidEntityMap=" + getGuidEntityMap() +
+                ", relations=" + getRelations() +
+                ", lineageDirection=" + getLineageDirection() +
+                ", lineageDepth=" + getLineageDepth() +
+                ", lineageLevel=" + lineageLevel +
+                ", nextCursor=" + nextCursor +
+                '}';
+    }
+}
@@ -21,10 +21,13 @@ package org.apache.atlas.type;
 import org.apache.atlas.exception.AtlasBaseException;
 import org.apache.atlas.model.TypeCategory;
 import org.apache.atlas.model.typedef.AtlasBaseTypeDef;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.map.DeserializationConfig;
 import org.codehaus.jackson.map.ObjectMapper;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 
@@ -114,6 +117,21 @@ public abstract class AtlasType {
         return ret;
     }
 
+    /**
+     * Writes JSON of the given object to the stream, without buffering it in a string; the stream is not closed.
+     */
+    public static void toJson(Object obj, OutputStream outputStream) throws IOException {
+        JsonGenerator generator = mapper.getJsonFactory().createJsonGenerator(outputStream, JsonEncoding.UTF8);
+
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        try {
+            mapper.writeValue(generator, obj);
+        } finally {
+            generator.close();
+        }
+    }
+
     public static <T> T fromJson(String jsonStr, Class<T> type) {
         T ret;
         try {
@@ -0,0 +1,318 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.hook;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.atlas.notification.AbstractNotification;
+import org.apache.atlas.notification.NotificationException;
+import org.apache.atlas.notification.NotificationInterface;
+import org.apache.atlas.notification.hook.HookNotification.HookNotificationMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends hook notifications from a background thread, so that the threads of the host component never wait on the
+ * messaging system. Notifications are queued in a bounded queue; the sender thread hands them over to the producer
+ * without waiting for acknowledgements. Notifications that can't be queued, because the queue is full, and
+ * notifications that fail after all retries are spilled to the local disk: to the spool if enabled, where they are
+ * replayed from; otherwise to the failed messages log.
+ *
+ * A failed send is retried after the retry interval, ahead of the queued notifications; the sender doesn't take
+ * notifications from the queue until every failed notification is either sent or spilled. Hence a notification is not
+ * overtaken by later notifications of the same entity, except by those already handed over to the producer when the
+ * send failed.
+ */
+class AsyncNotificationSender {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncNotificationSender.class);
+
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private final NotificationInterface                notificationInterface;
+    private final BlockingQueue<PendingNotification>   queue;
+    private final long                                 retryIntervalMs;
+    private final HookMessageSpool                     spool;
+    private final boolean                              logFailedMessages;
+    private final FailedMessagesLogger                 failedMessagesLogger;
+    private final Queue<PendingNotification>           retries     = new ConcurrentLinkedQueue<>(); // due for retry
+    private final AtomicInteger                        numInFlight = new AtomicInteger();
+    private final AtomicInteger                        numFailed   = new AtomicInteger(); // yet to be sent or spilled
+    private final ScheduledExecutorService             retryScheduler;
+    private final Thread                               senderThread;
+    private volatile boolean                           stopped = false;
+
+    AsyncNotificationSender(NotificationInterface notificationInterface, int queueSize, long retryIntervalMs,
+                            boolean logFailedMessages, FailedMessagesLogger failedMessagesLogger) {
+        this(notificationInterface, queueSize, retryIntervalMs, null, logFailedMessages, failedMessagesLogger);
+    }
+
+    AsyncNotificationSender(NotificationInterface notificationInterface, int queueSize, long retryIntervalMs,
+                            HookMessageSpool spool, boolean logFailedMessages, FailedMessagesLogger failedMessagesLogger) {
+        this.notificationInterface = notificationInterface;
+        this.queue                 = new ArrayBlockingQueue<>(queueSize);
+        this.retryIntervalMs       = retryIntervalMs;
+        this.spool                 = spool;
+        this.logFailedMessages     = logFailedMessages;
+        this.failedMessagesLogger  = failedMessagesLogger;
+        this.retryScheduler        = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("Atlas Hook Retry %d").setDaemon(true).build());
+        this.senderThread          = new ThreadFactoryBuilder().setNameFormat("Atlas Hook Sender %d").setDaemon(true).build().newThread(new Runnable() {
+            @Override
+            public void run() {
+                runSender();
+            }
+        });
+    }
+
+    public void start() {
+        senderThread.start();
+
+        LOG.info("Started asynchronous notification sender with queue size {}", queue.remainingCapacity());
+    }
+
+    /**
+     * Queue the given messages to be sent. Never blocks: if the queue is full, the messages are spilled right away.
+     * While the spool has messages yet to be replayed, messages are appended to the spool behind them.
+     *
+     * @return true if the messages were queued
+     */
+    public boolean send(List<HookNotificationMessage> messages, int maxRetries) {
+        if (messages == null || messages.isEmpty()) {
+            return true;
+        }
+
+        if (spool != null && !spool.isEmpty()) {
+            spill(messages);
+
+            return false;
+        }
+
+        if (!stopped && queue.offer(new PendingNotification(messages, maxRetries))) {
+            return true;
+        }
+
+        LOG.warn("Notification queue is full; spilling {} message(s)", messages.size());
+
+        spill(messages);
+
+        return false;
+    }
+
+    /**
+     * Stop accepting notifications, and wait up to the given time for the queued and in-flight notifications to be
+     * sent. Notifications still queued after that are spilled.
+     */
+    public void stop(long timeoutMs) {
+        stopped = true;
+
+        long deadline = System.currentTimeMillis() + timeoutMs;
+
+        try {
+            senderThread.join(timeoutMs);
+
+            while (numInFlight.get() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(POLL_TIMEOUT_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        senderThread.interrupt();
+
+        // add the retries not yet due, to be spilled below ahead of the queued notifications
+        for (Runnable retry : retryScheduler.shutdownNow()) {
+            retry.run();
+        }
+
+        for (PendingNotification pending = retries.poll(); pending != null; pending = retries.poll()) {
+            spill(pending.getMessages());
+        }
+
+        for (PendingNotification pending = queue.poll(); pending != null; pending = queue.poll()) {
+            spill(pending.getMessages());
+        }
+
+        if (numInFlight.get() > 0) {
+            LOG.warn("Stopped asynchronous notification sender with {} notification(s) in flight", numInFlight.get());
+        }
+    }
+
+    @VisibleForTesting
+    int getQueueSize() {
+        return queue.size();
+    }
+
+    @VisibleForTesting
+    int getNumInFlight() {
+        return numInFlight.get();
+    }
+
+    private void runSender() {
+        while (!stopped || !queue.isEmpty() || numFailed.get() > 0) {
+            try {
+                PendingNotification pending = retries.poll();
+
+                if (pending == null) {
+                    if (numFailed.get() > 0) { // hold queued notifications until the failed ones are sent
+                        Thread.sleep(POLL_TIMEOUT_MS);
+
+                        continue;
+                    }
+
+                    pending = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                }
+
+                if (pending != null) {
+                    sendPending(pending);
+                }
+            } catch (InterruptedException e) {
+                LOG.info("Asynchronous notification sender interrupted");
+
+                break;
+            } catch (Throwable t) {
+                LOG.error("Error in asynchronous notification sender", t);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    void sendPending(final PendingNotification pending) {
+        NotificationInterface.SendCallback callback = new NotificationInterface.SendCallback() {
+            @Override
+            public void onCompletion(NotificationException exception) {
+                try {
+                    if (exception != null) {
+                        handleFailure(pending, exception);
+                    } else if (pending.isFailed()) {
+                        numFailed.decrementAndGet();
+                    }
+                } finally {
+                    numInFlight.decrementAndGet();
+                }
+            }
+        };
+
+        numInFlight.incrementAndGet();
+
+        try {
+            notificationInterface.sendAsync(NotificationInterface.NotificationType.HOOK, pending.getMessages(), callback);
+        } catch (Exception e) {
+            callback.onCompletion(new NotificationException(e));
+        }
+    }
+
+    // called from the producer callback: must not block
+    private void handleFailure(final PendingNotification pending, NotificationException exception) {
+        int numAttempts = pending.attemptFailed();
+
+        if (numAttempts == 1) {
+            numFailed.incrementAndGet();
+        }
+
+        if (numAttempts < pending.getMaxRetries() && !stopped) {
+            LOG.error("Failed to send notification - attempt #{}; error={}", numAttempts, exception.getMessage());
+
+            try {
+                retryScheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        retries.add(pending);
+                    }
+                }, retryIntervalMs, TimeUnit.MILLISECONDS);
+
+                return;
+            } catch (Exception e) {
+                LOG.warn("Failed to schedule retry of notification", e);
+            }
+        }
+
+        numFailed.decrementAndGet();
+
+        LOG.error("Failed to notify atlas for entity {} after {} retries. Quitting", pending.getMessages(), numAttempts, exception);
+
+        if (spool == null && exception.getFailedMessages() != null) {
+            spillEncoded(exception.getFailedMessages());
+        } else {
+            spill(pending.getMessages());
+        }
+    }
+
+    private void spill(List<HookNotificationMessage> messages) {
+        int numSpooled = spool != null ? spool.append(messages) : 0;
+
+        if (numSpooled == messages.size()) {
+            return;
+        }
+
+        List<HookNotificationMessage> notSpooled = messages.subList(numSpooled, messages.size());
+
+        if (!logFailedMessages || failedMessagesLogger == null) {
+            LOG.error("Dropped {} notification message(s): {}", notSpooled.size(), notSpooled);
+
+            return;
+        }
+
+        for (HookNotificationMessage message : notSpooled) {
+            failedMessagesLogger.log(AbstractNotification.getMessageJson(message));
+        }
+    }
+
+    private void spillEncoded(List<String> messages) {
+        if (!logFailedMessages || failedMessagesLogger == null) {
+            return;
+        }
+
+        for (String message : messages) {
+            failedMessagesLogger.log(message);
+        }
+    }
+
+    /**
+     * Messages of a notifyEntities() call, with the number of attempts made to send them.
+     */
+    @VisibleForTesting
+    static class PendingNotification {
+        private final List<HookNotificationMessage> messages;
+        private final int                           maxRetries;
+        private final AtomicInteger                 numAttempts = new AtomicInteger();
+
+        PendingNotification(List<HookNotificationMessage> messages, int maxRetries) {
+            this.messages   = messages;
+            this.maxRetries = maxRetries;
+        }
+
+        public List<HookNotificationMessage> getMessages() { return messages; }
+
+        public int getMaxRetries() { return maxRetries; }
+
+        int attemptFailed() { return numAttempts.incrementAndGet(); }
+
+        boolean isFailed() { return numAttempts.get() > 0; }
+    }
+}
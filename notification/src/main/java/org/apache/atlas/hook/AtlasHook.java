@@ -19,6 +19,7 @@
 package org.apache.atlas.hook;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.kafka.NotificationProvider;
 import org.apache.atlas.notification.NotificationException;
@@ -34,10 +35,14 @@ import org.codehaus.jettison.json.JSONArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -56,6 +61,22 @@ public abstract class AtlasHook {
     private static int notificationRetryInterval;
     public static final String ATLAS_NOTIFICATION_RETRY_INTERVAL = "atlas.notification.hook.retry.interval";
 
+    private static AsyncNotificationSender asyncSender;
+    public static final String ATLAS_NOTIFICATION_ASYNC_ENABLED = "atlas.notification.hook.async.enabled";
+    public static final String ATLAS_NOTIFICATION_ASYNC_QUEUE_SIZE = "atlas.notification.hook.async.queue.size";
+    public static final String ATLAS_NOTIFICATION_ASYNC_SHUTDOWN_TIMEOUT_MS = "atlas.notification.hook.async.shutdown.timeout.ms";
+
+    private static HookMessageSpool spool;
+    public static final String ATLAS_NOTIFICATION_SPOOL_ENABLED = "atlas.notification.hook.spool.enabled";
+    public static final String ATLAS_NOTIFICATION_SPOOL_DIR = "atlas.notification.hook.spool.dir";
+    public static final String ATLAS_NOTIFICATION_SPOOL_SEGMENT_SIZE = "atlas.notification.hook.spool.segment.size";
+    public static final String ATLAS_NOTIFICATION_SPOOL_MAX_SIZE = "atlas.notification.hook.spool.max.size";
+    public static final String ATLAS_NOTIFICATION_SPOOL_REPLAY_INTERVAL_MS = "atlas.notification.hook.spool.replay.interval.ms";
+
+    private static HookMessageCoalescer coalescer;
+    public static final String ATLAS_NOTIFICATION_COALESCE_INTERVAL_MS = "atlas.notification.hook.coalesce.interval.ms";
+    public static final String ATLAS_NOTIFICATION_COALESCE_MAX_MESSAGES = "atlas.notification.hook.coalesce.max.messages";
+
     public static final String ATLAS_NOTIFICATION_FAILED_MESSAGES_FILENAME_KEY =
             "atlas.notification.failed.messages.filename";
     public static final String ATLAS_HOOK_FAILED_MESSAGES_LOG_DEFAULT_NAME = "atlas_hook_failed_messages.log";
@@ -86,9 +107,94 @@ public abstract class AtlasHook {
         notificationRetryInterval = atlasProperties.getInt(ATLAS_NOTIFICATION_RETRY_INTERVAL, 1000);
         notificationInterface = NotificationProvider.get();
 
+        if (atlasProperties.getBoolean(ATLAS_NOTIFICATION_SPOOL_ENABLED, false)) {
+            initSpool();
+        }
+
+        if (atlasProperties.getBoolean(ATLAS_NOTIFICATION_ASYNC_ENABLED, false)) {
+            asyncSender = new AsyncNotificationSender(notificationInterface,
+                    atlasProperties.getInt(ATLAS_NOTIFICATION_ASYNC_QUEUE_SIZE, 10000), notificationRetryInterval,
+                    spool, logFailedMessages, failedMessagesLogger);
+            asyncSender.start();
+        }
+
+        long coalesceIntervalMs = atlasProperties.getLong(ATLAS_NOTIFICATION_COALESCE_INTERVAL_MS, 0);
+
+        if (coalesceIntervalMs > 0) {
+            initCoalescer(coalesceIntervalMs);
+        }
+
+        if (asyncSender != null || coalescer != null) {
+            final long shutdownTimeoutMs = atlasProperties.getLong(ATLAS_NOTIFICATION_ASYNC_SHUTDOWN_TIMEOUT_MS, 10000);
+
+            Runtime.getRuntime().addShutdownHook(new Thread("atlas-hook-shutdown") {
+                @Override
+                public void run() {
+                    if (coalescer != null) {
+                        coalescer.flush();
+                    }
+
+                    if (asyncSender != null) {
+                        asyncSender.stop(shutdownTimeoutMs);
+                    }
+                }
+            });
+        }
+
         LOG.info("Created Atlas Hook");
     }
 
+    private static void initSpool() {
+        String spoolDir = atlasProperties.getString(ATLAS_NOTIFICATION_SPOOL_DIR,
+                new File(System.getProperty("java.io.tmpdir"), "atlas-hook-spool").getAbsolutePath());
+
+        try {
+            spool = new HookMessageSpool(new File(spoolDir),
+                    atlasProperties.getInt(ATLAS_NOTIFICATION_SPOOL_SEGMENT_SIZE, 64 * 1024 * 1024),
+                    atlasProperties.getLong(ATLAS_NOTIFICATION_SPOOL_MAX_SIZE, 1024L * 1024 * 1024));
+        } catch (IOException e) {
+            LOG.error("Failed to open spool in {}; failed messages will not be replayed", spoolDir, e);
+
+            return;
+        }
+
+        spool.registerMBean();
+
+        long replayIntervalMs = atlasProperties.getLong(ATLAS_NOTIFICATION_SPOOL_REPLAY_INTERVAL_MS, 10000);
+
+        ScheduledExecutorService replayExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("Atlas Hook Spool Replayer %d").setDaemon(true).build());
+
+        replayExecutor.scheduleWithFixedDelay(new HookMessageSpoolReplayer(spool, notificationInterface,
+                logFailedMessages, failedMessagesLogger), replayIntervalMs, replayIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static void initCoalescer(final long coalesceIntervalMs) {
+        coalescer = new HookMessageCoalescer(new HookMessageCoalescer.MessageSender() {
+            @Override
+            public void send(List<HookNotification.HookNotificationMessage> messages, int maxRetries) {
+                sendNotifications(messages, maxRetries);
+            }
+        }, coalesceIntervalMs, atlasProperties.getInt(ATLAS_NOTIFICATION_COALESCE_MAX_MESSAGES, 1000));
+
+        ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("Atlas Hook Coalescer %d").setDaemon(true).build());
+
+        // check for expired messages a few times per interval, so that messages are held at most about 1.25 intervals
+        long checkIntervalMs = Math.max(coalesceIntervalMs / 4, 10);
+
+        flushExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    coalescer.flushExpired(System.currentTimeMillis());
+                } catch (Throwable t) {
+                    LOG.error("Error sending coalesced notifications", t);
+                }
+            }
+        }, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
     protected abstract String getNumberOfRetriesPropertyKey();
 
     protected void notifyEntities(String user, Collection<Referenceable> entities) {
@@ -111,21 +217,55 @@ public abstract class AtlasHook {
      * De-duping of entities is done on server side depending on the
      * unique attribute on the entities.
      *
+     * When asynchronous notification is enabled, the messages are queued to be sent by a background thread,
+     * and this method returns without waiting. When coalescing is enabled, full entity create/update messages
+     * are held for the coalescing interval, and replaced by later messages for the same entities.
+     *
      * @param messages   hook notification messages
      * @param maxRetries maximum number of retries while sending message to messaging system
      */
     public static void notifyEntities(List<HookNotification.HookNotificationMessage> messages, int maxRetries) {
-        notifyEntitiesInternal(messages, maxRetries, notificationInterface, logFailedMessages, failedMessagesLogger);
+        if (coalescer != null) {
+            coalescer.add(messages, maxRetries, System.currentTimeMillis());
+        } else {
+            sendNotifications(messages, maxRetries);
+        }
+    }
+
+    private static void sendNotifications(List<HookNotification.HookNotificationMessage> messages, int maxRetries) {
+        if (asyncSender != null) {
+            asyncSender.send(messages, maxRetries);
+        } else {
+            notifyEntitiesInternal(messages, maxRetries, notificationInterface, logFailedMessages, failedMessagesLogger, spool);
+        }
     }
 
     @VisibleForTesting
     static void notifyEntitiesInternal(List<HookNotification.HookNotificationMessage> messages, int maxRetries,
                                        NotificationInterface notificationInterface,
                                        boolean shouldLogFailedMessages, FailedMessagesLogger logger) {
+        notifyEntitiesInternal(messages, maxRetries, notificationInterface, shouldLogFailedMessages, logger, null);
+    }
+
+    /**
+     * While the spool has messages yet to be replayed, the messaging system is taken to be unavailable: messages are
+     * appended to the spool right away, after the spooled messages, instead of being sent with retries.
+     */
+    @VisibleForTesting
+    static void notifyEntitiesInternal(List<HookNotification.HookNotificationMessage> messages, int maxRetries,
+                                       NotificationInterface notificationInterface,
+                                       boolean shouldLogFailedMessages, FailedMessagesLogger logger,
+                                       HookMessageSpool spool) {
         if (messages == null || messages.isEmpty()) {
             return;
         }
 
+        if (spool != null && !spool.isEmpty() && spool.append(messages) == messages.size()) {
+            LOG.debug("Spooled {} message(s) behind {} message(s) yet to be replayed", messages.size(), spool.getDepth());
+
+            return;
+        }
+
         final String message = messages.toString();
         int numRetries = 0;
         while (true) {
@@ -144,6 +284,12 @@ public abstract class AtlasHook {
                     }
 
                 } else {
+                    if (spool != null && spool.append(messages) == messages.size()) {
+                        LOG.error("Failed to notify atlas for entity {} after {} retries. Spooled for replay",
+                                message, maxRetries, e);
+                        return;
+                    }
+
                     if (shouldLogFailedMessages && e instanceof NotificationException) {
                         List<String> failedMessages = ((NotificationException) e).getFailedMessages();
                         for (String msg : failedMessages) {
@@ -26,6 +26,7 @@ import org.I0Itec.zkclient.ZkClient;
 import org.I0Itec.zkclient.ZkConnection;
 import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasException;
+import org.apache.atlas.kafka.KafkaNotification;
 import org.apache.atlas.utils.AuthenticationUtil;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.lang.StringUtils;
@@ -36,6 +37,9 @@ import org.slf4j.LoggerFactory;
 import scala.Tuple2;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -129,9 +133,27 @@ public class AtlasTopicCreator {
         return new ZkUtils(zkClientAndConnection._1(), zkClientAndConnection._2(), false);
     }
 
+    /**
+     * Get the topics to create: the given topics, along with the dead-letter topic of hook messages when it is enabled.
+     */
+    @VisibleForTesting
+    static String[] getTopicsToCreate(Configuration atlasProperties, String... topicNames) {
+        List<String> ret = new ArrayList<>(Arrays.asList(topicNames));
+
+        if (atlasProperties.getBoolean(KafkaNotification.HOOK_DLQ_ENABLED_PROPERTY, false)) {
+            String dlqTopic = atlasProperties.getString(KafkaNotification.HOOK_DLQ_TOPIC_PROPERTY, KafkaNotification.ATLAS_HOOK_DLQ_TOPIC);
+
+            if (!ret.contains(dlqTopic)) {
+                ret.add(dlqTopic);
+            }
+        }
+
+        return ret.toArray(new String[ret.size()]);
+    }
+
     public static void main(String[] args) throws AtlasException {
         Configuration configuration = ApplicationProperties.get();
         AtlasTopicCreator atlasTopicCreator = new AtlasTopicCreator();
-        atlasTopicCreator.createAtlasTopic(configuration, args);
+        atlasTopicCreator.createAtlasTopic(configuration, getTopicsToCreate(configuration, args));
     }
 }
@@ -0,0 +1,294 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.hook;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.atlas.notification.hook.HookNotification.EntityCreateRequest;
+import org.apache.atlas.notification.hook.HookNotification.HookNotificationMessage;
+import org.apache.atlas.typesystem.Referenceable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds full entity create/update messages for a short interval, so that a burst of messages with the full state of
+ * the same entities results in only the latest one being sent. Notifications are keyed by the user and the type and
+ * qualifiedName of all the entities of each of their messages: a notification replaces a held notification only if
+ * both describe exactly the same entities, in which case the later one carries the latest full state of all of them.
+ * Messages of a notification are held, and sent, together.
+ *
+ * Other messages, like deletes and partial updates (renames), are sent right away: held messages are sent first, so
+ * that the order of messages for an entity is preserved.
+ *
+ * Notifications ready to be sent are moved, under the lock on the held notifications, to a queue of outgoing
+ * notifications; the queue is then drained, in order, by one thread at a time, without holding the lock on the held
+ * notifications. A caller returns only after the notifications it made ready are sent, by itself or by another thread.
+ */
+class HookMessageCoalescer {
+    private static final Logger LOG = LoggerFactory.getLogger(HookMessageCoalescer.class);
+
+    private static final String ATTRIBUTE_QUALIFIED_NAME = "qualifiedName";
+
+    /**
+     * Where coalesced messages are sent to.
+     */
+    interface MessageSender {
+        void send(List<HookNotificationMessage> messages, int maxRetries);
+    }
+
+    private final MessageSender                      sender;
+    private final long                               intervalMs;
+    private final int                                maxMessages;
+    private final Map<String, HeldNotification>      heldNotifications = new LinkedHashMap<>();
+    private final Queue<HeldNotification>            outgoing          = new ArrayDeque<>();
+    private final ReentrantLock                      sendLock          = new ReentrantLock();
+    private       int                                numHeld           = 0;
+    private       long                               numCoalesced      = 0;
+
+    HookMessageCoalescer(MessageSender sender, long intervalMs, int maxMessages) {
+        this.sender      = sender;
+        this.intervalMs  = intervalMs;
+        this.maxMessages = maxMessages;
+    }
+
+    /**
+     * Add the messages of a notification: held if all of them can be coalesced, otherwise sent right away after the
+     * held messages.
+     */
+    public void add(List<HookNotificationMessage> messages, int maxRetries, long now) {
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+
+        String  key = getNotificationKey(messages);
+        boolean isSendNeeded;
+
+        synchronized (this) {
+            if (key == null) {
+                moveAllToOutgoing();
+
+                outgoing.add(new HeldNotification(messages, maxRetries, now));
+            } else {
+                HeldNotification replaced = remove(key);
+                long             heldTime = replaced != null ? replaced.heldTime : now;
+
+                if (replaced != null) {
+                    numCoalesced++;
+
+                    LOG.debug("Coalesced notification for {}", key);
+                }
+
+                heldNotifications.put(key, new HeldNotification(messages, maxRetries, heldTime));
+
+                numHeld += messages.size();
+
+                while (numHeld > maxMessages) {
+                    moveOldestToOutgoing();
+                }
+            }
+
+            isSendNeeded = !outgoing.isEmpty();
+        }
+
+        if (isSendNeeded) {
+            sendOutgoing();
+        }
+    }
+
+    /**
+     * Send the messages held for at least the coalescing interval. A notification that replaced another is held since
+     * the time the first one was received, yet is ordered after the notifications received in between; these are sent
+     * along, to keep the order of messages that share some of the entities.
+     */
+    public void flushExpired(long now) {
+        boolean isSendNeeded;
+
+        synchronized (this) {
+            int numToSend = 0;
+            int idx       = 0;
+
+            for (HeldNotification held : heldNotifications.values()) {
+                idx++;
+
+                if (now - held.heldTime >= intervalMs) {
+                    numToSend = idx;
+                }
+            }
+
+            for (int i = 0; i < numToSend; i++) {
+                moveOldestToOutgoing();
+            }
+
+            isSendNeeded = !outgoing.isEmpty();
+        }
+
+        if (isSendNeeded) {
+            sendOutgoing();
+        }
+    }
+
+    /**
+     * Send all held messages, in the order received.
+     */
+    public void flush() {
+        synchronized (this) {
+            moveAllToOutgoing();
+        }
+
+        sendOutgoing();
+    }
+
+    @VisibleForTesting
+    synchronized int getNumHeld() {
+        return numHeld;
+    }
+
+    @VisibleForTesting
+    synchronized long getNumCoalesced() {
+        return numCoalesced;
+    }
+
+    /**
+     * @return the key of the entities whose full state the messages of a notification carry; null if they can't be
+     * coalesced
+     */
+    @VisibleForTesting
+    static String getNotificationKey(List<HookNotificationMessage> messages) {
+        StringBuilder sb = new StringBuilder();
+
+        for (HookNotificationMessage message : messages) {
+            String key = getCoalesceKey(message);
+
+            if (key == null) {
+                return null;
+            }
+
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+
+            sb.append(key);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * @return the key of the entities whose full state the given message carries; null if it can't be coalesced
+     */
+    @VisibleForTesting
+    static String getCoalesceKey(HookNotificationMessage message) {
+        if (!(message instanceof EntityCreateRequest)) { // EntityUpdateRequest extends EntityCreateRequest
+            return null;
+        }
+
+        List<Referenceable> entities = ((EntityCreateRequest) message).getEntities();
+
+        if (entities == null || entities.isEmpty()) {
+            return null;
+        }
+
+        TreeSet<String> entityKeys = new TreeSet<>();
+
+        for (Referenceable entity : entities) {
+            Object qualifiedName = entity != null ? entity.get(ATTRIBUTE_QUALIFIED_NAME) : null;
+
+            if (qualifiedName == null) {
+                return null;
+            }
+
+            entityKeys.add(entity.getTypeName() + ":" + qualifiedName);
+        }
+
+        return message.getUser() + "|" + entityKeys;
+    }
+
+    private HeldNotification remove(String key) {
+        HeldNotification ret = heldNotifications.remove(key);
+
+        if (ret != null) {
+            numHeld -= ret.messages.size();
+        }
+
+        return ret;
+    }
+
+    private void moveOldestToOutgoing() {
+        Iterator<HeldNotification> iter = heldNotifications.values().iterator();
+        HeldNotification           held = iter.next();
+
+        iter.remove();
+
+        numHeld -= held.messages.size();
+
+        outgoing.add(held);
+    }
+
+    private void moveAllToOutgoing() {
+        while (!heldNotifications.isEmpty()) {
+            moveOldestToOutgoing();
+        }
+    }
+
+    /*
+     * sends outgoing notifications, in the order queued, without holding the lock on the held notifications. The send
+     * lock is taken by one caller at a time, which sends notifications queued by others as well
+     */
+    private void sendOutgoing() {
+        sendLock.lock();
+
+        try {
+            while (true) {
+                HeldNotification notification;
+
+                synchronized (this) {
+                    notification = outgoing.poll();
+                }
+
+                if (notification == null) {
+                    break;
+                }
+
+                sender.send(notification.messages, notification.maxRetries);
+            }
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    private static class HeldNotification {
+        private final List<HookNotificationMessage> messages;
+        private final int                           maxRetries;
+        private final long                          heldTime;
+
+        HeldNotification(List<HookNotificationMessage> messages, int maxRetries, long heldTime) {
+            this.messages   = messages;
+            this.maxRetries = maxRetries;
+            this.heldTime   = heldTime;
+        }
+    }
+}
@@ -0,0 +1,534 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.hook;
+
+import org.apache.atlas.notification.AbstractNotification;
+import org.apache.atlas.notification.hook.HookNotification.HookNotificationMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Append-only spool of hook messages on the local disk, for messages that could not be sent to the messaging system.
+ * Messages are read back in the order written, and removed once replayed.
+ *
+ * The spool is a sequence of fixed size segment files, each memory-mapped: appends and reads are memory copies, and
+ * the operating system writes the pages back to the disk, so that spooled messages survive a restart of the host
+ * process. A segment is deleted once all its messages are replayed; the number of segments is capped by the maximum
+ * spool size, beyond which appends are rejected.
+ *
+ * Segment layout: a header with a magic number and the position of the next message to replay, followed by records
+ * of [int record size][long timestamp][UTF-8 message]. The size of a record is written after the rest of the record,
+ * so a record partially written when the process died is ignored on reopen.
+ *
+ * The spool directory is locked while open: only one process can use a spool directory at a time.
+ */
+public class HookMessageSpool implements HookMessageSpoolMXBean, Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(HookMessageSpool.class);
+
+    public static final String MBEAN_NAME = "org.apache.atlas.hook:type=HookMessageSpool";
+
+    private static final int    MAGIC              = 0x41484d53;
+    private static final int    READ_POS_OFFSET    = 4;
+    private static final int    HEADER_SIZE        = 8;
+    private static final int    RECORD_HEADER_SIZE = 12;
+    private static final String SEGMENT_PREFIX     = "spool-";
+    private static final String SEGMENT_SUFFIX     = ".dat";
+    private static final String LOCK_FILE          = "spool.lock";
+
+    private final File           directory;
+    private final int            segmentSize;
+    private final long           maxSize;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final FileChannel    lockChannel;
+    private final FileLock       lock;
+    private       long           nextSeq     = 0;
+    private       long           depth       = 0;
+    private       long           numSpooled  = 0;
+    private       long           numReplayed = 0;
+    private       long           numRejected = 0;
+    private       boolean        isClosed    = false;
+
+    /**
+     * Open the spool in the given directory, with the messages spooled earlier and not yet replayed.
+     *
+     * @param directory    the spool directory; created if it doesn't exist
+     * @param segmentSize  size of each segment file, in bytes; messages larger than a segment are rejected
+     * @param maxSize      maximum total size of the segment files, in bytes
+     *
+     * @throws IOException if the spool can't be opened, or is in use by another process
+     */
+    public HookMessageSpool(File directory, int segmentSize, long maxSize) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("failed to create spool directory " + directory);
+        }
+
+        this.directory   = directory;
+        this.segmentSize = segmentSize;
+        this.maxSize     = maxSize;
+        this.lockChannel = new RandomAccessFile(new File(directory, LOCK_FILE), "rw").getChannel();
+
+        FileLock fileLock = null;
+
+        try {
+            fileLock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // already locked within this process
+        }
+
+        this.lock = fileLock;
+
+        if (lock == null) {
+            lockChannel.close();
+
+            throw new IOException("spool directory " + directory + " is in use by another process");
+        }
+
+        try {
+            openSegments();
+        } catch (IOException e) {
+            close();
+
+            throw e;
+        }
+
+        LOG.info("Opened spool {}: {} message(s) in {} segment(s)", directory, depth, segments.size());
+    }
+
+    /**
+     * Append the given message to the spool.
+     *
+     * @return false if the message could not be spooled, because the spool is full or the message is too large
+     */
+    public synchronized boolean append(String message) {
+        if (isClosed) {
+            return false;
+        }
+
+        byte[] bytes      = message.getBytes(StandardCharsets.UTF_8);
+        int    recordSize = RECORD_HEADER_SIZE + bytes.length;
+
+        if (recordSize > segmentSize - HEADER_SIZE) {
+            LOG.warn("Message of {} bytes is larger than spool segment size {}", bytes.length, segmentSize);
+
+            numRejected++;
+
+            return false;
+        }
+
+        Segment tail = segments.peekLast();
+
+        if (tail == null || !tail.canWrite(recordSize)) {
+            getReadSegment(); // delete the segments already replayed
+
+            if (getSizeBytes() + segmentSize > maxSize) {
+                numRejected++;
+
+                return false;
+            }
+
+            try {
+                if (tail != null) {
+                    tail.force();
+                }
+
+                tail = Segment.create(new File(directory, getSegmentName(nextSeq)), segmentSize);
+
+                nextSeq++;
+
+                segments.addLast(tail);
+            } catch (IOException e) {
+                LOG.error("Failed to create spool segment in {}", directory, e);
+
+                numRejected++;
+
+                return false;
+            }
+        }
+
+        tail.write(bytes, System.currentTimeMillis());
+
+        depth++;
+        numSpooled++;
+
+        return true;
+    }
+
+    /**
+     * Append the given hook messages to the spool, in order.
+     *
+     * @return number of messages spooled; the messages after these could not be spooled
+     */
+    public synchronized int append(List<HookNotificationMessage> messages) {
+        int ret = 0;
+
+        for (HookNotificationMessage message : messages) {
+            if (!append(AbstractNotification.getMessageJson(message))) {
+                break;
+            }
+
+            ret++;
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return the oldest message in the spool, without removing it; null if the spool is empty
+     */
+    public synchronized String peek() {
+        Segment head = getReadSegment();
+
+        return head != null ? head.readMessage() : null;
+    }
+
+    /**
+     * Remove the oldest message in the spool, after it has been replayed.
+     */
+    public synchronized void remove() {
+        Segment head = getReadSegment();
+
+        if (head != null) {
+            head.advance();
+
+            depth--;
+            numReplayed++;
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return depth == 0;
+    }
+
+    /**
+     * Register the metrics of this spool with the platform MBean server.
+     */
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(MBEAN_NAME));
+        } catch (Exception e) {
+            LOG.warn("Failed to register spool metrics as {}", MBEAN_NAME, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (isClosed) {
+            return;
+        }
+
+        isClosed = true;
+
+        for (Segment segment : segments) {
+            segment.force();
+            segment.close();
+        }
+
+        segments.clear();
+
+        try {
+            if (lock != null) {
+                lock.release();
+            }
+
+            lockChannel.close();
+        } catch (IOException e) {
+            LOG.warn("Failed to release lock on spool directory {}", directory, e);
+        }
+    }
+
+
+    // ----- HookMessageSpoolMXBean ------------------------------------------
+
+    @Override
+    public synchronized long getDepth() {
+        return depth;
+    }
+
+    @Override
+    public synchronized long getOldestMessageAgeMs() {
+        Segment head = getReadSegment();
+
+        return head != null ? Math.max(0, System.currentTimeMillis() - head.readTimestamp()) : 0;
+    }
+
+    @Override
+    public synchronized long getSizeBytes() {
+        long ret = 0;
+
+        for (Segment segment : segments) {
+            ret += segment.capacity;
+        }
+
+        return ret;
+    }
+
+    @Override
+    public synchronized int getNumSegments() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized long getNumSpooled() {
+        return numSpooled;
+    }
+
+    @Override
+    public synchronized long getNumReplayed() {
+        return numReplayed;
+    }
+
+    @Override
+    public synchronized long getNumRejected() {
+        return numRejected;
+    }
+
+
+    // ----- helpers ---------------------------------------------------------
+
+    private void openSegments() throws IOException {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+
+        if (files == null) {
+            throw new IOException("failed to list spool directory " + directory);
+        }
+
+        Arrays.sort(files); // segment names are zero-padded sequence numbers
+
+        for (File file : files) {
+            long seq;
+
+            try {
+                seq = Long.parseLong(file.getName().substring(SEGMENT_PREFIX.length(), file.getName().length() - SEGMENT_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                LOG.warn("Ignoring unexpected file {} in spool directory", file);
+
+                continue;
+            }
+
+            Segment segment = Segment.open(file);
+
+            if (segment == null) {
+                LOG.warn("Ignoring invalid spool segment {}", file);
+
+                continue;
+            }
+
+            segments.addLast(segment);
+
+            depth   += segment.numRecords;
+            nextSeq  = Math.max(nextSeq, seq + 1);
+        }
+
+        // drop segments already replayed
+        getReadSegment();
+    }
+
+    /**
+     * @return the segment holding the oldest message; null if the spool is empty. Segments fully replayed are deleted,
+     *         except the last one which is still being written to.
+     */
+    private Segment getReadSegment() {
+        Segment head = segments.peekFirst();
+
+        while (head != null && head.numRecords == 0) {
+            if (segments.size() == 1) {
+                return null;
+            }
+
+            segments.removeFirst();
+
+            head.delete();
+
+            head = segments.peekFirst();
+        }
+
+        return head;
+    }
+
+    private static String getSegmentName(long seq) {
+        return String.format("%s%019d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX);
+    }
+
+    private static class Segment {
+        private final File             file;
+        private final FileChannel      channel;
+        private final MappedByteBuffer buffer;
+        private final int              capacity;
+        private       int              readPos;
+        private       int              writePos;
+        private       long             numRecords = 0;
+
+        private Segment(File file, FileChannel channel, MappedByteBuffer buffer, int readPos, int writePos) {
+            this.file     = file;
+            this.channel  = channel;
+            this.buffer   = buffer;
+            this.capacity = buffer.capacity();
+            this.readPos  = readPos;
+            this.writePos = writePos;
+        }
+
+        static Segment create(File file, int size) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+            try {
+                raf.setLength(size);
+
+                MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(READ_POS_OFFSET, HEADER_SIZE);
+
+                return new Segment(file, raf.getChannel(), buffer, HEADER_SIZE, HEADER_SIZE);
+            } catch (IOException e) {
+                raf.close();
+
+                throw e;
+            }
+        }
+
+        /**
+         * @return the segment; null if the file isn't a valid segment
+         */
+        static Segment open(File file) throws IOException {
+            RandomAccessFile raf  = new RandomAccessFile(file, "rw");
+            long             size = raf.length();
+
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                raf.close();
+
+                return null;
+            }
+
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+            if (buffer.getInt(0) != MAGIC) {
+                raf.close();
+
+                return null;
+            }
+
+            int readPos    = buffer.getInt(READ_POS_OFFSET);
+            int pos        = HEADER_SIZE;
+            int numRecords = 0;
+
+            while (pos + RECORD_HEADER_SIZE <= size) {
+                int recordSize = buffer.getInt(pos);
+
+                if (recordSize < RECORD_HEADER_SIZE || pos + (long) recordSize > size) {
+                    break; // end of the records written
+                }
+
+                if (pos >= readPos) {
+                    numRecords++;
+                }
+
+                pos += recordSize;
+            }
+
+            Segment ret = new Segment(file, raf.getChannel(), buffer, Math.max(HEADER_SIZE, Math.min(readPos, pos)), pos);
+
+            ret.numRecords = numRecords;
+
+            return ret;
+        }
+
+        boolean canWrite(int recordSize) {
+            return writePos + recordSize <= capacity;
+        }
+
+        void write(byte[] bytes, long timestamp) {
+            ByteBuffer record = buffer.duplicate();
+
+            record.position(writePos + RECORD_HEADER_SIZE);
+            record.put(bytes);
+
+            buffer.putLong(writePos + 4, timestamp);
+            buffer.putInt(writePos, RECORD_HEADER_SIZE + bytes.length); // written last: marks the record complete
+
+            writePos += RECORD_HEADER_SIZE + bytes.length;
+            numRecords++;
+        }
+
+        String readMessage() {
+            int    length = buffer.getInt(readPos) - RECORD_HEADER_SIZE;
+            byte[] bytes  = new byte[length];
+
+            ByteBuffer record = buffer.duplicate();
+
+            record.position(readPos + RECORD_HEADER_SIZE);
+            record.get(bytes);
+
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        long readTimestamp() {
+            return buffer.getLong(readPos + 4);
+        }
+
+        void advance() {
+            readPos += buffer.getInt(readPos);
+            numRecords--;
+
+            buffer.putInt(READ_POS_OFFSET, readPos);
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close spool segment {}", file, e);
+            }
+        }
+
+        void delete() {
+            close();
+
+            if (!file.delete()) {
+                LOG.warn("Failed to delete spool segment {}", file);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.hook;
+
+/**
+ * Metrics of the hook message spool, exposed over JMX as org.apache.atlas.hook:type=HookMessageSpool.
+ */
+public interface HookMessageSpoolMXBean {
+    /**
+     * @return number of messages in the spool, yet to be replayed
+     */
+    long getDepth();
+
+    /**
+     * @return age of the oldest message in the spool in milliseconds; 0 if the spool is empty
+     */
+    long getOldestMessageAgeMs();
+
+    /**
+     * @return size of the spool segments on disk, in bytes
+     */
+    long getSizeBytes();
+
+    int getNumSegments();
+
+    /**
+     * @return number of messages written to the spool since the hook started
+     */
+    long getNumSpooled();
+
+    /**
+     * @return number of messages replayed from the spool since the hook started
+     */
+    long getNumReplayed();
+
+    /**
+     * @return number of messages that could not be spooled since the hook started, because the spool was full
+     */
+    long getNumRejected();
+}
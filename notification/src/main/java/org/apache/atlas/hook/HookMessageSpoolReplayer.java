@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.hook;
+
+import org.apache.atlas.notification.MessageDeserializer;
+import org.apache.atlas.notification.NotificationInterface;
+import org.apache.atlas.notification.hook.HookNotification.HookNotificationMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replays the messages in the hook message spool, in the order spooled. Run periodically: each run sends messages
+ * until the spool is empty or a send fails, in which case the remaining messages are left for the next run.
+ */
+class HookMessageSpoolReplayer implements Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(HookMessageSpoolReplayer.class);
+
+    private final HookMessageSpool      spool;
+    private final NotificationInterface notificationInterface;
+    private final boolean               logFailedMessages;
+    private final FailedMessagesLogger  failedMessagesLogger;
+
+    HookMessageSpoolReplayer(HookMessageSpool spool, NotificationInterface notificationInterface,
+                             boolean logFailedMessages, FailedMessagesLogger failedMessagesLogger) {
+        this.spool                 = spool;
+        this.notificationInterface = notificationInterface;
+        this.logFailedMessages     = logFailedMessages;
+        this.failedMessagesLogger  = failedMessagesLogger;
+    }
+
+    @Override
+    public void run() {
+        try {
+            replay();
+        } catch (Throwable t) {
+            LOG.error("Error replaying spooled messages", t);
+        }
+    }
+
+    /**
+     * @return number of messages replayed
+     */
+    int replay() {
+        MessageDeserializer<HookNotificationMessage> deserializer = NotificationInterface.NotificationType.HOOK.getDeserializer();
+
+        int ret = 0;
+
+        for (String messageJson = spool.peek(); messageJson != null; messageJson = spool.peek()) {
+            HookNotificationMessage message;
+
+            try {
+                message = deserializer.deserialize(messageJson);
+            } catch (Exception e) {
+                LOG.error("Dropping spooled message that could not be read", e);
+
+                if (logFailedMessages && failedMessagesLogger != null) {
+                    failedMessagesLogger.log(messageJson);
+                }
+
+                spool.remove();
+
+                continue;
+            }
+
+            try {
+                notificationInterface.send(NotificationInterface.NotificationType.HOOK, message);
+            } catch (Exception e) {
+                LOG.warn("Failed to replay spooled messages; {} message(s) left in spool, oldest {} ms old. error={}",
+                         spool.getDepth(), spool.getOldestMessageAgeMs(), e.getMessage());
+
+                break;
+            }
+
+            spool.remove();
+
+            ret++;
+        }
+
+        if (ret > 0) {
+            LOG.info("Replayed {} spooled message(s); {} message(s) left in spool", ret, spool.getDepth());
+        }
+
+        return ret;
+    }
+}
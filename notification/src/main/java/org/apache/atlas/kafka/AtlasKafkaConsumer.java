@@ -17,24 +17,40 @@
  */
 package org.apache.atlas.kafka;
 
+import org.apache.atlas.notification.AbstractNotification;
 import org.apache.atlas.notification.AbstractNotificationConsumer;
+import org.apache.atlas.notification.MessageChunk;
 import org.apache.atlas.notification.MessageDeserializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.errors.WakeupException;
 
 /**
  * Kafka specific notification consumer.
  *
+ * When asynchronous commit is enabled, offsets of processed messages are not committed one at a time. Instead,
+ * offsets upto which messages have been processed without a gap are committed with commitAsync() once
+ * commitBatchSize messages have been processed or commitIntervalMs has elapsed, and with commitSync() when
+ * partitions are revoked and when the consumer is closed.
+ *
+ * Chunks of messages too large to be sent as one Kafka message are returned without being deserialized, for the
+ * caller to reassemble them. Until all chunks of a message are committed, offsets after the first chunk are not
+ * committed, so that the message is received again after a restart.
+ *
  * @param <T> the notification type returned by this consumer
  */
 public class AtlasKafkaConsumer<T> extends AbstractNotificationConsumer<T> {
@@ -43,12 +59,54 @@ public class AtlasKafkaConsumer<T> extends AbstractNotificationConsumer<T> {
     private final KafkaConsumer kafkaConsumer;
     private final boolean autoCommitEnabled;
     private long pollTimeoutMilliSeconds = 1000L;
+    private final boolean asyncCommitEnabled;
+    private final long commitIntervalMs;
+    private final int commitBatchSize;
+    private final OffsetCommitTracker commitTracker = new OffsetCommitTracker();
+    private final List<TopicPartition> revokedPartitions = new ArrayList<>();
 
     public AtlasKafkaConsumer(MessageDeserializer<T> deserializer, KafkaConsumer kafkaConsumer, boolean autoCommitEnabled, long pollTimeoutMilliSeconds) {
+        this(deserializer, kafkaConsumer, autoCommitEnabled, pollTimeoutMilliSeconds, false, 0, 1);
+    }
+
+    public AtlasKafkaConsumer(MessageDeserializer<T> deserializer, KafkaConsumer kafkaConsumer, boolean autoCommitEnabled, long pollTimeoutMilliSeconds,
+                              boolean asyncCommitEnabled, long commitIntervalMs, int commitBatchSize) {
         super(deserializer);
         this.kafkaConsumer = kafkaConsumer;
         this.autoCommitEnabled = autoCommitEnabled;
         this.pollTimeoutMilliSeconds = pollTimeoutMilliSeconds;
+        this.asyncCommitEnabled = asyncCommitEnabled && !autoCommitEnabled;
+        this.commitIntervalMs = commitIntervalMs;
+        this.commitBatchSize = commitBatchSize;
+    }
+
+    public boolean isAsyncCommitEnabled() {
+        return asyncCommitEnabled;
+    }
+
+    /**
+     * @return listener that commits the offsets of processed messages before partitions are reassigned to other
+     *         consumers, and records the revoked partitions to be returned by getRevokedPartitions()
+     */
+    public ConsumerRebalanceListener getRebalanceListener() {
+        return new ConsumerRebalanceListener() {
+            @Override
+            public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                LOG.info("Partitions revoked: {}", partitions);
+
+                if (!autoCommitEnabled) {
+                    flushCommits(true);
+                }
+
+                commitTracker.remove(partitions);
+                revokedPartitions.addAll(partitions);
+            }
+
+            @Override
+            public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                LOG.info("Partitions assigned: {}", partitions);
+            }
+        };
     }
 
     public List<AtlasKafkaMessage<T>> receive() {
@@ -60,6 +118,10 @@ public class AtlasKafkaConsumer<T> extends AbstractNotificationConsumer<T> {
 
         List<AtlasKafkaMessage<T>> messages = new ArrayList();
 
+        if (asyncCommitEnabled && commitTracker.isFlushDue(commitBatchSize, commitIntervalMs)) {
+            flushCommits(false);
+        }
+
         ConsumerRecords<?, ?> records = kafkaConsumer.poll(timeoutMilliSeconds);
 
         if (records != null) {
@@ -69,9 +131,20 @@ public class AtlasKafkaConsumer<T> extends AbstractNotificationConsumer<T> {
                             record.topic(), record.partition(), record.offset(), record.key(), record.value());
                 }
 
-                T message = deserializer.deserialize(record.value().toString());
+                String       value = record.value().toString();
+                MessageChunk chunk = MessageChunk.fromJson(value, AbstractNotification.CHUNKED_MESSAGE_VERSION);
 
-                messages.add(new AtlasKafkaMessage(message, record.offset(), record.partition()));
+                if (asyncCommitEnabled || chunk != null) {
+                    commitTracker.received(new TopicPartition(record.topic(), record.partition()), record.offset());
+                }
+
+                if (chunk != null) {
+                    messages.add(new AtlasKafkaMessage<T>(null, chunk, record.offset(), record.partition()));
+                } else {
+                    T message = deserializer.deserialize(value);
+
+                    messages.add(new AtlasKafkaMessage(message, record.offset(), record.partition()));
+                }
             }
         }
 
@@ -82,7 +155,20 @@ public class AtlasKafkaConsumer<T> extends AbstractNotificationConsumer<T> {
 
     @Override
     public void commit(TopicPartition partition, long offset) {
-        if (!autoCommitEnabled) {
+        if (asyncCommitEnabled) {
+            commitTracker.processed(partition, offset - 1);
+
+            if (commitTracker.isFlushDue(commitBatchSize, commitIntervalMs)) {
+                flushCommits(false);
+            }
+        } else if (commitTracker.hasPending(partition)) {
+            // chunks of a message are yet to be committed: don't commit beyond the first of them
+            commitTracker.processed(partition, offset - 1);
+
+            if (!autoCommitEnabled) {
+                flushCommits(true);
+            }
+        } else if (!autoCommitEnabled) {
             if (LOG.isDebugEnabled()) {
                 LOG.info(" commiting the offset ==>> " + offset);
             }
@@ -90,10 +176,77 @@ public class AtlasKafkaConsumer<T> extends AbstractNotificationConsumer<T> {
         }
     }
 
+    /**
+     * Offsets held are tracked as pending, so that commits of the partition don't go beyond them.
+     */
+    @Override
+    public void holdOffset(TopicPartition partition, long offset) {
+        if (!autoCommitEnabled) {
+            commitTracker.received(partition, offset);
+        }
+    }
+
+    @Override
+    public List<TopicPartition> getRevokedPartitions() {
+        if (revokedPartitions.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<TopicPartition> ret = new ArrayList<>(revokedPartitions);
+
+        revokedPartitions.clear();
+
+        return ret;
+    }
+
     @Override
     public void close() {
         if (kafkaConsumer != null) {
-            kafkaConsumer.close();
+            try {
+                if (asyncCommitEnabled) {
+                    flushCommits(true);
+                }
+            } catch (Exception e) {
+                LOG.warn("Failed to commit offsets while closing the consumer", e);
+            } finally {
+                kafkaConsumer.close();
+            }
+        }
+    }
+
+    private void flushCommits(boolean sync) {
+        final Map<TopicPartition, OffsetAndMetadata> offsets = commitTracker.getCommittableOffsets();
+
+        if (offsets.isEmpty()) {
+            return;
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("commiting offsets (sync={}) ==>> {}", sync, offsets);
+        }
+
+        if (sync) {
+            try {
+                kafkaConsumer.commitSync(offsets);
+            } catch (WakeupException e) {
+                // a pending wakeup() aborts the first blocking call; the consumer is being shutdown, retry once
+                kafkaConsumer.commitSync(offsets);
+            }
+
+            commitTracker.committed(offsets);
+        } else {
+            commitTracker.committed(offsets);
+
+            kafkaConsumer.commitAsync(offsets, new OffsetCommitCallback() {
+                @Override
+                public void onComplete(Map<TopicPartition, OffsetAndMetadata> committedOffsets, Exception exception) {
+                    if (exception != null) {
+                        LOG.warn("Failed to commit offsets {}. Will be retried with the next commit", offsets, exception);
+
+                        commitTracker.commitFailed(offsets);
+                    }
+                }
+            });
         }
     }
 
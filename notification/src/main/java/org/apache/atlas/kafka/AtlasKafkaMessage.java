@@ -18,13 +18,27 @@ package org.apache.atlas.kafka;
  * limitations under the License.
  */
 
+import org.apache.atlas.notification.MessageChunk;
+
 public class AtlasKafkaMessage<T> {
-    private final T    message;
-    private final long offset;
-    private final int  partition;
+    private final T            message;
+    private final MessageChunk chunk;
+    private final long         offset;
+    private final int          partition;
 
     public AtlasKafkaMessage(T message, long offset, int partition) {
+        this(message, null, offset, partition);
+    }
+
+    /**
+     * @param message    the message; null if this is a chunk of a message
+     * @param chunk      the chunk of a message, to be reassembled by the receiver before the message can be processed
+     * @param offset     offset of the message in the partition
+     * @param partition  the partition
+     */
+    public AtlasKafkaMessage(T message, MessageChunk chunk, long offset, int partition) {
         this.message   = message;
+        this.chunk     = chunk;
         this.offset    = offset;
         this.partition = partition;
     }
@@ -33,6 +47,14 @@ public class AtlasKafkaMessage<T> {
         return message;
     }
 
+    public MessageChunk getChunk() {
+        return chunk;
+    }
+
+    public boolean isChunk() {
+        return chunk != null;
+    }
+
     public long getOffset() {
         return offset;
     }
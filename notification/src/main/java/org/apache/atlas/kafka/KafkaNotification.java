@@ -24,13 +24,18 @@ import kafka.utils.Time;
 import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.notification.AbstractNotification;
+import org.apache.atlas.notification.MessageChunk;
 import org.apache.atlas.notification.NotificationConsumer;
 import org.apache.atlas.notification.NotificationException;
+import org.apache.atlas.notification.hook.HookNotification;
+import org.apache.atlas.typesystem.Referenceable;
+import org.apache.atlas.typesystem.Struct;
 import org.apache.atlas.service.Service;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationConverter;
 import org.apache.commons.lang.StringUtils;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
@@ -54,12 +59,17 @@ import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Kafka specific access point to the Atlas notification framework.
@@ -75,26 +85,36 @@ public class KafkaNotification extends AbstractNotification implements Service {
 
     public static final String ATLAS_HOOK_TOPIC = "ATLAS_HOOK";
     public static final String ATLAS_ENTITIES_TOPIC = "ATLAS_ENTITIES";
+    public static final String ATLAS_HOOK_DLQ_TOPIC = "ATLAS_HOOK_DLQ";
+
+    public static final String HOOK_TOPIC_PROPERTY       = "atlas.notification.hook.topic";
+    public static final String HOOK_DLQ_ENABLED_PROPERTY = "atlas.notification.hook.dlq.enabled";
+    public static final String HOOK_DLQ_TOPIC_PROPERTY   = "atlas.notification.hook.dlq.topic";
+
+    private static final String ATTRIBUTE_QUALIFIED_NAME = "qualifiedName";
 
     protected static final String CONSUMER_GROUP_ID_PROPERTY = "group.id";
 
     private KafkaServer kafkaServer;
     private ServerCnxnFactory factory;
     private Properties properties;
-    private KafkaConsumer consumer = null;
     private KafkaProducer producer = null;
     private Long pollTimeOutMs = 1000L;
+    private boolean asyncCommitEnabled = false;
+    private long commitIntervalMs = 5000L;
+    private int commitBatchSize = 100;
 
-    private static final Map<NotificationType, String> TOPIC_MAP = new HashMap<NotificationType, String>() {
+    private final Map<NotificationType, String> topicMap = new HashMap<NotificationType, String>() {
         {
             put(NotificationType.HOOK, ATLAS_HOOK_TOPIC);
             put(NotificationType.ENTITIES, ATLAS_ENTITIES_TOPIC);
+            put(NotificationType.HOOK_DLQ, ATLAS_HOOK_DLQ_TOPIC);
         }
     };
 
     @VisibleForTesting
     String getTopicName(NotificationType notificationType) {
-        return TOPIC_MAP.get(notificationType);
+        return topicMap.get(notificationType);
     }
 
     // ----- Constructors ----------------------------------------------------
@@ -126,7 +146,13 @@ public class KafkaNotification extends AbstractNotification implements Service {
                 "org.apache.kafka.common.serialization.StringDeserializer");
         properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
 
+        topicMap.put(NotificationType.HOOK, applicationProperties.getString(HOOK_TOPIC_PROPERTY, ATLAS_HOOK_TOPIC));
+        topicMap.put(NotificationType.HOOK_DLQ, applicationProperties.getString(HOOK_DLQ_TOPIC_PROPERTY, ATLAS_HOOK_DLQ_TOPIC));
+
         pollTimeOutMs = subsetConfiguration.getLong("poll.timeout.ms", 1000);
+        asyncCommitEnabled = subsetConfiguration.getBoolean("offset.commit.async", false);
+        commitIntervalMs = subsetConfiguration.getLong("offset.commit.interval.ms", 5000);
+        commitBatchSize = subsetConfiguration.getInt("offset.commit.batch.size", 100);
         boolean oldApiCommitEnbleFlag = subsetConfiguration.getBoolean("auto.commit.enable",false);
         //set old autocommit value if new autoCommit property is not set.
         properties.put("enable.auto.commit", subsetConfiguration.getBoolean("enable.auto.commit", oldApiCommitEnbleFlag));
@@ -184,9 +210,26 @@ public class KafkaNotification extends AbstractNotification implements Service {
 
         Properties consumerProperties = getConsumerProperties(notificationType);
 
-        List<NotificationConsumer<T>> consumers = new ArrayList<>();
-        AtlasKafkaConsumer kafkaConsumer = new AtlasKafkaConsumer(notificationType.getDeserializer(), getKafkaConsumer(consumerProperties,notificationType, autoCommitEnabled), autoCommitEnabled, pollTimeOutMs );
-        consumers.add(kafkaConsumer);
+        // KafkaConsumer is not thread-safe: each consumer thread gets its own instance in the same group,
+        // so that Kafka spreads the topic partitions across them. Ordering is preserved per partition.
+        List<NotificationConsumer<T>> consumers = new ArrayList<>(numConsumers);
+        for (int i = 0; i < numConsumers; i++) {
+            KafkaConsumer kafkaConsumer = getKafkaConsumer(consumerProperties, notificationType, autoCommitEnabled);
+
+            if (kafkaConsumer != null) {
+                AtlasKafkaConsumer consumer = new AtlasKafkaConsumer(notificationType.getDeserializer(), kafkaConsumer, autoCommitEnabled,
+                                                                     pollTimeOutMs, asyncCommitEnabled, commitIntervalMs, commitBatchSize);
+
+                // re-subscribe with the listener that commits processed offsets before partitions are revoked, and
+                // lets the caller drop state held for revoked partitions
+                kafkaConsumer.subscribe(Arrays.asList(topicMap.get(notificationType)), consumer.getRebalanceListener());
+
+                consumers.add(consumer);
+            }
+        }
+
+        LOG.info("Created {} consumer(s) for notification type {}", consumers.size(), notificationType);
+
         return consumers;
     }
 
@@ -201,6 +244,42 @@ public class KafkaNotification extends AbstractNotification implements Service {
 
     // ----- AbstractNotification --------------------------------------------
 
+    @Override
+    public <T> void send(NotificationType type, List<T> messages) throws NotificationException {
+        List<String> strMessages = new ArrayList<>(messages.size());
+        List<String> keys        = new ArrayList<>(messages.size());
+        for (T message : messages) {
+            addEncodedMessage(type, message, strMessages, keys);
+        }
+
+        if (producer == null) {
+            createProducer();
+        }
+        sendInternalToProducer(producer, type, strMessages, keys);
+    }
+
+    @Override
+    public <T> void sendAsync(NotificationType type, List<T> messages, SendCallback callback) {
+        List<String> strMessages = new ArrayList<>(messages.size());
+        List<String> keys        = new ArrayList<>(messages.size());
+
+        try {
+            for (T message : messages) {
+                addEncodedMessage(type, message, strMessages, keys);
+            }
+
+            if (producer == null) {
+                createProducer();
+            }
+        } catch (Exception e) {
+            callback.onCompletion(new NotificationException(e, strMessages));
+
+            return;
+        }
+
+        sendInternalToProducerAsync(producer, type, strMessages, keys, callback);
+    }
+
     @Override
     public void sendInternal(NotificationType type, String... messages) throws NotificationException {
         if (producer == null) {
@@ -211,11 +290,27 @@ public class KafkaNotification extends AbstractNotification implements Service {
 
     @VisibleForTesting
     void sendInternalToProducer(Producer p, NotificationType type, String[] messages) throws NotificationException {
-        String topic = TOPIC_MAP.get(type);
+        sendInternalToProducer(p, type, messages, null);
+    }
+
+    @VisibleForTesting
+    void sendInternalToProducer(Producer p, NotificationType type, String[] messages, String key) throws NotificationException {
+        sendInternalToProducer(p, type, Arrays.asList(messages), Collections.nCopies(messages.length, key));
+    }
+
+    /**
+     * Send the given messages, each with the routing key at the same position in keys, and wait for the
+     * acknowledgements.
+     */
+    @VisibleForTesting
+    void sendInternalToProducer(Producer p, NotificationType type, List<String> messages, List<String> keys) throws NotificationException {
+        String topic = topicMap.get(type);
         List<MessageContext> messageContexts = new ArrayList<>();
-        for (String message : messages) {
-            ProducerRecord record = new ProducerRecord(topic, message);
-            LOG.debug("Sending message for topic {}: {}", topic, message);
+        for (int i = 0; i < messages.size(); i++) {
+            String message = messages.get(i);
+            String key     = keys.get(i);
+            ProducerRecord record = key == null ? new ProducerRecord(topic, message) : new ProducerRecord(topic, key, message);
+            LOG.debug("Sending message for topic {}, key {}: {}", topic, key, message);
             Future future = p.send(record);
             messageContexts.add(new MessageContext(future, message));
         }
@@ -237,23 +332,182 @@ public class KafkaNotification extends AbstractNotification implements Service {
         }
     }
 
+    /**
+     * Send the given messages without waiting for the acknowledgements: the producer batches them as per its
+     * linger.ms and batch.size settings, and the callback is notified from the producer I/O thread once all of them
+     * are acknowledged or failed. Each message is sent with the routing key at the same position in keys.
+     */
+    @VisibleForTesting
+    void sendInternalToProducerAsync(Producer p, NotificationType type, List<String> messages, List<String> keys, SendCallback callback) {
+        if (messages.isEmpty()) {
+            callback.onCompletion(null);
+
+            return;
+        }
+
+        String           topic   = topicMap.get(type);
+        AsyncSendContext context = new AsyncSendContext(messages.size(), callback);
+
+        for (int i = 0; i < messages.size(); i++) {
+            String         message = messages.get(i);
+            String         key     = keys.get(i);
+            ProducerRecord record  = key == null ? new ProducerRecord(topic, message) : new ProducerRecord(topic, key, message);
+
+            LOG.debug("Sending message asynchronously for topic {}, key {}: {}", topic, key, message);
 
-    public KafkaConsumer  getKafkaConsumer(Properties consumerProperties, NotificationType type, boolean autoCommitEnabled) {
-        if(this.consumer == null) {
             try {
-                String topic = TOPIC_MAP.get(type);
-                consumerProperties.put("enable.auto.commit", autoCommitEnabled);
-                this.consumer = new KafkaConsumer(consumerProperties);
-                this.consumer.subscribe(Arrays.asList(topic));
-            }catch (Exception ee) {
-                LOG.error("Exception in getKafkaConsumer ", ee);
+                p.send(record, context.getCallback(message));
+            } catch (Exception e) {
+                context.completed(message, e);
+            }
+        }
+    }
+
+
+    public KafkaConsumer getKafkaConsumer(Properties consumerProperties, NotificationType type, boolean autoCommitEnabled) {
+        KafkaConsumer ret = null;
+
+        try {
+            String topic = topicMap.get(type);
+            consumerProperties.put("enable.auto.commit", autoCommitEnabled);
+            ret = new KafkaConsumer(consumerProperties);
+            ret.subscribe(Arrays.asList(topic));
+        } catch (Exception ee) {
+            LOG.error("Exception in getKafkaConsumer ", ee);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Encode the given message and add its encoded messages, along with the key to route each of them with, to the
+     * given lists.
+     */
+    private void addEncodedMessage(NotificationType type, Object message, List<String> encodedMessages, List<String> keys) {
+        List<String> encoded = encodeMessage(type, getMessageJson(message));
+        String       key     = getSendKey(message, encoded);
+
+        for (String encodedMessage : encoded) {
+            encodedMessages.add(encodedMessage);
+            keys.add(key);
+        }
+    }
+
+    /**
+     * Get the key to send the encoded messages of a message with. Messages are keyed by the entity they operate on,
+     * to land on the same partition as other messages for the entity and be processed in order by a single consumer
+     * thread. Messages that don't identify an entity, but are split into chunks, are keyed by the id of the chunked
+     * message, as a message can only be reassembled by the consumer that receives all of its chunks; so are chunks sent
+     * on their own, like those published to the dead-letter topic.
+     *
+     * @param message          the message in object form
+     * @param encodedMessages  the message as sent, including chunks
+     *
+     * @return the routing key; null if the message neither identifies an entity nor is chunked
+     */
+    @VisibleForTesting
+    static String getSendKey(Object message, List<String> encodedMessages) {
+        String ret = message instanceof MessageChunk ? ((MessageChunk) message).getMsgId() : getMessageKey(message);
+
+        if (ret == null && encodedMessages.size() > 1) {
+            for (String encodedMessage : encodedMessages) {
+                MessageChunk chunk = MessageChunk.fromJson(encodedMessage, CHUNKED_MESSAGE_VERSION);
+
+                if (chunk != null) {
+                    ret = chunk.getMsgId();
+
+                    break;
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Get the key used to route the given message to a partition: the type and unique attribute value of the entity
+     * the message operates on. For create and update requests, this is the top-level entity - the first one that is
+     * not embedded in other entities of the request; e.g. the table, and not its database, in a request having both.
+     * References by Id, like that of a column to its table, are not considered, as these point back to the owner.
+     * Partial update and delete requests are keyed by the entity they identify.
+     *
+     * @param message  the message in object form
+     *
+     * @return the routing key; null if the message does not identify an entity
+     */
+    @VisibleForTesting
+    static String getMessageKey(Object message) {
+        String ret = null;
+
+        if (message instanceof HookNotification.EntityCreateRequest) {
+            Referenceable entity = getTopLevelEntity(((HookNotification.EntityCreateRequest) message).getEntities());
+
+            if (entity != null) {
+                Object value = entity.get(ATTRIBUTE_QUALIFIED_NAME);
+
+                ret = value != null ? entity.getTypeName() + ":" + value : null;
+            }
+        } else if (message instanceof HookNotification.EntityPartialUpdateRequest) {
+            HookNotification.EntityPartialUpdateRequest request = (HookNotification.EntityPartialUpdateRequest) message;
+
+            ret = request.getTypeName() + ":" + request.getAttributeValue();
+        } else if (message instanceof HookNotification.EntityDeleteRequest) {
+            HookNotification.EntityDeleteRequest request = (HookNotification.EntityDeleteRequest) message;
+
+            ret = request.getTypeName() + ":" + request.getAttributeValue();
+        }
+
+        return ret;
+    }
+
+    private static Referenceable getTopLevelEntity(List<Referenceable> entities) {
+        Referenceable ret = null;
+
+        if (entities != null && !entities.isEmpty()) {
+            Set<String> embeddedIds = new HashSet<>();
+
+            for (Referenceable entity : entities) {
+                if (entity != null) {
+                    collectEmbeddedIds(entity.getValuesMap(), embeddedIds);
+                }
+            }
+
+            for (Referenceable entity : entities) {
+                if (entity != null && !embeddedIds.contains(entity.getId()._getId())) {
+                    ret = entity;
+
+                    break;
+                }
+            }
+
+            if (ret == null) { // entities embedding each other
+                ret = entities.get(0);
             }
         }
 
-        return this.consumer;
+        return ret;
     }
 
+    // collects ids of the entities embedded, as Referenceable, in the given value
+    private static void collectEmbeddedIds(Object value, Set<String> embeddedIds) {
+        if (value instanceof Referenceable) {
+            Referenceable entity = (Referenceable) value;
 
+            if (embeddedIds.add(entity.getId()._getId())) {
+                collectEmbeddedIds(entity.getValuesMap(), embeddedIds);
+            }
+        } else if (value instanceof Struct) {
+            collectEmbeddedIds(((Struct) value).getValuesMap(), embeddedIds);
+        } else if (value instanceof Map) {
+            for (Object mapValue : ((Map) value).values()) {
+                collectEmbeddedIds(mapValue, embeddedIds);
+            }
+        } else if (value instanceof Collection) {
+            for (Object element : (Collection) value) {
+                collectEmbeddedIds(element, embeddedIds);
+            }
+        }
+    }
 
 
     // Get properties for consumer request
@@ -369,4 +623,53 @@ public class KafkaNotification extends AbstractNotification implements Service {
             return message;
         }
     }
+
+    /**
+     * Outcome of the records sent for one asynchronous send, reported to the callback once all records complete.
+     */
+    private static class AsyncSendContext {
+        private final AtomicInteger numPending;
+        private final SendCallback  callback;
+        private final List<String>  failedMessages = new ArrayList<>();
+        private       Exception     lastFailureException;
+
+        AsyncSendContext(int numMessages, SendCallback callback) {
+            this.numPending = new AtomicInteger(numMessages);
+            this.callback   = callback;
+        }
+
+        Callback getCallback(final String message) {
+            return new Callback() {
+                @Override
+                public void onCompletion(RecordMetadata metadata, Exception exception) {
+                    if (exception == null && metadata != null) {
+                        LOG.debug("Sent message for topic - {}, partition - {}, offset - {}", metadata.topic(),
+                                  metadata.partition(), metadata.offset());
+                    }
+
+                    completed(message, exception);
+                }
+            };
+        }
+
+        void completed(String message, Exception exception) {
+            final NotificationException result;
+
+            synchronized (this) {
+                if (exception != null) {
+                    lastFailureException = exception;
+
+                    failedMessages.add(message);
+                }
+
+                if (numPending.decrementAndGet() > 0) {
+                    return;
+                }
+
+                result = lastFailureException != null ? new NotificationException(lastFailureException, failedMessages) : null;
+            }
+
+            callback.onCompletion(result);
+        }
+    }
 }
@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.kafka;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Tracks offsets received and processed by a consumer, to find the offset upto which messages in each partition
+ * have been processed without a gap. Only such offsets are committed, which preserves at-least-once delivery even
+ * when messages are processed out of order.
+ *
+ * Not thread-safe: to be used only from the thread that polls the Kafka consumer.
+ */
+class OffsetCommitTracker {
+    private final Map<TopicPartition, PartitionOffsets> partitions = new HashMap<>();
+    private       int                                   numUncommitted = 0;
+    private       long                                  lastFlushTime  = System.currentTimeMillis();
+
+    public void received(TopicPartition partition, long offset) {
+        getPartitionOffsets(partition).pending.add(offset);
+    }
+
+    /**
+     * Mark the given offset as processed; offsets received earlier and not yet processed hold back the commit.
+     */
+    public void processed(TopicPartition partition, long offset) {
+        PartitionOffsets offsets = getPartitionOffsets(partition);
+
+        offsets.pending.remove(offset);
+        offsets.maxProcessed = Math.max(offsets.maxProcessed, offset);
+
+        numUncommitted++;
+    }
+
+    /**
+     * @return for each partition that progressed since the last commit, offset of the first message not processed
+     */
+    public Map<TopicPartition, OffsetAndMetadata> getCommittableOffsets() {
+        Map<TopicPartition, OffsetAndMetadata> ret = new HashMap<>();
+
+        for (Map.Entry<TopicPartition, PartitionOffsets> entry : partitions.entrySet()) {
+            PartitionOffsets offsets = entry.getValue();
+
+            if (offsets.maxProcessed < 0) {
+                continue;
+            }
+
+            long committable = offsets.pending.isEmpty() ? offsets.maxProcessed + 1 : offsets.pending.first();
+
+            if (committable > offsets.lastCommitted) {
+                ret.put(entry.getKey(), new OffsetAndMetadata(committable));
+            }
+        }
+
+        return ret;
+    }
+
+    public void committed(Map<TopicPartition, OffsetAndMetadata> committedOffsets) {
+        for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : committedOffsets.entrySet()) {
+            PartitionOffsets offsets = partitions.get(entry.getKey());
+
+            if (offsets != null) {
+                offsets.lastCommitted = Math.max(offsets.lastCommitted, entry.getValue().offset());
+            }
+        }
+
+        numUncommitted = 0;
+        lastFlushTime  = System.currentTimeMillis();
+    }
+
+    /**
+     * Allow the given offsets to be committed again, after an asynchronous commit failed.
+     */
+    public void commitFailed(Map<TopicPartition, OffsetAndMetadata> failedOffsets) {
+        for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : failedOffsets.entrySet()) {
+            PartitionOffsets offsets = partitions.get(entry.getKey());
+
+            if (offsets != null && offsets.lastCommitted == entry.getValue().offset()) {
+                offsets.lastCommitted = -1;
+            }
+        }
+    }
+
+    /**
+     * @return true if offsets received in the given partition are yet to be processed
+     */
+    public boolean hasPending(TopicPartition partition) {
+        PartitionOffsets offsets = partitions.get(partition);
+
+        return offsets != null && !offsets.pending.isEmpty();
+    }
+
+    public boolean isFlushDue(int maxUncommitted, long flushIntervalMs) {
+        return numUncommitted > 0 &&
+               (numUncommitted >= maxUncommitted || (System.currentTimeMillis() - lastFlushTime) >= flushIntervalMs);
+    }
+
+    public void remove(Collection<TopicPartition> topicPartitions) {
+        for (TopicPartition partition : topicPartitions) {
+            partitions.remove(partition);
+        }
+    }
+
+    private PartitionOffsets getPartitionOffsets(TopicPartition partition) {
+        PartitionOffsets ret = partitions.get(partition);
+
+        if (ret == null) {
+            ret = new PartitionOffsets();
+
+            partitions.put(partition, ret);
+        }
+
+        return ret;
+    }
+
+    private static class PartitionOffsets {
+        private final TreeSet<Long> pending       = new TreeSet<>();
+        private       long          maxProcessed  = -1;
+        private       long          lastCommitted = -1;
+    }
+}
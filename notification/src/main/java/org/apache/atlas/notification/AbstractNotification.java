@@ -30,11 +30,14 @@ import org.apache.atlas.typesystem.IReferenceableInstance;
 import org.apache.atlas.typesystem.Referenceable;
 import org.apache.atlas.typesystem.json.InstanceSerialization;
 import org.apache.commons.configuration.Configuration;
+import org.apache.commons.lang.StringUtils;
 import org.codehaus.jettison.json.JSONArray;
 
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -47,9 +50,29 @@ public abstract class AbstractNotification implements NotificationInterface {
      */
     public static final MessageVersion CURRENT_MESSAGE_VERSION = new MessageVersion("1.0.0");
 
+    /**
+     * The version of the envelope of compressed notification messages.
+     */
+    public static final MessageVersion COMPRESSED_MESSAGE_VERSION = new MessageVersion("1.1.0");
+
+    /**
+     * The version of the chunks of notification messages too large to be sent as one message.
+     */
+    public static final MessageVersion CHUNKED_MESSAGE_VERSION = new MessageVersion("1.1.0");
+
     public static final String PROPERTY_EMBEDDED = PROPERTY_PREFIX + ".embedded";
+
+    public static final String PROPERTY_MESSAGE_COMPRESSION          = PROPERTY_PREFIX + ".message.compression";
+    public static final String PROPERTY_MESSAGE_COMPRESSION_MIN_SIZE = PROPERTY_PREFIX + ".message.compression.min.size";
+    public static final int    DEFAULT_MESSAGE_COMPRESSION_MIN_SIZE  = 10 * 1024;
+    public static final String PROPERTY_MESSAGE_MAX_LENGTH           = PROPERTY_PREFIX + ".message.max.length";
+    public static final int    DEFAULT_MESSAGE_MAX_LENGTH            = 0; // chunks are rejected by servers of earlier releases: opt-in
+
     private final boolean embedded;
     private final boolean isHAEnabled;
+    private final CompressedMessage.Compression messageCompression;
+    private final int messageCompressionMinSize;
+    private final int messageMaxLength;
 
     /**
      * Used for message serialization.
@@ -65,23 +88,34 @@ public abstract class AbstractNotification implements NotificationInterface {
     public AbstractNotification(Configuration applicationProperties) throws AtlasException {
         this.embedded = applicationProperties.getBoolean(PROPERTY_EMBEDDED, false);
         this.isHAEnabled = HAConfiguration.isHAEnabled(applicationProperties);
+
+        String compression = applicationProperties.getString(PROPERTY_MESSAGE_COMPRESSION);
+
+        this.messageCompression = StringUtils.isEmpty(compression) ? CompressedMessage.Compression.NONE
+                                      : CompressedMessage.Compression.valueOf(compression.trim().toUpperCase());
+        this.messageCompressionMinSize = applicationProperties.getInt(PROPERTY_MESSAGE_COMPRESSION_MIN_SIZE,
+                                                                      DEFAULT_MESSAGE_COMPRESSION_MIN_SIZE);
+        this.messageMaxLength = applicationProperties.getInt(PROPERTY_MESSAGE_MAX_LENGTH, DEFAULT_MESSAGE_MAX_LENGTH);
     }
 
     @VisibleForTesting
     protected AbstractNotification() {
         embedded = false;
         isHAEnabled = false;
+        messageCompression = CompressedMessage.Compression.NONE;
+        messageCompressionMinSize = DEFAULT_MESSAGE_COMPRESSION_MIN_SIZE;
+        messageMaxLength = DEFAULT_MESSAGE_MAX_LENGTH;
     }
 
     // ----- NotificationInterface -------------------------------------------
 
     @Override
     public <T> void send(NotificationType type, List<T> messages) throws NotificationException {
-        String[] strMessages = new String[messages.size()];
-        for (int index = 0; index < messages.size(); index++) {
-            strMessages[index] = getMessageJson(messages.get(index));
+        List<String> strMessages = new ArrayList<>(messages.size());
+        for (T message : messages) {
+            strMessages.addAll(encodeMessage(type, getMessageJson(message)));
         }
-        sendInternal(type, strMessages);
+        sendInternal(type, strMessages.toArray(new String[strMessages.size()]));
     }
 
     @Override
@@ -89,6 +123,25 @@ public abstract class AbstractNotification implements NotificationInterface {
         send(type, Arrays.asList(messages));
     }
 
+    /**
+     * Send the given messages, and notify the callback once done. Sends synchronously; implementations backed by an
+     * asynchronous client override this to return without waiting.
+     */
+    @Override
+    public <T> void sendAsync(NotificationType type, List<T> messages, SendCallback callback) {
+        NotificationException exception = null;
+
+        try {
+            send(type, messages);
+        } catch (NotificationException e) {
+            exception = e;
+        } catch (Exception e) {
+            exception = new NotificationException(e);
+        }
+
+        callback.onCompletion(exception);
+    }
+
     // ----- AbstractNotification --------------------------------------------
 
     /**
@@ -119,6 +172,28 @@ public abstract class AbstractNotification implements NotificationInterface {
      */
     protected abstract void sendInternal(NotificationType type, String[] messages) throws NotificationException;
 
+    /**
+     * Get the form in which the given message is to be sent. Hook messages of at least the configured minimum size
+     * are compressed, if message compression is enabled; hook messages longer than the configured maximum length are
+     * then split into chunks. Messages on other topics are read by consumers outside Atlas, and are always sent as is.
+     *
+     * @param type         the message type
+     * @param messageJson  the message JSON
+     *
+     * @return the messages to send
+     */
+    protected List<String> encodeMessage(NotificationType type, String messageJson) {
+        if (type != NotificationType.HOOK) {
+            return Collections.singletonList(messageJson);
+        }
+
+        if (messageCompression != CompressedMessage.Compression.NONE && messageJson.length() >= messageCompressionMinSize) {
+            messageJson = CompressedMessage.compress(messageJson, messageCompression);
+        }
+
+        return MessageChunk.split(messageJson, messageMaxLength);
+    }
+
 
     // ----- utility methods -------------------------------------------------
 
@@ -130,6 +205,10 @@ public abstract class AbstractNotification implements NotificationInterface {
      * @return the message as a JSON string
      */
     public static String getMessageJson(Object message) {
+        if (message instanceof MessageChunk) { // a chunk carries its own version
+            return GSON.toJson(message);
+        }
+
         VersionedMessage<?> versionedMessage = new VersionedMessage<>(CURRENT_MESSAGE_VERSION, message);
 
         return GSON.toJson(versionedMessage);
@@ -18,6 +18,9 @@
 package org.apache.atlas.notification;
 import org.apache.kafka.common.TopicPartition;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Abstract notification consumer.
  */
@@ -42,4 +45,13 @@ public abstract class AbstractNotificationConsumer<T> implements NotificationCon
 
 
     public abstract void commit(TopicPartition partition, long offset);
+
+    @Override
+    public void holdOffset(TopicPartition partition, long offset) {
+    }
+
+    @Override
+    public List<TopicPartition> getRevokedPartitions() {
+        return Collections.emptyList();
+    }
 }
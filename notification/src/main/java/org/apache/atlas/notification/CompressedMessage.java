@@ -0,0 +1,206 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import javax.xml.bind.DatatypeConverter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Envelope of a notification message whose JSON has been compressed by the sender. The compressed bytes are carried
+ * base64 encoded in the message field:
+ *
+ * {"version":{"version":"1.1.0"},"compression":"GZIP","message":"H4sIAAAAAAAAA..."}
+ *
+ * The envelope has version {@link AbstractNotification#COMPRESSED_MESSAGE_VERSION}, higher than the version of
+ * uncompressed messages, so that a receiver which doesn't support compressed messages rejects them with a version
+ * mismatch. Uncompressed messages are sent as before, and remain readable by all receivers.
+ */
+public class CompressedMessage {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Compression applied to the message JSON.
+     */
+    public enum Compression {
+        NONE, GZIP
+    }
+
+    private final MessageVersion version;
+    private final Compression    compression;
+    private final String         message;
+
+
+    // ----- Constructors ----------------------------------------------------
+
+    /**
+     * Create a compressed message.
+     *
+     * @param version      the version of the envelope
+     * @param compression  the compression applied to the message
+     * @param message      the compressed message, base64 encoded
+     */
+    public CompressedMessage(MessageVersion version, Compression compression, String message) {
+        this.version     = version;
+        this.compression = compression;
+        this.message     = message;
+    }
+
+
+    // ----- accessors -------------------------------------------------------
+
+    public MessageVersion getVersion() {
+        return version;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+
+    // ----- utility methods -------------------------------------------------
+
+    /**
+     * Compress the given message JSON.
+     *
+     * @param messageJson  the message JSON
+     * @param compression  the compression to apply
+     *
+     * @return the JSON of the compressed message envelope; the given message JSON if compression is NONE
+     */
+    public static String compress(String messageJson, Compression compression) {
+        if (compression == null || compression == Compression.NONE) {
+            return messageJson;
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(messageJson.length() / 4);
+
+            try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+                out.write(messageJson.getBytes(StandardCharsets.UTF_8));
+            }
+
+            String encoded = DatatypeConverter.printBase64Binary(bytes.toByteArray());
+
+            return AbstractNotification.GSON.toJson(
+                new CompressedMessage(AbstractNotification.COMPRESSED_MESSAGE_VERSION, compression, encoded));
+        } catch (IOException e) {
+            throw new IllegalStateException("failed to compress message", e);
+        }
+    }
+
+    /**
+     * Get the message JSON carried in the given compressed message envelope. Only the first fields of the given JSON
+     * are read to find out whether it is a compressed message, so this is cheap for uncompressed messages.
+     *
+     * @param messageJson  the JSON received
+     * @param maxVersion   the highest envelope version supported by the receiver
+     *
+     * @return the decompressed message JSON; the given JSON if it isn't a compressed message
+     *
+     * @throws IncompatibleVersionException if the envelope has a version higher than the supported version
+     */
+    public static String decompress(String messageJson, MessageVersion maxVersion) {
+        MessageVersion version     = null;
+        Compression    compression = null;
+        String         message     = null;
+
+        try (JsonParser parser = JSON_FACTORY.createJsonParser(messageJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return messageJson;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String    fieldName = parser.getCurrentName();
+                JsonToken token     = parser.nextToken();
+
+                if ("version".equals(fieldName) && token == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String versionField = parser.getCurrentName();
+
+                        parser.nextToken();
+
+                        if ("version".equals(versionField)) {
+                            version = new MessageVersion(parser.getText());
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else if ("compression".equals(fieldName) && token == JsonToken.VALUE_STRING) {
+                    compression = Compression.valueOf(parser.getText());
+                } else if ("message".equals(fieldName) && token == JsonToken.VALUE_STRING) {
+                    message = parser.getText();
+                } else {
+                    // uncompressed message
+                    return messageJson;
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // not a compressed message; leave it to the deserializer to report the error
+            return messageJson;
+        }
+
+        if (compression == null || message == null) {
+            return messageJson;
+        }
+
+        if (version == null || version.compareTo(maxVersion) > 0) {
+            throw new IncompatibleVersionException(String.format(VersionedMessageDeserializer.VERSION_MISMATCH_MSG,
+                                                                 maxVersion, version, messageJson));
+        }
+
+        switch (compression) {
+            case NONE:
+                return message;
+
+            case GZIP:
+                return gunzip(DatatypeConverter.parseBase64Binary(message));
+
+            default:
+                throw new IllegalStateException("Unhandled compression " + compression);
+        }
+    }
+
+    private static String gunzip(byte[] bytes) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            ByteArrayOutputStream out    = new ByteArrayOutputStream(bytes.length * 4);
+            byte[]                buffer = new byte[8192];
+
+            for (int len = in.read(buffer); len != -1; len = in.read(buffer)) {
+                out.write(buffer, 0, len);
+            }
+
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("failed to decompress message", e);
+        }
+    }
+}
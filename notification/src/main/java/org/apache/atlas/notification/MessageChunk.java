@@ -0,0 +1,256 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A part of a notification message too large to be sent as one Kafka message. All chunks of a message have the same
+ * msgId; the receiver concatenates the message field of chunks 0 to msgSplitCount-1 to get the original message:
+ *
+ * {"version":{"version":"1.1.0"},"msgId":"...","msgSplitIdx":0,"msgSplitCount":3,"message":"{\"version\":..."}
+ */
+public class MessageChunk {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Allowance for the fields of the chunk other than the message.
+     */
+    private static final int ENVELOPE_LENGTH = 256;
+
+    private final MessageVersion version;
+    private final String         msgId;
+    private final int            msgSplitIdx;
+    private final int            msgSplitCount;
+    private final String         message;
+
+
+    // ----- Constructors ----------------------------------------------------
+
+    /**
+     * Create a message chunk.
+     *
+     * @param version        the version of the envelope
+     * @param msgId          id of the message this chunk is part of
+     * @param msgSplitIdx    index of this chunk in the message
+     * @param msgSplitCount  number of chunks in the message
+     * @param message        this chunk of the message
+     */
+    public MessageChunk(MessageVersion version, String msgId, int msgSplitIdx, int msgSplitCount, String message) {
+        this.version       = version;
+        this.msgId         = msgId;
+        this.msgSplitIdx   = msgSplitIdx;
+        this.msgSplitCount = msgSplitCount;
+        this.message       = message;
+    }
+
+
+    // ----- accessors -------------------------------------------------------
+
+    public MessageVersion getVersion() {
+        return version;
+    }
+
+    public String getMsgId() {
+        return msgId;
+    }
+
+    public int getMsgSplitIdx() {
+        return msgSplitIdx;
+    }
+
+    public int getMsgSplitCount() {
+        return msgSplitCount;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+
+    // ----- utility methods -------------------------------------------------
+
+    /**
+     * Split the given message into chunks whose JSON is at most the given length, in UTF-8 encoded bytes.
+     *
+     * @param message    the message to split
+     * @param maxLength  maximum length of the JSON of a chunk, in bytes; 0 or less to never split
+     *
+     * @return the given message if it isn't longer than maxLength, otherwise JSON of its chunks
+     */
+    public static List<String> split(String message, int maxLength) {
+        if (maxLength <= 0 || message.length() <= maxLength / 3 || message.getBytes(StandardCharsets.UTF_8).length <= maxLength) {
+            return Collections.singletonList(message);
+        }
+
+        int          maxChunkLength = Math.max(maxLength - ENVELOPE_LENGTH, 1);
+        List<String> parts          = new ArrayList<>();
+
+        for (int start = 0; start < message.length(); ) {
+            int end    = start;
+            int length = 0;
+
+            while (end < message.length()) {
+                int charLength = getEncodedLength(message.charAt(end));
+
+                if (length + charLength > maxChunkLength && end > start) {
+                    break;
+                }
+
+                length += charLength;
+                end++;
+            }
+
+            // don't split a surrogate pair
+            if (end < message.length() && end - start > 1 && Character.isHighSurrogate(message.charAt(end - 1))) {
+                end--;
+            }
+
+            parts.add(message.substring(start, end));
+
+            start = end;
+        }
+
+        String       msgId = UUID.randomUUID().toString();
+        List<String> ret   = new ArrayList<>(parts.size());
+
+        for (int i = 0; i < parts.size(); i++) {
+            MessageChunk chunk = new MessageChunk(AbstractNotification.CHUNKED_MESSAGE_VERSION, msgId, i, parts.size(),
+                                                  parts.get(i));
+
+            ret.add(AbstractNotification.GSON.toJson(chunk));
+        }
+
+        return ret;
+    }
+
+    /**
+     * Parse the given JSON as a message chunk. Only the first fields of the given JSON are read to find out whether
+     * it is a chunk, so this is cheap for other messages.
+     *
+     * @param json        the JSON received
+     * @param maxVersion  the highest envelope version supported by the receiver
+     *
+     * @return the chunk; null if the given JSON isn't a message chunk
+     *
+     * @throws IncompatibleVersionException if the chunk has a version higher than the supported version
+     */
+    public static MessageChunk fromJson(String json, MessageVersion maxVersion) {
+        MessageVersion version       = null;
+        String         msgId         = null;
+        Integer        msgSplitIdx   = null;
+        Integer        msgSplitCount = null;
+        String         message       = null;
+
+        try (JsonParser parser = JSON_FACTORY.createJsonParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String    fieldName = parser.getCurrentName();
+                JsonToken token     = parser.nextToken();
+
+                if ("version".equals(fieldName) && token == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String versionField = parser.getCurrentName();
+
+                        parser.nextToken();
+
+                        if ("version".equals(versionField)) {
+                            version = new MessageVersion(parser.getText());
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else if ("msgId".equals(fieldName) && token == JsonToken.VALUE_STRING) {
+                    msgId = parser.getText();
+                } else if ("msgSplitIdx".equals(fieldName) && token == JsonToken.VALUE_NUMBER_INT) {
+                    msgSplitIdx = parser.getIntValue();
+                } else if ("msgSplitCount".equals(fieldName) && token == JsonToken.VALUE_NUMBER_INT) {
+                    msgSplitCount = parser.getIntValue();
+                } else if ("message".equals(fieldName) && token == JsonToken.VALUE_STRING && msgId != null) {
+                    message = parser.getText();
+                } else {
+                    // not a chunk
+                    return null;
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // not a chunk; leave it to the deserializer to report the error
+            return null;
+        }
+
+        if (msgId == null || msgSplitIdx == null || msgSplitCount == null || message == null) {
+            return null;
+        }
+
+        if (version == null || version.compareTo(maxVersion) > 0) {
+            throw new IncompatibleVersionException(String.format(VersionedMessageDeserializer.VERSION_MISMATCH_MSG,
+                                                                 maxVersion, version, "chunk " + msgSplitIdx + " of message " + msgId));
+        }
+
+        return new MessageChunk(version, msgId, msgSplitIdx, msgSplitCount, message);
+    }
+
+    /**
+     * @return length, in UTF-8 encoded bytes, of the given character in a JSON string written by Gson, which escapes
+     *         HTML characters as well; each char of a surrogate pair accounts for half of its 4 bytes
+     */
+    private static int getEncodedLength(char c) {
+        switch (c) {
+            case '"':
+            case '\\':
+            case '\n':
+            case '\r':
+            case '\t':
+            case '\b':
+            case '\f':
+                return 2;
+
+            case '<':
+            case '>':
+            case '&':
+            case '=':
+            case '\'':
+            case '\u2028':
+            case '\u2029':
+                return 6;
+
+            default:
+                if (c < 0x20) {
+                    return 6;
+                } else if (c < 0x80) {
+                    return 1;
+                } else if (c < 0x800 || Character.isSurrogate(c)) {
+                    return 2;
+                } else {
+                    return 3;
+                }
+        }
+    }
+}
@@ -37,6 +37,21 @@ public interface NotificationConsumer<T> {
      */
     void commit(TopicPartition partition, long offset);
 
+    /**
+     * Hold back commits of the given partition at the given offset, until the offset is committed. To be called for a
+     * message whose processing is deferred while messages after it are processed, so that the message is received
+     * again after a restart.
+     */
+    void holdOffset(TopicPartition partition, long offset);
+
+    /**
+     * Get the partitions revoked from this consumer since the last call. Messages received from these partitions, and
+     * not yet committed, are delivered again to the consumer the partitions are assigned to.
+     *
+     * @return the revoked partitions; empty if none
+     */
+    List<TopicPartition> getRevokedPartitions();
+
     void close();
 
     void wakeup();
@@ -65,7 +65,10 @@ public interface NotificationInterface {
         HOOK(HOOK_NOTIFICATION_CLASS, new HookMessageDeserializer()),
 
         // Notifications to entity change consumers.
-        ENTITIES(ENTITY_NOTIFICATION_CLASS, new EntityMessageDeserializer());
+        ENTITIES(ENTITY_NOTIFICATION_CLASS, new EntityMessageDeserializer()),
+
+        // Notifications from the hooks that could not be processed, kept for replay.
+        HOOK_DLQ(HOOK_NOTIFICATION_CLASS, new HookMessageDeserializer());
 
 
         /**
@@ -129,6 +132,27 @@ public interface NotificationInterface {
      */
     <T> void send(NotificationType type, List<T> messages) throws NotificationException;
 
+    /**
+     * Send the given messages without waiting for them to be acknowledged. The callback is invoked once all messages
+     * are either acknowledged or failed, possibly from a thread of the messaging client; it must not block.
+     *
+     * @param type      the message type
+     * @param messages  the list of messages to send
+     * @param callback  the callback to notify of the outcome
+     * @param <T>       the message type
+     */
+    <T> void sendAsync(NotificationType type, List<T> messages, SendCallback callback);
+
+    /**
+     * Callback notified of the outcome of {@link #sendAsync(NotificationType, List, SendCallback)}.
+     */
+    interface SendCallback {
+        /**
+         * @param exception  null if all messages were sent; otherwise the failure, with the messages that failed
+         */
+        void onCompletion(NotificationException exception);
+    }
+
     /**
      * Shutdown any notification producers and consumers associated with this interface instance.
      */
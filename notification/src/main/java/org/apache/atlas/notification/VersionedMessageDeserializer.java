@@ -62,6 +62,8 @@ public abstract class VersionedMessageDeserializer<T> implements MessageDeserial
 
     @Override
     public T deserialize(String messageJson) {
+        messageJson = CompressedMessage.decompress(messageJson, AbstractNotification.COMPRESSED_MESSAGE_VERSION);
+
         VersionedMessage<T> versionedMessage = gson.fromJson(messageJson, versionedMessageType);
 
         // older style messages not wrapped with VersionedMessage
@@ -21,7 +21,9 @@ package org.apache.atlas.notification.hook;
 import com.google.gson.JsonDeserializer;
 import org.apache.atlas.notification.AbstractMessageDeserializer;
 import org.apache.atlas.notification.AbstractNotification;
+import org.apache.atlas.notification.CompressedMessage;
 import org.apache.atlas.notification.NotificationInterface;
+import org.apache.atlas.notification.VersionedMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,6 +53,34 @@ public class HookMessageDeserializer extends AbstractMessageDeserializer<HookNot
     }
 
 
+    // ----- MessageDeserializer ---------------------------------------------
+
+    /**
+     * Entity messages are parsed in a single pass with the streaming parser; type messages, and messages the streaming
+     * parser fails to parse, are deserialized with Gson.
+     */
+    @Override
+    public HookNotification.HookNotificationMessage deserialize(String messageJson) {
+        VersionedMessage<HookNotification.HookNotificationMessage> versionedMessage = null;
+
+        messageJson = CompressedMessage.decompress(messageJson, AbstractNotification.COMPRESSED_MESSAGE_VERSION);
+
+        try {
+            versionedMessage = HookMessageStreamParser.parse(messageJson);
+        } catch (Exception e) {
+            NOTIFICATION_LOGGER.debug("streaming parser failed to parse message; using Gson deserializer", e);
+        }
+
+        if (versionedMessage == null) {
+            return super.deserialize(messageJson);
+        }
+
+        checkVersion(versionedMessage, messageJson);
+
+        return versionedMessage.getMessage();
+    }
+
+
     // ----- helper methods --------------------------------------------------
 
     private static Map<Type, JsonDeserializer> getDeserializerMap() {
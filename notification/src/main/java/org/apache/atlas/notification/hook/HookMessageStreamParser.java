@@ -0,0 +1,448 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification.hook;
+
+import org.apache.atlas.notification.MessageVersion;
+import org.apache.atlas.notification.VersionedMessage;
+import org.apache.atlas.notification.hook.HookNotification.EntityCreateRequest;
+import org.apache.atlas.notification.hook.HookNotification.EntityDeleteRequest;
+import org.apache.atlas.notification.hook.HookNotification.EntityPartialUpdateRequest;
+import org.apache.atlas.notification.hook.HookNotification.EntityUpdateRequest;
+import org.apache.atlas.notification.hook.HookNotification.HookNotificationMessage;
+import org.apache.atlas.notification.hook.HookNotification.HookNotificationType;
+import org.apache.atlas.typesystem.IStruct;
+import org.apache.atlas.typesystem.Referenceable;
+import org.apache.atlas.typesystem.Struct;
+import org.apache.atlas.typesystem.persistence.AtlasSystemAttributes;
+import org.apache.atlas.typesystem.persistence.Id;
+import org.apache.atlas.typesystem.types.EnumValue;
+import org.apache.atlas.typesystem.types.TypeSystem;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import scala.math.BigInt;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses hook notification messages in a single pass over the message JSON, using Jackson's streaming parser.
+ *
+ * The default Gson based deserialization builds a tree of the message, and then serializes each entity in the tree
+ * back to a string to be parsed again by InstanceSerialization. This parser instead creates Referenceable, Struct
+ * and Id instances directly from the tokens of the message, in the same form as InstanceSerialization does.
+ *
+ * Only entity messages are handled; null is returned for type messages, which are left to the Gson deserializer.
+ */
+class HookMessageStreamParser {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String TYPE_HINT_FIELD = "jsonClass";
+    private static final String REFERENCE_CLASS = "org.apache.atlas.typesystem.json.InstanceSerialization$_Reference";
+    private static final String STRUCT_CLASS    = "org.apache.atlas.typesystem.json.InstanceSerialization$_Struct";
+    private static final String ID_CLASS        = "org.apache.atlas.typesystem.json.InstanceSerialization$_Id";
+
+    private HookMessageStreamParser() {
+    }
+
+    /**
+     * Parse the given message JSON, either wrapped in a VersionedMessage or an older style message without version.
+     *
+     * @param messageJson  the notification message json
+     *
+     * @return the versioned message; null if the message is not an entity message
+     *
+     * @throws IOException if the message can't be parsed
+     */
+    public static VersionedMessage<HookNotificationMessage> parse(String messageJson) throws IOException {
+        JsonParser parser = JSON_FACTORY.createJsonParser(messageJson);
+
+        try {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+
+            MessageVersion version = null;
+            MessageFields  fields  = new MessageFields();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken token  = parser.nextToken();
+
+                if ("version".equals(fieldName) && token == JsonToken.START_OBJECT) {
+                    version = readVersion(parser);
+                } else if ("message".equals(fieldName) && token == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String msgFieldName = parser.getCurrentName();
+
+                        parser.nextToken();
+
+                        fields.read(msgFieldName, parser);
+                    }
+                } else {
+                    // older style message, not wrapped in VersionedMessage
+                    fields.read(fieldName, parser);
+                }
+            }
+
+            HookNotificationMessage message = fields.toMessage();
+
+            if (message == null) {
+                return null;
+            }
+
+            return new VersionedMessage<>(version != null ? version : MessageVersion.NO_VERSION, message);
+        } finally {
+            parser.close();
+        }
+    }
+
+    private static MessageVersion readVersion(JsonParser parser) throws IOException {
+        String version = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+
+            parser.nextToken();
+
+            if ("version".equals(fieldName)) {
+                version = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return version != null ? new MessageVersion(version) : null;
+    }
+
+    private static Object readValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+
+        switch (token) {
+            case START_OBJECT:
+                return readObject(parser);
+
+            case START_ARRAY: {
+                List<Object> ret = new ArrayList<>();
+
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    ret.add(readValue(parser));
+                }
+
+                return ret;
+            }
+
+            case VALUE_STRING:
+                return parser.getText();
+
+            // numbers are of the types InstanceSerialization creates: scala BigInt for integers, Double otherwise
+            case VALUE_NUMBER_INT:
+                return new BigInt(parser.getBigIntegerValue());
+
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+
+            case VALUE_NULL:
+                return null;
+
+            default:
+                throw new JsonParseException("Unexpected token " + token, parser.getCurrentLocation());
+        }
+    }
+
+    /**
+     * Reads a JSON object as a Referenceable, Struct, Id, EnumValue or Map, as InstanceSerialization does. The type
+     * hint is written as the first field of an object by InstanceSerialization, which allows the instance to be
+     * created without an intermediate map; objects with the type hint elsewhere are read into a map first.
+     */
+    private static Object readObject(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+
+        if (token == JsonToken.FIELD_NAME && TYPE_HINT_FIELD.equals(parser.getCurrentName())) {
+            parser.nextToken();
+
+            String typeHint = parser.getText();
+
+            if (REFERENCE_CLASS.equals(typeHint) || STRUCT_CLASS.equals(typeHint) || ID_CLASS.equals(typeHint)) {
+                InstanceFields fields = new InstanceFields(typeHint);
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String fieldName = parser.getCurrentName();
+
+                    parser.nextToken();
+
+                    fields.put(fieldName, readValue(parser));
+                }
+
+                return fields.toInstance();
+            }
+
+            Map<String, Object> map = new LinkedHashMap<>();
+
+            map.put(TYPE_HINT_FIELD, typeHint);
+
+            return toInstance(readFields(parser, parser.nextToken(), map));
+        }
+
+        return toInstance(readFields(parser, token, new LinkedHashMap<String, Object>()));
+    }
+
+    private static Map<String, Object> readFields(JsonParser parser, JsonToken token, Map<String, Object> map)
+        throws IOException {
+        while (token == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+
+            parser.nextToken();
+
+            map.put(fieldName, readValue(parser));
+
+            token = parser.nextToken();
+        }
+
+        expect(parser, token, JsonToken.END_OBJECT);
+
+        return map;
+    }
+
+    private static Object toInstance(Map<String, Object> map) throws IOException {
+        Object typeHint = map.get(TYPE_HINT_FIELD);
+
+        if (REFERENCE_CLASS.equals(typeHint) || STRUCT_CLASS.equals(typeHint) || ID_CLASS.equals(typeHint)) {
+            InstanceFields fields = new InstanceFields((String) typeHint);
+
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                fields.put(entry.getKey(), entry.getValue());
+            }
+
+            return fields.toInstance();
+        }
+
+        if (map.size() == 2 && map.get("value") != null && map.get("ordinal") instanceof Number) {
+            return new EnumValue(map.get("value").toString(), ((Number) map.get("ordinal")).intValue());
+        }
+
+        return map;
+    }
+
+    private static Referenceable readReferenceable(JsonParser parser) throws IOException {
+        Object ret = readValue(parser);
+
+        if (ret != null && !(ret instanceof Referenceable)) {
+            throw new JsonParseException("Expected a referenceable, found " + ret.getClass().getSimpleName(),
+                                         parser.getCurrentLocation());
+        }
+
+        return (Referenceable) ret;
+    }
+
+    private static String readString(JsonParser parser) throws IOException {
+        return parser.getCurrentToken() == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+
+    private static void expect(JsonParser parser, JsonToken token, JsonToken expected) throws JsonParseException {
+        if (token != expected) {
+            throw new JsonParseException("Expected " + expected + ", found " + token, parser.getCurrentLocation());
+        }
+    }
+
+    /**
+     * Fields of a hook notification message, which can appear in any order.
+     */
+    private static class MessageFields {
+        private HookNotificationType type;
+        private String               user;
+        private List<Referenceable>  entities;
+        private Referenceable        entity;
+        private String               typeName;
+        private String               attribute;
+        private String               attributeValue;
+
+        void read(String fieldName, JsonParser parser) throws IOException {
+            switch (fieldName) {
+                case "type":
+                    type = HookNotificationType.valueOf(parser.getText());
+                    break;
+
+                case "user":
+                    user = readString(parser);
+                    break;
+
+                case "entities":
+                    if (parser.getCurrentToken() == JsonToken.START_ARRAY) {
+                        entities = new ArrayList<>();
+
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            entities.add(readReferenceable(parser));
+                        }
+                    } else {
+                        expect(parser, parser.getCurrentToken(), JsonToken.VALUE_NULL);
+                    }
+                    break;
+
+                case "entity":
+                    entity = readReferenceable(parser);
+                    break;
+
+                case "typeName":
+                    typeName = readString(parser);
+                    break;
+
+                case "attribute":
+                    attribute = readString(parser);
+                    break;
+
+                case "attributeValue":
+                    attributeValue = readString(parser);
+                    break;
+
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+
+        HookNotificationMessage toMessage() {
+            if (type == null) {
+                return null;
+            }
+
+            switch (type) {
+                case ENTITY_CREATE:
+                    return new EntityCreateRequest(user, entities);
+
+                case ENTITY_FULL_UPDATE:
+                    return new EntityUpdateRequest(user, entities);
+
+                case ENTITY_PARTIAL_UPDATE:
+                    return new EntityPartialUpdateRequest(user, typeName, attribute, attributeValue, entity);
+
+                case ENTITY_DELETE:
+                    return new EntityDeleteRequest(user, typeName, attribute, attributeValue);
+
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * Fields of an object serialized by InstanceSerialization: a reference, struct or id.
+     */
+    private static class InstanceFields {
+        private final String typeHint;
+        private Object       id;
+        private Object       version;
+        private Object       state;
+        private Object       typeName;
+        private Object       values;
+        private Object       traitNames;
+        private Object       traits;
+        private Object       systemAttributes;
+
+        InstanceFields(String typeHint) {
+            this.typeHint = typeHint;
+        }
+
+        void put(String fieldName, Object value) {
+            switch (fieldName) {
+                case "id":               id = value;               break;
+                case "version":          version = value;          break;
+                case "state":            state = value;            break;
+                case "typeName":         typeName = value;         break;
+                case "values":           values = value;           break;
+                case "traitNames":       traitNames = value;       break;
+                case "traits":           traits = value;           break;
+                case "systemAttributes": systemAttributes = value; break;
+                default:                                           break;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        Object toInstance() throws IOException {
+            if (!(typeName instanceof String)) {
+                throw new JsonParseException("typeName missing in " + typeHint, null);
+            }
+
+            String typeName = (String) this.typeName;
+
+            if (ID_CLASS.equals(typeHint)) {
+                if (!(id instanceof String) || !(version instanceof Number)) {
+                    throw new JsonParseException("invalid id for type " + typeName, null);
+                }
+
+                return new Id((String) id, ((Number) version).intValue(), typeName, (String) state);
+            }
+
+            Map<String, Object> values = this.values instanceof Map ? (Map<String, Object>) this.values : null;
+
+            if (STRUCT_CLASS.equals(typeHint)) {
+                return new Struct(typeName, values);
+            }
+
+            Id                  id         = this.id instanceof Id ? (Id) this.id : new Id(typeName);
+            List<String>        traitNames = this.traitNames instanceof List ? (List<String>) this.traitNames
+                                                                                 : Collections.<String>emptyList();
+            Map<String, IStruct> traits    = new HashMap<>();
+
+            if (this.traits instanceof Map) {
+                for (Map.Entry<String, Object> entry : ((Map<String, Object>) this.traits).entrySet()) {
+                    if (entry.getValue() instanceof IStruct) {
+                        traits.put(entry.getKey(), (IStruct) entry.getValue());
+                    }
+                }
+            }
+
+            return new Referenceable(id, typeName, values, traitNames, traits, toSystemAttributes(systemAttributes));
+        }
+
+        private static AtlasSystemAttributes toSystemAttributes(Object value) {
+            if (!(value instanceof Map)) {
+                return new AtlasSystemAttributes();
+            }
+
+            Map<?, ?> map = (Map<?, ?>) value;
+
+            return new AtlasSystemAttributes((String) map.get("createdBy"), (String) map.get("modifiedBy"),
+                                             toDate(map.get("createdTime")), toDate(map.get("modifiedTime")));
+        }
+
+        private static Date toDate(Object value) {
+            if (value instanceof String) {
+                try {
+                    return TypeSystem.getInstance().getDateFormat().parse((String) value);
+                } catch (ParseException e) {
+                    return null;
+                }
+            }
+
+            return null;
+        }
+    }
+}
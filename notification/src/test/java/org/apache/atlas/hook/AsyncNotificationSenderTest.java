@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.hook;
+
+import org.apache.atlas.notification.AbstractNotification;
+import org.apache.atlas.notification.NotificationException;
+import org.apache.atlas.notification.NotificationInterface;
+import org.apache.atlas.notification.hook.HookNotification;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class AsyncNotificationSenderTest {
+
+    @Mock
+    private NotificationInterface notificationInterface;
+
+    @Mock
+    private FailedMessagesLogger failedMessagesLogger;
+
+    @BeforeMethod
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void testMessagesAreSentInBackground() throws Exception {
+        completeSends((NotificationException) null);
+
+        AsyncNotificationSender sender = new AsyncNotificationSender(notificationInterface, 10, 10, true, failedMessagesLogger);
+        List<HookNotification.HookNotificationMessage> messages = createMessages("user");
+
+        sender.start();
+
+        assertTrue(sender.send(messages, 3));
+
+        sender.stop(5000);
+
+        verify(notificationInterface).sendAsync(eq(NotificationInterface.NotificationType.HOOK), eq(messages),
+                any(NotificationInterface.SendCallback.class));
+        verifyZeroInteractions(failedMessagesLogger);
+        assertEquals(sender.getNumInFlight(), 0);
+    }
+
+    @Test
+    public void testFailedSendIsRetried() throws Exception {
+        completeSends(new NotificationException(new Exception("Simulating exception")), null);
+
+        AsyncNotificationSender sender = new AsyncNotificationSender(notificationInterface, 10, 10, true, failedMessagesLogger);
+        List<HookNotification.HookNotificationMessage> messages = createMessages("user");
+
+        sender.start();
+        sender.send(messages, 3);
+
+        verify(notificationInterface, timeout(5000).times(2)).sendAsync(eq(NotificationInterface.NotificationType.HOOK),
+                eq(messages), any(NotificationInterface.SendCallback.class));
+
+        sender.stop(5000);
+
+        verifyZeroInteractions(failedMessagesLogger);
+    }
+
+    @Test
+    public void testFailedSendIsRetriedBeforeQueuedNotifications() throws Exception {
+        completeSends(new NotificationException(new Exception("Simulating exception")), null);
+
+        AsyncNotificationSender sender = new AsyncNotificationSender(notificationInterface, 10, 10, true, failedMessagesLogger);
+        List<HookNotification.HookNotificationMessage> messages1 = createMessages("user1");
+        List<HookNotification.HookNotificationMessage> messages2 = createMessages("user2");
+
+        // queued before the sender starts, hence the second notification is queued when the first one fails
+        sender.send(messages1, 3);
+        sender.send(messages2, 3);
+        sender.start();
+
+        verify(notificationInterface, timeout(5000).times(3)).sendAsync(eq(NotificationInterface.NotificationType.HOOK),
+                any(List.class), any(NotificationInterface.SendCallback.class));
+
+        sender.stop(5000);
+
+        InOrder inOrder = inOrder(notificationInterface);
+
+        inOrder.verify(notificationInterface, times(2)).sendAsync(eq(NotificationInterface.NotificationType.HOOK),
+                eq(messages1), any(NotificationInterface.SendCallback.class));
+        inOrder.verify(notificationInterface).sendAsync(eq(NotificationInterface.NotificationType.HOOK),
+                eq(messages2), any(NotificationInterface.SendCallback.class));
+        verifyZeroInteractions(failedMessagesLogger);
+    }
+
+    @Test
+    public void testMessagesAreSpilledWhenQueueIsFull() throws Exception {
+        AsyncNotificationSender sender = new AsyncNotificationSender(notificationInterface, 1, 10, true, failedMessagesLogger);
+        List<HookNotification.HookNotificationMessage> messages1 = createMessages("user1");
+        List<HookNotification.HookNotificationMessage> messages2 = createMessages("user2");
+
+        // sender not started: the first notification fills the queue
+        assertTrue(sender.send(messages1, 3));
+        assertFalse(sender.send(messages2, 3));
+
+        verify(failedMessagesLogger).log(AbstractNotification.getMessageJson(messages2.get(0)));
+        verify(failedMessagesLogger, never()).log(AbstractNotification.getMessageJson(messages1.get(0)));
+        assertEquals(sender.getQueueSize(), 1);
+    }
+
+    @Test
+    public void testFailedMessagesAreSpilledWhenRetriesAreExhausted() throws Exception {
+        completeSends(new NotificationException(new Exception("Simulating exception"), Arrays.asList("test message")));
+
+        AsyncNotificationSender sender = new AsyncNotificationSender(notificationInterface, 10, 10, true, failedMessagesLogger);
+
+        sender.sendPending(new AsyncNotificationSender.PendingNotification(createMessages("user"), 1));
+
+        verify(notificationInterface, times(1)).sendAsync(eq(NotificationInterface.NotificationType.HOOK),
+                any(List.class), any(NotificationInterface.SendCallback.class));
+        verify(failedMessagesLogger).log("test message");
+        assertEquals(sender.getNumInFlight(), 0);
+    }
+
+    private void completeSends(final NotificationException... results) {
+        doAnswer(new Answer<Void>() {
+            private int count = 0;
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                NotificationInterface.SendCallback callback = (NotificationInterface.SendCallback) invocation.getArguments()[2];
+
+                callback.onCompletion(results[Math.min(count++, results.length - 1)]);
+
+                return null;
+            }
+        }).when(notificationInterface).sendAsync(eq(NotificationInterface.NotificationType.HOOK), any(List.class),
+                any(NotificationInterface.SendCallback.class));
+    }
+
+    private List<HookNotification.HookNotificationMessage> createMessages(String user) {
+        return Collections.<HookNotification.HookNotificationMessage>singletonList(new HookNotification.EntityCreateRequest(user));
+    }
+}
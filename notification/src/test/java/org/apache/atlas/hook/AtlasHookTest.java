@@ -18,6 +18,7 @@
 
 package org.apache.atlas.hook;
 
+import org.apache.atlas.notification.AbstractNotification;
 import org.apache.atlas.notification.NotificationException;
 import org.apache.atlas.notification.NotificationInterface;
 import org.apache.atlas.notification.hook.HookNotification;
@@ -26,6 +27,8 @@ import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -34,6 +37,7 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.testng.Assert.assertEquals;
 
 
 public class AtlasHookTest {
@@ -120,6 +124,40 @@ public class AtlasHookTest {
         verify(failedMessagesLogger, times(1)).log("test message2");
     }
 
+    @Test
+    public void testMessagesAreSpooledWhenRetriesAreExhausted() throws Exception {
+        List<HookNotification.HookNotificationMessage> hookNotificationMessages =
+                Arrays.<HookNotification.HookNotificationMessage>asList(new HookNotification.EntityCreateRequest("user"));
+        doThrow(new NotificationException(new Exception(), Arrays.asList("test message")))
+                .when(notificationInterface)
+                .send(NotificationInterface.NotificationType.HOOK, hookNotificationMessages);
+
+        File spoolDir = Files.createTempDirectory("atlas-hook-spool").toFile();
+
+        try (HookMessageSpool spool = new HookMessageSpool(spoolDir, 64 * 1024, 1024 * 1024)) {
+            AtlasHook.notifyEntitiesInternal(hookNotificationMessages, 2, notificationInterface, true,
+                    failedMessagesLogger, spool);
+
+            assertEquals(spool.getDepth(), 1);
+            assertEquals(spool.peek(), AbstractNotification.getMessageJson(hookNotificationMessages.get(0)));
+            verifyZeroInteractions(failedMessagesLogger);
+
+            // while the spool has messages to replay, messages are spooled without trying to send
+            AtlasHook.notifyEntitiesInternal(hookNotificationMessages, 2, notificationInterface, true,
+                    failedMessagesLogger, spool);
+
+            assertEquals(spool.getDepth(), 2);
+            verify(notificationInterface, times(2)).
+                    send(NotificationInterface.NotificationType.HOOK, hookNotificationMessages);
+        } finally {
+            for (File file : spoolDir.listFiles()) {
+                file.delete();
+            }
+
+            spoolDir.delete();
+        }
+    }
+
     @Test
     public void testFailedMessageIsNotLoggedIfNotANotificationException() throws Exception {
         List<HookNotification.HookNotificationMessage> hookNotificationMessages = new ArrayList<>();
@@ -19,6 +19,7 @@
 package org.apache.atlas.hook;
 
 import kafka.utils.ZkUtils;
+import org.apache.atlas.kafka.KafkaNotification;
 import org.apache.commons.configuration.Configuration;
 import org.testng.annotations.Test;
 
@@ -29,6 +30,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
@@ -278,4 +280,21 @@ public class AtlasTopicCreatorTest {
         assertFalse(createdTopics.get("ATLAS_HOOK"));
         assertFalse(createdTopics.get("ATLAS_ENTITIES"));
     }
+
+    @Test
+    public void shouldCreateDeadLetterTopicIfEnabled() {
+        Configuration configuration = mock(Configuration.class);
+
+        assertEquals(AtlasTopicCreator.getTopicsToCreate(configuration, "ATLAS_HOOK", "ATLAS_ENTITIES"),
+                new String[] {"ATLAS_HOOK", "ATLAS_ENTITIES"});
+
+        when(configuration.getBoolean(KafkaNotification.HOOK_DLQ_ENABLED_PROPERTY, false)).thenReturn(true);
+        when(configuration.getString(KafkaNotification.HOOK_DLQ_TOPIC_PROPERTY, KafkaNotification.ATLAS_HOOK_DLQ_TOPIC)).
+                thenReturn("ATLAS_HOOK_DLQ");
+
+        assertEquals(AtlasTopicCreator.getTopicsToCreate(configuration, "ATLAS_HOOK", "ATLAS_ENTITIES"),
+                new String[] {"ATLAS_HOOK", "ATLAS_ENTITIES", "ATLAS_HOOK_DLQ"});
+        assertEquals(AtlasTopicCreator.getTopicsToCreate(configuration, "ATLAS_HOOK", "ATLAS_HOOK_DLQ"),
+                new String[] {"ATLAS_HOOK", "ATLAS_HOOK_DLQ"});
+    }
 }
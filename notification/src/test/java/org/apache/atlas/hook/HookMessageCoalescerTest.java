@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.hook;
+
+import org.apache.atlas.notification.hook.HookNotification;
+import org.apache.atlas.notification.hook.HookNotification.HookNotificationMessage;
+import org.apache.atlas.typesystem.Referenceable;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class HookMessageCoalescerTest {
+    private static final long INTERVAL_MS = 1000;
+
+    private List<HookNotificationMessage>       sent;
+    private List<List<HookNotificationMessage>> sends;
+    private HookMessageCoalescer                coalescer;
+
+    @BeforeMethod
+    public void setup() {
+        sent      = new ArrayList<>();
+        sends     = new ArrayList<>();
+        coalescer = new HookMessageCoalescer(new HookMessageCoalescer.MessageSender() {
+            @Override
+            public void send(List<HookNotificationMessage> messages, int maxRetries) {
+                sent.addAll(messages);
+                sends.add(messages);
+            }
+        }, INTERVAL_MS, 3);
+    }
+
+    @Test
+    public void testUpdatesOfSameEntitiesAreCoalesced() {
+        HookNotificationMessage update1 = updateRequest("user", "db.table1");
+        HookNotificationMessage update2 = updateRequest("user", "db.table1");
+        HookNotificationMessage update3 = updateRequest("user", "db.table2");
+
+        coalescer.add(list(update1), 3, 0);
+        coalescer.add(list(update2), 3, 100);
+        coalescer.add(list(update3), 3, 200);
+
+        assertTrue(sent.isEmpty());
+        assertEquals(coalescer.getNumHeld(), 2);
+        assertEquals(coalescer.getNumCoalesced(), 1);
+
+        coalescer.flushExpired(INTERVAL_MS - 1);
+        assertTrue(sent.isEmpty());
+
+        // the latest update for table1 is held since the first one was received, and is ordered after table2
+        coalescer.flushExpired(INTERVAL_MS);
+        assertEquals(sent.size(), 2);
+        assertSame(sent.get(0), update3);
+        assertSame(sent.get(1), update2);
+        assertEquals(coalescer.getNumHeld(), 0);
+    }
+
+    @Test
+    public void testDeleteIsSentRightAfterHeldMessages() {
+        HookNotificationMessage update = updateRequest("user", "db.table1");
+        HookNotificationMessage delete = new HookNotification.EntityDeleteRequest("user", "hive_table", "qualifiedName", "db.table1");
+
+        coalescer.add(list(update), 3, 0);
+        coalescer.add(list(delete), 3, 10);
+
+        assertEquals(sent, Arrays.asList(update, delete));
+        assertEquals(coalescer.getNumHeld(), 0);
+    }
+
+    @Test
+    public void testOldestMessagesAreSentWhenLimitIsReached() {
+        for (int i = 0; i < 5; i++) {
+            coalescer.add(list(updateRequest("user", "db.table" + i)), 3, i);
+        }
+
+        assertEquals(sent.size(), 2);
+        assertEquals(coalescer.getNumHeld(), 3);
+
+        coalescer.flush();
+
+        assertEquals(sent.size(), 5);
+    }
+
+    @Test
+    public void testMessagesOfANotificationAreSentTogether() {
+        List<HookNotificationMessage> notification1 = Arrays.asList(updateRequest("user", "db.table1"), updateRequest("user", "db.table2"));
+        List<HookNotificationMessage> notification2 = Arrays.asList(updateRequest("user", "db.table1"), updateRequest("user", "db.table2"));
+        List<HookNotificationMessage> notification3 = Arrays.asList(updateRequest("user", "db.table1"));
+
+        coalescer.add(notification1, 3, 0);
+        coalescer.add(notification2, 3, 10);
+        coalescer.add(notification3, 3, 20);
+
+        // notification2 replaces notification1, which has the same messages; notification3 is held separately
+        assertEquals(coalescer.getNumHeld(), 3);
+        assertEquals(coalescer.getNumCoalesced(), 1);
+
+        coalescer.flush();
+
+        assertEquals(sends, Arrays.asList(notification2, notification3));
+    }
+
+    @Test
+    public void testMessagesAreHeldWhileAnotherThreadSends() throws Exception {
+        final CountDownLatch sendStarted = new CountDownLatch(1);
+        final CountDownLatch sendDone    = new CountDownLatch(1);
+
+        coalescer = new HookMessageCoalescer(new HookMessageCoalescer.MessageSender() {
+            @Override
+            public void send(List<HookNotificationMessage> messages, int maxRetries) {
+                sendStarted.countDown();
+
+                try {
+                    sendDone.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                sent.addAll(messages);
+            }
+        }, INTERVAL_MS, 3);
+
+        coalescer.add(list(updateRequest("user", "db.table1")), 3, 0);
+
+        Thread flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                coalescer.flush();
+            }
+        });
+
+        flusher.start();
+
+        assertTrue(sendStarted.await(10, TimeUnit.SECONDS));
+
+        // the lock on held messages isn't held while sending
+        coalescer.add(list(updateRequest("user", "db.table2")), 3, 10);
+        assertEquals(coalescer.getNumHeld(), 1);
+
+        sendDone.countDown();
+        flusher.join(10000);
+
+        assertEquals(sent.size(), 1);
+    }
+
+    @Test
+    public void testCoalesceKey() {
+        assertNotNull(HookMessageCoalescer.getCoalesceKey(updateRequest("user", "db.table1")));
+        assertEquals(HookMessageCoalescer.getCoalesceKey(updateRequest("user", "db.table1")),
+                     HookMessageCoalescer.getCoalesceKey(createRequest("user", "db.table1")));
+
+        // different users are not coalesced, so that each change is audited for its user
+        assertTrue(!HookMessageCoalescer.getCoalesceKey(updateRequest("user1", "db.table1"))
+                    .equals(HookMessageCoalescer.getCoalesceKey(updateRequest("user2", "db.table1"))));
+
+        assertNull(HookMessageCoalescer.getCoalesceKey(new HookNotification.EntityCreateRequest("user", new Referenceable("hive_table"))));
+        assertNull(HookMessageCoalescer.getCoalesceKey(new HookNotification.EntityPartialUpdateRequest("user", "hive_table",
+                "qualifiedName", "db.table1", new Referenceable("hive_table"))));
+    }
+
+    private HookNotificationMessage updateRequest(String user, String tableName) {
+        return new HookNotification.EntityUpdateRequest(user, getEntities(tableName));
+    }
+
+    private HookNotificationMessage createRequest(String user, String tableName) {
+        return new HookNotification.EntityCreateRequest(user, getEntities(tableName));
+    }
+
+    private List<Referenceable> getEntities(String tableName) {
+        Referenceable db    = new Referenceable("hive_db");
+        Referenceable table = new Referenceable("hive_table");
+
+        db.set("qualifiedName", tableName.substring(0, tableName.indexOf('.')));
+        table.set("qualifiedName", tableName);
+
+        return Arrays.asList(db, table);
+    }
+
+    private List<HookNotificationMessage> list(HookNotificationMessage message) {
+        return Collections.singletonList(message);
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.hook;
+
+import org.apache.atlas.AtlasException;
+import org.apache.atlas.notification.AbstractNotification;
+import org.apache.atlas.notification.NotificationConsumer;
+import org.apache.atlas.notification.NotificationException;
+import org.apache.atlas.notification.NotificationInterface;
+import org.apache.atlas.notification.hook.HookNotification;
+import org.apache.commons.configuration.Configuration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class HookMessageSpoolTest {
+    private File spoolDir;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        spoolDir = Files.createTempDirectory("atlas-hook-spool").toFile();
+    }
+
+    @AfterMethod
+    public void cleanup() {
+        File[] files = spoolDir.listFiles();
+
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+
+        spoolDir.delete();
+    }
+
+    @Test
+    public void testMessagesAreReadInOrderAcrossSegments() throws Exception {
+        try (HookMessageSpool spool = new HookMessageSpool(spoolDir, 100, 10 * 1000)) {
+            for (int i = 0; i < 20; i++) {
+                assertTrue(spool.append("message-" + i));
+            }
+
+            assertEquals(spool.getDepth(), 20);
+            assertTrue(spool.getNumSegments() > 1);
+            assertTrue(spool.getOldestMessageAgeMs() >= 0);
+
+            for (int i = 0; i < 20; i++) {
+                assertEquals(spool.peek(), "message-" + i);
+
+                spool.remove();
+            }
+
+            assertNull(spool.peek());
+            assertTrue(spool.isEmpty());
+            assertEquals(spool.getNumSegments(), 1);
+            assertEquals(spool.getNumReplayed(), 20);
+            assertEquals(spool.getOldestMessageAgeMs(), 0);
+        }
+    }
+
+    @Test
+    public void testSpoolIsRecoveredOnReopen() throws Exception {
+        try (HookMessageSpool spool = new HookMessageSpool(spoolDir, 100, 10 * 1000)) {
+            for (int i = 0; i < 10; i++) {
+                spool.append("message-" + i);
+            }
+
+            for (int i = 0; i < 6; i++) {
+                spool.remove();
+            }
+        }
+
+        try (HookMessageSpool spool = new HookMessageSpool(spoolDir, 100, 10 * 1000)) {
+            assertEquals(spool.getDepth(), 4);
+            assertEquals(spool.peek(), "message-6");
+
+            // appends continue after the recovered messages
+            spool.append("message-10");
+
+            for (int i = 6; i <= 10; i++) {
+                assertEquals(spool.peek(), "message-" + i);
+
+                spool.remove();
+            }
+
+            assertTrue(spool.isEmpty());
+        }
+    }
+
+    @Test
+    public void testAppendIsRejectedWhenSpoolIsFull() throws Exception {
+        try (HookMessageSpool spool = new HookMessageSpool(spoolDir, 100, 200)) {
+            int numSpooled = 0;
+
+            while (spool.append("message-" + numSpooled)) {
+                numSpooled++;
+            }
+
+            assertTrue(numSpooled > 0);
+            assertEquals(spool.getNumRejected(), 1);
+            assertEquals(spool.getNumSegments(), 2);
+            assertFalse(spool.append(new String(new char[100])));
+
+            // space is reclaimed once a segment is replayed
+            while (!spool.isEmpty()) {
+                spool.remove();
+            }
+
+            assertTrue(spool.append("message"));
+        }
+    }
+
+    @Test
+    public void testSpoolDirectoryCanBeOpenedOnlyOnce() throws Exception {
+        try (HookMessageSpool spool = new HookMessageSpool(spoolDir, 100, 1000)) {
+            new HookMessageSpool(spoolDir, 100, 1000);
+
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testReplayStopsOnFailureAndResumes() throws Exception {
+        TestNotification notification = new TestNotification();
+
+        try (HookMessageSpool spool = new HookMessageSpool(spoolDir, 1000, 10 * 1000)) {
+            List<HookNotification.HookNotificationMessage> messages =
+                    Arrays.<HookNotification.HookNotificationMessage>asList(new HookNotification.EntityCreateRequest("user1"),
+                                                                           new HookNotification.EntityCreateRequest("user2"));
+
+            assertEquals(spool.append(messages), 2);
+
+            HookMessageSpoolReplayer replayer = new HookMessageSpoolReplayer(spool, notification, false, null);
+
+            notification.isAvailable = false;
+
+            assertEquals(replayer.replay(), 0);
+            assertEquals(spool.getDepth(), 2);
+
+            notification.isAvailable = true;
+
+            assertEquals(replayer.replay(), 2);
+            assertTrue(spool.isEmpty());
+            assertEquals(notification.users, Arrays.asList("user1", "user2"));
+        }
+    }
+
+    private static class TestNotification extends AbstractNotification {
+        private final List<String> users = new ArrayList<>();
+        private boolean isAvailable = true;
+
+        TestNotification() throws AtlasException {
+            super(mock(Configuration.class));
+        }
+
+        @Override
+        public <T> void send(NotificationType type, List<T> messages) throws NotificationException {
+            if (!isAvailable) {
+                throw new NotificationException(new Exception("Simulating unavailable messaging system"));
+            }
+
+            for (T message : messages) {
+                users.add(((HookNotification.HookNotificationMessage) message).getUser());
+            }
+        }
+
+        @Override
+        protected void sendInternal(NotificationType type, String[] messages) throws NotificationException {
+        }
+
+        @Override
+        public <T> List<NotificationConsumer<T>> createConsumers(NotificationInterface.NotificationType notificationType, int numConsumers) {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
 import org.apache.kafka.common.TopicPartition;
 import org.codehaus.jettison.json.JSONException;
 import org.mockito.Mock;
@@ -48,6 +49,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -173,6 +176,105 @@ public class KafkaConsumerTest {
         verify(kafkaConsumer, never()).commitSync(Collections.singletonMap(tp, new OffsetAndMetadata(1)));
     }
 
+    @Test
+    public void testAsyncCommitIsBatched() {
+        TopicPartition tp = new TopicPartition("ATLAS_HOOK",0);
+
+        AtlasKafkaConsumer consumer = new AtlasKafkaConsumer(NotificationInterface.NotificationType.HOOK.getDeserializer(), kafkaConsumer, false, 100L, true, 60000L, 2);
+
+        consumer.commit(tp, 1);
+
+        verify(kafkaConsumer, never()).commitAsync(any(Map.class), any(OffsetCommitCallback.class));
+
+        consumer.commit(tp, 2);
+
+        verify(kafkaConsumer).commitAsync(eq(Collections.singletonMap(tp, new OffsetAndMetadata(2))), any(OffsetCommitCallback.class));
+        verify(kafkaConsumer, never()).commitSync(any(Map.class));
+    }
+
+    @Test
+    public void testAsyncCommitIsHeldBackByUnprocessedOffset() throws Exception {
+        TopicPartition tp = new TopicPartition("ATLAS_HOOK",0);
+        String json = AbstractNotification.GSON.toJson(new VersionedMessage<>(new MessageVersion("1.0.0"),
+                new HookNotification.EntityUpdateRequest("user1", getEntity(TRAIT_NAME))));
+
+        List<ConsumerRecord> klist = new ArrayList<>();
+        klist.add(new ConsumerRecord<String, String>("ATLAS_HOOK", 0, 0L, "mykey", json));
+        klist.add(new ConsumerRecord<String, String>("ATLAS_HOOK", 0, 1L, "mykey", json));
+        klist.add(new ConsumerRecord<String, String>("ATLAS_HOOK", 0, 2L, "mykey", json));
+
+        Map mp = new HashMap();
+        mp.put(tp,klist);
+
+        when(kafkaConsumer.poll(100L)).thenReturn(new ConsumerRecords(mp));
+
+        AtlasKafkaConsumer consumer = new AtlasKafkaConsumer(NotificationInterface.NotificationType.HOOK.getDeserializer(), kafkaConsumer, false, 100L, true, 60000L, 2);
+
+        assertEquals(consumer.receive().size(), 3);
+
+        // offset 1 is not processed yet: only offset 0 can be committed
+        consumer.commit(tp, 1);
+        consumer.commit(tp, 3);
+
+        verify(kafkaConsumer).commitAsync(eq(Collections.singletonMap(tp, new OffsetAndMetadata(1))), any(OffsetCommitCallback.class));
+
+        consumer.commit(tp, 2);
+        consumer.close();
+
+        verify(kafkaConsumer).commitSync(Collections.singletonMap(tp, new OffsetAndMetadata(3)));
+        verify(kafkaConsumer).close();
+    }
+
+    @Test
+    public void testPendingCommitsAreFlushedOnClose() {
+        TopicPartition tp = new TopicPartition("ATLAS_HOOK",0);
+
+        AtlasKafkaConsumer consumer = new AtlasKafkaConsumer(NotificationInterface.NotificationType.HOOK.getDeserializer(), kafkaConsumer, false, 100L, true, 60000L, 100);
+
+        consumer.commit(tp, 1);
+        consumer.commit(tp, 2);
+
+        verify(kafkaConsumer, never()).commitAsync(any(Map.class), any(OffsetCommitCallback.class));
+
+        consumer.close();
+
+        verify(kafkaConsumer).commitSync(Collections.singletonMap(tp, new OffsetAndMetadata(2)));
+        verify(kafkaConsumer).close();
+    }
+
+    @Test
+    public void testCommitIsHeldBackByHeldOffset() {
+        TopicPartition tp = new TopicPartition("ATLAS_HOOK",0);
+
+        AtlasKafkaConsumer consumer = new AtlasKafkaConsumer(NotificationInterface.NotificationType.HOOK.getDeserializer(), kafkaConsumer, false, 100L);
+
+        // processing of offset 1 is deferred, while offsets 0 and 2 are processed
+        consumer.holdOffset(tp, 1);
+        consumer.commit(tp, 1);
+        consumer.commit(tp, 3);
+
+        verify(kafkaConsumer).commitSync(Collections.singletonMap(tp, new OffsetAndMetadata(1)));
+        verify(kafkaConsumer, never()).commitSync(Collections.singletonMap(tp, new OffsetAndMetadata(3)));
+
+        consumer.commit(tp, 2);
+
+        verify(kafkaConsumer).commitSync(Collections.singletonMap(tp, new OffsetAndMetadata(3)));
+    }
+
+    @Test
+    public void testRevokedPartitionsAreReported() {
+        TopicPartition tp = new TopicPartition("ATLAS_HOOK",0);
+
+        AtlasKafkaConsumer consumer = new AtlasKafkaConsumer(NotificationInterface.NotificationType.HOOK.getDeserializer(), kafkaConsumer, false, 100L);
+
+        assertTrue(consumer.getRevokedPartitions().isEmpty());
+
+        consumer.getRebalanceListener().onPartitionsRevoked(Collections.singletonList(tp));
+
+        assertEquals(consumer.getRevokedPartitions(), Collections.singletonList(tp));
+        assertTrue(consumer.getRevokedPartitions().isEmpty());
+    }
+
     private Referenceable getEntity(String traitName) {
         Referenceable entity = EntityNotificationImplTest.getEntity("id");
         List<IStruct> traitInfo = new LinkedList<>();
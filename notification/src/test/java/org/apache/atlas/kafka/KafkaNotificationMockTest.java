@@ -20,18 +20,28 @@ package org.apache.atlas.kafka;
 import kafka.consumer.KafkaStream;
 import kafka.javaapi.consumer.ConsumerConnector;
 import kafka.serializer.StringDecoder;
+import org.apache.atlas.notification.AbstractNotification;
+import org.apache.atlas.notification.MessageChunk;
 import org.apache.atlas.notification.MessageDeserializer;
 import org.apache.atlas.notification.NotificationConsumer;
 import org.apache.atlas.notification.NotificationException;
 import org.apache.atlas.notification.NotificationInterface;
+import org.apache.atlas.notification.hook.HookNotification;
+import org.apache.atlas.typesystem.Referenceable;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.TopicPartition;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.Test;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +56,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -74,6 +85,26 @@ public class KafkaNotificationMockTest {
     }
 
 
+    @Test
+    public void testConsumersAreSubscribedWithRebalanceListener() {
+        Properties properties = new Properties();
+        properties.setProperty("hook.group.id", "atlas");
+
+        final KafkaConsumer kafkaConsumer = mock(KafkaConsumer.class);
+
+        KafkaNotification kafkaNotification = new KafkaNotification(properties) {
+            @Override
+            public KafkaConsumer getKafkaConsumer(Properties consumerProperties, NotificationType type, boolean autoCommitEnabled) {
+                return kafkaConsumer;
+            }
+        };
+
+        // asynchronous commit is disabled: revoked partitions are still to be reported
+        kafkaNotification.createConsumers(NotificationInterface.NotificationType.HOOK, 1, false);
+
+        verify(kafkaConsumer).subscribe(eq(Arrays.asList(KafkaNotification.ATLAS_HOOK_TOPIC)), any(ConsumerRebalanceListener.class));
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     public void shouldSendMessagesSuccessfully() throws NotificationException,
@@ -151,6 +182,156 @@ public class KafkaNotificationMockTest {
         }
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldReportFailedMessagesToCallbackWhenSendingAsynchronously() {
+        Properties configProperties = mock(Properties.class);
+        KafkaNotification kafkaNotification = new KafkaNotification(configProperties);
+
+        Producer producer = mock(Producer.class);
+        final String topicName = kafkaNotification.getTopicName(NotificationInterface.NotificationType.HOOK);
+        String message1 = "This is a test message1";
+        String message2 = "This is a test message2";
+
+        when(producer.send(eq(new ProducerRecord(topicName, message1)), any(Callback.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                ((Callback) invocation.getArguments()[1]).onCompletion(new RecordMetadata(new TopicPartition(topicName, 0), 0, 0), null);
+                return null;
+            }
+        });
+        when(producer.send(eq(new ProducerRecord(topicName, message2)), any(Callback.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                ((Callback) invocation.getArguments()[1]).onCompletion(null, new RuntimeException("Simulating exception"));
+                return null;
+            }
+        });
+
+        final List<NotificationException> results = new ArrayList<>();
+
+        kafkaNotification.sendInternalToProducerAsync(producer, NotificationInterface.NotificationType.HOOK,
+                Arrays.asList(message1, message2), Collections.<String>nCopies(2, null), new NotificationInterface.SendCallback() {
+                    @Override
+                    public void onCompletion(NotificationException exception) {
+                        results.add(exception);
+                    }
+                });
+
+        // the callback is notified once, after both messages complete
+        assertEquals(results.size(), 1);
+        assertEquals(results.get(0).getFailedMessages().size(), 1);
+        assertEquals(results.get(0).getFailedMessages().get(0), message2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldSendMessagesWithKey() throws NotificationException,
+            ExecutionException, InterruptedException {
+        Properties configProperties = mock(Properties.class);
+        KafkaNotification kafkaNotification = new KafkaNotification(configProperties);
+
+        Producer producer = mock(Producer.class);
+        String topicName = kafkaNotification.getTopicName(NotificationInterface.NotificationType.HOOK);
+        String message = "This is a test message";
+        Future returnValue = mock(Future.class);
+        when(returnValue.get()).thenReturn(new RecordMetadata(new TopicPartition(topicName, 0), 0, 0));
+        ProducerRecord expectedRecord = new ProducerRecord(topicName, "hive_table:db.tbl@cl1", message);
+        when(producer.send(expectedRecord)).thenReturn(returnValue);
+
+        kafkaNotification.sendInternalToProducer(producer,
+                NotificationInterface.NotificationType.HOOK, new String[]{message}, "hive_table:db.tbl@cl1");
+
+        verify(producer).send(expectedRecord);
+    }
+
+    @Test
+    public void testMessageKey() {
+        Referenceable table = new Referenceable("hive_table");
+        table.set("qualifiedName", "db.tbl@cl1");
+
+        assertEquals(KafkaNotification.getMessageKey(new HookNotification.EntityCreateRequest("user", table)),
+                "hive_table:db.tbl@cl1");
+        assertEquals(KafkaNotification.getMessageKey(new HookNotification.EntityUpdateRequest("user", table)),
+                "hive_table:db.tbl@cl1");
+        assertEquals(KafkaNotification.getMessageKey(
+                new HookNotification.EntityPartialUpdateRequest("user", "hive_table", "qualifiedName", "db.tbl@cl1", table)),
+                "hive_table:db.tbl@cl1");
+        assertEquals(KafkaNotification.getMessageKey(
+                new HookNotification.EntityDeleteRequest("user", "hive_table", "qualifiedName", "db.tbl@cl1")),
+                "hive_table:db.tbl@cl1");
+        assertNull(KafkaNotification.getMessageKey(new HookNotification.EntityCreateRequest("user", new Referenceable("hive_table"))));
+        assertNull(KafkaNotification.getMessageKey("not a hook message"));
+    }
+
+    @Test
+    public void testMessageKeyIsOfTopLevelEntity() {
+        Referenceable db = new Referenceable("hive_db");
+        db.set("qualifiedName", "db@cl1");
+
+        Referenceable table = new Referenceable("hive_table");
+        table.set("qualifiedName", "db.tbl@cl1");
+        table.set("db", db);
+
+        Referenceable column = new Referenceable("hive_column");
+        column.set("qualifiedName", "db.tbl.col1@cl1");
+        column.set("table", table.getId());
+
+        table.set("columns", Arrays.asList(column));
+
+        // create, update, partial update and delete of a table are keyed alike, whichever entity comes first
+        assertEquals(KafkaNotification.getMessageKey(new HookNotification.EntityCreateRequest("user", db, table)),
+                "hive_table:db.tbl@cl1");
+        assertEquals(KafkaNotification.getMessageKey(new HookNotification.EntityUpdateRequest("user", db, column, table)),
+                "hive_table:db.tbl@cl1");
+        assertEquals(KafkaNotification.getMessageKey(new HookNotification.EntityCreateRequest("user", db)),
+                "hive_db:db@cl1");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMessagesAreSentWithKeyOfTheirEntity() throws Exception {
+        Properties configProperties = mock(Properties.class);
+        KafkaNotification kafkaNotification = new KafkaNotification(configProperties);
+
+        Producer producer = mock(Producer.class);
+        String topicName = kafkaNotification.getTopicName(NotificationInterface.NotificationType.HOOK);
+        Future returnValue = mock(Future.class);
+        when(returnValue.get()).thenReturn(new RecordMetadata(new TopicPartition(topicName, 0), 0, 0));
+        when(producer.send(any(ProducerRecord.class))).thenReturn(returnValue);
+
+        kafkaNotification.sendInternalToProducer(producer, NotificationInterface.NotificationType.HOOK,
+                Arrays.asList("message1", "message2"), Arrays.asList("hive_table:db.tbl1@cl1", "hive_table:db.tbl2@cl1"));
+
+        verify(producer).send(new ProducerRecord(topicName, "hive_table:db.tbl1@cl1", "message1"));
+        verify(producer).send(new ProducerRecord(topicName, "hive_table:db.tbl2@cl1", "message2"));
+    }
+
+    @Test
+    public void testChunksAreSentWithSameKey() {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 100; i++) {
+            sb.append("message part ").append(i).append(' ');
+        }
+
+        List<String> chunks = MessageChunk.split(sb.toString(), 200);
+        String       key    = KafkaNotification.getSendKey("not a hook message", chunks);
+
+        assertTrue(chunks.size() > 1);
+        assertEquals(key, MessageChunk.fromJson(chunks.get(0), AbstractNotification.CHUNKED_MESSAGE_VERSION).getMsgId());
+        assertEquals(key, MessageChunk.fromJson(chunks.get(chunks.size() - 1), AbstractNotification.CHUNKED_MESSAGE_VERSION).getMsgId());
+
+        // messages that identify an entity are keyed by it, chunked or not
+        Referenceable table = new Referenceable("hive_table");
+        table.set("qualifiedName", "db.tbl@cl1");
+
+        assertEquals(KafkaNotification.getSendKey(new HookNotification.EntityCreateRequest("user", table), chunks),
+                "hive_table:db.tbl@cl1");
+
+        assertNull(KafkaNotification.getSendKey("not a hook message", Arrays.asList("not a hook message")));
+    }
+
     class TestKafkaNotification extends KafkaNotification {
 
         private final AtlasKafkaConsumer consumer1;
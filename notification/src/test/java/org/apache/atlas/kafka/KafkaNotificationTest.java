@@ -23,13 +23,18 @@ import org.apache.atlas.notification.NotificationConsumer;
 import org.apache.atlas.notification.NotificationInterface;
 import org.apache.atlas.notification.hook.HookNotification;
 import org.apache.atlas.typesystem.Referenceable;
+import org.apache.commons.configuration.BaseConfiguration;
 import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationUtils;
 import org.apache.commons.lang.RandomStringUtils;
+import org.apache.kafka.common.TopicPartition;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 import static org.apache.atlas.notification.hook.HookNotification.HookNotificationMessage;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.testng.Assert.assertEquals;
@@ -84,4 +89,58 @@ public class KafkaNotificationTest {
 
         consumer.close();
     }
+
+    @Test
+    public void testNoMessageLossAcrossRestartWithAsyncCommit() throws Exception {
+        Configuration properties = new BaseConfiguration();
+        ConfigurationUtils.copy(ApplicationProperties.get(), properties);
+        properties.setProperty("atlas.kafka.hook.group.id", "atlas-async-commit-test");
+        properties.setProperty("atlas.kafka.offset.commit.async", true);
+        properties.setProperty("atlas.kafka.offset.commit.batch.size", 2);
+
+        // embedded kafka is already started by kafkaNotification; this instance is only used to create consumers
+        KafkaNotification asyncCommitNotification = new KafkaNotification(properties);
+
+        for (int i = 0; i < 6; i++) {
+            kafkaNotification.send(NotificationInterface.NotificationType.HOOK,
+                    new HookNotification.EntityCreateRequest("restart-" + i, new Referenceable("type")));
+        }
+
+        // process the first 3 messages; messages received after them are not processed before the consumer is closed
+        NotificationConsumer<HookNotificationMessage> consumer =
+                asyncCommitNotification.<HookNotificationMessage>createConsumers(NotificationInterface.NotificationType.HOOK, 1).get(0);
+        boolean processedAll = false;
+        long    startTime    = System.currentTimeMillis();
+
+        while (!processedAll && (System.currentTimeMillis() - startTime) < 30000) {
+            for (AtlasKafkaMessage<HookNotificationMessage> msg : consumer.receive()) {
+                if (processedAll) {
+                    break;
+                }
+
+                consumer.commit(new TopicPartition(KafkaNotification.ATLAS_HOOK_TOPIC, msg.getPartition()), msg.getOffset() + 1);
+
+                processedAll = msg.getMessage().getUser().equals("restart-2");
+            }
+        }
+
+        assertTrue(processedAll);
+        consumer.close();
+
+        // the restarted consumer must start right after the last processed message
+        consumer = asyncCommitNotification.<HookNotificationMessage>createConsumers(NotificationInterface.NotificationType.HOOK, 1).get(0);
+
+        List<String> users = new ArrayList<>();
+        startTime = System.currentTimeMillis();
+
+        while (!users.contains("restart-5") && (System.currentTimeMillis() - startTime) < 30000) {
+            for (AtlasKafkaMessage<HookNotificationMessage> msg : consumer.receive()) {
+                users.add(msg.getMessage().getUser());
+            }
+        }
+
+        consumer.close();
+
+        assertEquals(users, Arrays.asList("restart-3", "restart-4", "restart-5"));
+    }
 }
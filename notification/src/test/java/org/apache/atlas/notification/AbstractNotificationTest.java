@@ -21,12 +21,18 @@ package org.apache.atlas.notification;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.notification.hook.HookNotification;
 import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.lang.StringUtils;
 import org.testng.annotations.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedList;
 import java.util.List;
 
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static org.testng.Assert.*;
 
 /**
@@ -85,6 +91,153 @@ public class AbstractNotificationTest {
         assertEquals(messageJson3, notification.messages[2]);
     }
 
+    @Test
+    public void testSendCompressed() throws Exception {
+        Configuration configuration = mock(Configuration.class);
+
+        when(configuration.getString(AbstractNotification.PROPERTY_MESSAGE_COMPRESSION)).thenReturn("gzip");
+        when(configuration.getInt(eq(AbstractNotification.PROPERTY_MESSAGE_COMPRESSION_MIN_SIZE), anyInt()))
+            .thenReturn(0);
+
+        TestNotification notification = new TestNotification(configuration);
+
+        TestMessage message1 = new TestMessage(HookNotification.HookNotificationType.ENTITY_CREATE, "user1");
+        String messageJson1 = AbstractNotification.getMessageJson(message1);
+
+        notification.send(NotificationInterface.NotificationType.HOOK, message1);
+
+        assertEquals(1, notification.messages.length);
+        assertNotEquals(messageJson1, notification.messages[0]);
+        assertEquals(messageJson1, CompressedMessage.decompress(notification.messages[0],
+                                                                AbstractNotification.COMPRESSED_MESSAGE_VERSION));
+
+        // entity notifications are read by consumers outside Atlas, and are never compressed
+        notification.send(NotificationInterface.NotificationType.ENTITIES, message1);
+
+        assertEquals(messageJson1, notification.messages[0]);
+    }
+
+    @Test
+    public void testSendSmallMessageUncompressed() throws Exception {
+        Configuration configuration = mock(Configuration.class);
+
+        when(configuration.getString(AbstractNotification.PROPERTY_MESSAGE_COMPRESSION)).thenReturn("gzip");
+        when(configuration.getInt(eq(AbstractNotification.PROPERTY_MESSAGE_COMPRESSION_MIN_SIZE), anyInt()))
+            .thenReturn(AbstractNotification.DEFAULT_MESSAGE_COMPRESSION_MIN_SIZE);
+
+        TestNotification notification = new TestNotification(configuration);
+
+        TestMessage message1 = new TestMessage(HookNotification.HookNotificationType.ENTITY_CREATE, "user1");
+
+        notification.send(NotificationInterface.NotificationType.HOOK, message1);
+
+        assertEquals(AbstractNotification.getMessageJson(message1), notification.messages[0]);
+    }
+
+    @Test(expectedExceptions = IncompatibleVersionException.class)
+    public void testDecompressNewerVersion() throws Exception {
+        String compressed = CompressedMessage.compress("{}", CompressedMessage.Compression.GZIP);
+
+        CompressedMessage.decompress(compressed, AbstractNotification.CURRENT_MESSAGE_VERSION);
+    }
+
+    @Test
+    public void testSendChunked() throws Exception {
+        Configuration configuration = mock(Configuration.class);
+
+        when(configuration.getInt(eq(AbstractNotification.PROPERTY_MESSAGE_MAX_LENGTH), anyInt())).thenReturn(300);
+
+        TestNotification notification = new TestNotification(configuration);
+
+        StringBuilder user = new StringBuilder();
+
+        for (int i = 0; i < 100; i++) {
+            user.append("user<\"").append(i).append("\">").appendCodePoint(0xe9).appendCodePoint(0x1f600);
+        }
+
+        TestMessage message1 = new TestMessage(HookNotification.HookNotificationType.ENTITY_CREATE, user.toString());
+        String messageJson1 = AbstractNotification.getMessageJson(message1);
+
+        notification.send(NotificationInterface.NotificationType.HOOK, message1);
+
+        assertTrue(notification.messages.length > 1);
+
+        StringBuilder reassembled = new StringBuilder();
+        String        msgId       = null;
+
+        for (int i = 0; i < notification.messages.length; i++) {
+            assertTrue(notification.messages[i].getBytes(StandardCharsets.UTF_8).length <= 300);
+
+            MessageChunk chunk = MessageChunk.fromJson(notification.messages[i], AbstractNotification.CHUNKED_MESSAGE_VERSION);
+
+            assertNotNull(chunk);
+            assertEquals(i, chunk.getMsgSplitIdx());
+            assertEquals(notification.messages.length, chunk.getMsgSplitCount());
+
+            if (msgId == null) {
+                msgId = chunk.getMsgId();
+            } else {
+                assertEquals(msgId, chunk.getMsgId());
+            }
+
+            reassembled.append(chunk.getMessage());
+        }
+
+        assertEquals(messageJson1, reassembled.toString());
+
+        // messages within the limit are sent as is
+        TestMessage message2 = new TestMessage(HookNotification.HookNotificationType.ENTITY_CREATE, "user1");
+
+        notification.send(NotificationInterface.NotificationType.HOOK, message2);
+
+        assertEquals(1, notification.messages.length);
+        assertEquals(AbstractNotification.getMessageJson(message2), notification.messages[0]);
+        assertNull(MessageChunk.fromJson(notification.messages[0], AbstractNotification.CHUNKED_MESSAGE_VERSION));
+    }
+
+    @Test
+    public void testNotChunkedByDefault() throws Exception {
+        TestNotification notification = new TestNotification(new PropertiesConfiguration());
+
+        // larger than the default max.message.bytes of Kafka brokers
+        TestMessage message = new TestMessage(HookNotification.HookNotificationType.ENTITY_CREATE, StringUtils.repeat("user", 300 * 1000));
+
+        notification.send(NotificationInterface.NotificationType.HOOK, message);
+
+        assertEquals(1, notification.messages.length);
+        assertEquals(AbstractNotification.getMessageJson(message), notification.messages[0]);
+    }
+
+    @Test
+    public void testChunksOfNonAsciiMessageAreWithinMaxBytes() {
+        StringBuilder message = new StringBuilder();
+
+        for (int i = 0; i < 1000; i++) {
+            message.append("\u00e9\u4e2d").appendCodePoint(0x1f600);
+        }
+
+        List<String> chunks = MessageChunk.split(message.toString(), 1000);
+
+        assertTrue(chunks.size() > 1);
+
+        StringBuilder reassembled = new StringBuilder();
+
+        for (String chunkJson : chunks) {
+            assertTrue(chunkJson.getBytes(StandardCharsets.UTF_8).length <= 1000);
+
+            reassembled.append(MessageChunk.fromJson(chunkJson, AbstractNotification.CHUNKED_MESSAGE_VERSION).getMessage());
+        }
+
+        assertEquals(message.toString(), reassembled.toString());
+    }
+
+    @Test(expectedExceptions = IncompatibleVersionException.class)
+    public void testChunkNewerVersion() throws Exception {
+        List<String> chunks = MessageChunk.split("{\"version\":{\"version\":\"1.0.0\"},\"message\":{}}", 1);
+
+        MessageChunk.fromJson(chunks.get(0), AbstractNotification.CURRENT_MESSAGE_VERSION);
+    }
+
     public static class TestMessage extends HookNotification.HookNotificationMessage {
 
         public TestMessage(HookNotification.HookNotificationType type, String user) {
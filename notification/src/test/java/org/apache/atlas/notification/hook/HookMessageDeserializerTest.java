@@ -18,16 +18,27 @@
 
 package org.apache.atlas.notification.hook;
 
+import com.google.gson.JsonDeserializer;
+import org.apache.atlas.notification.AbstractMessageDeserializer;
 import org.apache.atlas.notification.AbstractNotification;
+import org.apache.atlas.notification.CompressedMessage;
+import org.apache.atlas.notification.NotificationInterface;
 import org.apache.atlas.notification.entity.EntityNotificationImplTest;
 import org.apache.atlas.typesystem.IStruct;
 import org.apache.atlas.typesystem.Referenceable;
 import org.apache.atlas.typesystem.Struct;
+import org.apache.atlas.typesystem.persistence.Id;
+import org.slf4j.LoggerFactory;
 import org.testng.annotations.Test;
 
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
@@ -67,4 +78,276 @@ public class HookMessageDeserializerTest {
         assertEquals(deserializedEntity.getTraits(), entity.getTraits());
         assertEquals(deserializedEntity.getTrait(traitName), entity.getTrait(traitName));
     }
+
+    @Test
+    public void testDeserializeCreateTableWithManyColumns() throws Exception {
+        HookMessageDeserializer deserializer = new HookMessageDeserializer();
+
+        Referenceable table = getTable(500);
+
+        String json = AbstractNotification.getMessageJson(new HookNotification.EntityCreateRequest("user1", table));
+
+        HookNotification.HookNotificationMessage deserializedMessage = deserializer.deserialize(json);
+
+        assertEquals(deserializedMessage.getType(), HookNotification.HookNotificationType.ENTITY_CREATE);
+        assertEquals(deserializedMessage.getUser(), "user1");
+
+        List<Referenceable> entities = ((HookNotification.EntityCreateRequest) deserializedMessage).getEntities();
+
+        assertEquals(entities.size(), 1);
+
+        Referenceable deserializedTable = entities.get(0);
+
+        assertEquals(deserializedTable.getId(), table.getId());
+        assertEquals(deserializedTable.getTypeName(), "hive_table");
+        assertEquals(deserializedTable.get("qualifiedName"), table.get("qualifiedName"));
+        assertEquals(((Number) deserializedTable.get("createTime")).longValue(), table.get("createTime"));
+        assertEquals(deserializedTable.getTraits(), table.getTraits());
+        assertEquals(deserializedTable.getTrait("PII").getTypeName(), "PII");
+        assertEquals(deserializedTable.getTrait("PII").get("level"), "high");
+        assertEquals(((Referenceable) deserializedTable.get("sd")).get("location"), "hdfs://warehouse/t1");
+
+        List<?> columns = (List<?>) deserializedTable.get("columns");
+        List<?> expected = (List<?>) table.get("columns");
+
+        assertEquals(columns.size(), 500);
+
+        for (int i = 0; i < columns.size(); i++) {
+            Referenceable column         = (Referenceable) columns.get(i);
+            Referenceable expectedColumn = (Referenceable) expected.get(i);
+
+            assertEquals(column.getId(), expectedColumn.getId());
+            assertEquals(column.get("name"), expectedColumn.get("name"));
+            assertEquals(((Number) column.get("position")).intValue(), expectedColumn.get("position"));
+            assertEquals(column.get("table"), table.getId());
+        }
+    }
+
+    @Test
+    public void testDeserializeCompressedMessage() throws Exception {
+        HookMessageDeserializer deserializer = new HookMessageDeserializer();
+
+        Referenceable table = getTable(500);
+
+        String json = CompressedMessage.compress(
+            AbstractNotification.getMessageJson(new HookNotification.EntityCreateRequest("user1", table)),
+            CompressedMessage.Compression.GZIP);
+
+        HookNotification.HookNotificationMessage deserializedMessage = deserializer.deserialize(json);
+
+        assertEquals(deserializedMessage.getType(), HookNotification.HookNotificationType.ENTITY_CREATE);
+
+        Referenceable deserializedTable = ((HookNotification.EntityCreateRequest) deserializedMessage).getEntities().get(0);
+
+        assertEquals(deserializedTable.getId(), table.getId());
+        assertEquals(((List<?>) deserializedTable.get("columns")).size(), 500);
+    }
+
+    @Test
+    public void testDeserializePartialUpdateAndDelete() throws Exception {
+        HookMessageDeserializer deserializer = new HookMessageDeserializer();
+
+        Referenceable entity = new Referenceable("hive_table");
+        entity.set("owner", "user2");
+
+        String json = AbstractNotification.getMessageJson(
+            new HookNotification.EntityPartialUpdateRequest("user1", "hive_table", "qualifiedName", "db.t1@cl1", entity));
+
+        HookNotification.EntityPartialUpdateRequest partialUpdate =
+            (HookNotification.EntityPartialUpdateRequest) deserializer.deserialize(json);
+
+        assertEquals(partialUpdate.getType(), HookNotification.HookNotificationType.ENTITY_PARTIAL_UPDATE);
+        assertEquals(partialUpdate.getTypeName(), "hive_table");
+        assertEquals(partialUpdate.getAttribute(), "qualifiedName");
+        assertEquals(partialUpdate.getAttributeValue(), "db.t1@cl1");
+        assertEquals(partialUpdate.getEntity().get("owner"), "user2");
+
+        json = AbstractNotification.getMessageJson(
+            new HookNotification.EntityDeleteRequest("user1", "hive_table", "qualifiedName", "db.t1@cl1"));
+
+        HookNotification.EntityDeleteRequest delete = (HookNotification.EntityDeleteRequest) deserializer.deserialize(json);
+
+        assertEquals(delete.getType(), HookNotification.HookNotificationType.ENTITY_DELETE);
+        assertEquals(delete.getUser(), "user1");
+        assertEquals(delete.getTypeName(), "hive_table");
+        assertEquals(delete.getAttributeValue(), "db.t1@cl1");
+    }
+
+    @Test
+    public void testDeserializeTypeHintNotFirst() throws Exception {
+        HookMessageDeserializer deserializer = new HookMessageDeserializer();
+
+        String json = "{\"version\":{\"version\":\"1.0.0\"},\"message\":{\"entities\":[{"
+            + "\"typeName\":\"sometype\","
+            + "\"values\":{\"attr\":\"value\",\"struct\":{\"values\":{\"a\":1},\"typeName\":\"st\","
+            + "\"jsonClass\":\"org.apache.atlas.typesystem.json.InstanceSerialization$_Struct\"}},"
+            + "\"traitNames\":[],\"traits\":{},"
+            + "\"jsonClass\":\"org.apache.atlas.typesystem.json.InstanceSerialization$_Reference\"}],"
+            + "\"type\":\"ENTITY_FULL_UPDATE\",\"user\":\"user1\"}}";
+
+        HookNotification.HookNotificationMessage deserializedMessage = deserializer.deserialize(json);
+
+        assertTrue(deserializedMessage instanceof HookNotification.EntityUpdateRequest);
+
+        Referenceable entity = ((HookNotification.EntityUpdateRequest) deserializedMessage).getEntities().get(0);
+
+        assertEquals(entity.getTypeName(), "sometype");
+        assertEquals(entity.get("attr"), "value");
+        assertEquals(((Struct) entity.get("struct")).getTypeName(), "st");
+    }
+
+    @Test
+    public void testDeserializeSameAsLegacyDeserializer() throws Exception {
+        // the Gson and InstanceSerialization based deserializer, used before the streaming parser
+        AbstractMessageDeserializer<HookNotification.HookNotificationMessage> legacyDeserializer =
+            new AbstractMessageDeserializer<HookNotification.HookNotificationMessage>(NotificationInterface.HOOK_VERSIONED_MESSAGE_TYPE,
+                AbstractNotification.CURRENT_MESSAGE_VERSION,
+                Collections.<Type, JsonDeserializer>singletonMap(NotificationInterface.HOOK_NOTIFICATION_CLASS, new HookNotification()),
+                LoggerFactory.getLogger(HookMessageDeserializerTest.class)) { };
+        HookMessageDeserializer deserializer = new HookMessageDeserializer();
+
+        Referenceable table = getTable(20);
+        Map<String, Object> parameters = new HashMap<>();
+
+        parameters.put("transient_lastDdlTime", "1502171234");
+        parameters.put("numFiles", 3);
+
+        table.set("parameters", parameters);
+        table.set("retention", 1.5);
+        table.set("temporary", false);
+        table.set("comment", null);
+        table.set("bucketCols", Arrays.asList("col1", "col2"));
+        table.set("tableType", enumValue("MANAGED_TABLE", 1));
+        table.set("serde", new Struct("hive_serde", Collections.<String, Object>singletonMap("name", "LazySimpleSerDe")));
+
+        Referenceable entity = EntityNotificationImplTest.getEntity("id",
+            new Struct("MyTrait", Collections.<String, Object>singletonMap("expiry", 30)));
+
+        Referenceable partialUpdate = new Referenceable("hive_table");
+        partialUpdate.set("owner", "user2");
+
+        List<HookNotification.HookNotificationMessage> messages = Arrays.asList(
+            new HookNotification.EntityCreateRequest("user1", table),
+            new HookNotification.EntityUpdateRequest("user1", entity, table),
+            new HookNotification.EntityPartialUpdateRequest("user1", "hive_table", "qualifiedName", "db.t1@cl1", partialUpdate),
+            new HookNotification.EntityDeleteRequest("user1", "hive_table", "qualifiedName", "db.t1@cl1"));
+
+        for (HookNotification.HookNotificationMessage message : messages) {
+            String json = AbstractNotification.getMessageJson(message);
+
+            assertSameMessage(deserializer.deserialize(json), legacyDeserializer.deserialize(json));
+        }
+    }
+
+    private void assertSameMessage(HookNotification.HookNotificationMessage actual, HookNotification.HookNotificationMessage expected) {
+        assertEquals(actual.getClass(), expected.getClass());
+        assertEquals(actual.getType(), expected.getType());
+        assertEquals(actual.getUser(), expected.getUser());
+
+        if (expected instanceof HookNotification.EntityCreateRequest) { // includes EntityUpdateRequest
+            assertSameValue(((HookNotification.EntityCreateRequest) actual).getEntities(),
+                            ((HookNotification.EntityCreateRequest) expected).getEntities(), "entities");
+        } else if (expected instanceof HookNotification.EntityPartialUpdateRequest) {
+            HookNotification.EntityPartialUpdateRequest actualUpdate   = (HookNotification.EntityPartialUpdateRequest) actual;
+            HookNotification.EntityPartialUpdateRequest expectedUpdate = (HookNotification.EntityPartialUpdateRequest) expected;
+
+            assertEquals(actualUpdate.getTypeName(), expectedUpdate.getTypeName());
+            assertEquals(actualUpdate.getAttribute(), expectedUpdate.getAttribute());
+            assertEquals(actualUpdate.getAttributeValue(), expectedUpdate.getAttributeValue());
+            assertSameValue(actualUpdate.getEntity(), expectedUpdate.getEntity(), "entity");
+        } else if (expected instanceof HookNotification.EntityDeleteRequest) {
+            HookNotification.EntityDeleteRequest actualDelete   = (HookNotification.EntityDeleteRequest) actual;
+            HookNotification.EntityDeleteRequest expectedDelete = (HookNotification.EntityDeleteRequest) expected;
+
+            assertEquals(actualDelete.getTypeName(), expectedDelete.getTypeName());
+            assertEquals(actualDelete.getAttribute(), expectedDelete.getAttribute());
+            assertEquals(actualDelete.getAttributeValue(), expectedDelete.getAttributeValue());
+        }
+    }
+
+    // Struct.equals() compares identity and equalsContents() ignores value types; hence values are compared recursively
+    private void assertSameValue(Object actual, Object expected, String path) {
+        if (expected == null) {
+            assertEquals(actual, null, path);
+        } else if (expected instanceof Referenceable) {
+            assertTrue(actual instanceof Referenceable, path);
+
+            Referenceable actualRef   = (Referenceable) actual;
+            Referenceable expectedRef = (Referenceable) expected;
+
+            assertEquals(actualRef.getId(), expectedRef.getId(), path);
+            assertEquals(new ArrayList<>(actualRef.getTraits()), new ArrayList<>(expectedRef.getTraits()), path);
+
+            for (String traitName : expectedRef.getTraits()) {
+                assertSameValue(actualRef.getTrait(traitName), expectedRef.getTrait(traitName), path + "." + traitName);
+            }
+
+            assertSameValue(actualRef.getTypeName(), expectedRef.getTypeName(), path + ".typeName");
+            assertSameValue(actualRef.getValuesMap(), expectedRef.getValuesMap(), path);
+        } else if (expected instanceof Struct) {
+            assertEquals(actual.getClass(), expected.getClass(), path);
+            assertSameValue(((Struct) actual).getTypeName(), ((Struct) expected).getTypeName(), path + ".typeName");
+            assertSameValue(((Struct) actual).getValuesMap(), ((Struct) expected).getValuesMap(), path);
+        } else if (expected instanceof Map) {
+            assertTrue(actual instanceof Map, path);
+            assertEquals(((Map<?, ?>) actual).keySet(), ((Map<?, ?>) expected).keySet(), path);
+
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) expected).entrySet()) {
+                assertSameValue(((Map<?, ?>) actual).get(entry.getKey()), entry.getValue(), path + "." + entry.getKey());
+            }
+        } else if (expected instanceof List) {
+            assertTrue(actual instanceof List, path);
+            assertEquals(((List<?>) actual).size(), ((List<?>) expected).size(), path);
+
+            for (int i = 0; i < ((List<?>) expected).size(); i++) {
+                assertSameValue(((List<?>) actual).get(i), ((List<?>) expected).get(i), path + "[" + i + "]");
+            }
+        } else {
+            assertEquals(actual.getClass(), expected.getClass(), path);
+            assertEquals(actual, expected, path);
+        }
+    }
+
+    private Map<String, Object> enumValue(String value, int ordinal) {
+        Map<String, Object> ret = new HashMap<>();
+
+        ret.put("value", value);
+        ret.put("ordinal", ordinal);
+
+        return ret;
+    }
+
+    private Referenceable getTable(int numColumns) {
+        Referenceable table = new Referenceable("hive_table", "PII");
+        Id            id    = table.getId();
+
+        table.set("name", "t1");
+        table.set("qualifiedName", "db.t1@cl1");
+        table.set("createTime", System.currentTimeMillis());
+        table.getTrait("PII").set("level", "high");
+
+        Referenceable sd = new Referenceable("hive_storagedesc");
+        sd.set("location", "hdfs://warehouse/t1");
+        sd.set("table", id);
+        table.set("sd", sd);
+
+        List<Referenceable> columns = new ArrayList<>(numColumns);
+
+        for (int i = 0; i < numColumns; i++) {
+            Referenceable column = new Referenceable("hive_column");
+
+            column.set("name", "col" + i);
+            column.set("qualifiedName", "db.t1.col" + i + "@cl1");
+            column.set("type", "string");
+            column.set("comment", "column " + i);
+            column.set("position", i);
+            column.set("table", id);
+
+            columns.add(column);
+        }
+
+        table.set("columns", columns);
+
+        return table;
+    }
 }
@@ -20,15 +20,18 @@ package org.apache.atlas;
 import com.google.common.annotations.VisibleForTesting;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
+import org.apache.atlas.annotation.GraphTransaction;
 import org.apache.atlas.exception.AtlasBaseException;
 import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.typesystem.exception.NotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
 import javax.ws.rs.core.Response;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -43,8 +46,10 @@ public class GraphTransactionInterceptor implements MethodInterceptor {
     @VisibleForTesting
     private static final ObjectUpdateSynchronizer OBJECT_UPDATE_SYNCHRONIZER = new ObjectUpdateSynchronizer();
     private static final ThreadLocal<List<PostTransactionHook>> postTransactionHooks = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean>                   isTxnReadOnly        = new ThreadLocal<>();
 
-    private final AtlasGraph graph;
+    private final AtlasGraph           graph;
+    private final Map<Method, Boolean> readOnlyMethods = new ConcurrentHashMap<>();
 
     @Inject
     public GraphTransactionInterceptor(AtlasGraph graph) {
@@ -53,16 +58,51 @@ public class GraphTransactionInterceptor implements MethodInterceptor {
 
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
+        final boolean isReadOnly         = isReadOnly(invocation);
+        final Boolean isOuterTxnReadOnly = isTxnReadOnly.get();
+
+        if (isOuterTxnReadOnly != null) {
+            if (isReadOnly) { // join the enclosing transaction
+                return invocation.proceed();
+            }
+
+            if (isOuterTxnReadOnly) {
+                throw new IllegalStateException(invocation.getMethod().getName() + "() updates the graph, and can't be called in a read-only transaction");
+            }
+        } else if (isReadOnly && hasPendingUpdates()) {
+            // the thread has updates made outside of methods annotated with @GraphTransaction, which are not yet
+            // committed: join that transaction; its owner commits or rolls it back, and calls onTransactionComplete()
+            isTxnReadOnly.set(true);
+
+            try {
+                return invocation.proceed();
+            } finally {
+                isTxnReadOnly.remove();
+            }
+        } else {
+            isTxnReadOnly.set(isReadOnly);
+        }
+
         boolean isSuccess = false;
 
         try {
             try {
                 Object response = invocation.proceed();
-                graph.commit();
+
+                if (isReadOnly) {
+                    if (graph.hasUncommittedChanges()) {
+                        throw new IllegalStateException(invocation.getMethod().getName() + "() is read-only, but updated the graph");
+                    }
+
+                    graph.rollback();
+                } else {
+                    graph.commit();
+                }
+
                 isSuccess = true;
 
                 if (LOG.isDebugEnabled()) {
-                    LOG.debug("graph commit");
+                    LOG.debug(isReadOnly ? "graph rollback of read-only transaction" : "graph commit");
                 }
 
                 return response;
@@ -76,22 +116,34 @@ public class GraphTransactionInterceptor implements MethodInterceptor {
                 throw t;
             }
         } finally {
-            List<PostTransactionHook> trxHooks = postTransactionHooks.get();
+            if (isOuterTxnReadOnly == null) {
+                isTxnReadOnly.remove();
+            }
 
-            if (trxHooks != null) {
-                postTransactionHooks.remove();
+            onTransactionComplete(isSuccess);
+        }
+    }
 
-                for (PostTransactionHook trxHook : trxHooks) {
-                    try {
-                        trxHook.onComplete(isSuccess);
-                    } catch (Throwable t) {
-                        LOG.error("postTransactionHook failed", t);
-                    }
+    /**
+     * Runs post-transaction hooks registered by the current thread, and releases objects locked by it; to be called
+     * after graph updates made outside of methods annotated with @GraphTransaction are committed or rolled back.
+     */
+    public static void onTransactionComplete(boolean isSuccess) {
+        List<PostTransactionHook> trxHooks = postTransactionHooks.get();
+
+        if (trxHooks != null) {
+            postTransactionHooks.remove();
+
+            for (PostTransactionHook trxHook : trxHooks) {
+                try {
+                    trxHook.onComplete(isSuccess);
+                } catch (Throwable t) {
+                    LOG.error("postTransactionHook failed", t);
                 }
             }
-
-            OBJECT_UPDATE_SYNCHRONIZER.releaseLockedObjects();
         }
+
+        OBJECT_UPDATE_SYNCHRONIZER.releaseLockedObjects();
     }
 
     public static void lockObjectAndReleasePostCommit(final String guid) {
@@ -102,6 +154,58 @@ public class GraphTransactionInterceptor implements MethodInterceptor {
         OBJECT_UPDATE_SYNCHRONIZER.lockObject(guids);
     }
 
+    /**
+     * Releases objects locked by the current thread; to be called after graph updates made outside of methods
+     * annotated with @GraphTransaction are committed or rolled back.
+     */
+    public static void releaseLockedObjects() {
+        OBJECT_UPDATE_SYNCHRONIZER.releaseLockedObjects();
+    }
+
+    /**
+     * @return true if the current thread is running a method annotated with @GraphTransaction
+     */
+    public static boolean isInTransaction() {
+        return isTxnReadOnly.get() != null;
+    }
+
+    /**
+     * @return true if the current thread made graph updates, or locked objects for update, that are not yet committed
+     * or rolled back
+     */
+    private static boolean hasPendingUpdates() {
+        List<PostTransactionHook> trxHooks = postTransactionHooks.get();
+
+        return (trxHooks != null && !trxHooks.isEmpty()) || OBJECT_UPDATE_SYNCHRONIZER.hasLockedObjects();
+    }
+
+    private boolean isReadOnly(MethodInvocation invocation) {
+        Method method = invocation.getMethod();
+
+        if (method == null) {
+            return false;
+        }
+
+        Boolean ret = readOnlyMethods.get(method);
+
+        if (ret == null) {
+            GraphTransaction annotation = method.getAnnotation(GraphTransaction.class);
+
+            // with interface based proxies, the annotation is on the implementation method
+            if (annotation == null && invocation.getThis() != null) {
+                Method targetMethod = AopUtils.getMostSpecificMethod(method, AopUtils.getTargetClass(invocation.getThis()));
+
+                annotation = targetMethod.getAnnotation(GraphTransaction.class);
+            }
+
+            ret = annotation != null && annotation.readOnly();
+
+            readOnlyMethods.put(method, ret);
+        }
+
+        return ret;
+    }
+
     boolean logException(Throwable t) {
         if (t instanceof AtlasBaseException) {
             Response.Status httpCode = ((AtlasBaseException) t).getAtlasErrorCode().getHttpCode();
@@ -198,6 +302,10 @@ public class GraphTransactionInterceptor implements MethodInterceptor {
             }
         }
 
+        public boolean hasLockedObjects() {
+            return !lockedGuids.get().isEmpty();
+        }
+
         private RefCountedReentrantLock getOrCreateObjectLock(String guid) {
             synchronized (guidLockMap) {
                 RefCountedReentrantLock ret = guidLockMap.get(guid);
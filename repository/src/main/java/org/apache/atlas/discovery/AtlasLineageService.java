@@ -22,6 +22,7 @@ package org.apache.atlas.discovery;
 import org.apache.atlas.exception.AtlasBaseException;
 import org.apache.atlas.model.lineage.AtlasLineageInfo;
 import org.apache.atlas.model.lineage.AtlasLineageInfo.LineageDirection;
+import org.apache.atlas.model.lineage.AtlasLineagePage;
 
 public interface AtlasLineageService {
     /**
@@ -32,4 +33,16 @@ public interface AtlasLineageService {
      */
     AtlasLineageInfo getAtlasLineageInfo(String entityGuid, LineageDirection direction, int depth) throws AtlasBaseException;
 
+    /**
+     * Returns lineage one page at a time, level by level, so that lineage of any size can be read with bounded memory.
+     * @param entityGuid unique ID of the entity
+     * @param direction direction of lineage - INPUT, OUTPUT or BOTH
+     * @param depth number of hops in lineage
+     * @param cursor nextCursor of the previous page; null to get the first page
+     * @param limit maximum number of entities in the page; at least 3, the entities of a path. A page has at least one
+     *              path, and never more than one level
+     * @return AtlasLineagePage
+     */
+    AtlasLineagePage getAtlasLineagePage(String entityGuid, LineageDirection direction, int depth, String cursor, int limit) throws AtlasBaseException;
+
 }
@@ -245,10 +245,13 @@ public class ClassificationSearchProcessor extends SearchProcessor {
 
             gremlinQueryBindings.put("guids", guids);
 
+            AtlasGraph   graph               = context.getGraph();
+            ScriptEngine gremlinScriptEngine = null;
+
             try {
-                AtlasGraph        graph               = context.getGraph();
-                ScriptEngine      gremlinScriptEngine = graph.getGremlinScriptEngine();
-                List<AtlasVertex> atlasVertices       = (List<AtlasVertex>) graph.executeGremlinScript(gremlinScriptEngine, gremlinQueryBindings, gremlinTagFilterQuery, false);
+                gremlinScriptEngine = graph.getGremlinScriptEngine();
+
+                List<AtlasVertex> atlasVertices = (List<AtlasVertex>) graph.executeGremlinScript(gremlinScriptEngine, gremlinQueryBindings, gremlinTagFilterQuery, false);
 
                 // Clear prior results
                 entityVertices.clear();
@@ -259,6 +262,10 @@ public class ClassificationSearchProcessor extends SearchProcessor {
 
             } catch (AtlasBaseException | ScriptException e) {
                 LOG.warn(e.getMessage(), e);
+            } finally {
+                if (gremlinScriptEngine != null) {
+                    graph.releaseGremlinScriptEngine(gremlinScriptEngine);
+                }
             }
         }
 
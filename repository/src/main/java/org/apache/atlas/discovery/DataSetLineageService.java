@@ -104,7 +104,7 @@ public class DataSetLineageService implements LineageService {
      * @return Outputs Graph as JSON
      */
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public String getOutputsGraph(String datasetName) throws AtlasException {
         LOG.info("Fetching lineage outputs graph for datasetName={}", datasetName);
         datasetName = ParamChecker.notEmpty(datasetName, "dataset name");
@@ -119,7 +119,7 @@ public class DataSetLineageService implements LineageService {
      * @return Inputs Graph as JSON
      */
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public String getInputsGraph(String tableName) throws AtlasException {
         LOG.info("Fetching lineage inputs graph for tableName={}", tableName);
         tableName = ParamChecker.notEmpty(tableName, "table name");
@@ -128,7 +128,7 @@ public class DataSetLineageService implements LineageService {
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public String getInputsGraphForEntity(String guid) throws AtlasException {
         LOG.info("Fetching lineage inputs graph for entity={}", guid);
         guid = ParamChecker.notEmpty(guid, "Entity id");
@@ -147,7 +147,7 @@ public class DataSetLineageService implements LineageService {
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public String getOutputsGraphForEntity(String guid) throws AtlasException {
         LOG.info("Fetching lineage outputs graph for entity guid={}", guid);
         guid = ParamChecker.notEmpty(guid, "Entity id");
@@ -171,7 +171,7 @@ public class DataSetLineageService implements LineageService {
      * @return Schema as JSON
      */
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public String getSchema(String datasetName) throws AtlasException {
         datasetName = ParamChecker.notEmpty(datasetName, "table name");
         LOG.info("Fetching schema for tableName={}", datasetName);
@@ -192,7 +192,7 @@ public class DataSetLineageService implements LineageService {
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public String getSchemaForEntity(String guid) throws AtlasException {
         guid = ParamChecker.notEmpty(guid, "Entity id");
         LOG.info("Fetching schema for entity guid={}", guid);
@@ -106,7 +106,7 @@ public class EntityDiscoveryService implements AtlasDiscoveryService {
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public AtlasSearchResult searchUsingDslQuery(String dslQuery, int limit, int offset) throws AtlasBaseException {
         AtlasSearchResult ret = new AtlasSearchResult(dslQuery, AtlasQueryType.DSL);
         GremlinQuery gremlinQuery = toGremlinQuery(dslQuery, limit, offset);
@@ -159,7 +159,7 @@ public class EntityDiscoveryService implements AtlasDiscoveryService {
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public AtlasSearchResult searchUsingFullTextQuery(String fullTextQuery, boolean excludeDeletedEntities, int limit, int offset)
                                                       throws AtlasBaseException {
         AtlasSearchResult ret      = new AtlasSearchResult(fullTextQuery, AtlasQueryType.FULL_TEXT);
@@ -175,7 +175,7 @@ public class EntityDiscoveryService implements AtlasDiscoveryService {
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public AtlasSearchResult searchUsingBasicQuery(String query, String typeName, String classification, String attrName,
                                                    String attrValuePrefix, boolean excludeDeletedEntities, int limit,
                                                    int offset) throws AtlasBaseException {
@@ -400,7 +400,7 @@ public class EntityDiscoveryService implements AtlasDiscoveryService {
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public AtlasSearchResult searchWithParameters(SearchParameters searchParameters) throws AtlasBaseException {
         AtlasSearchResult ret = new AtlasSearchResult(searchParameters);
         final   QueryParams   params =  validateSearchParams(searchParameters.getLimit(),searchParameters.getOffset());
@@ -19,6 +19,11 @@
 package org.apache.atlas.discovery;
 
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.atlas.AtlasClient;
 import org.apache.atlas.AtlasErrorCode;
 import org.apache.atlas.annotation.GraphTransaction;
@@ -27,45 +32,109 @@ import org.apache.atlas.model.instance.AtlasEntityHeader;
 import org.apache.atlas.model.lineage.AtlasLineageInfo;
 import org.apache.atlas.model.lineage.AtlasLineageInfo.LineageDirection;
 import org.apache.atlas.model.lineage.AtlasLineageInfo.LineageRelation;
+import org.apache.atlas.model.lineage.AtlasLineagePage;
 import org.apache.atlas.repository.Constants;
 import org.apache.atlas.repository.graph.GraphHelper;
+import org.apache.atlas.repository.graphdb.AtlasEdge;
+import org.apache.atlas.repository.graphdb.AtlasEdgeDirection;
 import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
 import org.apache.atlas.repository.store.graph.v1.EntityGraphRetriever;
 import org.apache.atlas.type.AtlasTypeRegistry;
-import org.apache.atlas.util.AtlasGremlinQueryProvider;
-import org.apache.atlas.util.AtlasGremlinQueryProvider.AtlasGremlinQuery;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.configuration.Configuration;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class EntityLineageService implements AtlasLineageService {
-    private static final String INPUT_PROCESS_EDGE      =  "__Process.inputs";
-    private static final String OUTPUT_PROCESS_EDGE     =  "__Process.outputs";
+    static final String INPUT_PROCESS_EDGE      =  "__Process.inputs";
+    static final String OUTPUT_PROCESS_EDGE     =  "__Process.outputs";
+
+    public static final String NUM_WORKERS_PROPERTY         = "atlas.lineage.num.workers";
+    public static final String PARALLEL_LEVEL_SIZE_PROPERTY = "atlas.lineage.parallel.level.size";
+    public static final String MAX_PAGE_SIZE_PROPERTY       = "atlas.lineage.page.max.size";
+    public static final String PAGE_STATE_SIZE_PROPERTY     = "atlas.lineage.page.state.max.guids";
+    public static final int    DEFAULT_NUM_WORKERS          = 1;
+    public static final int    DEFAULT_PARALLEL_LEVEL_SIZE  = 100;
+    public static final int    DEFAULT_MAX_PAGE_SIZE        = 10000;
+    public static final int    DEFAULT_PAGE_STATE_SIZE      = 1000000;
+    public static final int    MIN_PAGE_SIZE                = 3; // entities of a path: dataset, process, dataset
+
+    private static final long PAGE_STATE_EXPIRY_MINUTES = 10;
 
     private final AtlasGraph                graph;
-    private final AtlasGremlinQueryProvider gremlinQueryProvider;
     private final EntityGraphRetriever      entityRetriever;
+    private final int                       numWorkers;
+    private final int                       parallelLevelSize;
+    private final int                       maxPageSize;
+    private final ExecutorService           executor;
+    private final Cache<String, PagedLevel> pagedLevels; // levels being paged, by stateId of the cursor of the next page
 
     @Inject
-    EntityLineageService(AtlasTypeRegistry typeRegistry, AtlasGraph atlasGraph) throws DiscoveryException {
-        this.graph                = atlasGraph;
-        this.gremlinQueryProvider = AtlasGremlinQueryProvider.INSTANCE;
-        this.entityRetriever      = new EntityGraphRetriever(typeRegistry);
+    public EntityLineageService(AtlasTypeRegistry typeRegistry, AtlasGraph atlasGraph, Configuration configuration) throws DiscoveryException {
+        this(atlasGraph, new EntityGraphRetriever(typeRegistry), configuration);
+    }
+
+    @VisibleForTesting
+    public EntityLineageService(AtlasGraph atlasGraph, EntityGraphRetriever entityRetriever, Configuration configuration) {
+        this.graph             = atlasGraph;
+        this.entityRetriever   = entityRetriever;
+        this.numWorkers        = configuration != null ? Math.max(1, configuration.getInt(NUM_WORKERS_PROPERTY, DEFAULT_NUM_WORKERS)) : DEFAULT_NUM_WORKERS;
+        this.parallelLevelSize = configuration != null ? Math.max(1, configuration.getInt(PARALLEL_LEVEL_SIZE_PROPERTY, DEFAULT_PARALLEL_LEVEL_SIZE)) : DEFAULT_PARALLEL_LEVEL_SIZE;
+        this.maxPageSize       = configuration != null ? Math.max(MIN_PAGE_SIZE, configuration.getInt(MAX_PAGE_SIZE_PROPERTY, DEFAULT_MAX_PAGE_SIZE)) : DEFAULT_MAX_PAGE_SIZE;
+        this.executor          = numWorkers > 1 ? createExecutor(numWorkers) : null;
+
+        int pageStateSize = configuration != null ? Math.max(0, configuration.getInt(PAGE_STATE_SIZE_PROPERTY, DEFAULT_PAGE_STATE_SIZE)) : DEFAULT_PAGE_STATE_SIZE;
+
+        this.pagedLevels = CacheBuilder.newBuilder().maximumWeight(pageStateSize).weigher(new PagedLevelWeigher())
+                                       .expireAfterWrite(PAGE_STATE_EXPIRY_MINUTES, TimeUnit.MINUTES).<String, PagedLevel>build();
+    }
+
+    // tasks are never queued: when all workers are busy, the submitting thread runs the task itself. Hence a worker that
+    // splits a level among other workers doesn't wait for tasks that no worker is free to run
+    private static ExecutorService createExecutor(int numWorkers) {
+        ThreadPoolExecutor ret = new ThreadPoolExecutor(numWorkers, numWorkers, 60, TimeUnit.SECONDS,
+                                                        new SynchronousQueue<Runnable>(),
+                                                        new ThreadFactoryBuilder().setNameFormat("atlas-lineage-%d").setDaemon(true).build(),
+                                                        new ThreadPoolExecutor.CallerRunsPolicy());
+
+        ret.allowCoreThreadTimeOut(true);
+
+        return ret;
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public AtlasLineageInfo getAtlasLineageInfo(String guid, LineageDirection direction, int depth) throws AtlasBaseException {
-        AtlasLineageInfo lineageInfo;
+        LineageCache     lineageCache = LineageCache.getInstance();
+        AtlasLineageInfo lineageInfo  = lineageCache.get(guid, direction, depth);
+
+        if (lineageInfo != null) {
+            return lineageInfo;
+        }
+
+        long cacheSeq = lineageCache.getInvalidationSeq();
 
         if (!entityExists(guid)) {
             throw new AtlasBaseException(AtlasErrorCode.INSTANCE_GUID_NOT_FOUND, guid);
@@ -85,87 +154,421 @@ public class EntityLineageService implements AtlasLineageService {
             throw new AtlasBaseException(AtlasErrorCode.INSTANCE_LINEAGE_INVALID_PARAMS, "direction", null);
         }
 
+        lineageCache.put(lineageInfo, cacheSeq);
+
         return lineageInfo;
     }
 
-    private AtlasLineageInfo getLineageInfo(String guid, LineageDirection direction, int depth) throws AtlasBaseException {
-        Map<String, AtlasEntityHeader> entities     = new HashMap<>();
-        Set<LineageRelation>           relations    = new HashSet<>();
-        String                         lineageQuery = getLineageQuery(guid, direction, depth);
-
-        List paths = (List) graph.executeGremlinScript(lineageQuery, true);
-
-        if (CollectionUtils.isNotEmpty(paths)) {
-            for (Object path : paths) {
-                if (path instanceof List) {
-                    List vertices = (List) path;
-
-                    if (CollectionUtils.isNotEmpty(vertices)) {
-                        AtlasEntityHeader prev = null;
-
-                        for (Object vertex : vertices) {
-                            if (!(vertex instanceof AtlasVertex)) {
-                                continue;
-                            }
-
-                            AtlasEntityHeader entity = entityRetriever.toAtlasEntityHeader((AtlasVertex)vertex);
-
-                            if (!entities.containsKey(entity.getGuid())) {
-                                entities.put(entity.getGuid(), entity);
-                            }
-
-                            if (prev != null) {
-                                if (direction.equals(LineageDirection.INPUT)) {
-                                    relations.add(new LineageRelation(entity.getGuid(), prev.getGuid()));
-                                } else if (direction.equals(LineageDirection.OUTPUT)) {
-                                    relations.add(new LineageRelation(prev.getGuid(), entity.getGuid()));
-                                }
-                            }
-                            prev = entity;
+    /**
+     * Returns the paths (dataset -> process -> dataset) of one lineage level, starting at the position given by the
+     * cursor. Entity headers are built only for entities in the page, and a path is added only if all its entities fit
+     * in the page.
+     *
+     * The datasets of the level being paged, and guids of datasets of earlier levels, are kept for a while under the
+     * cursor of the next page; that page then starts where this one ended. If they are no longer kept, like after a
+     * restart, earlier levels are walked again to reach the position. A change in the lineage while it is being paged
+     * might hence shift paths across pages.
+     */
+    @Override
+    @GraphTransaction(readOnly = true)
+    public AtlasLineagePage getAtlasLineagePage(String guid, LineageDirection direction, int depth, String cursor, int limit) throws AtlasBaseException {
+        if (!entityExists(guid)) {
+            throw new AtlasBaseException(AtlasErrorCode.INSTANCE_GUID_NOT_FOUND, guid);
+        }
+
+        if (direction == null) {
+            throw new AtlasBaseException(AtlasErrorCode.INSTANCE_LINEAGE_INVALID_PARAMS, "direction", null);
+        }
+
+        if (limit < MIN_PAGE_SIZE) { // a page must have room for the entities of a path
+            throw new AtlasBaseException(AtlasErrorCode.INSTANCE_LINEAGE_INVALID_PARAMS, "limit", String.valueOf(limit));
+        }
+
+        LineageCursor                  position      = cursor != null ? LineageCursor.parse(cursor, direction) : LineageCursor.first(direction);
+        PagedLevel                     pagedLevel    = position.stateId != null ? pagedLevels.asMap().remove(position.stateId) : null;
+        Map<String, AtlasEntityHeader> entities      = new HashMap<>();
+        Set<LineageRelation>           relations     = new HashSet<>();
+        String                         incomingLabel = position.direction.equals(LineageDirection.INPUT) ? OUTPUT_PROCESS_EDGE : INPUT_PROCESS_EDGE;
+        String                         outgoingLabel = position.direction.equals(LineageDirection.INPUT) ? INPUT_PROCESS_EDGE : OUTPUT_PROCESS_EDGE;
+        int                            maxEntities   = Math.min(limit, maxPageSize);
+        LineageCursor                  nextPosition  = null;
+
+        if (pagedLevel == null || !pagedLevel.isAt(guid, position)) {
+            pagedLevel = walkToPosition(guid, position);
+        }
+
+        paths:
+        for (int datasetIdx = position.datasetIdx; datasetIdx < pagedLevel.datasetGuids.size(); datasetIdx++) {
+            String      datasetGuid   = pagedLevel.datasetGuids.get(datasetIdx);
+            AtlasVertex datasetVertex = findVertexByGuid(datasetGuid);
+            int         pathIdx       = 0;
+
+            if (datasetVertex == null) { // deleted since the level was read
+                continue;
+            }
+
+            for (AtlasEdge incomingEdge : (Iterable<AtlasEdge>) datasetVertex.getEdges(AtlasEdgeDirection.IN, incomingLabel)) {
+                AtlasVertex processVertex = incomingEdge.getOutVertex();
+                String      processGuid   = GraphHelper.getGuid(processVertex);
+
+                for (AtlasEdge outgoingEdge : (Iterable<AtlasEdge>) processVertex.getEdges(AtlasEdgeDirection.OUT, outgoingLabel)) {
+                    AtlasVertex nextVertex = outgoingEdge.getInVertex();
+                    String      nextGuid   = GraphHelper.getGuid(nextVertex);
+
+                    if (datasetIdx == position.datasetIdx && pathIdx < position.pathIdx) { // read in an earlier page
+                        pathIdx++;
+
+                        continue;
+                    }
+
+                    if (entities.size() + getNumNewEntities(entities, datasetGuid, processGuid, nextGuid) > maxEntities) { // page is full
+                        nextPosition = new LineageCursor(position.direction, position.level, datasetIdx, pathIdx, null);
+
+                        break paths;
+                    }
+
+                    pathIdx++;
+
+                    if (!pagedLevel.visitedGuids.contains(nextGuid)) {
+                        pagedLevel.nextGuids.add(nextGuid);
+                    }
+
+                    addEntity(entities, datasetGuid, datasetVertex);
+                    addEntity(entities, processGuid, processVertex);
+                    addEntity(entities, nextGuid, nextVertex);
+
+                    if (position.direction.equals(LineageDirection.INPUT)) {
+                        relations.add(new LineageRelation(processGuid, datasetGuid));
+                        relations.add(new LineageRelation(nextGuid, processGuid));
+                    } else {
+                        relations.add(new LineageRelation(datasetGuid, processGuid));
+                        relations.add(new LineageRelation(processGuid, nextGuid));
+                    }
+                }
+            }
+        }
+
+        if (nextPosition == null) { // all paths of this level have been read
+            if (!pagedLevel.nextGuids.isEmpty() && (depth < 1 || position.level < depth)) {
+                nextPosition = new LineageCursor(position.direction, position.level + 1, 0, 0, null);
+                pagedLevel   = pagedLevel.nextLevel();
+            } else {
+                pagedLevel = null;
+
+                if (direction.equals(LineageDirection.BOTH) && position.direction.equals(LineageDirection.INPUT)) {
+                    nextPosition = LineageCursor.first(LineageDirection.OUTPUT);
+                }
+            }
+        }
+
+        if (nextPosition != null && pagedLevel != null) {
+            nextPosition = nextPosition.withStateId(UUID.randomUUID().toString());
+
+            pagedLevels.put(nextPosition.stateId, pagedLevel);
+        }
+
+        return new AtlasLineagePage(guid, entities, relations, direction, depth, position.level,
+                                    nextPosition != null ? nextPosition.toString() : null);
+    }
+
+    /**
+     * Walks the lineage to the level of the given position, and reads the paths of the level before the position to
+     * find the datasets of the next level already reached.
+     */
+    private PagedLevel walkToPosition(String guid, LineageCursor position) {
+        Set<String>              visitedGuids  = new HashSet<>();
+        Map<String, AtlasVertex> datasets      = getLineageLevel(guid, position.direction, position.level, visitedGuids);
+        PagedLevel               ret           = new PagedLevel(guid, position.direction, position.level, new ArrayList<>(datasets.keySet()), visitedGuids);
+        String                   incomingLabel = position.direction.equals(LineageDirection.INPUT) ? OUTPUT_PROCESS_EDGE : INPUT_PROCESS_EDGE;
+        String                   outgoingLabel = position.direction.equals(LineageDirection.INPUT) ? INPUT_PROCESS_EDGE : OUTPUT_PROCESS_EDGE;
+        int                      datasetIdx    = 0;
+
+        // paths of the dataset at the position are all read: datasets they reach are in the order the page reads them
+        for (AtlasVertex datasetVertex : datasets.values()) {
+            if (datasetIdx++ > position.datasetIdx) {
+                break;
+            }
+
+            for (AtlasEdge incomingEdge : (Iterable<AtlasEdge>) datasetVertex.getEdges(AtlasEdgeDirection.IN, incomingLabel)) {
+                for (AtlasEdge outgoingEdge : (Iterable<AtlasEdge>) incomingEdge.getOutVertex().getEdges(AtlasEdgeDirection.OUT, outgoingLabel)) {
+                    String nextGuid = GraphHelper.getGuid(outgoingEdge.getInVertex());
+
+                    if (!visitedGuids.contains(nextGuid)) {
+                        ret.nextGuids.add(nextGuid);
+                    }
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private static int getNumNewEntities(Map<String, AtlasEntityHeader> entities, String... guids) {
+        Set<String> ret = new HashSet<>();
+
+        for (String guid : guids) {
+            if (!entities.containsKey(guid)) {
+                ret.add(guid);
+            }
+        }
+
+        return ret.size();
+    }
+
+    /**
+     * @return datasets whose processes make the given lineage level; level 1 has only the given entity. visitedGuids
+     *         is populated with guids of datasets of the given and earlier levels
+     */
+    private Map<String, AtlasVertex> getLineageLevel(String guid, LineageDirection direction, int level, Set<String> visitedGuids) {
+        Map<String, AtlasVertex> ret           = new LinkedHashMap<>();
+        AtlasVertex              entityVertex  = findVertexByGuid(guid);
+        String                   incomingLabel = direction.equals(LineageDirection.INPUT) ? OUTPUT_PROCESS_EDGE : INPUT_PROCESS_EDGE;
+        String                   outgoingLabel = direction.equals(LineageDirection.INPUT) ? INPUT_PROCESS_EDGE : OUTPUT_PROCESS_EDGE;
+
+        if (entityVertex != null) {
+            ret.put(guid, entityVertex);
+            visitedGuids.add(guid);
+        }
+
+        for (int i = 1; i < level && !ret.isEmpty(); i++) {
+            Map<String, AtlasVertex> nextLevel = new LinkedHashMap<>();
+
+            for (AtlasVertex datasetVertex : ret.values()) {
+                for (AtlasEdge incomingEdge : (Iterable<AtlasEdge>) datasetVertex.getEdges(AtlasEdgeDirection.IN, incomingLabel)) {
+                    for (AtlasEdge outgoingEdge : (Iterable<AtlasEdge>) incomingEdge.getOutVertex().getEdges(AtlasEdgeDirection.OUT, outgoingLabel)) {
+                        AtlasVertex nextVertex = outgoingEdge.getInVertex();
+                        String      nextGuid   = GraphHelper.getGuid(nextVertex);
+
+                        if (visitedGuids.add(nextGuid)) {
+                            nextLevel.put(nextGuid, nextVertex);
                         }
                     }
                 }
             }
+
+            ret = nextLevel;
+        }
+
+        return ret;
+    }
+
+    private AtlasLineageInfo getLineageInfo(String guid, LineageDirection direction, int depth) throws AtlasBaseException {
+        Map<String, AtlasEntityHeader> entities  = new ConcurrentHashMap<>();
+        Set<LineageRelation>           relations = getLineageRelations(guid, direction, depth, entities);
+
+        return new AtlasLineageInfo(guid, new HashMap<>(entities), relations, direction, depth);
+    }
+
+    /**
+     * Computes input and output lineage at the same time: output lineage on a worker, in its own read transaction, and
+     * input lineage on the calling thread. Both share the entity headers, so that an entity is read only once.
+     */
+    private AtlasLineageInfo getBothLineageInfo(final String guid, final int depth) throws AtlasBaseException {
+        final Map<String, AtlasEntityHeader> entities = new ConcurrentHashMap<>();
+
+        Future<Set<LineageRelation>> outputRelations = submit(new Callable<Set<LineageRelation>>() {
+            @Override
+            public Set<LineageRelation> call() throws Exception {
+                return getLineageRelations(guid, LineageDirection.OUTPUT, depth, entities);
+            }
+        });
+
+        Set<LineageRelation> relations;
+
+        try {
+            relations = getLineageRelations(guid, LineageDirection.INPUT, depth, entities);
+
+            relations.addAll(getResult(outputRelations));
+        } finally {
+            outputRelations.cancel(false); // no-op if already done; a running task isn't interrupted, as that could break its graph transaction
+        }
+
+        return new AtlasLineageInfo(guid, new HashMap<>(entities), relations, LineageDirection.BOTH, depth);
+    }
+
+    /**
+     * Walks lineage edges breadth-first from the given entity: each step goes from a dataset to the processes that
+     * read/write it, and then to datasets on the other side of these processes. Every vertex is visited once, hence
+     * the header of an entity is built only once, however many paths lead to it.
+     */
+    private Set<LineageRelation> getLineageRelations(String guid, LineageDirection direction, int depth, Map<String, AtlasEntityHeader> entities) throws AtlasBaseException {
+        Set<LineageRelation>     ret          = new HashSet<>();
+        Set<String>              visitedGuids = new HashSet<>();
+        Map<String, AtlasVertex> currentLevel = new LinkedHashMap<>();
+        AtlasVertex              entityVertex = findVertexByGuid(guid);
+
+        if (entityVertex != null) {
+            currentLevel.put(guid, entityVertex);
+            visitedGuids.add(guid);
+        }
+
+        for (int level = 1; !currentLevel.isEmpty() && (depth < 1 || level <= depth); level++) {
+            Map<String, AtlasVertex> nextLevel = new LinkedHashMap<>();
+
+            for (LevelExpansion expansion : expandLevel(currentLevel, direction, entities)) {
+                ret.addAll(expansion.relations);
+
+                for (Map.Entry<String, AtlasVertex> entry : expansion.nextDatasets.entrySet()) {
+                    if (visitedGuids.add(entry.getKey())) {
+                        nextLevel.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+
+            currentLevel = nextLevel;
         }
 
-        return new AtlasLineageInfo(guid, entities, relations, direction, depth);
+        return ret;
     }
 
-    private AtlasLineageInfo getBothLineageInfo(String guid, int depth) throws AtlasBaseException {
-        AtlasLineageInfo inputLineage  = getLineageInfo(guid, LineageDirection.INPUT, depth);
-        AtlasLineageInfo outputLineage = getLineageInfo(guid, LineageDirection.OUTPUT, depth);
-        AtlasLineageInfo ret           = inputLineage;
+    // a level with many datasets is split among workers; each worker looks up the datasets by guid in its own transaction
+    private List<LevelExpansion> expandLevel(Map<String, AtlasVertex> datasets, final LineageDirection direction, final Map<String, AtlasEntityHeader> entities) throws AtlasBaseException {
+        List<LevelExpansion> ret = new ArrayList<>();
+
+        if (executor == null || datasets.size() < parallelLevelSize) {
+            ret.add(expand(datasets, direction, entities, true));
 
-        ret.getRelations().addAll(outputLineage.getRelations());
-        ret.getGuidEntityMap().putAll(outputLineage.getGuidEntityMap());
-        ret.setLineageDirection(LineageDirection.BOTH);
+            return ret;
+        }
+
+        List<String>                 guids     = new ArrayList<>(datasets.keySet());
+        List<Future<LevelExpansion>> futures   = new ArrayList<>();
+        int                          chunkSize = (guids.size() + numWorkers - 1) / numWorkers;
+
+        try {
+            for (int i = 0; i < guids.size(); i += chunkSize) {
+                final Map<String, AtlasVertex> chunk = new LinkedHashMap<>();
+
+                for (String guid : guids.subList(i, Math.min(i + chunkSize, guids.size()))) {
+                    chunk.put(guid, null);
+                }
+
+                futures.add(submit(new Callable<LevelExpansion>() {
+                    @Override
+                    public LevelExpansion call() throws Exception {
+                        return expand(chunk, direction, entities, false);
+                    }
+                }));
+            }
+
+            for (Future<LevelExpansion> future : futures) {
+                ret.add(getResult(future));
+            }
+        } finally {
+            for (Future<LevelExpansion> future : futures) {
+                future.cancel(false); // no-op if already done; a running task isn't interrupted, as that could break its graph transaction
+            }
+        }
 
         return ret;
     }
 
-    private String getLineageQuery(String entityGuid, LineageDirection direction, int depth) throws AtlasBaseException {
-        String lineageQuery = null;
+    /**
+     * Finds the processes connected to the given datasets, and the datasets on the other side of these processes.
+     * Vertices of the next datasets are returned only if keepVertices is true, as vertices can't be used outside the
+     * transaction that read them; datasets without a vertex are looked up by guid.
+     */
+    private LevelExpansion expand(Map<String, AtlasVertex> datasets, LineageDirection direction, Map<String, AtlasEntityHeader> entities, boolean keepVertices) throws AtlasBaseException {
+        LevelExpansion ret           = new LevelExpansion();
+        String         incomingLabel = direction.equals(LineageDirection.INPUT) ? OUTPUT_PROCESS_EDGE : INPUT_PROCESS_EDGE;
+        String         outgoingLabel = direction.equals(LineageDirection.INPUT) ? INPUT_PROCESS_EDGE : OUTPUT_PROCESS_EDGE;
+
+        for (Map.Entry<String, AtlasVertex> entry : datasets.entrySet()) {
+            String      datasetGuid   = entry.getKey();
+            AtlasVertex datasetVertex = entry.getValue() != null ? entry.getValue() : findVertexByGuid(datasetGuid);
+
+            if (datasetVertex == null) {
+                continue;
+            }
+
+            for (AtlasEdge incomingEdge : (Iterable<AtlasEdge>) datasetVertex.getEdges(AtlasEdgeDirection.IN, incomingLabel)) {
+                AtlasVertex processVertex = incomingEdge.getOutVertex();
+                String      processGuid   = GraphHelper.getGuid(processVertex);
+
+                for (AtlasEdge outgoingEdge : (Iterable<AtlasEdge>) processVertex.getEdges(AtlasEdgeDirection.OUT, outgoingLabel)) {
+                    AtlasVertex nextVertex = outgoingEdge.getInVertex();
+                    String      nextGuid   = GraphHelper.getGuid(nextVertex);
+
+                    addEntity(entities, datasetGuid, datasetVertex);
+                    addEntity(entities, processGuid, processVertex);
+                    addEntity(entities, nextGuid, nextVertex);
 
-        if (direction.equals(LineageDirection.INPUT)) {
-            lineageQuery = generateLineageQuery(entityGuid, depth, OUTPUT_PROCESS_EDGE, INPUT_PROCESS_EDGE);
+                    if (direction.equals(LineageDirection.INPUT)) {
+                        ret.relations.add(new LineageRelation(processGuid, datasetGuid));
+                        ret.relations.add(new LineageRelation(nextGuid, processGuid));
+                    } else {
+                        ret.relations.add(new LineageRelation(datasetGuid, processGuid));
+                        ret.relations.add(new LineageRelation(processGuid, nextGuid));
+                    }
 
-        } else if (direction.equals(LineageDirection.OUTPUT)) {
-            lineageQuery = generateLineageQuery(entityGuid, depth, INPUT_PROCESS_EDGE, OUTPUT_PROCESS_EDGE);
+                    if (!ret.nextDatasets.containsKey(nextGuid)) {
+                        ret.nextDatasets.put(nextGuid, keepVertices ? nextVertex : null);
+                    }
+                }
+            }
         }
 
-        return lineageQuery;
+        return ret;
     }
 
-    private String generateLineageQuery(String entityGuid, int depth, String incomingFrom, String outgoingTo) {
-        String lineageQuery;
-        if (depth < 1) {
-            String query = gremlinQueryProvider.getQuery(AtlasGremlinQuery.FULL_LINEAGE);
-            lineageQuery = String.format(query, entityGuid, incomingFrom, outgoingTo);
-        } else {
-            String query = gremlinQueryProvider.getQuery(AtlasGremlinQuery.PARTIAL_LINEAGE);
-            lineageQuery = String.format(query, entityGuid, incomingFrom, outgoingTo, depth);
+    // entities can be shared by concurrent traversals; at worst, two of them build the header of an entity at the same time
+    private void addEntity(Map<String, AtlasEntityHeader> entities, String guid, AtlasVertex vertex) throws AtlasBaseException {
+        if (!entities.containsKey(guid)) {
+            entities.put(guid, entityRetriever.toAtlasEntityHeader(vertex));
+        }
+    }
+
+    /**
+     * Runs the task on a worker, which ends its read transaction once the task completes. The task is run by the calling
+     * thread, in its transaction, when parallel lineage is disabled or when all workers are busy.
+     */
+    private <T> Future<T> submit(final Callable<T> task) {
+        if (executor == null) {
+            FutureTask<T> ret = new FutureTask<>(task);
+
+            ret.run();
+
+            return ret;
+        }
+
+        final Thread caller = Thread.currentThread();
+
+        return executor.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                if (Thread.currentThread() == caller) {
+                    return task.call();
+                }
+
+                try {
+                    return task.call();
+                } finally {
+                    graph.rollback(); // end the read transaction of this worker thread
+                }
+            }
+        });
+    }
+
+    private static <T> T getResult(Future<T> future) throws AtlasBaseException {
+        try {
+            return future.get();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+
+            throw new AtlasBaseException(excp);
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof AtlasBaseException) {
+                throw (AtlasBaseException) excp.getCause();
+            }
+
+            throw new AtlasBaseException(excp.getCause());
         }
-        return lineageQuery;
+    }
+
+    private AtlasVertex findVertexByGuid(String guid) {
+        Iterator<AtlasVertex> results = graph.query().has(Constants.GUID_PROPERTY_KEY, guid).vertices().iterator();
+
+        return results.hasNext() ? results.next() : null;
     }
 
     private boolean entityExists(String guid) {
@@ -183,4 +586,109 @@ public class EntityLineageService implements AtlasLineageService {
 
         return ret;
     }
-}
\ No newline at end of file
+
+    private static class LevelExpansion {
+        final Set<LineageRelation>     relations    = new HashSet<>();
+        final Map<String, AtlasVertex> nextDatasets = new LinkedHashMap<>();
+    }
+
+    /**
+     * Position in paged lineage: direction (INPUT or OUTPUT), level, index of the dataset of the level and number of its
+     * paths already read, and the id under which the datasets of the level are kept. Formatted as
+     * direction:level:datasetIdx:pathIdx[:stateId], and opaque to clients.
+     */
+    private static class LineageCursor {
+        final LineageDirection direction;
+        final int              level;
+        final int              datasetIdx;
+        final int              pathIdx;
+        final String           stateId;
+
+        LineageCursor(LineageDirection direction, int level, int datasetIdx, int pathIdx, String stateId) {
+            this.direction  = direction;
+            this.level      = level;
+            this.datasetIdx = datasetIdx;
+            this.pathIdx    = pathIdx;
+            this.stateId    = stateId;
+        }
+
+        static LineageCursor first(LineageDirection direction) {
+            return new LineageCursor(direction.equals(LineageDirection.OUTPUT) ? LineageDirection.OUTPUT : LineageDirection.INPUT, 1, 0, 0, null);
+        }
+
+        static LineageCursor parse(String cursor, LineageDirection requestedDirection) throws AtlasBaseException {
+            String[] parts = cursor.split(":");
+
+            try {
+                if (parts.length == 4 || parts.length == 5) {
+                    LineageDirection direction  = LineageDirection.valueOf(parts[0]);
+                    int              level      = Integer.parseInt(parts[1]);
+                    int              datasetIdx = Integer.parseInt(parts[2]);
+                    int              pathIdx    = Integer.parseInt(parts[3]);
+                    String           stateId    = parts.length == 5 ? parts[4] : null;
+                    boolean          isValid    = direction.equals(requestedDirection) ||
+                                                  (requestedDirection.equals(LineageDirection.BOTH) && !direction.equals(LineageDirection.BOTH));
+
+                    if (isValid && level > 0 && datasetIdx >= 0 && pathIdx >= 0 && (stateId == null || !stateId.isEmpty())) {
+                        return new LineageCursor(direction, level, datasetIdx, pathIdx, stateId);
+                    }
+                }
+            } catch (IllegalArgumentException excp) { // includes NumberFormatException
+                // handled below
+            }
+
+            throw new AtlasBaseException(AtlasErrorCode.INSTANCE_LINEAGE_INVALID_PARAMS, "cursor", cursor);
+        }
+
+        LineageCursor withStateId(String stateId) {
+            return new LineageCursor(direction, level, datasetIdx, pathIdx, stateId);
+        }
+
+        @Override
+        public String toString() {
+            return direction + ":" + level + ":" + datasetIdx + ":" + pathIdx + (stateId != null ? ":" + stateId : "");
+        }
+    }
+
+    private static class PagedLevelWeigher implements Weigher<String, PagedLevel> {
+        @Override
+        public int weigh(String stateId, PagedLevel pagedLevel) {
+            return pagedLevel.getNumGuids();
+        }
+    }
+
+    /**
+     * Datasets of a lineage level being paged, guids of datasets of earlier levels and of this level, and datasets of
+     * the next level reached by the paths read so far.
+     */
+    private static class PagedLevel {
+        final String           baseEntityGuid;
+        final LineageDirection direction;
+        final int              level;
+        final List<String>     datasetGuids;
+        final Set<String>      visitedGuids;
+        final Set<String>      nextGuids = new LinkedHashSet<>();
+
+        PagedLevel(String baseEntityGuid, LineageDirection direction, int level, List<String> datasetGuids, Set<String> visitedGuids) {
+            this.baseEntityGuid = baseEntityGuid;
+            this.direction      = direction;
+            this.level          = level;
+            this.datasetGuids   = datasetGuids;
+            this.visitedGuids   = visitedGuids;
+        }
+
+        boolean isAt(String baseEntityGuid, LineageCursor position) {
+            return this.baseEntityGuid.equals(baseEntityGuid) && direction.equals(position.direction) && level == position.level;
+        }
+
+        PagedLevel nextLevel() {
+            visitedGuids.addAll(nextGuids);
+
+            return new PagedLevel(baseEntityGuid, direction, level + 1, new ArrayList<>(nextGuids), visitedGuids);
+        }
+
+        int getNumGuids() {
+            return datasetGuids.size() + visitedGuids.size() + nextGuids.size();
+        }
+    }
+}
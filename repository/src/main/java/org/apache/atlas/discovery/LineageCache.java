@@ -0,0 +1,481 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.discovery;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import org.apache.atlas.AtlasClient;
+import org.apache.atlas.ApplicationProperties;
+import org.apache.atlas.GraphTransactionInterceptor;
+import org.apache.atlas.model.lineage.AtlasLineageInfo;
+import org.apache.atlas.model.lineage.AtlasLineageInfo.LineageDirection;
+import org.apache.atlas.repository.graph.GraphHelper;
+import org.apache.atlas.repository.graphdb.AtlasEdge;
+import org.apache.atlas.repository.graphdb.AtlasEdgeDirection;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.repository.store.graph.v1.AtlasGraphUtilsV1;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of lineage results by (guid, direction, depth), shared across requests.
+ *
+ * The cache is bounded by the estimated memory used by the cached results. Changes to entities are recorded during the
+ * transaction that makes them; once the transaction completes, results that include any of the changed entities are
+ * removed. A change to a process also removes results that include any of its inputs or outputs, as the lineage of
+ * these datasets now has a new or a different path. As in UniqueAttributeGuidCache, a result is not added if any entry
+ * was removed since its computation started, or if it was computed by a transaction that changed entities.
+ *
+ * Results to remove are found with an index of cache keys by the guids of the entities included in the results. The
+ * index is updated when results are added, and, through a removal listener, when results are removed or evicted.
+ */
+public class LineageCache {
+    private static final Logger LOG = LoggerFactory.getLogger(LineageCache.class);
+
+    public static final String CACHE_SIZE_MB_PROPERTY = "atlas.lineage.cache.size.mb";
+    public static final int    DEFAULT_CACHE_SIZE_MB  = 64;
+
+    // rough estimates of the memory used by an entity header and by a relation in a cached result
+    private static final int ENTITY_SIZE_BYTES   = 1024;
+    private static final int RELATION_SIZE_BYTES = 128;
+
+    private static LineageCache INSTANCE;
+
+    private final Cache<CacheKey, AtlasLineageInfo> cache;
+    private final Map<String, Set<CacheKey>>        keysByGuid        = new HashMap<>(); // guarded by this
+    private final AtomicLong                        invalidationSeq   = new AtomicLong();
+    private final AtomicLong                        hitCount          = new AtomicLong();
+    private final AtomicLong                        missCount         = new AtomicLong();
+    private final AtomicLong                        invalidationCount = new AtomicLong();
+    private final ThreadLocal<PendingChanges>       pendingChanges    = new ThreadLocal<>();
+
+    public static synchronized LineageCache getInstance() {
+        if (INSTANCE == null) {
+            int cacheSizeMb = DEFAULT_CACHE_SIZE_MB;
+
+            try {
+                Configuration conf = ApplicationProperties.get();
+
+                cacheSizeMb = conf.getInt(CACHE_SIZE_MB_PROPERTY, DEFAULT_CACHE_SIZE_MB);
+            } catch (Exception excp) {
+                LOG.error("Error reading configuration", excp);
+            } finally {
+                LOG.info(CACHE_SIZE_MB_PROPERTY + "=" + cacheSizeMb);
+            }
+
+            INSTANCE = new LineageCache(cacheSizeMb * 1024L * 1024L);
+        }
+
+        return INSTANCE;
+    }
+
+    @VisibleForTesting
+    LineageCache(long maxSizeBytes) {
+        this.cache = maxSizeBytes > 0 ? CacheBuilder.newBuilder().maximumWeight(maxSizeBytes).weigher(new LineageWeigher()).removalListener(new IndexUpdater()).<CacheKey, AtlasLineageInfo>build() : null;
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * @return cached lineage of the given entity; null if none is cached
+     */
+    public AtlasLineageInfo get(String guid, LineageDirection direction, int depth) {
+        if (!isEnabled() || guid == null || direction == null) {
+            return null;
+        }
+
+        AtlasLineageInfo ret = cache.getIfPresent(new CacheKey(guid, direction, depth));
+
+        if (ret != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+
+        return ret;
+    }
+
+    /**
+     * To be called before computing lineage; the value returned is to be passed to put().
+     */
+    public long getInvalidationSeq() {
+        return invalidationSeq.get();
+    }
+
+    /**
+     * Adds lineage computed by a traversal that started when getInvalidationSeq() returned the given value.
+     */
+    public void put(AtlasLineageInfo lineageInfo, long seq) {
+        if (!isEnabled() || lineageInfo == null || lineageInfo.getBaseEntityGuid() == null || lineageInfo.getLineageDirection() == null) {
+            return;
+        }
+
+        if (pendingChanges.get() != null) { // might include changes not yet committed
+            return;
+        }
+
+        CacheKey key = new CacheKey(lineageInfo.getBaseEntityGuid(), lineageInfo.getLineageDirection(), lineageInfo.getLineageDepth());
+
+        synchronized (this) {
+            if (seq == invalidationSeq.get()) {
+                // index before adding, so that the removal listener finds the entries if the result is evicted right away
+                for (String guid : getGuids(key, lineageInfo)) {
+                    Set<CacheKey> keys = keysByGuid.get(guid);
+
+                    if (keys == null) {
+                        keys = new HashSet<>();
+
+                        keysByGuid.put(guid, keys);
+                    }
+
+                    keys.add(key);
+                }
+
+                cache.put(key, lineageInfo);
+            }
+        }
+    }
+
+    /**
+     * Records an entity whose header changed in the current transaction, like by adding a classification. Results that
+     * include the entity are removed once the transaction completes.
+     */
+    public void recordInvalidation(String guid) {
+        if (!isEnabled() || guid == null) {
+            return;
+        }
+
+        getPendingChanges().guidsToInvalidate.add(guid);
+    }
+
+    /**
+     * Records an entity created, updated or deleted in the current transaction. For a process, its inputs and outputs
+     * are recorded as well.
+     */
+    public void recordEntityChange(String guid) {
+        if (!isEnabled() || guid == null) {
+            return;
+        }
+
+        if (cache.size() == 0) { // nothing to find the lineage changes for
+            getPendingChanges().isAnyChangeSkipped = true;
+
+            return;
+        }
+
+        AtlasVertex entityVertex = AtlasGraphUtilsV1.findByGuid(guid);
+
+        if (entityVertex != null) {
+            recordEntityChange(entityVertex);
+        } else { // hard deleted; results having a path through the entity include the entity itself
+            recordInvalidation(guid);
+        }
+    }
+
+    public void recordEntityChange(AtlasVertex entityVertex) {
+        if (!isEnabled() || entityVertex == null) {
+            return;
+        }
+
+        if (cache.size() == 0) { // nothing to find the lineage changes for
+            getPendingChanges().isAnyChangeSkipped = true;
+
+            return;
+        }
+
+        Set<String> guids = getPendingChanges().guidsToInvalidate;
+
+        guids.add(GraphHelper.getGuid(entityVertex));
+
+        List<String> superTypes = GraphHelper.getSuperTypeNames(entityVertex);
+
+        if (superTypes != null && superTypes.contains(AtlasClient.PROCESS_SUPER_TYPE)) {
+            for (String edgeLabel : new String[] { EntityLineageService.INPUT_PROCESS_EDGE, EntityLineageService.OUTPUT_PROCESS_EDGE }) {
+                for (AtlasEdge edge : (Iterable<AtlasEdge>) entityVertex.getEdges(AtlasEdgeDirection.OUT, edgeLabel)) {
+                    guids.add(GraphHelper.getGuid(edge.getInVertex()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all cached results; to be called when changes to entities were not recorded individually.
+     */
+    public void invalidateAll() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        long count;
+
+        synchronized (this) {
+            invalidationSeq.incrementAndGet();
+
+            count = cache.size();
+
+            cache.invalidateAll();
+        }
+
+        invalidationCount.addAndGet(count);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("invalidated all {} cached lineage results", count);
+        }
+    }
+
+    /**
+     * Removes cached results that include any of the given entities, or that are of any of the given entities.
+     */
+    public void invalidate(Collection<String> guids) {
+        if (!isEnabled() || guids == null || guids.isEmpty()) {
+            return;
+        }
+
+        int count = 0;
+
+        synchronized (this) {
+            invalidationSeq.incrementAndGet();
+
+            Set<CacheKey> keysToRemove = new HashSet<>();
+
+            for (String guid : guids) {
+                Set<CacheKey> keys = keysByGuid.get(guid);
+
+                if (keys != null) {
+                    keysToRemove.addAll(keys);
+                }
+            }
+
+            for (CacheKey key : keysToRemove) {
+                if (cache.asMap().remove(key) != null) { // the index is updated by the removal listener
+                    count++;
+                }
+            }
+        }
+
+        invalidationCount.addAndGet(count);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("invalidated {} cached lineage results for entities {}", count, guids);
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return hit count / (hit count + miss count); 0 if there were no lookups
+     */
+    public double getHitRatio() {
+        long hits    = hitCount.get();
+        long lookups = hits + missCount.get();
+
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+    /**
+     * @return number of cached results removed due to entity changes; results evicted to free memory are not counted
+     */
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+    public long getSize() {
+        return isEnabled() ? cache.size() : 0;
+    }
+
+    @VisibleForTesting
+    void clear() {
+        if (isEnabled()) {
+            synchronized (this) {
+                invalidationSeq.incrementAndGet();
+
+                cache.invalidateAll();
+
+                keysByGuid.clear();
+            }
+        }
+
+        pendingChanges.remove();
+    }
+
+    @VisibleForTesting
+    synchronized int getIndexSize() {
+        if (isEnabled()) {
+            cache.cleanUp(); // runs the removal listener for pending removals
+        }
+
+        return keysByGuid.size();
+    }
+
+    private static Set<String> getGuids(CacheKey key, AtlasLineageInfo lineageInfo) {
+        Set<String> ret = new HashSet<>();
+
+        ret.add(key.guid);
+
+        if (lineageInfo != null && lineageInfo.getGuidEntityMap() != null) {
+            ret.addAll(lineageInfo.getGuidEntityMap().keySet());
+        }
+
+        return ret;
+    }
+
+    private PendingChanges getPendingChanges() {
+        PendingChanges ret = pendingChanges.get();
+
+        if (ret == null) {
+            ret = new PendingChanges();
+
+            pendingChanges.set(ret);
+        }
+
+        return ret;
+    }
+
+    private class PendingChanges extends GraphTransactionInterceptor.PostTransactionHook {
+        private final Set<String> guidsToInvalidate  = new HashSet<>();
+        private       boolean     isAnyChangeSkipped = false;
+
+        @Override
+        public void onComplete(boolean isSuccess) {
+            pendingChanges.remove();
+
+            if (isAnyChangeSkipped) { // results added since the change was skipped might include the changed entity
+                if (getSize() > 0) {
+                    invalidateAll();
+                } else {
+                    invalidationSeq.incrementAndGet();
+                }
+            }
+
+            invalidate(guidsToInvalidate);
+        }
+    }
+
+    /*
+     * removes a key from the index when its result is removed or evicted, unless the key now has another result that
+     * includes the entity, like when the result was replaced
+     */
+    private class IndexUpdater implements RemovalListener<CacheKey, AtlasLineageInfo> {
+        @Override
+        public void onRemoval(RemovalNotification<CacheKey, AtlasLineageInfo> notification) {
+            CacheKey key = notification.getKey();
+
+            if (key == null) {
+                return;
+            }
+
+            synchronized (LineageCache.this) {
+                AtlasLineageInfo current = cache.asMap().get(key);
+                Set<String>      retained = current != null ? getGuids(key, current) : Collections.<String>emptySet();
+
+                for (String guid : getGuids(key, notification.getValue())) {
+                    if (retained.contains(guid)) {
+                        continue;
+                    }
+
+                    Set<CacheKey> keys = keysByGuid.get(guid);
+
+                    if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                        keysByGuid.remove(guid);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class LineageWeigher implements Weigher<CacheKey, AtlasLineageInfo> {
+        @Override
+        public int weigh(CacheKey key, AtlasLineageInfo lineageInfo) {
+            long ret = ENTITY_SIZE_BYTES;
+
+            if (lineageInfo.getGuidEntityMap() != null) {
+                ret += (long) lineageInfo.getGuidEntityMap().size() * ENTITY_SIZE_BYTES;
+            }
+
+            if (lineageInfo.getRelations() != null) {
+                ret += (long) lineageInfo.getRelations().size() * RELATION_SIZE_BYTES;
+            }
+
+            return (int) Math.min(ret, Integer.MAX_VALUE);
+        }
+    }
+
+    private static class CacheKey {
+        private final String           guid;
+        private final LineageDirection direction;
+        private final int              depth;
+
+        CacheKey(String guid, LineageDirection direction, int depth) {
+            this.guid      = guid;
+            this.direction = direction;
+            this.depth     = depth;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            CacheKey other = (CacheKey) o;
+
+            return depth == other.depth && guid.equals(other.guid) && direction == other.direction;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = guid.hashCode();
+
+            result = 31 * result + direction.hashCode();
+            result = 31 * result + depth;
+
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return guid + "/" + direction + "/" + depth;
+        }
+    }
+}
@@ -99,7 +99,7 @@ public class GraphBackedDiscoveryService implements DiscoveryService {
     //http://www.elastic.co/guide/en/elasticsearch/reference/current/query-dsl-query-string-query
     // .html#query-string-syntax for query syntax
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public String searchByFullText(String query, QueryParams queryParams) throws DiscoveryException {
         String graphQuery = String.format("v.\"%s\":(%s)", Constants.ENTITY_TEXT_PROPERTY_KEY, query);
         LOG.debug("Full text query: {}", graphQuery);
@@ -136,7 +136,7 @@ public class GraphBackedDiscoveryService implements DiscoveryService {
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public String searchByDSL(String dslQuery, QueryParams queryParams) throws DiscoveryException {
         GremlinQueryResult queryResult = evaluate(dslQuery, queryParams);
         return queryResult.toJson();
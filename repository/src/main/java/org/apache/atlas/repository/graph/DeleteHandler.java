@@ -31,11 +31,13 @@ import java.util.Set;
 
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.RequestContext;
+import org.apache.atlas.discovery.LineageCache;
 import org.apache.atlas.repository.Constants;
 import org.apache.atlas.repository.graph.GraphHelper.VertexInfo;
 import org.apache.atlas.repository.graphdb.AtlasEdge;
 import org.apache.atlas.repository.graphdb.AtlasEdgeDirection;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.repository.store.graph.v1.UniqueAttributeGuidCache;
 import org.apache.atlas.typesystem.exception.NullRequiredAttributeException;
 import org.apache.atlas.typesystem.persistence.Id;
 import org.apache.atlas.typesystem.types.AttributeInfo;
@@ -94,6 +96,8 @@ public abstract class DeleteHandler {
            // and gather deletion candidate vertices.
            for (VertexInfo vertexInfo : compositeVertices) {
                requestContext.recordEntityDelete(vertexInfo.getGuid(), vertexInfo.getTypeName());
+               UniqueAttributeGuidCache.getInstance().recordInvalidation(vertexInfo.getGuid());
+               LineageCache.getInstance().recordEntityChange(vertexInfo.getVertex());
                deletionCandidateVertices.add(vertexInfo.getVertex());
            }
        }
@@ -0,0 +1,333 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graph;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.atlas.AtlasException;
+import org.apache.atlas.GraphTransactionInterceptor;
+import org.apache.atlas.RequestContext;
+import org.apache.atlas.RequestContextV1;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.repository.store.graph.v1.AtlasGraphUtilsV1;
+import org.apache.atlas.service.Service;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Updates the full-text index text of entities in the background, when deferred full-text mapping is enabled.
+ *
+ * Entities created or updated by a transaction are queued once it commits. A background thread recomputes their index
+ * text in batches, each batch in its own transaction. An entity queued again before its index text is updated is
+ * updated only once; an entity updated while its index text is being computed is queued again, hence the index text
+ * reflects the latest update.
+ *
+ * Entities are also marked in the transaction that changes them, and unmarked in the transaction that updates their
+ * index text. Entities still marked when the updater starts, like those queued when Atlas was stopped or crashed, are
+ * queued again.
+ */
+@Singleton
+@Component
+public class FullTextIndexUpdater implements Service {
+    private static final Logger LOG = LoggerFactory.getLogger(FullTextIndexUpdater.class);
+
+    public static final String DEFERRED_PROPERTY   = "atlas.search.fulltext.deferred.enabled";
+    public static final String BATCH_SIZE_PROPERTY = "atlas.search.fulltext.deferred.batch.size";
+    public static final String DELAY_MS_PROPERTY   = "atlas.search.fulltext.deferred.delay.ms";
+
+    public static final int  DEFAULT_BATCH_SIZE = 100;
+    public static final long DEFAULT_DELAY_MS   = 1000;
+
+    private static final long WAIT_INTERVAL_MS = 1000;
+    private static final long STOP_WAIT_MS     = 60000;
+
+    private final FullTextMapperV2           fullTextMapper;
+    private final AtlasGraph                 graph;
+    private final boolean                    isDeferredEnabled;
+    private final int                        batchSize;
+    private final long                       delayMs;
+    private final Set<String>                queuedGuids  = new LinkedHashSet<>();
+    private final ThreadLocal<PendingGuids>  pendingGuids = new ThreadLocal<>();
+
+    private volatile Thread  worker;
+    private volatile boolean isStopped = false;
+
+    @Inject
+    public FullTextIndexUpdater(FullTextMapperV2 fullTextMapper, AtlasGraph graph, Configuration configuration) {
+        this.fullTextMapper    = fullTextMapper;
+        this.graph             = graph;
+        this.isDeferredEnabled = configuration != null && configuration.getBoolean(DEFERRED_PROPERTY, false);
+        this.batchSize         = configuration != null ? Math.max(1, configuration.getInt(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE)) : DEFAULT_BATCH_SIZE;
+        this.delayMs           = configuration != null ? Math.max(0, configuration.getLong(DELAY_MS_PROPERTY, DEFAULT_DELAY_MS)) : DEFAULT_DELAY_MS;
+
+        LOG.info("{}={}, {}={}, {}={}", DEFERRED_PROPERTY, isDeferredEnabled, BATCH_SIZE_PROPERTY, batchSize, DELAY_MS_PROPERTY, delayMs);
+    }
+
+    @Override
+    public synchronized void start() throws AtlasException {
+        if (isDeferredEnabled && worker == null) {
+            isStopped = false;
+
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    enqueueMarkedEntities();
+
+                    processQueue();
+                }
+            }, "atlas-fulltext-updater");
+
+            thread.setDaemon(true);
+            thread.start();
+
+            worker = thread;
+        }
+    }
+
+    @Override
+    public void stop() throws AtlasException {
+        Thread thread = worker;
+
+        if (thread == null) {
+            return;
+        }
+
+        synchronized (this) {
+            isStopped = true;
+
+            notifyAll();
+        }
+
+        try {
+            thread.join(STOP_WAIT_MS);
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+
+        worker = null;
+
+        int numPending = getQueueSize();
+
+        if (numPending > 0) {
+            LOG.warn("Full-text index text of {} entities not updated; it will be updated after restart", numPending);
+        }
+    }
+
+    /**
+     * @return true if index text of entities is to be updated by this updater, instead of in the transaction
+     */
+    public boolean isDeferred() {
+        return worker != null;
+    }
+
+    /**
+     * Schedules update of index text of given entities, once the current transaction commits. The entities are marked
+     * in the current transaction, so that the update is not lost if Atlas stops before it is done.
+     */
+    public void scheduleUpdate(Collection<AtlasVertex> vertices) {
+        if (CollectionUtils.isEmpty(vertices)) {
+            return;
+        }
+
+        PendingGuids pending = pendingGuids.get();
+
+        if (pending == null) {
+            pending = new PendingGuids();
+
+            pendingGuids.set(pending);
+        }
+
+        for (AtlasVertex vertex : vertices) {
+            vertex.setProperty(Constants.ENTITY_TEXT_PENDING_PROPERTY_KEY, Boolean.TRUE);
+
+            pending.guids.add(GraphHelper.getGuid(vertex));
+        }
+    }
+
+    public synchronized int getQueueSize() {
+        return queuedGuids.size();
+    }
+
+    private synchronized void enqueue(Collection<String> guids) {
+        queuedGuids.addAll(guids);
+
+        notifyAll();
+    }
+
+    @VisibleForTesting
+    synchronized List<String> takeBatch() {
+        List<String> ret = new ArrayList<>(Math.min(batchSize, queuedGuids.size()));
+
+        for (Iterator<String> iter = queuedGuids.iterator(); iter.hasNext() && ret.size() < batchSize; ) {
+            ret.add(iter.next());
+
+            iter.remove();
+        }
+
+        return ret;
+    }
+
+    @VisibleForTesting
+    void enqueueMarkedEntities() {
+        List<String> guids = new ArrayList<>();
+
+        try {
+            for (AtlasVertex vertex : (Iterable<AtlasVertex>) graph.query().has(Constants.ENTITY_TEXT_PENDING_PROPERTY_KEY, Boolean.TRUE).vertices()) {
+                String guid = GraphHelper.getGuid(vertex);
+
+                if (guid != null) {
+                    guids.add(guid);
+                }
+            }
+        } catch (Exception excp) {
+            LOG.error("Failed to find entities whose full-text index text is to be updated", excp);
+        } finally {
+            graph.rollback(); // end the read transaction of this thread
+        }
+
+        if (!guids.isEmpty()) {
+            LOG.info("Full-text index text of {} entities is to be updated", guids.size());
+
+            enqueue(guids);
+        }
+    }
+
+    private void processQueue() {
+        LOG.info("==> FullTextIndexUpdater.processQueue()");
+
+        while (true) {
+            synchronized (this) {
+                while (queuedGuids.isEmpty() && !isStopped) {
+                    try {
+                        wait(WAIT_INTERVAL_MS);
+                    } catch (InterruptedException excp) {
+                        isStopped = true;
+                    }
+                }
+
+                if (queuedGuids.isEmpty()) {
+                    break;
+                }
+            }
+
+            if (!isStopped && delayMs > 0) {
+                // wait for more updates, including repeated updates of queued entities, to collect a larger batch
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException excp) {
+                    isStopped = true;
+                }
+            }
+
+            for (List<String> batch = takeBatch(); !batch.isEmpty(); batch = takeBatch()) {
+                updateIndexText(batch);
+            }
+        }
+
+        LOG.info("<== FullTextIndexUpdater.processQueue()");
+    }
+
+    private void updateIndexText(List<String> guids) {
+        try {
+            updateIndexTextInTransaction(guids);
+        } catch (Exception excp) {
+            LOG.warn("Full-text index update failed for batch of {} entities. Retrying one entity at a time", guids.size(), excp);
+
+            // update the rest of the batch, even if update of an entity fails
+            for (String guid : guids) {
+                try {
+                    updateIndexTextInTransaction(Collections.singletonList(guid));
+                } catch (Exception e) {
+                    LOG.error("Full-text index update failed for entity[guid={}]", guid, e);
+                }
+            }
+        }
+    }
+
+    private void updateIndexTextInTransaction(List<String> guids) throws AtlasBaseException {
+        RequestContext.createContext();
+
+        // lock the entities, so that their classifications aren't updated while full text is computed
+        GraphTransactionInterceptor.lockObjectAndReleasePostCommit(new ArrayList<>(guids));
+
+        boolean isCommitted = false;
+
+        try {
+            for (String guid : guids) {
+                AtlasVertex vertex = AtlasGraphUtilsV1.findByGuid(guid);
+
+                if (vertex == null) { // deleted since it was queued
+                    continue;
+                }
+
+                FullTextSegments segments = fullTextMapper.getIndexTextSegments(guid);
+
+                if (segments != null) {
+                    segments.toVertex(vertex);
+                }
+
+                vertex.removeProperty(Constants.ENTITY_TEXT_PENDING_PROPERTY_KEY);
+            }
+
+            graph.commit();
+
+            isCommitted = true;
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Updated full-text index text of {} entities", guids.size());
+            }
+        } finally {
+            if (!isCommitted) {
+                graph.rollback();
+            }
+
+            GraphTransactionInterceptor.releaseLockedObjects();
+
+            RequestContext.clear();
+            RequestContextV1.clear();
+        }
+    }
+
+    private class PendingGuids extends GraphTransactionInterceptor.PostTransactionHook {
+        private final Set<String> guids = new LinkedHashSet<>();
+
+        @Override
+        public void onComplete(boolean isSuccess) {
+            pendingGuids.remove();
+
+            if (isSuccess) {
+                enqueue(guids);
+            }
+        }
+    }
+}
@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -90,24 +91,82 @@ public class FullTextMapperV2 {
     }
 
     public String getIndexTextForEntity(String guid) throws AtlasBaseException {
-        String                 ret     = null;
+        FullTextSegments segments = getIndexTextSegments(guid);
+
+        return segments != null ? segments.getFullText() : null;
+    }
+
+    /**
+     * Full text of the entity with given GUID, by source - entity attributes and each classification
+     * @param guid Entity guid
+     * @return full text segments; null if the entity is not found
+     * @throws AtlasBaseException
+     */
+    public FullTextSegments getIndexTextSegments(String guid) throws AtlasBaseException {
+        FullTextSegments       ret     = null;
         AtlasEntityWithExtInfo entity  = getAndCacheEntity(guid);
 
         if (entity != null) {
-            StringBuilder sb = new StringBuilder();
+            AtlasEntity   atlasEntity    = entity.getEntity();
+            Set<String>   processedGuids = new HashSet<>();
+            StringBuilder sb             = new StringBuilder();
 
-            map(entity.getEntity(), entity, sb, new HashSet<String>());
+            ret = new FullTextSegments();
 
-            ret = sb.toString();
+            // classifications of the entity are mapped to separate segments; referred entities are mapped in full
+            processedGuids.add(atlasEntity.getGuid());
+
+            sb.append(atlasEntity.getTypeName()).append(FULL_TEXT_DELIMITER);
+
+            mapAttributes(atlasEntity.getAttributes(), entity, sb, processedGuids);
+
+            ret.setEntityText(sb.toString());
+
+            List<AtlasClassification> classifications = atlasEntity.getClassifications();
+
+            if (CollectionUtils.isNotEmpty(classifications)) {
+                for (AtlasClassification classification : classifications) {
+                    ret.setClassificationText(classification.getTypeName(), getIndexText(classification, entity, processedGuids));
+                }
+            }
         }
 
         if (LOG.isDebugEnabled()) {
-            LOG.debug("FullTextMapperV2.map({}): {}", guid, ret);
+            LOG.debug("FullTextMapperV2.map({}): {}", guid, ret != null ? ret.getFullText() : null);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Full text of the given classification of the entity with given GUID. The entity is read only when references
+     * are followed, to map referred entities.
+     * @param guid Entity guid
+     * @param classification classification of the entity
+     * @return Full text string ONLY for the classification
+     * @throws AtlasBaseException
+     */
+    public String getIndexTextForClassification(String guid, AtlasClassification classification) throws AtlasBaseException {
+        AtlasEntityWithExtInfo entityWithExtInfo = followReferences ? getAndCacheEntity(guid) : null;
+        String                 ret               = getIndexText(classification, entityWithExtInfo, new HashSet<>(Collections.singleton(guid)));
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("FullTextMapperV2.map({}, {}): {}", guid, classification.getTypeName(), ret);
         }
 
         return ret;
     }
 
+    private String getIndexText(AtlasClassification classification, AtlasEntityExtInfo entityExtInfo, Set<String> processedGuids) throws AtlasBaseException {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(classification.getTypeName()).append(FULL_TEXT_DELIMITER);
+
+        mapAttributes(classification.getAttributes(), entityExtInfo, sb, processedGuids);
+
+        return sb.toString();
+    }
+
     private void map(AtlasEntity entity, AtlasEntityExtInfo entityExtInfo, StringBuilder sb, Set<String> processedGuids) throws AtlasBaseException {
         if (entity == null || processedGuids.contains(entity.getGuid())) {
             return;
@@ -150,7 +209,7 @@ public class FullTextMapperV2 {
 
     private void mapAttribute(Object value, AtlasEntityExtInfo entityExtInfo, StringBuilder sb, Set<String> processedGuids) throws AtlasBaseException {
         if (value instanceof AtlasObjectId) {
-            if (followReferences) {
+            if (followReferences && entityExtInfo != null) {
                 AtlasObjectId objectId = (AtlasObjectId) value;
                 AtlasEntity   entity   = entityExtInfo.getEntity(objectId.getGuid());
 
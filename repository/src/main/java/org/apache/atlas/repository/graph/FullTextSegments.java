@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graph;
+
+import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.type.AtlasType;
+import org.apache.commons.lang3.StringUtils;
+import org.codehaus.jackson.annotate.JsonIgnore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Full-text of an entity, by source: the entity's attributes, and each of its classifications.
+ *
+ * Segments are stored in the entity vertex along with the full-text, so that when a classification is added, updated
+ * or removed, only its segment needs to be computed.
+ */
+public class FullTextSegments {
+    private static final Logger LOG = LoggerFactory.getLogger(FullTextSegments.class);
+
+    private String              entityText;
+    private Map<String, String> classificationTexts = new LinkedHashMap<>();
+
+    public String getEntityText() {
+        return entityText;
+    }
+
+    public void setEntityText(String entityText) {
+        this.entityText = entityText;
+    }
+
+    public Map<String, String> getClassificationTexts() {
+        return classificationTexts;
+    }
+
+    public void setClassificationTexts(Map<String, String> classificationTexts) {
+        this.classificationTexts = classificationTexts != null ? new LinkedHashMap<>(classificationTexts) : new LinkedHashMap<String, String>();
+    }
+
+    public void setClassificationText(String classificationName, String text) {
+        classificationTexts.put(classificationName, text);
+    }
+
+    public void removeClassificationText(String classificationName) {
+        classificationTexts.remove(classificationName);
+    }
+
+    /**
+     * @return full-text of the entity; each segment ends with the delimiter
+     */
+    @JsonIgnore
+    public String getFullText() {
+        StringBuilder sb = new StringBuilder();
+
+        if (entityText != null) {
+            sb.append(entityText);
+        }
+
+        for (String classificationText : classificationTexts.values()) {
+            if (classificationText != null) {
+                sb.append(classificationText);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * @return segments stored in the vertex; null if not available, like for entities last mapped by v1 APIs
+     */
+    public static FullTextSegments fromVertex(AtlasVertex vertex) {
+        FullTextSegments ret  = null;
+        String           json = GraphHelper.getSingleValuedProperty(vertex, Constants.ENTITY_TEXT_SEGMENTS_PROPERTY_KEY, String.class);
+
+        if (StringUtils.isNotEmpty(json)) {
+            ret = AtlasType.fromJson(json, FullTextSegments.class);
+
+            if (ret == null) {
+                LOG.warn("failed to read full-text segments from vertex {}. Full-text will be recomputed", vertex.getIdForDisplay());
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Sets full-text of the entity, along with its segments, in the vertex.
+     */
+    public void toVertex(AtlasVertex vertex) {
+        GraphHelper.setProperty(vertex, Constants.ENTITY_TEXT_SEGMENTS_PROPERTY_KEY, AtlasType.toJson(this));
+        GraphHelper.setProperty(vertex, Constants.ENTITY_TEXT_PROPERTY_KEY, getFullText());
+    }
+
+    /**
+     * Removes segments from the vertex, when its full-text is set without them.
+     */
+    public static void removeFromVertex(AtlasVertex vertex) {
+        GraphHelper.setProperty(vertex, Constants.ENTITY_TEXT_SEGMENTS_PROPERTY_KEY, null);
+    }
+}
@@ -24,6 +24,7 @@ import org.apache.atlas.CreateUpdateEntitiesResult;
 import org.apache.atlas.GraphTransactionInterceptor;
 import org.apache.atlas.RequestContext;
 import org.apache.atlas.annotation.GraphTransaction;
+import org.apache.atlas.discovery.LineageCache;
 import org.apache.atlas.model.instance.GuidMapping;
 import org.apache.atlas.model.legacy.EntityResult;
 import org.apache.atlas.repository.Constants;
@@ -173,7 +174,7 @@ public class GraphBackedMetadataRepository implements MetadataRepository {
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public List<ITypedReferenceableInstance> getEntityDefinitions(String... guids) throws RepositoryException, EntityNotFoundException {
         if (LOG.isDebugEnabled()) {
             LOG.debug("Retrieving entities with guids={}", Arrays.toString(guids));
@@ -235,7 +236,7 @@ public class GraphBackedMetadataRepository implements MetadataRepository {
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public ITypedReferenceableInstance getEntityDefinition(String entityType, String attribute, Object value)
             throws AtlasException {
         if (LOG.isDebugEnabled()) {
@@ -257,7 +258,7 @@ public class GraphBackedMetadataRepository implements MetadataRepository {
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public List<String> getEntityList(String entityType) throws RepositoryException {
         if (LOG.isDebugEnabled()) {
             LOG.debug("Retrieving entity list for type={}", entityType);
@@ -286,7 +287,7 @@ public class GraphBackedMetadataRepository implements MetadataRepository {
      * @throws RepositoryException
      */
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public List<String> getTraitNames(String guid) throws AtlasException {
         if (LOG.isDebugEnabled()) {
             LOG.debug("Retrieving trait names for entity={}", guid);
@@ -358,6 +359,7 @@ public class GraphBackedMetadataRepository implements MetadataRepository {
                     RequestContext.get().getRequestTime());
             GraphHelper.setProperty(instanceVertex, Constants.MODIFIED_BY_KEY, RequestContext.get().getUser());
 
+            LineageCache.getInstance().recordInvalidation(guid);
         } catch (RepositoryException e) {
             throw e;
         } catch (Exception e) {
@@ -397,6 +399,8 @@ public class GraphBackedMetadataRepository implements MetadataRepository {
             // update the traits in entity once trait removal is successful
             traitNames.remove(traitNameToBeDeleted);
             updateTraits(instanceVertex, traitNames);
+
+            LineageCache.getInstance().recordInvalidation(guid);
         } catch (Exception e) {
             throw new RepositoryException(e);
         }
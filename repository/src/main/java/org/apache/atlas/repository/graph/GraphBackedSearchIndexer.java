@@ -184,6 +184,10 @@ public class GraphBackedSearchIndexer implements SearchIndexer, ActiveStateChang
             createIndexes(management, Constants.TRAIT_NAMES_PROPERTY_KEY, String.class, false, AtlasCardinality.SET,
                     true, true);
 
+            // create a composite index to find entities whose full text is yet to be updated in the background
+            createIndexes(management, Constants.ENTITY_TEXT_PENDING_PROPERTY_KEY, Boolean.class, false,
+                    AtlasCardinality.SINGLE, true, false);
+
             // Index for full text search
             createFullTextIndex(management);
 
@@ -21,12 +21,14 @@ import com.google.common.base.Function;
 import com.google.common.collect.Lists;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.RequestContext;
+import org.apache.atlas.discovery.LineageCache;
 import org.apache.atlas.model.instance.GuidMapping;
 import org.apache.atlas.repository.Constants;
 import org.apache.atlas.repository.RepositoryException;
 import org.apache.atlas.repository.graphdb.AtlasEdge;
 import org.apache.atlas.repository.graphdb.AtlasSchemaViolationException;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.repository.store.graph.v1.UniqueAttributeGuidCache;
 import org.apache.atlas.typesystem.IReferenceableInstance;
 import org.apache.atlas.typesystem.ITypedInstance;
 import org.apache.atlas.typesystem.ITypedReferenceableInstance;
@@ -105,14 +107,22 @@ public final class TypedInstanceToGraphMapper {
             List<String> ids = addOrUpdateAttributesAndTraits(operation, entitiesToCreate);
             addFullTextProperty(entitiesToCreate, fulltextMapper);
             requestContext.recordEntityCreate(ids);
+            recordLineageChanges(ids);
             break;
 
         case UPDATE_FULL:
         case UPDATE_PARTIAL:
             ids = addOrUpdateAttributesAndTraits(Operation.CREATE, entitiesToCreate);
             requestContext.recordEntityCreate(ids);
+            recordLineageChanges(ids);
             ids = addOrUpdateAttributesAndTraits(operation, entitiesToUpdate);
             requestContext.recordEntityUpdate(ids);
+            recordLineageChanges(ids);
+
+            // unique attributes might have been updated
+            for (String id : ids) {
+                UniqueAttributeGuidCache.getInstance().recordInvalidation(id);
+            }
 
             addFullTextProperty(entitiesToCreate, fulltextMapper);
             addFullTextProperty(entitiesToUpdate, fulltextMapper);
@@ -127,6 +137,12 @@ public final class TypedInstanceToGraphMapper {
         }
     }
 
+    private void recordLineageChanges(List<String> ids) {
+        for (String id : ids) {
+            LineageCache.getInstance().recordEntityChange(id);
+        }
+    }
+
     private Collection<IReferenceableInstance> walkClassInstances(ITypedReferenceableInstance typedInstance)
             throws RepositoryException {
 
@@ -381,6 +397,9 @@ public final class TypedInstanceToGraphMapper {
             AtlasVertex instanceVertex = getClassVertex(typedInstance);
             String fullText = fulltextMapper.mapRecursive(instanceVertex, true);
             GraphHelper.setProperty(instanceVertex, Constants.ENTITY_TEXT_PROPERTY_KEY, fullText);
+
+            // full text segments, set by v2 APIs, don't reflect this update
+            FullTextSegments.removeFromVertex(instanceVertex);
         }
     }
 
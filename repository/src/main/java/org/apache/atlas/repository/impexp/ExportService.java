@@ -17,6 +17,7 @@
  */
 package org.apache.atlas.repository.impexp;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.atlas.AtlasErrorCode;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.AtlasServiceException;
@@ -51,6 +52,7 @@ import org.apache.atlas.util.AtlasGremlinQueryProvider;
 import org.apache.atlas.util.AtlasGremlinQueryProvider.AtlasGremlinQuery;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
+import org.apache.commons.configuration.Configuration;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -66,6 +68,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.apache.atlas.model.impexp.AtlasExportRequest.*;
 
@@ -73,17 +80,26 @@ import static org.apache.atlas.model.impexp.AtlasExportRequest.*;
 public class ExportService {
     private static final Logger LOG = LoggerFactory.getLogger(ExportService.class);
 
+    public static final String FETCH_WORKERS_PROPERTY    = "atlas.export.fetch.workers";
+    public static final String FETCH_BATCH_SIZE_PROPERTY = "atlas.export.fetch.batch.size";
+    public static final int    DEFAULT_FETCH_WORKERS     = 1;
+    public static final int    DEFAULT_FETCH_BATCH_SIZE  = 100;
+
     private final AtlasTypeRegistry         typeRegistry;
     private final AtlasGraph                atlasGraph;
     private final EntityGraphRetriever      entityGraphRetriever;
     private final AtlasGremlinQueryProvider gremlinQueryProvider;
+    private final int                       numFetchWorkers;
+    private final int                       fetchBatchSize;
 
     @Inject
-    public ExportService(final AtlasTypeRegistry typeRegistry, AtlasGraph atlasGraph) throws AtlasBaseException {
+    public ExportService(final AtlasTypeRegistry typeRegistry, AtlasGraph atlasGraph, Configuration configuration) throws AtlasBaseException {
         this.typeRegistry         = typeRegistry;
         this.entityGraphRetriever = new EntityGraphRetriever(this.typeRegistry);
         this.atlasGraph           = atlasGraph;
         this.gremlinQueryProvider = AtlasGremlinQueryProvider.INSTANCE;
+        this.numFetchWorkers      = configuration != null ? Math.max(1, configuration.getInt(FETCH_WORKERS_PROPERTY, DEFAULT_FETCH_WORKERS)) : DEFAULT_FETCH_WORKERS;
+        this.fetchBatchSize       = configuration != null ? Math.max(1, configuration.getInt(FETCH_BATCH_SIZE_PROPERTY, DEFAULT_FETCH_BATCH_SIZE)) : DEFAULT_FETCH_BATCH_SIZE;
     }
 
     public AtlasExportResult run(ZipSink exportSink, AtlasExportRequest request, String userName, String hostName,
@@ -102,6 +118,7 @@ public class ExportService {
         } catch(Exception ex) {
             LOG.error("Operation failed: ", ex);
         } finally {
+            context.shutdownFetchers();
             atlasGraph.releaseGremlinScriptEngine(context.scriptEngine);
             LOG.info("<== export(user={}, from={}): status {}", userName, requestingIP, context.result.getOperationStatus());
             context.clear();
@@ -197,8 +214,12 @@ public class ExportService {
 
             while (!context.guidsToProcess.isEmpty()) {
                 while (!context.guidsToProcess.isEmpty()) {
-                    String guid = context.guidsToProcess.remove(0);
-                    processEntity(guid, context);
+                    if (context.fetchers == null) {
+                        String guid = context.guidsToProcess.remove(0);
+                        processEntity(guid, context);
+                    } else {
+                        processEntities(context.takeGuidsToProcess(), context);
+                    }
                 }
 
                 if (!context.lineageToProcess.isEmpty()) {
@@ -293,31 +314,57 @@ public class ExportService {
         }
 
         if (!context.guidsProcessed.contains(guid)) {
-            TraversalDirection      direction         = context.guidDirection.get(guid);
-            AtlasEntityWithExtInfo  entityWithExtInfo = entityGraphRetriever.toAtlasEntityWithExtInfo(guid);
-
-            if(!context.lineageProcessed.contains(guid)) {
-                context.result.getData().getEntityCreationOrder().add(entityWithExtInfo.getEntity().getGuid());
-            }
+            processEntity(guid, entityGraphRetriever.toAtlasEntityWithExtInfo(guid), context);
+        }
 
-            addEntity(entityWithExtInfo, context);
-            addTypes(entityWithExtInfo.getEntity(), context);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("<== processEntity({})", guid);
+        }
+    }
 
-            context.guidsProcessed.add(entityWithExtInfo.getEntity().getGuid());
-            getConntedEntitiesBasedOnOption(entityWithExtInfo.getEntity(), context, direction);
+    /**
+     * Fetches the given entities in parallel, each worker in its own read transaction, and processes them in the given
+     * order; entities are written to the sink, and connected entities are queued, only by the calling thread.
+     */
+    private void processEntities(List<String> guids, ExportContext context) throws AtlasBaseException {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("==> processEntities({} entities)", guids.size());
+        }
 
-            if(entityWithExtInfo.getReferredEntities() != null) {
-                for (AtlasEntity e : entityWithExtInfo.getReferredEntities().values()) {
-                    addTypes(e, context);
-                    getConntedEntitiesBasedOnOption(e, context, direction);
-                }
+        Map<String, AtlasEntityWithExtInfo> entities = context.fetchEntities(guids);
 
-                context.guidsProcessed.addAll(entityWithExtInfo.getReferredEntities().keySet());
+        for (String guid : guids) {
+            // an entity fetched in this batch might since have been exported as a referred entity of an earlier one
+            if (!context.guidsProcessed.contains(guid)) {
+                processEntity(guid, entities.get(guid), context);
             }
         }
 
         if (LOG.isDebugEnabled()) {
-            LOG.debug("<== processEntity({})", guid);
+            LOG.debug("<== processEntities({} entities)", guids.size());
+        }
+    }
+
+    private void processEntity(String guid, AtlasEntityWithExtInfo entityWithExtInfo, ExportContext context) throws AtlasBaseException {
+        TraversalDirection direction = context.guidDirection.get(guid);
+
+        if(!context.lineageProcessed.contains(guid)) {
+            context.result.getData().getEntityCreationOrder().add(entityWithExtInfo.getEntity().getGuid());
+        }
+
+        addEntity(entityWithExtInfo, context);
+        addTypes(entityWithExtInfo.getEntity(), context);
+
+        context.guidsProcessed.add(entityWithExtInfo.getEntity().getGuid());
+        getConntedEntitiesBasedOnOption(entityWithExtInfo.getEntity(), context, direction);
+
+        if(entityWithExtInfo.getReferredEntities() != null) {
+            for (AtlasEntity e : entityWithExtInfo.getReferredEntities().values()) {
+                addTypes(e, context);
+                getConntedEntitiesBasedOnOption(e, context, direction);
+            }
+
+            context.guidsProcessed.addAll(entityWithExtInfo.getReferredEntities().keySet());
         }
     }
 
@@ -678,6 +725,7 @@ public class ExportService {
         private final Map<String, Object> bindings;
         private final ExportFetchType     fetchType;
         private final String              matchType;
+        private final ExecutorService     fetchers;
 
         private       int                 progressReportCount = 0;
 
@@ -689,6 +737,7 @@ public class ExportService {
             bindings     = new HashMap<>();
             fetchType    = getFetchType(result.getRequest());
             matchType    = getMatchType(result.getRequest());
+            fetchers     = numFetchWorkers > 1 ? Executors.newFixedThreadPool(numFetchWorkers, new ThreadFactoryBuilder().setNameFormat("atlas-export-fetcher-%d").setDaemon(true).build()) : null;
         }
 
         private ExportFetchType getFetchType(AtlasExportRequest request) {
@@ -721,6 +770,76 @@ public class ExportService {
             guidDirection.clear();
         }
 
+        public List<String> takeGuidsToProcess() {
+            List<String> ret = new ArrayList<>();
+
+            while (!guidsToProcess.isEmpty() && ret.size() < fetchBatchSize) {
+                String guid = guidsToProcess.remove(0);
+
+                if (!guidsProcessed.contains(guid)) {
+                    ret.add(guid);
+                }
+            }
+
+            return ret;
+        }
+
+        public Map<String, AtlasEntityWithExtInfo> fetchEntities(List<String> guids) throws AtlasBaseException {
+            Map<String, AtlasEntityWithExtInfo>               ret     = new HashMap<>();
+            List<Future<Map<String, AtlasEntityWithExtInfo>>> futures = new ArrayList<>();
+
+            if (guids.isEmpty()) {
+                return ret;
+            }
+
+            int chunkSize = (guids.size() + numFetchWorkers - 1) / numFetchWorkers;
+
+            for (int i = 0; i < guids.size(); i += chunkSize) {
+                final List<String> chunk = guids.subList(i, Math.min(i + chunkSize, guids.size()));
+
+                futures.add(fetchers.submit(new Callable<Map<String, AtlasEntityWithExtInfo>>() {
+                    @Override
+                    public Map<String, AtlasEntityWithExtInfo> call() throws Exception {
+                        Map<String, AtlasEntityWithExtInfo> ret = new HashMap<>();
+
+                        try {
+                            for (String guid : chunk) {
+                                ret.put(guid, entityGraphRetriever.toAtlasEntityWithExtInfo(guid));
+                            }
+                        } finally {
+                            atlasGraph.rollback(); // end the read transaction of this worker thread
+                        }
+
+                        return ret;
+                    }
+                }));
+            }
+
+            try {
+                for (Future<Map<String, AtlasEntityWithExtInfo>> future : futures) {
+                    ret.putAll(future.get());
+                }
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+
+                throw new AtlasBaseException(excp);
+            } catch (ExecutionException excp) {
+                if (excp.getCause() instanceof AtlasBaseException) {
+                    throw (AtlasBaseException) excp.getCause();
+                }
+
+                throw new AtlasBaseException(excp.getCause());
+            }
+
+            return ret;
+        }
+
+        public void shutdownFetchers() {
+            if (fetchers != null) {
+                fetchers.shutdownNow();
+            }
+        }
+
         public void addToBeProcessed(boolean isSuperTypeProcess, String guid, TraversalDirection direction) {
             if(!isSuperTypeProcess) {
                 guidsToProcess.add(guid);
@@ -45,30 +45,25 @@ public class ZipSink {
     }
 
     public void add(AtlasEntity entity) throws AtlasBaseException {
-        String jsonData = convertToJSON(entity);
-        saveToZip(entity.getGuid(), jsonData);
+        saveToZip(entity.getGuid(), entity);
         recordAddedEntityGuids(entity);
     }
 
     public void add(AtlasEntity.AtlasEntityWithExtInfo entityWithExtInfo) throws AtlasBaseException {
-        String jsonData = convertToJSON(entityWithExtInfo);
-        saveToZip(entityWithExtInfo.getEntity().getGuid(), jsonData);
+        saveToZip(entityWithExtInfo.getEntity().getGuid(), entityWithExtInfo);
         recordAddedEntityGuids(entityWithExtInfo);
     }
 
     public void setResult(AtlasExportResult result) throws AtlasBaseException {
-        String jsonData = convertToJSON(result);
-        saveToZip(ZipExportFileNames.ATLAS_EXPORT_INFO_NAME, jsonData);
+        saveToZip(ZipExportFileNames.ATLAS_EXPORT_INFO_NAME, result);
     }
 
     public void setTypesDef(AtlasTypesDef typesDef) throws AtlasBaseException {
-        String jsonData = convertToJSON(typesDef);
-        saveToZip(ZipExportFileNames.ATLAS_TYPESDEF_NAME, jsonData);
+        saveToZip(ZipExportFileNames.ATLAS_TYPESDEF_NAME, typesDef);
     }
 
     public void setExportOrder(List<String> result) throws AtlasBaseException {
-        String jsonData = convertToJSON(result);
-        saveToZip(ZipExportFileNames.ATLAS_EXPORT_ORDER_NAME, jsonData);
+        saveToZip(ZipExportFileNames.ATLAS_EXPORT_ORDER_NAME, result);
     }
 
     public void close() {
@@ -82,28 +77,25 @@ public class ZipSink {
         }
     }
 
-    private String convertToJSON(Object entity) {
-        return AtlasType.toJson(entity);
+    private void saveToZip(ZipExportFileNames fileName, Object obj) throws AtlasBaseException {
+        saveToZip(fileName.toString(), obj);
     }
 
-    private void saveToZip(ZipExportFileNames fileName, String jsonData) throws AtlasBaseException {
-        saveToZip(fileName.toString(), jsonData);
-    }
-
-    private void saveToZip(String fileName, String jsonData) throws AtlasBaseException {
+    private void saveToZip(String fileName, Object obj) throws AtlasBaseException {
         try {
-            addToZipStream(fileName.toString() + ".json", jsonData);
+            addToZipStream(fileName.toString() + ".json", obj);
         } catch (IOException e) {
             throw new AtlasBaseException(String.format("Error writing file %s.", fileName), e);
         }
     }
 
-    private void addToZipStream(String entryName, String payload) throws IOException {
+    // JSON is written directly to the zip stream, instead of being built as a string first
+    private void addToZipStream(String entryName, Object obj) throws IOException {
 
         ZipEntry e = new ZipEntry(entryName);
         zipOutputStream.putNextEntry(e);
 
-        zipOutputStream.write(payload.getBytes());
+        AtlasType.toJson(obj, zipOutputStream);
         zipOutputStream.closeEntry();
     }
 
@@ -24,29 +24,41 @@ import org.apache.atlas.model.instance.AtlasEntity.AtlasEntityWithExtInfo;
 import org.apache.atlas.model.typedef.AtlasTypesDef;
 import org.apache.atlas.repository.store.graph.v1.EntityImportStream;
 import org.apache.atlas.type.AtlasType;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
+import java.io.OutputStream;
+import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
-
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 
+/**
+ * Reads an export zip. Entries are read from the zip file on demand, instead of loading the whole export in memory;
+ * an export received as a stream is first spooled to a temporary file, which is deleted on close().
+ */
 public class ZipSource implements EntityImportStream {
     private static final Logger LOG = LoggerFactory.getLogger(ZipSource.class);
 
-    private final InputStream    inputStream;
-    private List<String>         creationOrder;
-    private Iterator<String>     iterator;
-    private Map<String, String>  guidEntityJsonMap;
-    private ImportTransforms     importTransform;
+    private final InputStream            inputStream;
+    private final File                   spoolFile;
+    private final Map<String, ZipEntry>  guidZipEntryMap;
+    private ZipFile                      zipFile;
+    private List<String>                 creationOrder;
+    private Iterator<String>             iterator;
+    private ImportTransforms             importTransform;
     private int currentPosition;
 
     public ZipSource(InputStream inputStream) throws IOException {
@@ -54,11 +66,36 @@ public class ZipSource implements EntityImportStream {
     }
 
     public ZipSource(InputStream inputStream, ImportTransforms importTransform) throws IOException {
-        this.inputStream       = inputStream;
-        this.guidEntityJsonMap = new HashMap<>();
-        this.importTransform   = importTransform;
+        this.inputStream     = inputStream;
+        this.spoolFile       = spool(inputStream);
+        this.guidZipEntryMap = new ConcurrentHashMap<>(); // entities are looked up by parallel import workers
+        this.importTransform = importTransform;
+
+        boolean isInitialized = false;
+
+        try {
+            updateGuidZipEntryMap(spoolFile);
+            setCreationOrder();
+
+            isInitialized = true;
+        } finally {
+            if (!isInitialized) { // delete the spool file, as the caller can't close this instance
+                close();
+            }
+        }
+    }
+
+    public ZipSource(File file, ImportTransforms importTransform) throws IOException {
+        if (!file.isFile()) {
+            throw new FileNotFoundException(file.getPath());
+        }
+
+        this.inputStream     = null;
+        this.spoolFile       = null;
+        this.guidZipEntryMap = new ConcurrentHashMap<>();
+        this.importTransform = importTransform;
 
-        updateGuidZipEntryMap();
+        updateGuidZipEntryMap(file);
         setCreationOrder();
     }
 
@@ -71,7 +108,7 @@ public class ZipSource implements EntityImportStream {
     public AtlasTypesDef getTypesDef() throws AtlasBaseException {
         final String fileName = ZipExportFileNames.ATLAS_TYPESDEF_NAME.toString();
 
-        String s = (String) getFromCache(fileName);
+        String s = getFromCache(fileName);
         return convertFromJson(AtlasTypesDef.class, s);
     }
 
@@ -94,29 +131,37 @@ public class ZipSource implements EntityImportStream {
         }
     }
 
-    private void updateGuidZipEntryMap() throws IOException {
-
-        ZipInputStream zipInputStream = new ZipInputStream(inputStream);
-        ZipEntry zipEntry = zipInputStream.getNextEntry();
-        while (zipEntry != null) {
-            String entryName = zipEntry.getName().replace(".json", "");
+    private static File spool(InputStream inputStream) throws IOException {
+        File ret = File.createTempFile("atlas-import-", ".zip");
 
-            if (guidEntityJsonMap.containsKey(entryName)) continue;
+        try (OutputStream outputStream = new FileOutputStream(ret)) {
+            IOUtils.copy(inputStream, outputStream);
+        } catch (IOException excp) {
+            FileUtils.deleteQuietly(ret);
 
-            byte[] buf = new byte[1024];
+            throw excp;
+        }
 
-            int n = 0;
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            while ((n = zipInputStream.read(buf, 0, 1024)) > -1) {
-                bos.write(buf, 0, n);
-            }
+        return ret;
+    }
 
-            guidEntityJsonMap.put(entryName, bos.toString());
-            zipEntry = zipInputStream.getNextEntry();
+    private void updateGuidZipEntryMap(File file) throws IOException {
+        try {
+            zipFile = new ZipFile(file);
+        } catch (ZipException excp) {
+            LOG.error("{}: not a valid zip file", file, excp);
 
+            return;
         }
 
-        zipInputStream.close();
+        for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements(); ) {
+            ZipEntry zipEntry  = entries.nextElement();
+            String   entryName = zipEntry.getName().replace(".json", "");
+
+            if (!guidZipEntryMap.containsKey(entryName)) {
+                guidZipEntryMap.put(entryName, zipEntry);
+            }
+        }
     }
 
     public List<String> getCreationOrder() throws AtlasBaseException {
@@ -125,6 +170,11 @@ public class ZipSource implements EntityImportStream {
 
     public AtlasEntity.AtlasEntityWithExtInfo getEntityWithExtInfo(String guid) throws AtlasBaseException {
         String s = getFromCache(guid);
+
+        if (s == null) { // already imported
+            return null;
+        }
+
         AtlasEntity.AtlasEntityWithExtInfo entityWithExtInfo = convertFromJson(AtlasEntity.AtlasEntityWithExtInfo.class, s);
 
         if (importTransform != null) {
@@ -143,17 +193,39 @@ public class ZipSource implements EntityImportStream {
         }
     }
 
-    private String getFromCache(String entryName) {
-        return guidEntityJsonMap.get(entryName);
+    private String getFromCache(String entryName) throws AtlasBaseException {
+        ZipEntry zipEntry = guidZipEntryMap.get(entryName);
+
+        if (zipEntry == null) {
+            return null;
+        }
+
+        try (InputStream entryStream = zipFile.getInputStream(zipEntry)) {
+            return IOUtils.toString(entryStream, "UTF-8");
+        } catch (IOException e) {
+            throw new AtlasBaseException(String.format("Error reading '%s' from zip.", entryName), e);
+        }
     }
 
     public void close() {
+        guidZipEntryMap.clear();
+
         try {
-            inputStream.close();
-            guidEntityJsonMap.clear();
+            if (zipFile != null) {
+                zipFile.close();
+                zipFile = null;
+            }
+
+            if (inputStream != null) {
+                inputStream.close();
+            }
         }
         catch(IOException ex) {
-            LOG.warn("{}: Error closing streams.");
+            LOG.warn("Error closing zip source", ex);
+        } finally {
+            if (spoolFile != null) {
+                FileUtils.deleteQuietly(spoolFile);
+            }
         }
     }
 
@@ -202,7 +274,7 @@ public class ZipSource implements EntityImportStream {
     }
 
     private AtlasEntity getEntity(String guid) throws AtlasBaseException {
-        if(guidEntityJsonMap.containsKey(guid)) {
+        if(guidZipEntryMap.containsKey(guid)) {
             AtlasEntityWithExtInfo extInfo = getEntityWithExtInfo(guid);
             return (extInfo != null) ? extInfo.getEntity() : null;
         }
@@ -216,7 +288,7 @@ public class ZipSource implements EntityImportStream {
 
     @Override
     public void onImportComplete(String guid) {
-        guidEntityJsonMap.remove(guid);
+        guidZipEntryMap.remove(guid);
     }
 
 
@@ -22,6 +22,7 @@ import org.apache.atlas.model.impexp.AtlasImportResult;
 import org.apache.atlas.model.instance.AtlasClassification;
 import org.apache.atlas.model.instance.AtlasEntity.AtlasEntitiesWithExtInfo;
 import org.apache.atlas.model.instance.AtlasEntity.AtlasEntityWithExtInfo;
+import org.apache.atlas.model.instance.ClassificationAssociateResponse;
 import org.apache.atlas.model.instance.EntityMutationResponse;
 import org.apache.atlas.repository.store.graph.v1.EntityImportStream;
 import org.apache.atlas.repository.store.graph.v1.EntityStream;
@@ -76,6 +77,14 @@ public interface AtlasEntityStore {
      */
     EntityMutationResponse bulkImport(EntityImportStream entityStream, AtlasImportResult importResult) throws AtlasBaseException;
 
+    /**
+     * Create or update entities of a batch of an import, replacing their classifications, in a transaction
+     * @param entityStream entities of the batch
+     * @return EntityMutationResponse Entity mutations operations with the corresponding set of entities on which these operations were performed
+     * @throws AtlasBaseException
+     */
+    EntityMutationResponse createOrUpdateForImport(EntityStream entityStream) throws AtlasBaseException;
+
     /**
      * Update a single entity
      * @param entityType     type of the entity
@@ -131,6 +140,16 @@ public interface AtlasEntityStore {
 
     void addClassification(List<String> guids, AtlasClassification classification) throws AtlasBaseException;
 
+    /**
+     * Add a classification to entities, in a single transaction. Unlike addClassification(), entities that are not
+     * found or are already associated with the classification are skipped and reported in the response.
+     * @param guids guids of entities to add the classification to
+     * @param classification classification to add
+     * @return guids of entities the classification was added to, and of entities skipped along with the reason
+     * @throws AtlasBaseException if the classification is not valid
+     */
+    ClassificationAssociateResponse addClassificationToEntities(List<String> guids, AtlasClassification classification) throws AtlasBaseException;
+
     /**
      * Delete classification(s)
      */
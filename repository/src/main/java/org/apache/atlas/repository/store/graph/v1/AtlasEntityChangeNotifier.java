@@ -18,19 +18,20 @@
 package org.apache.atlas.repository.store.graph.v1;
 
 
-import org.apache.atlas.AtlasErrorCode;
 import org.apache.atlas.AtlasException;
+import org.apache.atlas.discovery.LineageCache;
 import org.apache.atlas.exception.AtlasBaseException;
-import org.apache.atlas.listener.EntityChangeListener;
 import org.apache.atlas.model.instance.AtlasClassification;
 import org.apache.atlas.model.instance.AtlasEntityHeader;
 import org.apache.atlas.model.instance.EntityMutationResponse;
 import org.apache.atlas.model.instance.EntityMutations.EntityOperation;
-import org.apache.atlas.repository.Constants;
 import org.apache.atlas.repository.converters.AtlasInstanceConverter;
+import org.apache.atlas.repository.graph.FullTextIndexUpdater;
 import org.apache.atlas.repository.graph.FullTextMapperV2;
-import org.apache.atlas.repository.graph.GraphHelper;
+import org.apache.atlas.repository.graph.FullTextSegments;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.repository.store.graph.v1.EntityChangeNotificationDispatcher.EntityChangeEvent;
+import org.apache.atlas.repository.store.graph.v1.EntityChangeNotificationDispatcher.EntityChangeEvent.EventType;
 import org.apache.atlas.typesystem.ITypedReferenceableInstance;
 import org.apache.atlas.typesystem.ITypedStruct;
 import org.apache.atlas.util.AtlasRepositoryConfiguration;
@@ -44,28 +45,35 @@ import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 
 
 @Component
 public class AtlasEntityChangeNotifier {
     private static final Logger LOG = LoggerFactory.getLogger(AtlasEntityChangeNotifier.class);
 
-    private final Set<EntityChangeListener> entityChangeListeners;
-    private final AtlasInstanceConverter    instanceConverter;
+    private final EntityChangeNotificationDispatcher dispatcher;
+    private final AtlasInstanceConverter             instanceConverter;
 
     @Inject
     private FullTextMapperV2 fullTextMapperV2;
 
     @Inject
-    public AtlasEntityChangeNotifier(Set<EntityChangeListener> entityChangeListeners,
-                                     AtlasInstanceConverter    instanceConverter) {
-        this.entityChangeListeners = entityChangeListeners;
-        this.instanceConverter     = instanceConverter;
+    private FullTextIndexUpdater fullTextIndexUpdater;
+
+    @Inject
+    public AtlasEntityChangeNotifier(EntityChangeNotificationDispatcher dispatcher,
+                                     AtlasInstanceConverter             instanceConverter) {
+        this.dispatcher        = dispatcher;
+        this.instanceConverter = instanceConverter;
     }
 
     public void onEntitiesMutated(EntityMutationResponse entityMutationResponse, boolean isImport) throws AtlasBaseException {
-        if (CollectionUtils.isEmpty(entityChangeListeners) || instanceConverter == null) {
+        recordLineageChanges(entityMutationResponse.getCreatedEntities());
+        recordLineageChanges(entityMutationResponse.getUpdatedEntities());
+        recordLineageChanges(entityMutationResponse.getPartialUpdatedEntities());
+        recordLineageChanges(entityMutationResponse.getDeletedEntities());
+
+        if (!dispatcher.hasListeners() || instanceConverter == null) {
             return;
         }
 
@@ -87,8 +95,9 @@ public class AtlasEntityChangeNotifier {
     }
 
     public void onClassificationAddedToEntity(String entityId, List<AtlasClassification> classifications) throws AtlasBaseException {
-        // Only new classifications need to be used for a partial full text string which can be
-        // appended to the existing fullText
+        LineageCache.getInstance().recordInvalidation(entityId);
+
+        // Only full text segments of new classifications need to be computed
         updateFullTextMapping(entityId, classifications);
 
         ITypedReferenceableInstance entity = toITypedReferenceable(entityId);
@@ -98,18 +107,32 @@ public class AtlasEntityChangeNotifier {
             return;
         }
 
-        for (EntityChangeListener listener : entityChangeListeners) {
-            try {
-                listener.onTraitsAdded(entity, traits);
-            } catch (AtlasException e) {
-                throw new AtlasBaseException(AtlasErrorCode.NOTIFICATION_FAILED, e, getListenerName(listener), "TraitAdd");
+        dispatcher.notifyListeners(new EntityChangeEvent(EventType.TRAITS_ADDED, entity, traits, null));
+    }
+
+    public void onClassificationAddedToEntities(List<String> entityIds, AtlasClassification classification) throws AtlasBaseException {
+        List<AtlasClassification> classifications = Collections.singletonList(classification);
+        List<ITypedStruct>        traits          = toITypedStructs(classifications);
+
+        for (String entityId : entityIds) {
+            LineageCache.getInstance().recordInvalidation(entityId);
+            updateFullTextMapping(entityId, classifications);
+
+            ITypedReferenceableInstance entity = toITypedReferenceable(entityId);
+
+            if (entity == null || CollectionUtils.isEmpty(traits)) {
+                continue;
             }
+
+            dispatcher.notifyListeners(new EntityChangeEvent(EventType.TRAITS_ADDED, entity, traits, null));
         }
     }
 
     public void onClassificationDeletedFromEntity(String entityId, List<String> traitNames) throws AtlasBaseException {
-        // Since the entity has already been modified in the graph, we need to recursively remap the entity
-        doFullTextMapping(entityId);
+        LineageCache.getInstance().recordInvalidation(entityId);
+
+        // Only full text segments of deleted classifications need to be removed
+        removeFullTextMapping(entityId, traitNames);
 
         ITypedReferenceableInstance entity = toITypedReferenceable(entityId);
 
@@ -117,18 +140,14 @@ public class AtlasEntityChangeNotifier {
             return;
         }
 
-        for (EntityChangeListener listener : entityChangeListeners) {
-            try {
-                listener.onTraitsDeleted(entity, traitNames);
-            } catch (AtlasException e) {
-                throw new AtlasBaseException(AtlasErrorCode.NOTIFICATION_FAILED, e, getListenerName(listener), "TraitDelete");
-            }
-        }
+        dispatcher.notifyListeners(new EntityChangeEvent(EventType.TRAITS_DELETED, entity, null, traitNames));
     }
 
     public void onClassificationUpdatedToEntity(String entityId, List<AtlasClassification> classifications) throws AtlasBaseException {
-        // Since the classification attributes are updated in the graph, we need to recursively remap the entityText
-        doFullTextMapping(entityId);
+        LineageCache.getInstance().recordInvalidation(entityId);
+
+        // Only full text segments of updated classifications need to be recomputed
+        updateFullTextMapping(entityId, classifications);
 
         ITypedReferenceableInstance entity = toITypedReferenceable(entityId);
         List<ITypedStruct>          traits = toITypedStructs(classifications);
@@ -137,17 +156,20 @@ public class AtlasEntityChangeNotifier {
             return;
         }
 
-        for (EntityChangeListener listener : entityChangeListeners) {
-            try {
-                listener.onTraitsUpdated(entity, traits);
-            } catch (AtlasException e) {
-                throw new AtlasBaseException(AtlasErrorCode.NOTIFICATION_FAILED, e, getListenerName(listener), "TraitUpdate");
-            }
-        }
+        dispatcher.notifyListeners(new EntityChangeEvent(EventType.TRAITS_UPDATED, entity, traits, null));
     }
 
-    private String getListenerName(EntityChangeListener listener) {
-        return listener.getClass().getSimpleName();
+    // cached lineage that includes these entities, or inputs/outputs of processes among them, is removed after the transaction
+    private void recordLineageChanges(List<AtlasEntityHeader> entityHeaders) {
+        if (CollectionUtils.isEmpty(entityHeaders)) {
+            return;
+        }
+
+        LineageCache lineageCache = LineageCache.getInstance();
+
+        for (AtlasEntityHeader entityHeader : entityHeaders) {
+            lineageCache.recordEntityChange(entityHeader.getGuid());
+        }
     }
 
     private void notifyListeners(List<AtlasEntityHeader> entityHeaders, EntityOperation operation, boolean isImport) throws AtlasBaseException {
@@ -156,25 +178,24 @@ public class AtlasEntityChangeNotifier {
         }
 
         List<ITypedReferenceableInstance> typedRefInsts = toITypedReferenceable(entityHeaders);
-
-        for (EntityChangeListener listener : entityChangeListeners) {
-            try {
-                switch (operation) {
-                    case CREATE:
-                        listener.onEntitiesAdded(typedRefInsts, isImport);
-                        break;
-                    case UPDATE:
-                    case PARTIAL_UPDATE:
-                        listener.onEntitiesUpdated(typedRefInsts, isImport);
-                        break;
-                    case DELETE:
-                        listener.onEntitiesDeleted(typedRefInsts, isImport);
-                        break;
-                }
-            } catch (AtlasException e) {
-                throw new AtlasBaseException(AtlasErrorCode.NOTIFICATION_FAILED, e, getListenerName(listener), operation.toString());
-            }
+        EventType                         eventType;
+
+        switch (operation) {
+            case CREATE:
+                eventType = EventType.ENTITIES_ADDED;
+                break;
+            case UPDATE:
+            case PARTIAL_UPDATE:
+                eventType = EventType.ENTITIES_UPDATED;
+                break;
+            case DELETE:
+                eventType = EventType.ENTITIES_DELETED;
+                break;
+            default:
+                return;
         }
+
+        dispatcher.notifyListeners(new EntityChangeEvent(eventType, isImport, typedRefInsts));
     }
 
     private List<ITypedReferenceableInstance> toITypedReferenceable(List<AtlasEntityHeader> entityHeaders) throws AtlasBaseException {
@@ -214,16 +235,24 @@ public class AtlasEntityChangeNotifier {
     }
 
     private void doFullTextMapping(List<AtlasEntityHeader> atlasEntityHeaders) {
-        if (CollectionUtils.isEmpty(atlasEntityHeaders)) {
+        if (CollectionUtils.isEmpty(atlasEntityHeaders) || !isFullTextSearchEnabled()) {
             return;
         }
 
-        try {
-            if(!AtlasRepositoryConfiguration.isFullTextSearchEnabled()) {
-                return;
+        if (fullTextIndexUpdater != null && fullTextIndexUpdater.isDeferred()) {
+            List<AtlasVertex> vertices = new ArrayList<>(atlasEntityHeaders.size());
+
+            for (AtlasEntityHeader atlasEntityHeader : atlasEntityHeaders) {
+                AtlasVertex atlasVertex = AtlasGraphUtilsV1.findByGuid(atlasEntityHeader.getGuid());
+
+                if (atlasVertex != null) {
+                    vertices.add(atlasVertex);
+                }
             }
-        } catch (AtlasException e) {
-            LOG.warn("Unable to determine if FullText is disabled. Proceeding with FullText mapping");
+
+            fullTextIndexUpdater.scheduleUpdate(vertices);
+
+            return;
         }
 
         for (AtlasEntityHeader atlasEntityHeader : atlasEntityHeaders) {
@@ -235,9 +264,11 @@ public class AtlasEntityChangeNotifier {
             }
 
             try {
-                String fullText = fullTextMapperV2.getIndexTextForEntity(guid);
+                FullTextSegments segments = fullTextMapperV2.getIndexTextSegments(guid);
 
-                GraphHelper.setProperty(atlasVertex, Constants.ENTITY_TEXT_PROPERTY_KEY, fullText);
+                if (segments != null) {
+                    segments.toVertex(atlasVertex);
+                }
             } catch (AtlasBaseException e) {
                 LOG.error("FullText mapping failed for Vertex[ guid = {} ]", guid, e);
             }
@@ -245,37 +276,62 @@ public class AtlasEntityChangeNotifier {
     }
 
     private void updateFullTextMapping(String entityId, List<AtlasClassification> classifications) {
+        if (StringUtils.isEmpty(entityId) || CollectionUtils.isEmpty(classifications) || !isFullTextSearchEnabled()) {
+            return;
+        }
+
+        AtlasVertex      atlasVertex = AtlasGraphUtilsV1.findByGuid(entityId);
+        FullTextSegments segments    = atlasVertex != null ? FullTextSegments.fromVertex(atlasVertex) : null;
+
+        if (segments == null) { // segments not available for entities mapped earlier; remap the entity
+            doFullTextMapping(entityId);
+
+            return;
+        }
+
         try {
-            if(!AtlasRepositoryConfiguration.isFullTextSearchEnabled()) {
-                return;
+            for (AtlasClassification classification : classifications) {
+                if (classification != null) {
+                    segments.setClassificationText(classification.getTypeName(),
+                                                   fullTextMapperV2.getIndexTextForClassification(entityId, classification));
+                }
             }
-        } catch (AtlasException e) {
-            LOG.warn("Unable to determine if FullText is disabled. Proceeding with FullText mapping");
+
+            segments.toVertex(atlasVertex);
+        } catch (AtlasBaseException e) {
+            LOG.error("FullText mapping failed for Vertex[ guid = {} ]", entityId, e);
         }
+    }
 
-        if (StringUtils.isEmpty(entityId) || CollectionUtils.isEmpty(classifications)) {
+    private void removeFullTextMapping(String entityId, List<String> classificationNames) {
+        if (StringUtils.isEmpty(entityId) || CollectionUtils.isEmpty(classificationNames) || !isFullTextSearchEnabled()) {
             return;
         }
 
-        AtlasVertex atlasVertex = AtlasGraphUtilsV1.findByGuid(entityId);
-        if(atlasVertex == null) {
+        AtlasVertex      atlasVertex = AtlasGraphUtilsV1.findByGuid(entityId);
+        FullTextSegments segments    = atlasVertex != null ? FullTextSegments.fromVertex(atlasVertex) : null;
+
+        if (segments == null) { // segments not available for entities mapped earlier; remap the entity
+            doFullTextMapping(entityId);
+
             return;
         }
 
-        if (atlasVertex == null) {
-            LOG.warn("updateFullTextMapping(): no entity exists with guid {}", entityId);
-            return;
+        for (String classificationName : classificationNames) {
+            segments.removeClassificationText(classificationName);
         }
 
-        try {
-            String classificationFullText = fullTextMapperV2.getIndexTextForClassifications(entityId, classifications);
-            String existingFullText = (String) GraphHelper.getProperty(atlasVertex, Constants.ENTITY_TEXT_PROPERTY_KEY);
+        segments.toVertex(atlasVertex);
+    }
 
-            String newFullText = existingFullText + " " + classificationFullText;
-            GraphHelper.setProperty(atlasVertex, Constants.ENTITY_TEXT_PROPERTY_KEY, newFullText);
-        } catch (AtlasBaseException e) {
-            LOG.error("FullText mapping failed for Vertex[ guid = {} ]", entityId, e);
+    private boolean isFullTextSearchEnabled() {
+        try {
+            return AtlasRepositoryConfiguration.isFullTextSearchEnabled();
+        } catch (AtlasException e) {
+            LOG.warn("Unable to determine if FullText is disabled. Proceeding with FullText mapping");
         }
+
+        return true;
     }
 
     private void doFullTextMapping(String guid) {
@@ -18,11 +18,16 @@
 package org.apache.atlas.repository.store.graph.v1;
 
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasErrorCode;
+import org.apache.atlas.AtlasException;
 import org.apache.atlas.GraphTransactionInterceptor;
+import org.apache.atlas.RequestContext;
 import org.apache.atlas.RequestContextV1;
 import org.apache.atlas.annotation.GraphTransaction;
 import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.impexp.AtlasImportRequest;
 import org.apache.atlas.model.impexp.AtlasImportResult;
 import org.apache.atlas.model.instance.AtlasClassification;
 import org.apache.atlas.model.instance.AtlasEntity;
@@ -30,7 +35,10 @@ import org.apache.atlas.model.instance.AtlasEntity.AtlasEntitiesWithExtInfo;
 import org.apache.atlas.model.instance.AtlasEntity.AtlasEntityWithExtInfo;
 import org.apache.atlas.model.instance.AtlasEntityHeader;
 import org.apache.atlas.model.instance.AtlasObjectId;
+import org.apache.atlas.model.instance.AtlasStruct;
+import org.apache.atlas.model.instance.ClassificationAssociateResponse;
 import org.apache.atlas.model.instance.EntityMutationResponse;
+import org.apache.atlas.repository.graph.GraphHelper;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
 import org.apache.atlas.repository.store.graph.AtlasEntityStore;
 import org.apache.atlas.repository.store.graph.EntityGraphDiscovery;
@@ -49,14 +57,24 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
+import javax.inject.Provider;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.apache.atlas.model.instance.EntityMutations.EntityOperation.DELETE;
 import static org.apache.atlas.model.instance.EntityMutations.EntityOperation.UPDATE;
@@ -66,22 +84,40 @@ import static org.apache.atlas.model.instance.EntityMutations.EntityOperation.UP
 public class AtlasEntityStoreV1 implements AtlasEntityStore {
     private static final Logger LOG = LoggerFactory.getLogger(AtlasEntityStoreV1.class);
 
-    private final DeleteHandlerV1           deleteHandler;
-    private final AtlasTypeRegistry         typeRegistry;
-    private final AtlasEntityChangeNotifier entityChangeNotifier;
-    private final EntityGraphMapper         entityGraphMapper;
+    public static final String IMPORT_BATCH_SIZE_PROPERTY  = "atlas.import.batch.size";
+    public static final String IMPORT_NUM_WORKERS_PROPERTY = "atlas.import.num.workers";
+    public static final int    DEFAULT_IMPORT_BATCH_SIZE   = 1000;
+    public static final int    DEFAULT_IMPORT_NUM_WORKERS  = 1;
+
+    private final DeleteHandlerV1            deleteHandler;
+    private final AtlasTypeRegistry          typeRegistry;
+    private final AtlasEntityChangeNotifier  entityChangeNotifier;
+    private final EntityGraphMapper          entityGraphMapper;
+    private final Provider<AtlasEntityStore> transactionalStoreProvider;
 
-    @Inject
     public AtlasEntityStoreV1(DeleteHandlerV1 deleteHandler, AtlasTypeRegistry typeRegistry,
                               AtlasEntityChangeNotifier entityChangeNotifier, EntityGraphMapper entityGraphMapper) {
-        this.deleteHandler        = deleteHandler;
-        this.typeRegistry         = typeRegistry;
-        this.entityChangeNotifier = entityChangeNotifier;
-        this.entityGraphMapper    = entityGraphMapper;
+        this(deleteHandler, typeRegistry, entityChangeNotifier, entityGraphMapper, null);
+    }
+
+    /**
+     * @param transactionalStoreProvider provides this store as wrapped by the container, so that import batches are
+     *                                   run through the @GraphTransaction interceptor; batches are imported through
+     *                                   this instance if null
+     */
+    @Inject
+    public AtlasEntityStoreV1(DeleteHandlerV1 deleteHandler, AtlasTypeRegistry typeRegistry,
+                              AtlasEntityChangeNotifier entityChangeNotifier, EntityGraphMapper entityGraphMapper,
+                              Provider<AtlasEntityStore> transactionalStoreProvider) {
+        this.deleteHandler              = deleteHandler;
+        this.typeRegistry               = typeRegistry;
+        this.entityChangeNotifier       = entityChangeNotifier;
+        this.entityGraphMapper          = entityGraphMapper;
+        this.transactionalStoreProvider = transactionalStoreProvider;
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public AtlasEntityWithExtInfo getById(String guid) throws AtlasBaseException {
         if (LOG.isDebugEnabled()) {
             LOG.debug("==> getById({})", guid);
@@ -103,7 +139,7 @@ public class AtlasEntityStoreV1 implements AtlasEntityStore {
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public AtlasEntitiesWithExtInfo getByIds(List<String> guids) throws AtlasBaseException {
         if (LOG.isDebugEnabled()) {
             LOG.debug("==> getByIds({})", guids);
@@ -121,7 +157,7 @@ public class AtlasEntityStoreV1 implements AtlasEntityStore {
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public AtlasEntityWithExtInfo getByUniqueAttributes(AtlasEntityType entityType, Map<String, Object> uniqAttributes)
             throws AtlasBaseException {
         if (LOG.isDebugEnabled()) {
@@ -146,8 +182,12 @@ public class AtlasEntityStoreV1 implements AtlasEntityStore {
         return ret;
     }
 
+    /**
+     * Imports entities from the stream, committing every batch of entities in its own transaction, through
+     * createOrUpdateForImport(); hence, on failure, entities in batches already committed stay imported, and the
+     * import can be resumed from the logged position. This method must not be called in a transaction.
+     */
     @Override
-    @GraphTransaction
     public EntityMutationResponse bulkImport(EntityImportStream entityStream, AtlasImportResult importResult) throws AtlasBaseException {
         if (LOG.isDebugEnabled()) {
             LOG.debug("==> bulkImport()");
@@ -157,71 +197,36 @@ public class AtlasEntityStoreV1 implements AtlasEntityStore {
             throw new AtlasBaseException(AtlasErrorCode.INVALID_PARAMETERS, "no entities to create/update.");
         }
 
-        EntityMutationResponse ret = new EntityMutationResponse();
-        ret.setGuidAssignments(new HashMap<String, String>());
+        AtlasImportRequest request    = importResult.getRequest();
+        int                batchSize  = getImportOption(request != null ? request.getBatchSize() : null, IMPORT_BATCH_SIZE_PROPERTY, DEFAULT_IMPORT_BATCH_SIZE);
+        int                numWorkers = getImportOption(request != null ? request.getNumWorkers() : null, IMPORT_NUM_WORKERS_PROPERTY, DEFAULT_IMPORT_NUM_WORKERS);
 
-        Set<String> processedGuids = new HashSet<>();
-        float       currentPercent = 0f;
-
-        List<String> residualList = new ArrayList<>();
-        EntityImportStreamWithResidualList entityImportStreamWithResidualList = new EntityImportStreamWithResidualList(entityStream, residualList);
-        while (entityImportStreamWithResidualList.hasNext()) {
-            AtlasEntityWithExtInfo entityWithExtInfo = entityImportStreamWithResidualList.getNextEntityWithExtInfo();
-            AtlasEntity            entity            = entityWithExtInfo != null ? entityWithExtInfo.getEntity() : null;
-
-            if (entity == null || processedGuids.contains(entity.getGuid())) {
-                continue;
-            }
-
-            AtlasEntityStreamForImport oneEntityStream = new AtlasEntityStreamForImport(entityWithExtInfo, entityStream);
-            try {
-                EntityMutationResponse resp = createOrUpdate(oneEntityStream, false, true);
-
-                if (resp.getGuidAssignments() != null) {
-                    ret.getGuidAssignments().putAll(resp.getGuidAssignments());
-                }
-
-                currentPercent = updateImportMetrics(entityWithExtInfo, resp, importResult, processedGuids, entityStream.getPosition(),
-                                                     entityImportStreamWithResidualList.getStreamSize(), currentPercent);
-
-                entityStream.onImportComplete(entity.getGuid());
-            } catch (AtlasBaseException e) {
-                if (!updateResidualList(e, residualList, entityWithExtInfo.getEntity().getGuid())) {
-                    throw e;
-                }
-            }
-        }
+        EntityImporter         importer = new EntityImporter(entityStream, importResult, batchSize, numWorkers);
+        EntityMutationResponse ret      = importer.run();
 
-        importResult.getProcessedEntities().addAll(processedGuids);
-        LOG.info("bulkImport(): done. Total number of entities (including referred entities) imported: {}", processedGuids.size());
+        LOG.info("bulkImport(): done. Total number of entities (including referred entities) imported: {}", importResult.getProcessedEntities().size());
 
         return ret;
     }
 
-    private boolean updateResidualList(AtlasBaseException e, List<String> lineageList, String guid) {
-        if (!e.getAtlasErrorCode().getErrorCode().equals(AtlasErrorCode.INVALID_OBJECT_ID.getErrorCode())) {
-            return false;
+    private static int getImportOption(String requestValue, String propertyName, int defaultValue) {
+        int ret = defaultValue;
+
+        try {
+            if (StringUtils.isNotEmpty(requestValue)) {
+                ret = Integer.parseInt(requestValue);
+            } else {
+                ret = ApplicationProperties.get().getInt(propertyName, defaultValue);
+            }
+        } catch (NumberFormatException | AtlasException excp) {
+            LOG.warn("bulkImport(): invalid value for {}; using default {}", propertyName, defaultValue, excp);
         }
 
-        lineageList.add(guid);
-        return true;
+        return Math.max(1, ret);
     }
 
-    private float updateImportMetrics(AtlasEntityWithExtInfo currentEntity,
-                                      EntityMutationResponse resp,
-                                      AtlasImportResult importResult,
-                                      Set<String> processedGuids,
-                                      int currentIndex, int streamSize, float currentPercent) {
-        updateImportMetrics("entity:%s:created", resp.getCreatedEntities(), processedGuids, importResult);
-        updateImportMetrics("entity:%s:updated", resp.getUpdatedEntities(), processedGuids, importResult);
-        updateImportMetrics("entity:%s:deleted", resp.getDeletedEntities(), processedGuids, importResult);
-
-        String lastEntityImported = String.format("entity:last-imported:%s:[%s]:(%s)",
-                currentEntity.getEntity().getTypeName(),
-                currentIndex,
-                currentEntity.getEntity().getGuid());
-
-        return updateImportProgress(LOG, currentIndex + 1, streamSize, currentPercent, lastEntityImported);
+    private static boolean isInvalidObjectIdError(AtlasBaseException e) {
+        return e.getAtlasErrorCode().getErrorCode().equals(AtlasErrorCode.INVALID_OBJECT_ID.getErrorCode());
     }
 
     private static float updateImportProgress(Logger log, int currentIndex, int streamSize, float currentPercent,
@@ -288,6 +293,12 @@ public class AtlasEntityStoreV1 implements AtlasEntityStore {
         return createOrUpdate(entityStream, isPartialUpdate, false);
     }
 
+    @Override
+    @GraphTransaction
+    public EntityMutationResponse createOrUpdateForImport(EntityStream entityStream) throws AtlasBaseException {
+        return createOrUpdate(entityStream, false, true);
+    }
+
     @Override
     @GraphTransaction
     public EntityMutationResponse updateByUniqueAttributes(AtlasEntityType entityType, Map<String, Object> uniqAttributes,
@@ -563,6 +574,54 @@ public class AtlasEntityStoreV1 implements AtlasEntityStore {
 
     }
 
+    @Override
+    @GraphTransaction
+    public ClassificationAssociateResponse addClassificationToEntities(final List<String> guids, final AtlasClassification classification) throws AtlasBaseException {
+        if (CollectionUtils.isEmpty(guids)) {
+            throw new AtlasBaseException(AtlasErrorCode.INVALID_PARAMETERS, "Guid(s) not specified");
+        }
+        if (classification == null) {
+            throw new AtlasBaseException(AtlasErrorCode.INVALID_PARAMETERS, "classification not specified");
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Adding classification={} to {} entities", classification, guids.size());
+        }
+
+        validateAndNormalize(classification);
+
+        Set<String> uniqueGuids = new LinkedHashSet<>(guids);
+
+        GraphTransactionInterceptor.lockObjectAndReleasePostCommit(new ArrayList<>(uniqueGuids));
+
+        ClassificationAssociateResponse ret                = new ClassificationAssociateResponse();
+        Map<String, AtlasVertex>        vertices           = AtlasGraphUtilsV1.findByGuids(uniqueGuids);
+        List<AtlasClassification>       classifications    = Collections.singletonList(classification);
+        String                          classificationName = classification.getTypeName();
+        EntityMutationContext           context            = new EntityMutationContext();
+
+        for (String guid : uniqueGuids) {
+            AtlasVertex vertex = vertices.get(guid);
+
+            if (vertex == null) {
+                ret.addFailedEntityGuid(guid, new AtlasBaseException(AtlasErrorCode.INSTANCE_GUID_NOT_FOUND, guid).getMessage());
+            } else if (GraphHelper.getTraitNames(vertex).contains(classificationName)) {
+                ret.addFailedEntityGuid(guid, "entity: " + guid + ", already associated with classification: " + classificationName);
+            } else {
+                entityGraphMapper.addClassifications(context, vertex, classifications);
+
+                ret.addAssociatedEntityGuid(guid);
+            }
+        }
+
+        if (CollectionUtils.isNotEmpty(ret.getAssociatedEntityGuids())) {
+            // notify listeners on classification addition
+            entityChangeNotifier.onClassificationAddedToEntities(ret.getAssociatedEntityGuids(), classification);
+        }
+
+        return ret;
+    }
+
     @Override
     @GraphTransaction
     public void deleteClassifications(final String guid, final List<String> classificationNames) throws AtlasBaseException {
@@ -586,7 +645,7 @@ public class AtlasEntityStoreV1 implements AtlasEntityStore {
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public List<AtlasClassification> getClassifications(String guid) throws AtlasBaseException {
         if (LOG.isDebugEnabled()) {
             LOG.debug("Getting classifications for entities={}", guid);
@@ -597,7 +656,7 @@ public class AtlasEntityStoreV1 implements AtlasEntityStore {
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public AtlasClassification getClassification(String guid, String classificationName) throws AtlasBaseException {
         if (LOG.isDebugEnabled()) {
             LOG.debug("Getting classifications for entities={}", guid);
@@ -751,6 +810,390 @@ public class AtlasEntityStoreV1 implements AtlasEntityStore {
         return ret;
     }
 
+    /**
+     * Imports entities of an import stream in batches, each batch in its own transaction.
+     *
+     * With more than one worker, batches are imported in parallel. Entities are still imported in the stream order
+     * relative to the entities they refer to: an entity is added to a batch only after batches in progress that import,
+     * or refer to, any of the entities it imports or refers to are complete. This also ensures that an entity is not
+     * updated by concurrent transactions, like when references are added to it.
+     */
+    private class EntityImporter {
+        private final EntityImportStream                 entityStream;
+        private final EntityImportStreamWithResidualList stream;
+        private final AtlasImportResult                  importResult;
+        private final int                                batchSize;
+        private final int                                numWorkers;
+        private final String                             userName;
+        private final int                                startPosition;
+        private final AtlasEntityStore                   transactionalStore;
+        private final EntityMutationResponse             response           = new EntityMutationResponse();
+        private final Set<String>                        processedGuids     = new HashSet<>();
+        private final List<String>                       residualList       = new ArrayList<>();
+        private final Set<String>                        residualGuids      = new HashSet<>();
+        private final Set<String>                        pendingGuids       = new LinkedHashSet<>(); // in stream order
+        private final Map<String, Integer>               guidsInProgress    = new HashMap<>();
+        private       ExecutorService                    executor;
+        private       CompletionService<ImportBatch>     completionService;
+        private       int                                numBatchesInProgress = 0;
+        private       int                                numImported          = 0;
+        private       float                              currentPercent       = 0f;
+        private       String                             lastImportedGuid;
+
+        EntityImporter(EntityImportStream entityStream, AtlasImportResult importResult, int batchSize, int numWorkers) {
+            this.entityStream  = entityStream;
+            this.stream        = new EntityImportStreamWithResidualList(entityStream, residualList);
+            this.importResult  = importResult;
+            this.batchSize     = batchSize;
+            this.numWorkers    = numWorkers;
+            this.userName      = RequestContextV1.get().getUser();
+            this.startPosition = entityStream.getPosition();
+
+            this.transactionalStore = transactionalStoreProvider != null ? transactionalStoreProvider.get() : AtlasEntityStoreV1.this;
+
+            response.setGuidAssignments(new HashMap<String, String>());
+        }
+
+        EntityMutationResponse run() throws AtlasBaseException {
+            LOG.info("bulkImport(): importing {} entities, in batches of {} entities, with {} worker(s)", stream.getStreamSize(), batchSize, numWorkers);
+
+            if (numWorkers > 1) {
+                executor          = Executors.newFixedThreadPool(numWorkers, new ThreadFactoryBuilder().setNameFormat("atlas-import-worker-%d").setDaemon(true).build());
+                completionService = new ExecutorCompletionService<>(executor);
+            }
+
+            try {
+                ImportBatch batch = new ImportBatch();
+
+                do {
+                    while (stream.hasNext()) {
+                        AtlasEntityWithExtInfo entityWithExtInfo = stream.getNextEntityWithExtInfo();
+                        AtlasEntity            entity            = entityWithExtInfo != null ? entityWithExtInfo.getEntity() : null;
+
+                        if (entity == null) {
+                            continue;
+                        }
+
+                        Set<String> guids = completionService != null ? getImportedAndReferredGuids(entityWithExtInfo) : null;
+
+                        if (isAnyInProgress(guids)) {
+                            batch = submit(batch);
+
+                            while (isAnyInProgress(guids)) {
+                                onBatchComplete(takeCompletedBatch());
+                            }
+                        }
+
+                        if (processedGuids.contains(entity.getGuid())) { // imported along with an entity that refers to it
+                            continue;
+                        }
+
+                        pendingGuids.add(entity.getGuid());
+                        batch.add(entityWithExtInfo, guids);
+
+                        if (batch.size() >= batchSize) {
+                            batch = submit(batch);
+                        }
+                    }
+
+                    batch = submit(batch);
+
+                    while (numBatchesInProgress > 0) {
+                        onBatchComplete(takeCompletedBatch());
+                    }
+                } while (stream.hasNext()); // entities added to residual list by the batches just completed
+            } catch (AtlasBaseException | RuntimeException excp) {
+                waitForBatchesInProgress();
+
+                if (lastImportedGuid != null) {
+                    LOG.error("bulkImport(): failed. Entities up to {} in the import order are imported; to resume, retry the import with option startGuid={}",
+                              lastImportedGuid, lastImportedGuid);
+                }
+
+                throw excp;
+            } finally {
+                if (executor != null) {
+                    executor.shutdownNow();
+                }
+            }
+
+            importResult.getProcessedEntities().addAll(processedGuids);
+
+            return response;
+        }
+
+        private boolean isAnyInProgress(Set<String> guids) {
+            if (guids != null && !guidsInProgress.isEmpty()) {
+                for (String guid : guids) {
+                    if (guidsInProgress.containsKey(guid)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        private ImportBatch submit(final ImportBatch batch) throws AtlasBaseException {
+            if (batch.size() == 0) {
+                return batch;
+            }
+
+            if (completionService == null) {
+                onBatchComplete(importBatch(batch));
+            } else {
+                while (numBatchesInProgress >= numWorkers) {
+                    onBatchComplete(takeCompletedBatch());
+                }
+
+                for (String guid : batch.guids) {
+                    Integer count = guidsInProgress.get(guid);
+
+                    guidsInProgress.put(guid, count == null ? 1 : count + 1);
+                }
+
+                completionService.submit(new Callable<ImportBatch>() {
+                    @Override
+                    public ImportBatch call() throws Exception {
+                        try {
+                            return importBatch(batch);
+                        } finally {
+                            RequestContext.clear();
+                            RequestContextV1.clear();
+                        }
+                    }
+                });
+
+                numBatchesInProgress++;
+            }
+
+            return new ImportBatch();
+        }
+
+        private ImportBatch takeCompletedBatch() throws AtlasBaseException {
+            try {
+                Future<ImportBatch> future = completionService.take();
+
+                numBatchesInProgress--;
+
+                return future.get();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+
+                throw new AtlasBaseException(excp);
+            } catch (ExecutionException excp) {
+                Throwable cause = excp.getCause();
+
+                if (cause instanceof AtlasBaseException) {
+                    throw (AtlasBaseException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+
+                throw new AtlasBaseException(cause);
+            }
+        }
+
+        // on failure, let batches in progress complete, so that the position to resume from can be logged
+        private void waitForBatchesInProgress() {
+            while (numBatchesInProgress > 0) {
+                try {
+                    onBatchComplete(takeCompletedBatch());
+                } catch (Exception excp) {
+                    LOG.error("bulkImport(): batch import failed", excp);
+                }
+            }
+        }
+
+        private ImportBatch importBatch(ImportBatch batch) throws AtlasBaseException {
+            try {
+                batch.responses.add(importInTransaction(batch.entities));
+            } catch (AtlasBaseException excp) {
+                if (!isInvalidObjectIdError(excp)) {
+                    throw excp;
+                }
+
+                if (batch.size() == 1) {
+                    batch.residualGuids.add(batch.entities.get(0).getEntity().getGuid());
+                } else {
+                    // the batch refers to entities not yet imported; import the rest of the batch
+                    for (AtlasEntityWithExtInfo entityWithExtInfo : batch.entities) {
+                        try {
+                            batch.responses.add(importInTransaction(Collections.singletonList(entityWithExtInfo)));
+                        } catch (AtlasBaseException e) {
+                            if (!isInvalidObjectIdError(e)) {
+                                throw e;
+                            }
+
+                            batch.residualGuids.add(entityWithExtInfo.getEntity().getGuid());
+                        }
+                    }
+                }
+            }
+
+            return batch;
+        }
+
+        private EntityMutationResponse importInTransaction(List<AtlasEntityWithExtInfo> entities) throws AtlasBaseException {
+            // new request context for each transaction, so that entities cached in the context don't accumulate
+            RequestContext.createContext().setUser(userName);
+            RequestContextV1.clear();
+            RequestContextV1.get().setUser(userName);
+
+            return transactionalStore.createOrUpdateForImport(new AtlasEntityStreamForImport(entities, entityStream));
+        }
+
+        private void onBatchComplete(ImportBatch batch) throws AtlasBaseException {
+            Set<String> importedGuids = new HashSet<>(); // including entities imported along with the entities that refer to them
+
+            for (EntityMutationResponse resp : batch.responses) {
+                if (resp.getGuidAssignments() != null) {
+                    response.getGuidAssignments().putAll(resp.getGuidAssignments());
+                }
+
+                addGuids(resp.getCreatedEntities(), importedGuids);
+                addGuids(resp.getUpdatedEntities(), importedGuids);
+
+                updateImportMetrics("entity:%s:created", resp.getCreatedEntities(), processedGuids, importResult);
+                updateImportMetrics("entity:%s:updated", resp.getUpdatedEntities(), processedGuids, importResult);
+                updateImportMetrics("entity:%s:deleted", resp.getDeletedEntities(), processedGuids, importResult);
+            }
+
+            AtlasEntity lastImported = null;
+
+            for (AtlasEntityWithExtInfo entityWithExtInfo : batch.entities) {
+                String guid = entityWithExtInfo.getEntity().getGuid();
+
+                if (batch.residualGuids.contains(guid)) {
+                    if (!residualGuids.add(guid)) {
+                        throw new AtlasBaseException(AtlasErrorCode.INVALID_OBJECT_ID, "entity " + guid + " refers to entities that are not imported");
+                    }
+
+                    residualList.add(guid);
+                } else {
+                    importedGuids.add(guid);
+                    processedGuids.add(guid);
+
+                    lastImported = entityWithExtInfo.getEntity();
+
+                    numImported++;
+                }
+            }
+
+            // imported entities needn't be read from the stream again
+            for (String guid : importedGuids) {
+                entityStream.onImportComplete(guid);
+            }
+
+            for (String guid : batch.guids) {
+                Integer count = guidsInProgress.remove(guid);
+
+                if (count != null && count > 1) {
+                    guidsInProgress.put(guid, count - 1);
+                }
+            }
+
+            for (Iterator<String> iter = pendingGuids.iterator(); iter.hasNext(); ) {
+                String guid = iter.next();
+
+                if (!processedGuids.contains(guid)) {
+                    break;
+                }
+
+                lastImportedGuid = guid;
+
+                iter.remove();
+            }
+
+            if (lastImported != null) {
+                String lastEntityImported = String.format("entity:last-imported:%s:[%s]:(%s)", lastImported.getTypeName(), startPosition + numImported, lastImported.getGuid());
+
+                currentPercent = updateImportProgress(LOG, startPosition + numImported, stream.getStreamSize(), currentPercent, lastEntityImported);
+            }
+        }
+        private void addGuids(List<AtlasEntityHeader> headers, Set<String> guids) {
+            if (headers != null) {
+                for (AtlasEntityHeader header : headers) {
+                    guids.add(header.getGuid());
+                }
+            }
+        }
+
+        // guids of the entity, and of entities it refers to; an entity is imported only after batches in progress that import these are complete
+        private Set<String> getImportedAndReferredGuids(AtlasEntityWithExtInfo entityWithExtInfo) {
+            Set<String> ret = new HashSet<>();
+
+            addReferredGuids(entityWithExtInfo.getEntity(), ret);
+
+            if (MapUtils.isNotEmpty(entityWithExtInfo.getReferredEntities())) {
+                for (AtlasEntity referredEntity : entityWithExtInfo.getReferredEntities().values()) {
+                    addReferredGuids(referredEntity, ret);
+                }
+            }
+
+            return ret;
+        }
+
+        private void addReferredGuids(Object value, Set<String> guids) {
+            if (value == null) {
+                return;
+            }
+
+            if (value instanceof AtlasObjectId) {
+                AtlasObjectId objId = (AtlasObjectId) value;
+
+                if (objId.getGuid() != null) {
+                    guids.add(objId.getGuid());
+                }
+            } else if (value instanceof AtlasEntity) {
+                AtlasEntity entity = (AtlasEntity) value;
+
+                if (entity.getGuid() != null) {
+                    guids.add(entity.getGuid());
+                }
+
+                addReferredGuids(entity.getAttributes(), guids);
+                addReferredGuids(entity.getRelationshipAttributes(), guids);
+            } else if (value instanceof AtlasStruct) {
+                addReferredGuids(((AtlasStruct) value).getAttributes(), guids);
+            } else if (value instanceof Map) {
+                Map<?, ?> map  = (Map<?, ?>) value;
+                Object    guid = map.get(AtlasObjectId.KEY_GUID);
+
+                if (guid instanceof String) {
+                    guids.add((String) guid);
+                }
+
+                for (Object mapValue : map.values()) {
+                    addReferredGuids(mapValue, guids);
+                }
+            } else if (value instanceof Collection) {
+                for (Object element : (Collection<?>) value) {
+                    addReferredGuids(element, guids);
+                }
+            }
+        }
+    }
+
+    private static class ImportBatch {
+        private final List<AtlasEntityWithExtInfo> entities      = new ArrayList<>();
+        private final Set<String>                  guids         = new HashSet<>(); // entities imported or referred
+        private final Set<String>                  residualGuids = new HashSet<>();
+        private final List<EntityMutationResponse> responses     = new ArrayList<>();
+
+        void add(AtlasEntityWithExtInfo entityWithExtInfo, Set<String> referredGuids) {
+            entities.add(entityWithExtInfo);
+
+            if (referredGuids != null) {
+                guids.addAll(referredGuids);
+            }
+        }
+
+        int size() {
+            return entities.size();
+        }
+    }
+
     private static class EntityImportStreamWithResidualList {
         private final EntityImportStream stream;
         private final List<String>       residualList;
@@ -18,7 +18,11 @@
 package org.apache.atlas.repository.store.graph.v1;
 
 import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.model.instance.AtlasEntity.AtlasEntitiesWithExtInfo;
 import org.apache.atlas.model.instance.AtlasEntity.AtlasEntityWithExtInfo;
+import org.apache.commons.collections.MapUtils;
+
+import java.util.List;
 
 public class AtlasEntityStreamForImport extends AtlasEntityStream implements EntityImportStream {
     private int currentPosition = 0;
@@ -27,6 +31,10 @@ public class AtlasEntityStreamForImport extends AtlasEntityStream implements Ent
         super(entityWithExtInfo, entityStream);
     }
 
+    public AtlasEntityStreamForImport(List<AtlasEntityWithExtInfo> entitiesWithExtInfo, EntityStream entityStream) {
+        super(toAtlasEntitiesWithExtInfo(entitiesWithExtInfo), entityStream);
+    }
+
     @Override
     public AtlasEntityWithExtInfo getNextEntityWithExtInfo() {
         currentPosition++;
@@ -48,7 +56,7 @@ public class AtlasEntityStreamForImport extends AtlasEntityStream implements Ent
 
     @Override
     public int size() {
-        return 1;
+        return super.entitiesWithExtInfo.getEntities().size();
     }
 
     @Override
@@ -69,4 +77,20 @@ public class AtlasEntityStreamForImport extends AtlasEntityStream implements Ent
     public void onImportComplete(String guid) {
 
     }
+
+    private static AtlasEntitiesWithExtInfo toAtlasEntitiesWithExtInfo(List<AtlasEntityWithExtInfo> entitiesWithExtInfo) {
+        AtlasEntitiesWithExtInfo ret = new AtlasEntitiesWithExtInfo();
+
+        for (AtlasEntityWithExtInfo entityWithExtInfo : entitiesWithExtInfo) {
+            ret.addEntity(entityWithExtInfo.getEntity());
+
+            if (MapUtils.isNotEmpty(entityWithExtInfo.getReferredEntities())) {
+                for (AtlasEntity referredEntity : entityWithExtInfo.getReferredEntities().values()) {
+                    ret.addReferredEntity(referredEntity);
+                }
+            }
+        }
+
+        return ret;
+    }
 }
@@ -37,15 +37,20 @@ import org.apache.atlas.type.AtlasEntityType;
 import org.apache.atlas.type.AtlasStructType;
 import org.apache.atlas.type.AtlasStructType.AtlasAttribute;
 import org.apache.atlas.type.AtlasType;
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -60,6 +65,8 @@ public class AtlasGraphUtilsV1 {
     public static final String VERTEX_TYPE          = "typeSystem";
     public static final String RELATIONSHIPTYPE_EDGE_LABEL = PROPERTY_PREFIX + ".relationshipType";
 
+    private static final int MAX_GUIDS_PER_QUERY = 100;
+
     private static boolean USE_INDEX_QUERY_TO_FIND_ENTITY_BY_UNIQUE_ATTRIBUTES = false;
 
     static {
@@ -218,16 +225,56 @@ public class AtlasGraphUtilsV1 {
     }
 
     public static String getGuidByUniqueAttributes(AtlasEntityType entityType, Map<String, Object> attrValues) throws AtlasBaseException {
-        AtlasVertex vertexByUniqueAttributes = getVertexByUniqueAttributes(entityType, attrValues);
-        return getIdFromVertex(vertexByUniqueAttributes);
+        // a cached guid is returned only after checking that its entity is still active and has the given values
+        AtlasVertex vertex = getVertexByUniqueAttributes(entityType, attrValues);
+
+        return getIdFromVertex(vertex);
     }
 
     public static AtlasVertex findByUniqueAttributes(AtlasEntityType entityType, Map<String, Object> attrValues) {
+        AtlasVertex vertex = findByCachedGuid(entityType, attrValues);
+
+        if (vertex == null) {
+            vertex = findByUniqueAttributesInGraph(entityType, attrValues);
+        }
+
+        return vertex;
+    }
+
+    private static AtlasVertex findByCachedGuid(AtlasEntityType entityType, Map<String, Object> attrValues) {
+        UniqueAttributeGuidCache cache = UniqueAttributeGuidCache.getInstance();
+        String                   guid  = cache.getGuid(entityType, attrValues);
+
+        if (guid == null) {
+            return null;
+        }
+
+        AtlasVertex vertex = findByGuid(guid);
+
+        // the entity might have been changed by a transaction that is yet to invalidate the cache
+        if (vertex != null && getState(vertex) == AtlasEntity.Status.ACTIVE && entityType.getTypeAndAllSubTypes().contains(getTypeName(vertex))) {
+            for (AtlasAttribute attribute : entityType.getUniqAttributes().values()) {
+                Object attrValue = attrValues.get(attribute.getName());
+
+                if (attrValue != null && UniqueAttributeGuidCache.areEqualValues(attribute, attrValue, vertex.getProperty(attribute.getVertexPropertyName(), Object.class))) {
+                    return vertex;
+                }
+            }
+        }
+
+        cache.invalidate(Collections.singleton(guid));
+
+        return null;
+    }
+
+    private static AtlasVertex findByUniqueAttributesInGraph(AtlasEntityType entityType, Map<String, Object> attrValues) {
         AtlasVertex vertex = null;
 
         final Map<String, AtlasAttribute> uniqueAttributes = entityType.getUniqAttributes();
 
         if (MapUtils.isNotEmpty(uniqueAttributes) && MapUtils.isNotEmpty(attrValues)) {
+            final long cacheSeq = UniqueAttributeGuidCache.getInstance().getInvalidationSeq();
+
             for (AtlasAttribute attribute : uniqueAttributes.values()) {
                 Object attrValue = attrValues.get(attribute.getName());
 
@@ -251,6 +298,8 @@ public class AtlasGraphUtilsV1 {
                                   entityType.getTypeName(), attribute.getName(), attrValue, vertex);
                     }
 
+                    UniqueAttributeGuidCache.getInstance().put(entityType, attribute, attrValue, getIdFromVertex(vertex), cacheSeq);
+
                     break;
                 }
             }
@@ -259,6 +308,55 @@ public class AtlasGraphUtilsV1 {
         return vertex;
     }
 
+    /**
+     * Finds active entity vertices of the given type, or of its sub-types, having any of the given values for a
+     * unique attribute - with a single graph query.
+     *
+     * @return vertices by attribute value; values not found are not included
+     */
+    public static Map<Object, AtlasVertex> findByUniqueAttributeValues(AtlasEntityType entityType, AtlasAttribute attribute, Collection<?> attrValues) {
+        Map<Object, AtlasVertex> ret = new HashMap<>();
+
+        if (CollectionUtils.isEmpty(attrValues)) {
+            return ret;
+        }
+
+        final long      cacheSeq     = UniqueAttributeGuidCache.getInstance().getInvalidationSeq();
+        final String    propertyName = attribute.getVertexPropertyName();
+        AtlasGraphQuery query        = AtlasGraphProvider.getGraphInstance().query()
+                                                         .in(Constants.ENTITY_TYPE_PROPERTY_KEY, entityType.getTypeAndAllSubTypes())
+                                                         .has(Constants.STATE_PROPERTY_KEY, AtlasEntity.Status.ACTIVE.name())
+                                                         .in(propertyName, attrValues);
+
+        for (Iterator<AtlasVertex> iter = query.vertices().iterator(); iter.hasNext(); ) {
+            AtlasVertex vertex    = iter.next();
+            Object      vertexVal = vertex.getProperty(propertyName, Object.class);
+
+            if (vertexVal == null || !attrValues.contains(vertexVal)) {
+                continue;
+            }
+
+            // as in findByUniqueAttributes(), a vertex of the given type is preferred over one of a sub-type
+            AtlasVertex existing = ret.get(vertexVal);
+
+            if (existing == null || (!StringUtils.equals(getTypeName(existing), entityType.getTypeName()) &&
+                                     StringUtils.equals(getTypeName(vertex), entityType.getTypeName()))) {
+                ret.put(vertexVal, vertex);
+            }
+        }
+
+        for (Map.Entry<Object, AtlasVertex> entry : ret.entrySet()) {
+            UniqueAttributeGuidCache.getInstance().put(entityType, attribute, entry.getKey(), getIdFromVertex(entry.getValue()), cacheSeq);
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("findByUniqueAttributeValues(type={}, attrName={}, attrValues={}): found {} vertices",
+                      entityType.getTypeName(), attribute.getName(), attrValues.size(), ret.size());
+        }
+
+        return ret;
+    }
+
     public static AtlasVertex findByGuid(String guid) {
         AtlasGraphQuery query = AtlasGraphProvider.getGraphInstance().query()
                                                   .has(Constants.GUID_PROPERTY_KEY, guid);
@@ -270,6 +368,44 @@ public class AtlasGraphUtilsV1 {
         return vertex;
     }
 
+    /**
+     * Finds entity vertices having any of the given guids, with a graph query per batch of guids.
+     *
+     * @return vertices by guid; guids not found are not included
+     */
+    public static Map<String, AtlasVertex> findByGuids(Collection<String> guids) {
+        Map<String, AtlasVertex> ret = new HashMap<>();
+
+        if (CollectionUtils.isEmpty(guids)) {
+            return ret;
+        }
+
+        List<String> batch = new ArrayList<>(Math.min(guids.size(), MAX_GUIDS_PER_QUERY));
+
+        for (Iterator<String> iter = guids.iterator(); iter.hasNext(); ) {
+            batch.add(iter.next());
+
+            if (batch.size() == MAX_GUIDS_PER_QUERY || !iter.hasNext()) {
+                AtlasGraphQuery query = AtlasGraphProvider.getGraphInstance().query()
+                                                          .in(Constants.GUID_PROPERTY_KEY, batch);
+
+                for (Iterator<AtlasVertex> results = query.vertices().iterator(); results.hasNext(); ) {
+                    AtlasVertex vertex = results.next();
+
+                    ret.put(getIdFromVertex(vertex), vertex);
+                }
+
+                batch.clear();
+            }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("findByGuids(guids={}): found {} vertices", guids.size(), ret.size());
+        }
+
+        return ret;
+    }
+
     public static String getTypeNameFromGuid(String guid) {
         String ret = null;
 
@@ -394,7 +530,7 @@ public class AtlasGraphUtilsV1 {
         return element.getProperty(Constants.STATE_PROPERTY_KEY, String.class);
     }
 
-    private static boolean canUseIndexQuery(AtlasEntityType entityType, String attributeName) {
+    static boolean canUseIndexQuery(AtlasEntityType entityType, String attributeName) {
         boolean ret = false;
 
         if (USE_INDEX_QUERY_TO_FIND_ENTITY_BY_UNIQUE_ATTRIBUTES) {
@@ -108,7 +108,7 @@ public class AtlasRelationshipStoreV1 implements AtlasRelationshipStore {
     }
 
     @Override
-    @GraphTransaction
+    @GraphTransaction(readOnly = true)
     public AtlasRelationship getById(String guid) throws AtlasBaseException {
         if (LOG.isDebugEnabled()) {
             LOG.debug("==> getById({})", guid);
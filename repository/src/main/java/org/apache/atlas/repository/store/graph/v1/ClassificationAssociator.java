@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v1;
+
+import org.apache.atlas.AtlasErrorCode;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.instance.AtlasClassification;
+import org.apache.atlas.model.instance.ClassificationAssociateResponse;
+import org.apache.atlas.repository.store.graph.AtlasEntityStore;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Associates a classification to a large number of entities.
+ *
+ * Entities are processed in chunks, each chunk in its own transaction, so that the size of a transaction is bounded and
+ * entities in chunks already committed stay associated even if a later chunk fails. An entity that can't be associated
+ * is reported in the response, instead of failing the request.
+ */
+@Component
+public class ClassificationAssociator {
+    private static final Logger LOG = LoggerFactory.getLogger(ClassificationAssociator.class);
+
+    public static final String CHUNK_SIZE_PROPERTY = "atlas.classification.bulk.chunk.size";
+    public static final int    DEFAULT_CHUNK_SIZE  = 1000;
+
+    private final AtlasEntityStore entityStore;
+    private final int              chunkSize;
+
+    @Inject
+    public ClassificationAssociator(AtlasEntityStore entityStore, Configuration configuration) {
+        this.entityStore = entityStore;
+        this.chunkSize   = configuration != null ? Math.max(1, configuration.getInt(CHUNK_SIZE_PROPERTY, DEFAULT_CHUNK_SIZE)) : DEFAULT_CHUNK_SIZE;
+    }
+
+    public ClassificationAssociateResponse associate(List<String> guids, AtlasClassification classification) throws AtlasBaseException {
+        if (CollectionUtils.isEmpty(guids)) {
+            throw new AtlasBaseException(AtlasErrorCode.INVALID_PARAMETERS, "Guid(s) not specified");
+        }
+        if (classification == null) {
+            throw new AtlasBaseException(AtlasErrorCode.INVALID_PARAMETERS, "classification not specified");
+        }
+
+        List<String>                    uniqueGuids = new ArrayList<>(new LinkedHashSet<>(guids));
+        ClassificationAssociateResponse ret         = new ClassificationAssociateResponse();
+
+        LOG.info("Adding classification {} to {} entities, in chunks of {}", classification.getTypeName(), uniqueGuids.size(), chunkSize);
+
+        for (int i = 0; i < uniqueGuids.size(); i += chunkSize) {
+            List<String> chunk = uniqueGuids.subList(i, Math.min(i + chunkSize, uniqueGuids.size()));
+
+            ret.add(associateChunk(chunk, classification));
+        }
+
+        LOG.info("Added classification {} to {} entities; {} entities failed", classification.getTypeName(),
+                 ret.getAssociatedEntityGuids().size(), ret.getFailedEntityGuids().size());
+
+        return ret;
+    }
+
+    private ClassificationAssociateResponse associateChunk(List<String> guids, AtlasClassification classification) throws AtlasBaseException {
+        final Exception failure;
+
+        try {
+            return entityStore.addClassificationToEntities(guids, classification);
+        } catch (AtlasBaseException excp) {
+            if (isInvalidRequest(excp)) {
+                throw excp;
+            }
+
+            failure = excp;
+        } catch (RuntimeException excp) {
+            failure = excp;
+        }
+
+        ClassificationAssociateResponse ret = new ClassificationAssociateResponse();
+
+        if (guids.size() == 1) {
+            LOG.warn("Failed to add classification {} to entity[guid={}]", classification.getTypeName(), guids.get(0), failure);
+
+            ret.addFailedEntityGuid(guids.get(0), failure.getMessage());
+        } else {
+            LOG.warn("Failed to add classification {} to a chunk of {} entities. Retrying one entity at a time",
+                     classification.getTypeName(), guids.size(), failure);
+
+            // isolate the entities that fail, so that the rest of the chunk is associated
+            for (String guid : guids) {
+                ret.add(associateChunk(Collections.singletonList(guid), classification));
+            }
+        }
+
+        return ret;
+    }
+
+    // errors in the classification fail every entity; hence fail the request instead of retrying
+    private static boolean isInvalidRequest(AtlasBaseException excp) {
+        return excp.getAtlasErrorCode() == AtlasErrorCode.CLASSIFICATION_NOT_FOUND ||
+               excp.getAtlasErrorCode() == AtlasErrorCode.INVALID_PARAMETERS;
+    }
+}
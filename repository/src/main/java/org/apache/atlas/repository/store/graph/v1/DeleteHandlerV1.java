@@ -111,6 +111,7 @@ public abstract class DeleteHandlerV1 {
             // and gather deletion candidate vertices.
             for (GraphHelper.VertexInfo vertexInfo : compositeVertices) {
                 requestContext.recordEntityDelete(new AtlasObjectId(vertexInfo.getGuid(), vertexInfo.getTypeName()));
+                UniqueAttributeGuidCache.getInstance().recordInvalidation(vertexInfo.getGuid());
                 deletionCandidateVertices.add(vertexInfo.getVertex());
             }
         }
@@ -0,0 +1,799 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v1;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.atlas.AtlasErrorCode;
+import org.apache.atlas.AtlasException;
+import org.apache.atlas.GraphTransactionInterceptor;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.ha.HAConfiguration;
+import org.apache.atlas.listener.ActiveStateChangeHandler;
+import org.apache.atlas.listener.EntityChangeListener;
+import org.apache.atlas.service.Service;
+import org.apache.atlas.services.MetadataService;
+import org.apache.atlas.typesystem.ITypedReferenceableInstance;
+import org.apache.atlas.typesystem.ITypedStruct;
+import org.apache.atlas.typesystem.Referenceable;
+import org.apache.atlas.typesystem.Struct;
+import org.apache.atlas.typesystem.json.InstanceSerialization;
+import org.apache.atlas.typesystem.types.ClassType;
+import org.apache.atlas.typesystem.types.Multiplicity;
+import org.apache.atlas.typesystem.types.TraitType;
+import org.apache.atlas.typesystem.types.TypeSystem;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers entity change notifications to EntityChangeListeners, for changes made through both v1 and v2 APIs.
+ *
+ * By default listeners are called in the transaction that made the change. When asynchronous delivery is enabled,
+ * notifications are queued once the transaction commits and delivered by background threads, so that the latency of
+ * listeners (like audit writes and notifications to Kafka) is not added to the transaction:
+ *  - entities are partitioned by guid, each partition having a worker thread; hence the notifications of an entity
+ *    are delivered in the order in which its changes were committed
+ *  - each partition queue is bounded; the committing thread waits when the queue is full
+ *  - notifications are appended to a journal file of the partition before being queued. The journal, along with the
+ *    offset of the last delivered notification, is truncated once the queue is drained. Notifications left in the
+ *    journal, for example due to a crash, are delivered when the server becomes active again
+ *  - notifications queued while the partitions are being stopped are delivered by the committing thread
+ *  - v1 API changes are notified after their transaction commits, and hence are queued right away
+ *
+ * Notifications are journaled after the transaction commits, as the transaction interceptor has no hook that runs
+ * before the commit. Hence the notifications of a transaction are lost if the server crashes after the transaction
+ * commits and before its notifications are journaled; unlike delivery in the transaction, where a crash can instead
+ * leave notifications delivered for changes that were not committed. Unless journal.sync is enabled, journaled
+ * notifications can also be lost in a host crash. The journal is on the local disk: on HA failover, notifications
+ * left in the journal of the failed server are delivered only when that server becomes active again.
+ */
+@Singleton
+@Component
+public class EntityChangeNotificationDispatcher implements Service, ActiveStateChangeHandler {
+    private static final Logger LOG = LoggerFactory.getLogger(EntityChangeNotificationDispatcher.class);
+
+    public static final String ASYNC_ENABLED_PROPERTY = "atlas.notification.entity.async.enabled";
+    public static final String PARTITIONS_PROPERTY    = "atlas.notification.entity.async.partitions";
+    public static final String QUEUE_SIZE_PROPERTY    = "atlas.notification.entity.async.queue.size";
+    public static final String RETRIES_PROPERTY       = "atlas.notification.entity.async.retries";
+    public static final String JOURNAL_DIR_PROPERTY   = "atlas.notification.entity.async.journal.dir";
+    public static final String JOURNAL_SYNC_PROPERTY  = "atlas.notification.entity.async.journal.sync";
+
+    public static final int  DEFAULT_PARTITIONS = 4;
+    public static final int  DEFAULT_QUEUE_SIZE = 1000;
+    public static final int  DEFAULT_RETRIES    = 3;
+
+    private static final String JOURNAL_FILE_PREFIX  = "entity-changes-";
+    private static final String JOURNAL_FILE_SUFFIX  = ".journal";
+    private static final String OFFSET_FILE_SUFFIX   = ".offset";
+    private static final long   RETRY_SLEEP_MS       = 1000;
+    private static final long   POLL_INTERVAL_MS     = 1000;
+    private static final long   STOP_WAIT_MS         = 30000;
+
+    private final Set<EntityChangeListener> entityChangeListeners;
+    private final TypeSystem                typeSystem;
+    private final Configuration             configuration;
+    private final boolean                   isAsyncEnabled;
+    private final int                       numPartitions;
+    private final int                       queueSize;
+    private final int                       maxRetries;
+    private final File                      journalDir;
+    private final boolean                   syncJournal;
+    private final ThreadLocal<PendingEvents> pendingEvents = new ThreadLocal<>();
+
+    private volatile Partition[] partitions;
+
+    /*
+     * MetadataService is injected to have the type system restored before notifications in the journal are replayed
+     */
+    @Inject
+    public EntityChangeNotificationDispatcher(Set<EntityChangeListener> entityChangeListeners, TypeSystem typeSystem,
+                                              MetadataService metadataService, Configuration configuration) {
+        this.entityChangeListeners = new CopyOnWriteArraySet<>(entityChangeListeners);
+        this.typeSystem            = typeSystem;
+        this.configuration         = configuration;
+        this.isAsyncEnabled        = configuration.getBoolean(ASYNC_ENABLED_PROPERTY, false);
+        this.numPartitions         = Math.max(1, configuration.getInt(PARTITIONS_PROPERTY, DEFAULT_PARTITIONS));
+        this.queueSize             = Math.max(1, configuration.getInt(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE));
+        this.maxRetries            = Math.max(0, configuration.getInt(RETRIES_PROPERTY, DEFAULT_RETRIES));
+        this.journalDir            = new File(configuration.getString(JOURNAL_DIR_PROPERTY, getDefaultJournalDir()));
+        this.syncJournal           = configuration.getBoolean(JOURNAL_SYNC_PROPERTY, false);
+
+        LOG.info("{}={}, {}={}, {}={}, {}={}", ASYNC_ENABLED_PROPERTY, isAsyncEnabled, PARTITIONS_PROPERTY, numPartitions,
+                 QUEUE_SIZE_PROPERTY, queueSize, JOURNAL_DIR_PROPERTY, journalDir);
+    }
+
+    @Override
+    public void start() throws AtlasException {
+        if (isAsyncEnabled && !HAConfiguration.isHAEnabled(configuration)) {
+            startPartitions();
+        }
+    }
+
+    @Override
+    public void stop() throws AtlasException {
+        stopPartitions();
+    }
+
+    @Override
+    public void instanceIsActive() throws AtlasException {
+        if (isAsyncEnabled) {
+            startPartitions();
+        }
+    }
+
+    @Override
+    public void instanceIsPassive() throws AtlasException {
+        stopPartitions();
+    }
+
+    public boolean hasListeners() {
+        return CollectionUtils.isNotEmpty(entityChangeListeners);
+    }
+
+    public void registerListener(EntityChangeListener listener) {
+        entityChangeListeners.add(listener);
+    }
+
+    public void unregisterListener(EntityChangeListener listener) {
+        entityChangeListeners.remove(listener);
+    }
+
+    /**
+     * @return true if notifications are delivered after the transaction commits, by background threads
+     */
+    public boolean isAsync() {
+        return partitions != null;
+    }
+
+    /**
+     * Delivers the notification to listeners - right away, or, in asynchronous mode, after the current transaction
+     * commits. In asynchronous mode, notifications of a transaction that is rolled back are discarded; notifications
+     * sent outside of a transaction, like those of v1 API changes, are of committed changes and are queued right away.
+     */
+    public void notifyListeners(EntityChangeEvent event) throws AtlasBaseException {
+        if (isAsync() && !GraphTransactionInterceptor.isInTransaction()) {
+            enqueue(Collections.singletonList(event));
+        } else if (isAsync()) {
+            PendingEvents pending = pendingEvents.get();
+
+            if (pending == null) {
+                pending = new PendingEvents();
+
+                pendingEvents.set(pending);
+            }
+
+            pending.events.add(event);
+        } else {
+            deliver(event);
+        }
+    }
+
+    @VisibleForTesting
+    synchronized void startPartitions() throws AtlasException {
+        if (partitions != null) {
+            return;
+        }
+
+        if (!journalDir.exists() && !journalDir.mkdirs()) {
+            throw new AtlasException("Failed to create directory " + journalDir);
+        }
+
+        replayJournals();
+
+        Partition[] newPartitions = new Partition[numPartitions];
+
+        try {
+            for (int i = 0; i < numPartitions; i++) {
+                newPartitions[i] = new Partition(i);
+            }
+        } catch (IOException excp) {
+            throw new AtlasException("Failed to open entity change journal in " + journalDir, excp);
+        }
+
+        for (Partition partition : newPartitions) {
+            partition.start();
+        }
+
+        partitions = newPartitions;
+
+        LOG.info("Started {} entity change notification partitions", numPartitions);
+    }
+
+    @VisibleForTesting
+    synchronized void stopPartitions() {
+        Partition[] oldPartitions = partitions;
+
+        if (oldPartitions == null) {
+            return;
+        }
+
+        partitions = null;
+
+        for (Partition partition : oldPartitions) {
+            partition.stop();
+        }
+
+        LOG.info("Stopped entity change notification partitions");
+    }
+
+    private void enqueue(List<EntityChangeEvent> events) {
+        Partition[] currPartitions = partitions;
+
+        for (EntityChangeEvent event : events) {
+            if (currPartitions == null) { // stopped while the transaction was in progress
+                deliverWithRetries(event);
+
+                continue;
+            }
+
+            for (Map.Entry<Integer, EntityChangeEvent> entry : splitByPartition(event, currPartitions.length).entrySet()) {
+                if (!currPartitions[entry.getKey()].add(entry.getValue())) { // partition stopped
+                    deliverWithRetries(entry.getValue());
+                }
+            }
+        }
+    }
+
+    private Map<Integer, EntityChangeEvent> splitByPartition(EntityChangeEvent event, int partitionCount) {
+        Map<Integer, List<ITypedReferenceableInstance>> entitiesByPartition = new LinkedHashMap<>();
+
+        for (ITypedReferenceableInstance entity : event.getEntities()) {
+            Integer                           partition = getPartition(entity.getId()._getId(), partitionCount);
+            List<ITypedReferenceableInstance> entities  = entitiesByPartition.get(partition);
+
+            if (entities == null) {
+                entities = new ArrayList<>();
+
+                entitiesByPartition.put(partition, entities);
+            }
+
+            entities.add(entity);
+        }
+
+        Map<Integer, EntityChangeEvent> ret = new LinkedHashMap<>();
+
+        if (entitiesByPartition.size() == 1) {
+            ret.put(entitiesByPartition.keySet().iterator().next(), event);
+        } else {
+            for (Map.Entry<Integer, List<ITypedReferenceableInstance>> entry : entitiesByPartition.entrySet()) {
+                ret.put(entry.getKey(), new EntityChangeEvent(event.getType(), event.isImport(), entry.getValue(),
+                                                              event.getTraits(), event.getTraitNames()));
+            }
+        }
+
+        return ret;
+    }
+
+    private static int getPartition(String guid, int partitionCount) {
+        return guid == null ? 0 : (guid.hashCode() & Integer.MAX_VALUE) % partitionCount;
+    }
+
+    private void deliver(EntityChangeEvent event) throws AtlasBaseException {
+        for (EntityChangeListener listener : entityChangeListeners) {
+            try {
+                switch (event.getType()) {
+                    case ENTITIES_ADDED:
+                        listener.onEntitiesAdded(event.getEntities(), event.isImport());
+                        break;
+                    case ENTITIES_UPDATED:
+                        listener.onEntitiesUpdated(event.getEntities(), event.isImport());
+                        break;
+                    case ENTITIES_DELETED:
+                        listener.onEntitiesDeleted(event.getEntities(), event.isImport());
+                        break;
+                    case TRAITS_ADDED:
+                        listener.onTraitsAdded(event.getEntities().get(0), event.getTraits());
+                        break;
+                    case TRAITS_UPDATED:
+                        listener.onTraitsUpdated(event.getEntities().get(0), event.getTraits());
+                        break;
+                    case TRAITS_DELETED:
+                        listener.onTraitsDeleted(event.getEntities().get(0), event.getTraitNames());
+                        break;
+                }
+            } catch (AtlasException e) {
+                throw new AtlasBaseException(AtlasErrorCode.NOTIFICATION_FAILED, e, listener.getClass().getSimpleName(),
+                                             event.getType().getOperation());
+            }
+        }
+    }
+
+    /*
+     * the transaction has already been committed, hence failures are retried and then logged
+     */
+    private void deliverWithRetries(EntityChangeEvent event) {
+        for (int numRetries = 0; ; numRetries++) {
+            try {
+                deliver(event);
+
+                break;
+            } catch (Exception excp) {
+                if (numRetries >= maxRetries) {
+                    LOG.error("Failed to deliver entity change notification {} after {} retries. Notification dropped",
+                              event, numRetries, excp);
+
+                    break;
+                }
+
+                LOG.warn("Failed to deliver entity change notification {}. Will retry", event, excp);
+
+                try {
+                    Thread.sleep(RETRY_SLEEP_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void replayJournals() {
+        File[] journalFiles = journalDir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(JOURNAL_FILE_PREFIX) && name.endsWith(JOURNAL_FILE_SUFFIX);
+            }
+        });
+
+        if (journalFiles == null) {
+            return;
+        }
+
+        Arrays.sort(journalFiles);
+
+        for (File journalFile : journalFiles) {
+            File offsetFile = getOffsetFile(journalFile);
+            int  count      = 0;
+
+            try (RandomAccessFile journal = new RandomAccessFile(journalFile, "r")) {
+                journal.seek(readOffset(offsetFile));
+
+                for (byte[] record = readRecord(journal); record != null; record = readRecord(journal)) {
+                    EntityChangeEvent event;
+
+                    try {
+                        event = deserialize(record);
+                    } catch (Exception excp) {
+                        LOG.error("Failed to read entity change notification from {}. Notification dropped", journalFile, excp);
+
+                        continue;
+                    }
+
+                    deliverWithRetries(event);
+
+                    count++;
+                }
+            } catch (IOException excp) {
+                LOG.error("Failed to read entity change journal {}", journalFile, excp);
+            }
+
+            if (count > 0) {
+                LOG.info("Replayed {} entity change notifications from {}", count, journalFile);
+            }
+
+            if (!journalFile.delete() || (offsetFile.exists() && !offsetFile.delete())) {
+                LOG.warn("Failed to delete entity change journal {}", journalFile);
+            }
+        }
+    }
+
+    private File getOffsetFile(File journalFile) {
+        String name = journalFile.getName();
+
+        return new File(journalFile.getParentFile(), name.substring(0, name.length() - JOURNAL_FILE_SUFFIX.length()) + OFFSET_FILE_SUFFIX);
+    }
+
+    private static long readOffset(File offsetFile) throws IOException {
+        if (!offsetFile.exists() || offsetFile.length() < 8) {
+            return 0;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(offsetFile, "r")) {
+            return file.readLong();
+        }
+    }
+
+    /*
+     * returns null at the end of the journal, including when the last record was partially written
+     */
+    private static byte[] readRecord(RandomAccessFile journal) throws IOException {
+        if (journal.length() - journal.getFilePointer() < 4) {
+            return null;
+        }
+
+        int length = journal.readInt();
+
+        if (length < 0 || journal.length() - journal.getFilePointer() < length) {
+            return null;
+        }
+
+        byte[] ret = new byte[length];
+
+        journal.readFully(ret);
+
+        return ret;
+    }
+
+    @VisibleForTesting
+    static byte[] serialize(EntityChangeEvent event) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream      out   = new DataOutputStream(bytes);
+
+        out.writeUTF(event.getType().name());
+        out.writeBoolean(event.isImport());
+
+        List<String> entities = new ArrayList<>(event.getEntities().size());
+
+        for (ITypedReferenceableInstance entity : event.getEntities()) {
+            entities.add(InstanceSerialization.toJson(entity, true));
+        }
+
+        writeStrings(out, entities);
+
+        List<String> traits = null;
+
+        if (event.getTraits() != null) {
+            traits = new ArrayList<>(event.getTraits().size());
+
+            for (ITypedStruct trait : event.getTraits()) {
+                traits.add(InstanceSerialization.toJson(trait, true));
+            }
+        }
+
+        writeStrings(out, traits);
+        writeStrings(out, event.getTraitNames());
+
+        out.flush();
+
+        return bytes.toByteArray();
+    }
+
+    @VisibleForTesting
+    EntityChangeEvent deserialize(byte[] record) throws IOException, AtlasException {
+        DataInputStream in       = new DataInputStream(new ByteArrayInputStream(record));
+        EntityChangeEvent.EventType type = EntityChangeEvent.EventType.valueOf(in.readUTF());
+        boolean         isImport = in.readBoolean();
+
+        List<ITypedReferenceableInstance> entities = new ArrayList<>();
+
+        for (String json : readStrings(in)) {
+            Referenceable entity = InstanceSerialization.fromJsonReferenceable(json, true);
+
+            entities.add(typeSystem.getDataType(ClassType.class, entity.getTypeName()).convert(entity, Multiplicity.REQUIRED));
+        }
+
+        List<ITypedStruct> traits     = null;
+        List<String>       traitJsons = readStrings(in);
+
+        if (traitJsons != null) {
+            traits = new ArrayList<>(traitJsons.size());
+
+            for (String json : traitJsons) {
+                Struct trait = InstanceSerialization.fromJsonStruct(json, true);
+
+                traits.add(typeSystem.getDataType(TraitType.class, trait.getTypeName()).convert(trait, Multiplicity.REQUIRED));
+            }
+        }
+
+        List<String> traitNames = readStrings(in);
+
+        return new EntityChangeEvent(type, isImport, entities, traits, traitNames);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(values.size());
+
+            for (String value : values) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+
+        if (count < 0) {
+            return null;
+        }
+
+        List<String> ret = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[in.readInt()];
+
+            in.readFully(bytes);
+
+            ret.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        return ret;
+    }
+
+    private static String getDefaultJournalDir() {
+        String atlasHome = System.getProperty("atlas.home", System.getProperty("java.io.tmpdir"));
+
+        return atlasHome + File.separator + "data" + File.separator + "entity-notifications";
+    }
+
+    /**
+     * Entity change notification, as delivered to EntityChangeListeners.
+     */
+    public static class EntityChangeEvent {
+        public enum EventType {
+            ENTITIES_ADDED("CREATE"), ENTITIES_UPDATED("UPDATE"), ENTITIES_DELETED("DELETE"),
+            TRAITS_ADDED("TraitAdd"), TRAITS_UPDATED("TraitUpdate"), TRAITS_DELETED("TraitDelete");
+
+            private final String operation;
+
+            EventType(String operation) {
+                this.operation = operation;
+            }
+
+            public String getOperation() {
+                return operation;
+            }
+        }
+
+        private final EventType                         type;
+        private final boolean                           isImport;
+        private final List<ITypedReferenceableInstance> entities;
+        private final List<ITypedStruct>                traits;
+        private final List<String>                      traitNames;
+
+        public EntityChangeEvent(EventType type, boolean isImport, List<ITypedReferenceableInstance> entities) {
+            this(type, isImport, entities, null, null);
+        }
+
+        public EntityChangeEvent(EventType type, ITypedReferenceableInstance entity, List<ITypedStruct> traits, List<String> traitNames) {
+            this(type, false, Collections.singletonList(entity), traits, traitNames);
+        }
+
+        EntityChangeEvent(EventType type, boolean isImport, List<ITypedReferenceableInstance> entities,
+                          List<ITypedStruct> traits, List<String> traitNames) {
+            this.type       = type;
+            this.isImport   = isImport;
+            this.entities   = entities;
+            this.traits     = traits;
+            this.traitNames = traitNames;
+        }
+
+        public EventType getType() { return type; }
+
+        public boolean isImport() { return isImport; }
+
+        public List<ITypedReferenceableInstance> getEntities() { return entities; }
+
+        public List<ITypedStruct> getTraits() { return traits; }
+
+        public List<String> getTraitNames() { return traitNames; }
+
+        @Override
+        public String toString() {
+            List<String> guids = new ArrayList<>(entities.size());
+
+            for (ITypedReferenceableInstance entity : entities) {
+                guids.add(entity.getId()._getId());
+            }
+
+            return "EntityChangeEvent{type=" + type + ", isImport=" + isImport + ", guids=" + guids + ", traitNames=" + traitNames + "}";
+        }
+    }
+
+    private class PendingEvents extends GraphTransactionInterceptor.PostTransactionHook {
+        private final List<EntityChangeEvent> events = new ArrayList<>();
+
+        /*
+         * called before the locks on entities updated by the transaction are released; hence notifications of an entity
+         * are queued in the order of commits
+         */
+        @Override
+        public void onComplete(boolean isSuccess) {
+            pendingEvents.remove();
+
+            if (isSuccess) {
+                enqueue(events);
+            }
+        }
+    }
+
+    private static class QueuedEvent {
+        private final EntityChangeEvent event;
+        private final long              journalOffset;
+
+        QueuedEvent(EntityChangeEvent event, long journalOffset) {
+            this.event         = event;
+            this.journalOffset = journalOffset;
+        }
+    }
+
+    private class Partition implements Runnable {
+        private final BlockingQueue<QueuedEvent> queue = new LinkedBlockingQueue<>();
+        private final Semaphore                  slots = new Semaphore(queueSize);
+        private final RandomAccessFile           journal;
+        private final RandomAccessFile           offset;
+        private final Thread                     thread;
+        private volatile boolean                 isStopped = false;
+
+        Partition(int index) throws IOException {
+            String name = JOURNAL_FILE_PREFIX + index;
+
+            this.journal = new RandomAccessFile(new File(journalDir, name + JOURNAL_FILE_SUFFIX), "rw");
+            this.offset  = new RandomAccessFile(new File(journalDir, name + OFFSET_FILE_SUFFIX), "rw");
+            this.thread  = new Thread(this, "atlas-entity-notifier-" + index);
+
+            this.thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        /*
+         * returns false if the partition is stopped, in which case the notification is not queued
+         */
+        boolean add(EntityChangeEvent event) {
+            // wait for space in the queue outside the lock, which the worker takes after delivering each notification
+            try {
+                while (!slots.tryAcquire(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                    if (isStopped) {
+                        return false;
+                    }
+                }
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+
+                return false;
+            }
+
+            synchronized (this) {
+                if (isStopped) { // the journal might be closed
+                    slots.release();
+
+                    return false;
+                }
+
+                queue.add(new QueuedEvent(event, append(event)));
+            }
+
+            return true;
+        }
+
+        void stop() {
+            synchronized (this) {
+                isStopped = true;
+            }
+
+            try {
+                thread.join(STOP_WAIT_MS);
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (!queue.isEmpty()) {
+                LOG.warn("{}: {} entity change notifications not delivered; these will be delivered after restart",
+                         thread.getName(), queue.size());
+            }
+
+            synchronized (this) {
+                try {
+                    journal.close();
+                    offset.close();
+                } catch (IOException excp) {
+                    LOG.warn("{}: failed to close entity change journal", thread.getName(), excp);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!isStopped) {
+                QueuedEvent queuedEvent;
+
+                try {
+                    queuedEvent = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException excp) {
+                    break;
+                }
+
+                if (queuedEvent == null) {
+                    continue;
+                }
+
+                try {
+                    deliverWithRetries(queuedEvent.event);
+                } finally {
+                    onDelivered(queuedEvent);
+
+                    slots.release();
+                }
+            }
+        }
+
+        /*
+         * returns the journal offset after the appended notification; -1 if the notification couldn't be journaled
+         */
+        private long append(EntityChangeEvent event) {
+            long ret = -1;
+
+            try {
+                byte[] record = serialize(event);
+
+                journal.seek(journal.length());
+                journal.writeInt(record.length);
+                journal.write(record);
+
+                if (syncJournal) {
+                    journal.getFD().sync();
+                }
+
+                ret = journal.getFilePointer();
+            } catch (IOException excp) {
+                LOG.error("{}: failed to journal entity change notification {}", thread.getName(), event, excp);
+            }
+
+            return ret;
+        }
+
+        private synchronized void onDelivered(QueuedEvent queuedEvent) {
+            try {
+                if (queue.isEmpty()) {
+                    journal.setLength(0);
+                    offset.setLength(0);
+                } else if (queuedEvent.journalOffset != -1) {
+                    offset.seek(0);
+                    offset.writeLong(queuedEvent.journalOffset);
+                }
+            } catch (IOException excp) {
+                LOG.error("{}: failed to update entity change journal", thread.getName(), excp);
+            }
+        }
+    }
+}
@@ -151,6 +151,8 @@ public class EntityGraphMapper {
 
                 mapRelationshipAttributes(createdEntity, vertex, CREATE, context);
 
+                UniqueAttributeGuidCache.getInstance().recordCreate(entityType, createdEntity.getAttributes(), guid);
+
                 resp.addEntity(CREATE, constructHeader(createdEntity, entityType, vertex));
                 addClassifications(context, guid, createdEntity.getClassifications());
             }
@@ -162,6 +164,10 @@ public class EntityGraphMapper {
                 AtlasVertex     vertex     = context.getVertex(guid);
                 AtlasEntityType entityType = context.getType(guid);
 
+                if (isUniqueAttributeUpdated(updatedEntity, entityType, vertex)) {
+                    UniqueAttributeGuidCache.getInstance().recordInvalidation(guid);
+                }
+
                 mapAttributes(updatedEntity, vertex, UPDATE, context);
 
                 mapRelationshipAttributes(updatedEntity, vertex, UPDATE, context);
@@ -197,6 +203,21 @@ public class EntityGraphMapper {
         return resp;
     }
 
+    private boolean isUniqueAttributeUpdated(AtlasEntity entity, AtlasEntityType entityType, AtlasVertex vertex) {
+        for (AtlasAttribute attribute : entityType.getUniqAttributes().values()) {
+            if (entity.hasAttribute(attribute.getName())) {
+                Object newValue = entity.getAttribute(attribute.getName());
+                Object curValue = vertex.getProperty(attribute.getVertexPropertyName(), Object.class);
+
+                if (!UniqueAttributeGuidCache.areEqualValues(attribute, newValue, curValue)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
     private AtlasVertex createStructVertex(AtlasStruct struct) {
         if (LOG.isDebugEnabled()) {
             LOG.debug("==> createStructVertex({})", struct.getTypeName());
@@ -1188,6 +1209,14 @@ public class EntityGraphMapper {
                 throw new AtlasBaseException(AtlasErrorCode.INSTANCE_GUID_NOT_FOUND, guid);
             }
 
+            addClassifications(context, instanceVertex, classifications);
+        }
+    }
+
+    public void addClassifications(final EntityMutationContext context, AtlasVertex instanceVertex, List<AtlasClassification> classifications)
+        throws AtlasBaseException {
+
+        if (CollectionUtils.isNotEmpty(classifications)) {
             String entityTypeName = AtlasGraphUtilsV1.getTypeName(instanceVertex);
 
             final AtlasEntityType entityType = typeRegistry.getEntityTypeByName(entityTypeName);
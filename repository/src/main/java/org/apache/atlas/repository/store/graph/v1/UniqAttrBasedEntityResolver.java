@@ -25,17 +25,24 @@ import org.apache.atlas.repository.graphdb.AtlasVertex;
 import org.apache.atlas.repository.store.graph.EntityGraphDiscoveryContext;
 import org.apache.atlas.repository.store.graph.EntityResolver;
 import org.apache.atlas.type.AtlasEntityType;
+import org.apache.atlas.type.AtlasStructType.AtlasAttribute;
 import org.apache.atlas.type.AtlasTypeRegistry;
+import org.apache.commons.collections.MapUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 
 public class UniqAttrBasedEntityResolver implements EntityResolver {
     private static final Logger LOG = LoggerFactory.getLogger(UniqAttrBasedEntityResolver.class);
 
+    // maximum number of attribute values looked up in a single graph query
+    private static final int MAX_VALUES_PER_QUERY = 100;
+
     private final AtlasTypeRegistry typeRegistry;
 
     public UniqAttrBasedEntityResolver(AtlasTypeRegistry typeRegistry) {
@@ -48,22 +55,71 @@ public class UniqAttrBasedEntityResolver implements EntityResolver {
             throw new AtlasBaseException(AtlasErrorCode.INTERNAL_ERROR, "UniqAttrBasedEntityResolver.resolveEntityReferences(): context is null");
         }
 
-        //Resolve attribute references
-        List<AtlasObjectId> resolvedReferences = new ArrayList<>();
+        // group references by type and unique attribute, to look up each group with a single query
+        Map<String, ReferenceGroup> groups     = new LinkedHashMap<>();
+        List<AtlasObjectId>         unresolved = new ArrayList<>();
 
         for (AtlasObjectId objId : context.getReferencedByUniqAttribs()) {
-            //query in graph repo that given unique attribute - check for deleted also?
             AtlasEntityType entityType = typeRegistry.getEntityTypeByName(objId.getTypeName());
 
             if (entityType == null) {
                 throw new AtlasBaseException(AtlasErrorCode.TYPE_NAME_INVALID, TypeCategory.ENTITY.name(), objId.getTypeName());
             }
 
-            AtlasVertex vertex = AtlasGraphUtilsV1.findByUniqueAttributes(entityType, objId.getUniqueAttributes());
+            AtlasAttribute attribute = getLookupAttribute(entityType, objId);
+
+            if (attribute == null || AtlasGraphUtilsV1.canUseIndexQuery(entityType, attribute.getName())) {
+                unresolved.add(objId);
+
+                continue;
+            }
+
+            String         groupKey = entityType.getTypeName() + "." + attribute.getName();
+            ReferenceGroup group    = groups.get(groupKey);
+
+            if (group == null) {
+                group = new ReferenceGroup(entityType, attribute);
+
+                groups.put(groupKey, group);
+            }
+
+            group.add(objId.getUniqueAttributes().get(attribute.getName()), objId);
+        }
+
+        for (ReferenceGroup group : groups.values()) {
+            List<Object> attrValues = new ArrayList<>(group.objIdsByValue.keySet());
+
+            for (int i = 0; i < attrValues.size(); i += MAX_VALUES_PER_QUERY) {
+                List<Object>             batch    = attrValues.subList(i, Math.min(i + MAX_VALUES_PER_QUERY, attrValues.size()));
+                Map<Object, AtlasVertex> vertices = AtlasGraphUtilsV1.findByUniqueAttributeValues(group.entityType, group.attribute, batch);
+
+                for (Object attrValue : batch) {
+                    AtlasVertex         vertex = vertices.get(attrValue);
+                    List<AtlasObjectId> objIds = group.objIdsByValue.get(attrValue);
+
+                    if (vertex != null) {
+                        for (AtlasObjectId objId : objIds) {
+                            context.addResolvedIdByUniqAttribs(objId, vertex);
+                        }
+                    } else {
+                        unresolved.addAll(objIds);
+                    }
+                }
+            }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("resolveEntityReferences(): {} references in {} groups; {} to be resolved individually",
+                      context.getReferencedByUniqAttribs().size(), groups.size(), unresolved.size());
+        }
+
+        // references not found above might match by other unique attributes, or by an index query
+        for (AtlasObjectId objId : unresolved) {
+            AtlasEntityType entityType = typeRegistry.getEntityTypeByName(objId.getTypeName());
+            AtlasVertex     vertex     = AtlasGraphUtilsV1.findByUniqueAttributes(entityType, objId.getUniqueAttributes());
 
             if (vertex != null) {
                 context.addResolvedIdByUniqAttribs(objId, vertex);
-                resolvedReferences.add(objId);
             } else {
                 throw new AtlasBaseException(AtlasErrorCode.REFERENCED_ENTITY_NOT_FOUND, objId.toString());
             }
@@ -71,5 +127,45 @@ public class UniqAttrBasedEntityResolver implements EntityResolver {
 
         return context;
     }
-}
 
+    /**
+     * @return the unique attribute findByUniqueAttributes() would look up first for the given reference
+     */
+    private AtlasAttribute getLookupAttribute(AtlasEntityType entityType, AtlasObjectId objId) {
+        Map<String, AtlasAttribute> uniqueAttributes = entityType.getUniqAttributes();
+        Map<String, Object>         attrValues       = objId.getUniqueAttributes();
+
+        if (MapUtils.isNotEmpty(uniqueAttributes) && MapUtils.isNotEmpty(attrValues)) {
+            for (AtlasAttribute attribute : uniqueAttributes.values()) {
+                if (attrValues.get(attribute.getName()) != null) {
+                    return attribute;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static class ReferenceGroup {
+        private final AtlasEntityType                  entityType;
+        private final AtlasAttribute                   attribute;
+        private final Map<Object, List<AtlasObjectId>> objIdsByValue = new LinkedHashMap<>();
+
+        ReferenceGroup(AtlasEntityType entityType, AtlasAttribute attribute) {
+            this.entityType = entityType;
+            this.attribute  = attribute;
+        }
+
+        void add(Object attrValue, AtlasObjectId objId) {
+            List<AtlasObjectId> objIds = objIdsByValue.get(attrValue);
+
+            if (objIds == null) {
+                objIds = new ArrayList<>();
+
+                objIdsByValue.put(attrValue, objIds);
+            }
+
+            objIds.add(objId);
+        }
+    }
+}
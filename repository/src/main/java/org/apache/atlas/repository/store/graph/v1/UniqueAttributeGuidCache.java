@@ -0,0 +1,403 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v1;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import org.apache.atlas.ApplicationProperties;
+import org.apache.atlas.GraphTransactionInterceptor;
+import org.apache.atlas.type.AtlasEntityType;
+import org.apache.atlas.type.AtlasStructType.AtlasAttribute;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of entity guids by (typeName, unique attribute, value), shared across requests.
+ *
+ * Entries are added when a lookup by unique attributes finds an entity, and when an entity is created. Entries of
+ * entities that are deleted, or whose unique attribute values change, are removed once the transaction completes.
+ * Changes made within a transaction are not visible to other transactions until it commits, hence:
+ *  - entries of entities created in a transaction are added only after the transaction commits
+ *  - lookups within a transaction don't add entries for entities it created, deleted or updated
+ *  - a lookup doesn't add an entry if any entry was removed since the lookup started, as the entity found might
+ *    have been deleted or renamed by another transaction in the meantime
+ *
+ * Entries to remove are found with an index of cache keys by guid, updated when entries are added and, through a
+ * removal listener, when entries are removed or evicted.
+ */
+public class UniqueAttributeGuidCache {
+    private static final Logger LOG = LoggerFactory.getLogger(UniqueAttributeGuidCache.class);
+
+    public static final String CACHE_SIZE_PROPERTY = "atlas.entity.uniqueattribute.cache.size";
+    public static final int    DEFAULT_CACHE_SIZE  = 10000;
+
+    private static UniqueAttributeGuidCache INSTANCE;
+
+    private final Cache<CacheKey, String>      cache;
+    private final Map<String, Set<CacheKey>>   keysByGuid      = new HashMap<>(); // guarded by this
+    private final AtomicLong                   invalidationSeq = new AtomicLong();
+    private final AtomicLong                   hitCount        = new AtomicLong();
+    private final AtomicLong                   missCount       = new AtomicLong();
+    private final ThreadLocal<PendingChanges>  pendingChanges  = new ThreadLocal<>();
+
+    public static synchronized UniqueAttributeGuidCache getInstance() {
+        if (INSTANCE == null) {
+            int cacheSize = DEFAULT_CACHE_SIZE;
+
+            try {
+                Configuration conf = ApplicationProperties.get();
+
+                cacheSize = conf.getInt(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE);
+            } catch (Exception excp) {
+                LOG.error("Error reading configuration", excp);
+            } finally {
+                LOG.info(CACHE_SIZE_PROPERTY + "=" + cacheSize);
+            }
+
+            INSTANCE = new UniqueAttributeGuidCache(cacheSize);
+        }
+
+        return INSTANCE;
+    }
+
+    @VisibleForTesting
+    UniqueAttributeGuidCache(int cacheSize) {
+        this.cache = cacheSize > 0 ? CacheBuilder.newBuilder().maximumSize(cacheSize).removalListener(new IndexUpdater()).<CacheKey, String>build() : null;
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * @return guid of the entity having any of the given unique attribute values; null if none is cached
+     */
+    public String getGuid(AtlasEntityType entityType, Map<String, Object> attrValues) {
+        String ret = null;
+
+        if (isEnabled() && MapUtils.isNotEmpty(attrValues)) {
+            for (AtlasAttribute attribute : entityType.getUniqAttributes().values()) {
+                Object attrValue = attrValues.get(attribute.getName());
+
+                if (attrValue != null) {
+                    ret = cache.getIfPresent(getKey(entityType, attribute, attrValue));
+
+                    if (ret != null) {
+                        break;
+                    }
+                }
+            }
+
+            if (ret != null) {
+                hitCount.incrementAndGet();
+            } else {
+                missCount.incrementAndGet();
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * To be called before looking up an entity in the graph; the value returned is to be passed to put().
+     */
+    public long getInvalidationSeq() {
+        return invalidationSeq.get();
+    }
+
+    /**
+     * Adds the guid of an entity found by a lookup that started when getInvalidationSeq() returned the given value.
+     */
+    public void put(AtlasEntityType entityType, AtlasAttribute attribute, Object attrValue, String guid, long seq) {
+        if (!isEnabled() || attrValue == null || guid == null) {
+            return;
+        }
+
+        PendingChanges pending = pendingChanges.get();
+
+        if (pending != null && pending.touchedGuids.contains(guid)) {
+            return;
+        }
+
+        CacheKey key = getKey(entityType, attribute, attrValue);
+
+        synchronized (this) {
+            if (seq == invalidationSeq.get()) {
+                add(key, guid);
+            }
+        }
+    }
+
+    /**
+     * Records an entity created in the current transaction, to be added once the transaction commits.
+     */
+    public void recordCreate(AtlasEntityType entityType, Map<String, Object> attrValues, String guid) {
+        if (!isEnabled() || MapUtils.isEmpty(attrValues)) {
+            return;
+        }
+
+        PendingChanges pending = getPendingChanges();
+
+        pending.touchedGuids.add(guid);
+
+        for (AtlasAttribute attribute : entityType.getUniqAttributes().values()) {
+            Object attrValue = attrValues.get(attribute.getName());
+
+            if (attrValue != null) {
+                pending.entriesToAdd.add(new CacheEntry(getKey(entityType, attribute, attrValue), guid));
+            }
+        }
+    }
+
+    /**
+     * Records an entity deleted, or whose unique attributes are updated, in the current transaction; its entries are
+     * removed once the transaction completes.
+     */
+    public void recordInvalidation(String guid) {
+        if (!isEnabled() || guid == null) {
+            return;
+        }
+
+        PendingChanges pending = getPendingChanges();
+
+        pending.touchedGuids.add(guid);
+        pending.guidsToInvalidate.add(guid);
+    }
+
+    public void invalidate(Collection<String> guids) {
+        if (!isEnabled() || guids == null || guids.isEmpty()) {
+            return;
+        }
+
+        synchronized (this) {
+            invalidationSeq.incrementAndGet();
+
+            Set<CacheKey> keysToRemove = new HashSet<>();
+
+            for (String guid : guids) {
+                Set<CacheKey> keys = keysByGuid.get(guid);
+
+                if (keys != null) {
+                    keysToRemove.addAll(keys);
+                }
+            }
+
+            for (CacheKey key : keysToRemove) {
+                cache.asMap().remove(key); // the index is updated by the removal listener
+            }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("invalidated cached guids: {}", guids);
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getSize() {
+        return isEnabled() ? cache.size() : 0;
+    }
+
+    @VisibleForTesting
+    void clear() {
+        if (isEnabled()) {
+            synchronized (this) {
+                invalidationSeq.incrementAndGet();
+
+                cache.invalidateAll();
+
+                keysByGuid.clear();
+            }
+        }
+
+        pendingChanges.remove();
+    }
+
+    @VisibleForTesting
+    synchronized int getIndexSize() {
+        if (isEnabled()) {
+            cache.cleanUp(); // runs the removal listener for pending removals
+        }
+
+        return keysByGuid.size();
+    }
+
+    /**
+     * @return whether the given values of an attribute are equal, after normalizing them to the attribute type
+     */
+    public static boolean areEqualValues(AtlasAttribute attribute, Object val1, Object val2) {
+        Object normalizedVal1 = normalize(attribute, val1);
+
+        return normalizedVal1 != null && normalizedVal1.equals(normalize(attribute, val2));
+    }
+
+    private synchronized void add(CacheKey key, String guid) {
+        // index before adding, so that the removal listener finds the entry if it is evicted right away
+        Set<CacheKey> keys = keysByGuid.get(guid);
+
+        if (keys == null) {
+            keys = new HashSet<>();
+
+            keysByGuid.put(guid, keys);
+        }
+
+        keys.add(key);
+
+        cache.put(key, guid);
+    }
+
+    private static CacheKey getKey(AtlasEntityType entityType, AtlasAttribute attribute, Object attrValue) {
+        return new CacheKey(entityType.getTypeName(), attribute.getName(), normalize(attribute, attrValue));
+    }
+
+    private static Object normalize(AtlasAttribute attribute, Object value) {
+        Object ret = value != null ? attribute.getAttributeType().getNormalizedValue(value) : null;
+
+        return ret != null ? ret : value;
+    }
+
+    private PendingChanges getPendingChanges() {
+        PendingChanges ret = pendingChanges.get();
+
+        if (ret == null) {
+            ret = new PendingChanges();
+
+            pendingChanges.set(ret);
+        }
+
+        return ret;
+    }
+
+    private class PendingChanges extends GraphTransactionInterceptor.PostTransactionHook {
+        private final Set<String>      touchedGuids      = new HashSet<>();
+        private final Set<String>      guidsToInvalidate = new HashSet<>();
+        private final List<CacheEntry> entriesToAdd      = new ArrayList<>();
+
+        @Override
+        public void onComplete(boolean isSuccess) {
+            pendingChanges.remove();
+
+            invalidate(guidsToInvalidate);
+
+            if (isSuccess) {
+                for (CacheEntry entry : entriesToAdd) {
+                    add(entry.key, entry.guid);
+                }
+            }
+        }
+    }
+
+    /*
+     * removes a key from the index when its entry is removed or evicted, unless the key is now mapped to the same guid
+     */
+    private class IndexUpdater implements RemovalListener<CacheKey, String> {
+        @Override
+        public void onRemoval(RemovalNotification<CacheKey, String> notification) {
+            CacheKey key  = notification.getKey();
+            String   guid = notification.getValue();
+
+            if (key == null || guid == null) {
+                return;
+            }
+
+            synchronized (UniqueAttributeGuidCache.this) {
+                if (guid.equals(cache.asMap().get(key))) {
+                    return;
+                }
+
+                Set<CacheKey> keys = keysByGuid.get(guid);
+
+                if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                    keysByGuid.remove(guid);
+                }
+            }
+        }
+    }
+
+    private static class CacheEntry {
+        private final CacheKey key;
+        private final String   guid;
+
+        CacheEntry(CacheKey key, String guid) {
+            this.key  = key;
+            this.guid = guid;
+        }
+    }
+
+    private static class CacheKey {
+        private final String typeName;
+        private final String attrName;
+        private final Object attrValue;
+
+        CacheKey(String typeName, String attrName, Object attrValue) {
+            this.typeName  = typeName;
+            this.attrName  = attrName;
+            this.attrValue = attrValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            CacheKey other = (CacheKey) o;
+
+            return typeName.equals(other.typeName) && attrName.equals(other.attrName) && attrValue.equals(other.attrValue);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = typeName.hashCode();
+
+            result = 31 * result + attrName.hashCode();
+            result = 31 * result + attrValue.hashCode();
+
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return typeName + "." + attrName + "=" + attrValue;
+        }
+    }
+}
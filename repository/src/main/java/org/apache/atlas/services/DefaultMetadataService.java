@@ -38,6 +38,9 @@ import org.apache.atlas.repository.MetadataRepository;
 import org.apache.atlas.repository.RepositoryException;
 import org.apache.atlas.repository.audit.EntityAuditRepository;
 import org.apache.atlas.repository.graph.GraphHelper;
+import org.apache.atlas.repository.store.graph.v1.EntityChangeNotificationDispatcher;
+import org.apache.atlas.repository.store.graph.v1.EntityChangeNotificationDispatcher.EntityChangeEvent;
+import org.apache.atlas.repository.store.graph.v1.EntityChangeNotificationDispatcher.EntityChangeEvent.EventType;
 import org.apache.atlas.repository.typestore.ITypeStore;
 import org.apache.atlas.type.AtlasTypeUtil;
 import org.apache.atlas.typesystem.IReferenceableInstance;
@@ -64,6 +67,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
+import javax.inject.Provider;
 import javax.inject.Singleton;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -101,7 +105,8 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
 
     private EntityAuditRepository auditRepository;
 
-    @Inject
+    private final Provider<EntityChangeNotificationDispatcher> dispatcherProvider;
+
     public DefaultMetadataService(final MetadataRepository repository, final ITypeStore typeStore,
                                   final Set<TypesChangeListener> typesChangeListeners,
                                   final Set<EntityChangeListener> entityChangeListeners,
@@ -109,6 +114,25 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
                                   final Configuration configuration,
                                   TypeCache typeCache,
                                   EntityAuditRepository auditRepository) throws AtlasException {
+        this(repository, typeStore, typesChangeListeners, entityChangeListeners, typeSystem, configuration, typeCache,
+             auditRepository, null);
+    }
+
+    /**
+     * @param dispatcherProvider provides the dispatcher that notifies entity changes to listeners, in the same order as
+     *                           changes made through v2 APIs; listeners are notified by this instance if null. A
+     *                           provider is used, as the dispatcher depends on MetadataService
+     */
+    @Inject
+    public DefaultMetadataService(final MetadataRepository repository, final ITypeStore typeStore,
+                                  final Set<TypesChangeListener> typesChangeListeners,
+                                  final Set<EntityChangeListener> entityChangeListeners,
+                                  final TypeSystem typeSystem,
+                                  final Configuration configuration,
+                                  TypeCache typeCache,
+                                  EntityAuditRepository auditRepository,
+                                  Provider<EntityChangeNotificationDispatcher> dispatcherProvider) throws AtlasException {
+        this.dispatcherProvider = dispatcherProvider;
         this.typeStore = typeStore;
         this.typeSystem = typeSystem;
         /**
@@ -686,6 +710,13 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
 
     private void onEntitiesAdded(List<String> guids) throws AtlasException {
         List<ITypedReferenceableInstance> entities = loadEntities(guids);
+
+        if (dispatcherProvider != null) {
+            notifyListeners(new EntityChangeEvent(EventType.ENTITIES_ADDED, false, entities));
+
+            return;
+        }
+
         for (EntityChangeListener listener : entityChangeListeners) {
             listener.onEntitiesAdded(entities, false);
         }
@@ -703,13 +734,26 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
 
     private void onEntitiesUpdated(List<String> guids) throws AtlasException {
         List<ITypedReferenceableInstance> entities = loadEntities(guids);
+
+        if (dispatcherProvider != null) {
+            notifyListeners(new EntityChangeEvent(EventType.ENTITIES_UPDATED, false, entities));
+
+            return;
+        }
+
         for (EntityChangeListener listener : entityChangeListeners) {
             listener.onEntitiesUpdated(entities, false);
         }
     }
 
-    private void onTraitAddedToEntity(ITypedReferenceableInstance entity, IStruct trait) throws AtlasException {
-        Collection<IStruct> traits = Collections.singletonList(trait);
+    private void onTraitAddedToEntity(ITypedReferenceableInstance entity, ITypedStruct trait) throws AtlasException {
+        if (dispatcherProvider != null) {
+            notifyListeners(new EntityChangeEvent(EventType.TRAITS_ADDED, entity, Collections.singletonList(trait), null));
+
+            return;
+        }
+
+        Collection<IStruct> traits = Collections.<IStruct>singletonList(trait);
 
         for (EntityChangeListener listener : entityChangeListeners) {
             listener.onTraitsAdded(entity, traits);
@@ -717,6 +761,12 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
     }
 
     private void onTraitDeletedFromEntity(ITypedReferenceableInstance entity, String traitName) throws AtlasException {
+        if (dispatcherProvider != null) {
+            notifyListeners(new EntityChangeEvent(EventType.TRAITS_DELETED, entity, null, Collections.singletonList(traitName)));
+
+            return;
+        }
+
         Collection<String> traitNames = Collections.singletonList(traitName);
 
         for (EntityChangeListener listener : entityChangeListeners) {
@@ -724,12 +774,32 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
         }
     }
 
+    private void notifyListeners(EntityChangeEvent event) throws AtlasException {
+        try {
+            dispatcherProvider.get().notifyListeners(event);
+        } catch (AtlasBaseException e) {
+            if (e.getCause() instanceof AtlasException) {
+                throw (AtlasException) e.getCause();
+            }
+
+            throw new AtlasException(e);
+        }
+    }
+
     public void registerListener(EntityChangeListener listener) {
-        entityChangeListeners.add(listener);
+        if (dispatcherProvider != null) {
+            dispatcherProvider.get().registerListener(listener);
+        } else {
+            entityChangeListeners.add(listener);
+        }
     }
 
     public void unregisterListener(EntityChangeListener listener) {
-        entityChangeListeners.remove(listener);
+        if (dispatcherProvider != null) {
+            dispatcherProvider.get().unregisterListener(listener);
+        } else {
+            entityChangeListeners.remove(listener);
+        }
     }
 
     @Override
@@ -772,6 +842,12 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
     }
 
     private void onEntitiesDeleted(List<ITypedReferenceableInstance> entities) throws AtlasException {
+        if (dispatcherProvider != null) {
+            notifyListeners(new EntityChangeEvent(EventType.ENTITIES_DELETED, false, entities));
+
+            return;
+        }
+
         for (EntityChangeListener listener : entityChangeListeners) {
             listener.onEntitiesDeleted(entities, false);
         }
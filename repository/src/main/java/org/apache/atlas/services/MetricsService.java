@@ -21,9 +21,12 @@ import com.google.common.annotations.VisibleForTesting;
 import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.annotation.AtlasService;
+import org.apache.atlas.discovery.LineageCache;
 import org.apache.atlas.exception.AtlasBaseException;
 import org.apache.atlas.model.metrics.AtlasMetrics;
 import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.utils.GremlinScriptEnginePool;
+import org.apache.atlas.repository.store.graph.v1.UniqueAttributeGuidCache;
 import org.apache.atlas.util.AtlasGremlinQueryProvider;
 import org.apache.atlas.util.AtlasGremlinQueryProvider.AtlasGremlinQuery;
 import org.apache.commons.configuration.Configuration;
@@ -63,6 +66,20 @@ public class MetricsService {
 
     public static final String METRIC_COLLECTION_TIME = "collectionTime";
 
+    public static final String METRIC_UNIQUE_ATTRIBUTE_CACHE_HITS   = "uniqueAttributeCacheHits";
+    public static final String METRIC_UNIQUE_ATTRIBUTE_CACHE_MISSES = "uniqueAttributeCacheMisses";
+    public static final String METRIC_UNIQUE_ATTRIBUTE_CACHE_SIZE   = "uniqueAttributeCacheSize";
+
+    public static final String METRIC_GREMLIN_SCRIPT_CACHE_HITS     = "gremlinScriptCacheHits";
+    public static final String METRIC_GREMLIN_SCRIPT_CACHE_MISSES   = "gremlinScriptCacheMisses";
+    public static final String METRIC_GREMLIN_SCRIPT_COMPILE_TIME   = "gremlinScriptCompileTimeMs";
+
+    public static final String METRIC_LINEAGE_CACHE_HITS            = "lineageCacheHits";
+    public static final String METRIC_LINEAGE_CACHE_MISSES          = "lineageCacheMisses";
+    public static final String METRIC_LINEAGE_CACHE_HIT_RATIO       = "lineageCacheHitRatio";
+    public static final String METRIC_LINEAGE_CACHE_INVALIDATIONS   = "lineageCacheInvalidations";
+    public static final String METRIC_LINEAGE_CACHE_SIZE            = "lineageCacheSize";
+
     private static Configuration            configuration = null;
     private static AtlasGremlinQueryProvider gremlinQueryProvider = null;
 
@@ -108,6 +125,24 @@ public class MetricsService {
                 }
             }
 
+            UniqueAttributeGuidCache guidCache = UniqueAttributeGuidCache.getInstance();
+
+            metrics.addData(GENERAL, METRIC_UNIQUE_ATTRIBUTE_CACHE_HITS, guidCache.getHitCount());
+            metrics.addData(GENERAL, METRIC_UNIQUE_ATTRIBUTE_CACHE_MISSES, guidCache.getMissCount());
+            metrics.addData(GENERAL, METRIC_UNIQUE_ATTRIBUTE_CACHE_SIZE, guidCache.getSize());
+
+            metrics.addData(GENERAL, METRIC_GREMLIN_SCRIPT_CACHE_HITS, GremlinScriptEnginePool.getHitCount());
+            metrics.addData(GENERAL, METRIC_GREMLIN_SCRIPT_CACHE_MISSES, GremlinScriptEnginePool.getMissCount());
+            metrics.addData(GENERAL, METRIC_GREMLIN_SCRIPT_COMPILE_TIME, GremlinScriptEnginePool.getCompileTimeMs());
+
+            LineageCache lineageCache = LineageCache.getInstance();
+
+            metrics.addData(GENERAL, METRIC_LINEAGE_CACHE_HITS, lineageCache.getHitCount());
+            metrics.addData(GENERAL, METRIC_LINEAGE_CACHE_MISSES, lineageCache.getMissCount());
+            metrics.addData(GENERAL, METRIC_LINEAGE_CACHE_HIT_RATIO, lineageCache.getHitRatio());
+            metrics.addData(GENERAL, METRIC_LINEAGE_CACHE_INVALIDATIONS, lineageCache.getInvalidationCount());
+            metrics.addData(GENERAL, METRIC_LINEAGE_CACHE_SIZE, lineageCache.getSize());
+
             long collectionTime = System.currentTimeMillis();
 
             metrics.addData(GENERAL, METRIC_COLLECTION_TIME, collectionTime);
@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.atlas.annotation.GraphTransaction;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class GraphTransactionInterceptorTest {
+    private AtlasGraph                  graph;
+    private GraphTransactionInterceptor interceptor;
+
+    @BeforeMethod
+    public void setup() {
+        graph       = mock(AtlasGraph.class);
+        interceptor = new GraphTransactionInterceptor(graph);
+    }
+
+    @Test
+    public void testWriteTransactionIsCommitted() throws Throwable {
+        assertEquals(interceptor.invoke(invocation("write", null)), "write");
+
+        verify(graph).commit();
+        verify(graph, never()).rollback();
+    }
+
+    @Test
+    public void testReadOnlyTransactionIsRolledBack() throws Throwable {
+        assertEquals(interceptor.invoke(invocation("read", null)), "read");
+
+        verify(graph, never()).commit();
+        verify(graph).rollback();
+    }
+
+    @Test
+    public void testReadOnlyMethodJoinsEnclosingTransaction() throws Throwable {
+        interceptor.invoke(invocation("write", invocation("read", null)));
+
+        verify(graph).commit();
+        verify(graph, never()).rollback();
+    }
+
+    @Test
+    public void testWriteIsRejectedInReadOnlyTransaction() throws Throwable {
+        try {
+            interceptor.invoke(invocation("read", invocation("write", null)));
+
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException excp) {
+            // expected
+        }
+
+        verify(graph, never()).commit();
+        verify(graph, times(1)).rollback();
+
+        // the read-only scope ends with the transaction
+        interceptor.invoke(invocation("write", null));
+
+        verify(graph).commit();
+    }
+
+    @Test
+    public void testDirectWriteIsRejectedInReadOnlyTransaction() throws Throwable {
+        when(graph.hasUncommittedChanges()).thenReturn(true);
+
+        try {
+            interceptor.invoke(invocation("read", null));
+
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException excp) {
+            // expected
+        }
+
+        verify(graph, never()).commit();
+        verify(graph).rollback();
+    }
+
+    @Test
+    public void testReadOnlyMethodJoinsPendingUpdates() throws Throwable {
+        final boolean[] hookStatus = new boolean[2]; // isCalled, isSuccess
+
+        // updates made outside of methods annotated with @GraphTransaction, not yet committed
+        new GraphTransactionInterceptor.PostTransactionHook() {
+            @Override
+            public void onComplete(boolean isSuccess) {
+                hookStatus[0] = true;
+                hookStatus[1] = isSuccess;
+            }
+        };
+
+        try {
+            assertEquals(interceptor.invoke(invocation("read", null)), "read");
+
+            verify(graph, never()).commit();
+            verify(graph, never()).rollback();
+            assertFalse(hookStatus[0]);
+
+            // nested updates are rejected, as in a read-only transaction
+            try {
+                interceptor.invoke(invocation("read", invocation("write", null)));
+
+                fail("Expected IllegalStateException");
+            } catch (IllegalStateException excp) {
+                // expected
+            }
+
+            verify(graph, never()).commit();
+            verify(graph, never()).rollback();
+            assertFalse(hookStatus[0]);
+        } finally {
+            GraphTransactionInterceptor.onTransactionComplete(true);
+        }
+
+        assertTrue(hookStatus[0]);
+        assertTrue(hookStatus[1]);
+
+        // with no pending updates, a read-only transaction is rolled back
+        interceptor.invoke(invocation("read", null));
+
+        verify(graph).rollback();
+    }
+
+    private MethodInvocation invocation(final String methodName, final MethodInvocation nested) throws Throwable {
+        MethodInvocation ret = mock(MethodInvocation.class);
+
+        when(ret.getMethod()).thenReturn(TestService.class.getMethod(methodName));
+        when(ret.proceed()).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocationOnMock) throws Throwable {
+                if (nested != null) {
+                    interceptor.invoke(nested);
+                }
+
+                return methodName;
+            }
+        });
+
+        return ret;
+    }
+
+    public static class TestService {
+        @GraphTransaction
+        public String write() {
+            return "write";
+        }
+
+        @GraphTransaction(readOnly = true)
+        public String read() {
+            return "read";
+        }
+    }
+}
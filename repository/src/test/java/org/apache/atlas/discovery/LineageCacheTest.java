@@ -0,0 +1,285 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.discovery;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.atlas.AtlasClient;
+import org.apache.atlas.GraphTransactionInterceptor;
+import org.apache.atlas.model.instance.AtlasEntityHeader;
+import org.apache.atlas.model.lineage.AtlasLineageInfo;
+import org.apache.atlas.model.lineage.AtlasLineageInfo.LineageDirection;
+import org.apache.atlas.model.lineage.AtlasLineageInfo.LineageRelation;
+import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graphdb.AtlasEdge;
+import org.apache.atlas.repository.graphdb.AtlasEdgeDirection;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class LineageCacheTest {
+    private LineageCache                cache;
+    private GraphTransactionInterceptor interceptor;
+
+    @BeforeClass
+    public void setUp() {
+        interceptor = new GraphTransactionInterceptor(mock(AtlasGraph.class));
+    }
+
+    @BeforeMethod
+    public void createCache() {
+        cache = new LineageCache(1024 * 1024);
+    }
+
+    @Test
+    public void testLineageIsCached() {
+        assertNull(cache.get("table1", LineageDirection.INPUT, 3));
+
+        cache.put(lineage("table1", LineageDirection.INPUT, 3, "process1", "table0"), cache.getInvalidationSeq());
+
+        assertNotNull(cache.get("table1", LineageDirection.INPUT, 3));
+        assertNull(cache.get("table1", LineageDirection.OUTPUT, 3));
+        assertNull(cache.get("table1", LineageDirection.INPUT, 4));
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 3);
+        assertEquals(cache.getHitRatio(), 0.25);
+        assertEquals(cache.getSize(), 1);
+    }
+
+    @Test
+    public void testCacheIsBoundedByMemory() {
+        cache = new LineageCache(100 * 1024);
+
+        // each result is estimated to take over 4KB
+        for (int i = 0; i < 100; i++) {
+            cache.put(lineage("table" + i, LineageDirection.INPUT, 3, "process" + i, "source" + i), cache.getInvalidationSeq());
+        }
+
+        assertTrue(cache.getSize() > 0);
+        assertTrue(cache.getSize() <= 25);
+
+        // evicted results are removed from the index: each result has 3 entities of its own
+        assertEquals(cache.getIndexSize(), cache.getSize() * 3);
+    }
+
+    @Test
+    public void testInvalidatedResultsAreRemovedFromIndex() {
+        cache.put(lineage("table1", LineageDirection.INPUT, 3, "process1", "table0"), cache.getInvalidationSeq());
+        cache.put(lineage("table1", LineageDirection.OUTPUT, 3, "process2", "table2"), cache.getInvalidationSeq());
+
+        assertEquals(cache.getIndexSize(), 5);
+
+        cache.invalidate(Collections.singleton("process2"));
+
+        assertNotNull(cache.get("table1", LineageDirection.INPUT, 3));
+        assertNull(cache.get("table1", LineageDirection.OUTPUT, 3));
+        assertEquals(cache.getIndexSize(), 3);
+
+        // a replaced result keeps the entities it shares with the new result in the index
+        cache.put(lineage("table1", LineageDirection.INPUT, 3, "process1", "table3"), cache.getInvalidationSeq());
+
+        assertEquals(cache.getIndexSize(), 3);
+
+        cache.invalidate(Collections.singleton("table3"));
+
+        assertNull(cache.get("table1", LineageDirection.INPUT, 3));
+        assertEquals(cache.getIndexSize(), 0);
+    }
+
+    @Test
+    public void testChangeRecordedWhileCacheIsEmptyInvalidatesResultsAddedInTransaction() throws Throwable {
+        final AtlasVertex table0 = vertex("table0", AtlasClient.DATA_SET_SUPER_TYPE);
+
+        inTransaction(new Runnable() {
+            @Override
+            public void run() {
+                cache.recordEntityChange(table0);
+
+                // added by another request while the transaction is in progress
+                Thread other = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        cache.put(lineage("table1", LineageDirection.INPUT, 3, "process1", "table0"), cache.getInvalidationSeq());
+                    }
+                });
+
+                other.start();
+
+                try {
+                    other.join();
+                } catch (InterruptedException excp) {
+                    throw new RuntimeException(excp);
+                }
+
+                assertEquals(cache.getSize(), 1);
+            }
+        }, true);
+
+        assertNull(cache.get("table1", LineageDirection.INPUT, 3));
+    }
+
+    @Test
+    public void testLineageComputedBeforeInvalidationIsNotCached() {
+        long seq = cache.getInvalidationSeq();
+
+        cache.invalidate(Collections.singleton("process1"));
+        cache.put(lineage("table1", LineageDirection.INPUT, 3, "process1", "table0"), seq);
+
+        assertNull(cache.get("table1", LineageDirection.INPUT, 3));
+    }
+
+    @Test
+    public void testChangedEntityInvalidatesLineageAfterTransaction() throws Throwable {
+        cache.put(lineage("table1", LineageDirection.INPUT, 3, "process1", "table0"), cache.getInvalidationSeq());
+        cache.put(lineage("table2", LineageDirection.INPUT, 3, "process2", "table3"), cache.getInvalidationSeq());
+
+        inTransaction(new Runnable() {
+            @Override
+            public void run() {
+                cache.recordInvalidation("table0");
+
+                assertNotNull(cache.get("table1", LineageDirection.INPUT, 3));
+
+                // lineage computed by a transaction that changed entities is not cached
+                cache.put(lineage("table4", LineageDirection.INPUT, 3, "process4", "table5"), cache.getInvalidationSeq());
+            }
+        }, true);
+
+        assertNull(cache.get("table1", LineageDirection.INPUT, 3));
+        assertNotNull(cache.get("table2", LineageDirection.INPUT, 3));
+        assertNull(cache.get("table4", LineageDirection.INPUT, 3));
+        assertEquals(cache.getInvalidationCount(), 1);
+    }
+
+    @Test
+    public void testProcessChangeInvalidatesLineageOfItsInputs() throws Throwable {
+        // lineage of table1 doesn't include process2 yet; creating process2, with table1 as input, changes it
+        cache.put(lineage("table1", LineageDirection.OUTPUT, 3, "process1", "table0"), cache.getInvalidationSeq());
+        cache.put(new AtlasLineageInfo("table9", new HashMap<String, AtlasEntityHeader>(), new HashSet<LineageRelation>(), LineageDirection.OUTPUT, 3), cache.getInvalidationSeq());
+
+        final AtlasVertex process2 = vertex("process2", AtlasClient.PROCESS_SUPER_TYPE);
+
+        when(process2.getEdges(AtlasEdgeDirection.OUT, EntityLineageService.INPUT_PROCESS_EDGE)).thenReturn(Collections.singletonList(edgeTo(vertex("table1", AtlasClient.DATA_SET_SUPER_TYPE))));
+        when(process2.getEdges(AtlasEdgeDirection.OUT, EntityLineageService.OUTPUT_PROCESS_EDGE)).thenReturn(Collections.singletonList(edgeTo(vertex("table9", AtlasClient.DATA_SET_SUPER_TYPE))));
+
+        inTransaction(new Runnable() {
+            @Override
+            public void run() {
+                cache.recordEntityChange(process2);
+            }
+        }, true);
+
+        assertNull(cache.get("table1", LineageDirection.OUTPUT, 3));
+        assertNull(cache.get("table9", LineageDirection.OUTPUT, 3));
+    }
+
+    @Test
+    public void testChangesAreInvalidatedOnRollback() throws Throwable {
+        cache.put(lineage("table1", LineageDirection.INPUT, 3, "process1", "table0"), cache.getInvalidationSeq());
+
+        inTransaction(new Runnable() {
+            @Override
+            public void run() {
+                cache.recordInvalidation("process1");
+            }
+        }, false);
+
+        assertNull(cache.get("table1", LineageDirection.INPUT, 3));
+    }
+
+    private AtlasLineageInfo lineage(String guid, LineageDirection direction, int depth, String processGuid, String otherGuid) {
+        Map<String, AtlasEntityHeader> entities  = new HashMap<>();
+        Set<LineageRelation>           relations = new HashSet<>();
+
+        for (String entityGuid : new String[] { guid, processGuid, otherGuid }) {
+            AtlasEntityHeader header = new AtlasEntityHeader();
+
+            header.setGuid(entityGuid);
+
+            entities.put(entityGuid, header);
+        }
+
+        relations.add(new LineageRelation(otherGuid, processGuid));
+        relations.add(new LineageRelation(processGuid, guid));
+
+        return new AtlasLineageInfo(guid, entities, relations, direction, depth);
+    }
+
+    private AtlasVertex vertex(String guid, String superType) {
+        AtlasVertex ret = mock(AtlasVertex.class);
+
+        when(ret.getProperty(Constants.GUID_PROPERTY_KEY, String.class)).thenReturn(guid);
+        when(ret.getPropertyValues(Constants.SUPER_TYPES_PROPERTY_KEY, String.class)).thenReturn(Collections.singletonList(superType));
+
+        return ret;
+    }
+
+    private AtlasEdge edgeTo(AtlasVertex inVertex) {
+        AtlasEdge ret = mock(AtlasEdge.class);
+
+        when(ret.getInVertex()).thenReturn(inVertex);
+
+        return ret;
+    }
+
+    private void inTransaction(final Runnable work, final boolean isSuccess) throws Throwable {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+
+        when(invocation.proceed()).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocationOnMock) throws Throwable {
+                work.run();
+
+                if (!isSuccess) {
+                    throw new IllegalStateException("Simulating failure");
+                }
+
+                return null;
+            }
+        });
+
+        try {
+            interceptor.invoke(invocation);
+
+            if (!isSuccess) {
+                fail("Expected IllegalStateException");
+            }
+        } catch (IllegalStateException excp) {
+            if (isSuccess) {
+                throw excp;
+            }
+        }
+    }
+}
@@ -31,10 +31,19 @@ import org.apache.atlas.model.legacy.EntityResult;
 import org.apache.atlas.model.lineage.AtlasLineageInfo;
 import org.apache.atlas.model.lineage.AtlasLineageInfo.LineageDirection;
 import org.apache.atlas.model.lineage.AtlasLineageInfo.LineageRelation;
+import org.apache.atlas.model.lineage.AtlasLineagePage;
+import org.apache.atlas.repository.graph.GraphHelper;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.repository.store.graph.v1.EntityGraphRetriever;
+import org.apache.atlas.type.AtlasTypeRegistry;
 import org.apache.atlas.typesystem.Referenceable;
 import org.apache.atlas.typesystem.persistence.Id;
 import org.apache.commons.collections.ArrayStack;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.lang.RandomStringUtils;
+import org.mockito.ArgumentCaptor;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -43,12 +52,19 @@ import org.testng.annotations.Guice;
 import org.testng.annotations.Test;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
@@ -62,6 +78,12 @@ public class EntityLineageServiceTest extends BaseRepositoryTest {
     @Inject
     private EntityLineageService lineageService;
 
+    @Inject
+    private AtlasTypeRegistry typeRegistry;
+
+    @Inject
+    private AtlasGraph atlasGraph;
+
     @BeforeClass
     public void setUp() throws Exception {
         super.setUp();
@@ -98,6 +120,143 @@ public class EntityLineageServiceTest extends BaseRepositoryTest {
         assertTrue(entities.containsKey(circularLineage.getBaseEntityGuid()));
     }
 
+    @Test
+    public void testCircularLineageDepth() throws Exception {
+        TestUtils.skipForGremlin3EnabledGraphDb();
+        String entityGuid = getEntityId(HIVE_TABLE_TYPE, "name", "table2");
+
+        // table1 -> circularLineage1 -> table2; table2 -> circularLineage2 -> table1
+        AtlasLineageInfo lineage = getInputLineageInfo(entityGuid, 1);
+
+        Assert.assertEquals(lineage.getGuidEntityMap().size(), 3);
+        Assert.assertEquals(lineage.getRelations().size(), 2);
+
+        // the cycle back to table2 adds its relations, but table2 isn't walked again
+        lineage = getInputLineageInfo(entityGuid, 2);
+
+        Assert.assertEquals(lineage.getGuidEntityMap().size(), 4);
+        Assert.assertEquals(lineage.getRelations().size(), 4);
+
+        lineage = getInputLineageInfo(entityGuid, 0);
+
+        Assert.assertEquals(lineage.getGuidEntityMap().size(), 4);
+        Assert.assertEquals(lineage.getRelations().size(), 4);
+    }
+
+    @Test
+    public void testLineageDepthLimit() throws Exception {
+        TestUtils.skipForGremlin3EnabledGraphDb();
+        String entityGuid = getEntityId(HIVE_TABLE_TYPE, "name", "sales_fact_monthly_mv");
+
+        // sales_fact, time_dim -> loadSalesDaily -> sales_fact_daily_mv -> loadSalesMonthly -> sales_fact_monthly_mv
+        AtlasLineageInfo lineage = getInputLineageInfo(entityGuid, 1);
+
+        Assert.assertEquals(lineage.getGuidEntityMap().size(), 3);
+        Assert.assertEquals(lineage.getRelations().size(), 2);
+        assertTrue(lineage.getGuidEntityMap().containsKey(getEntityId(HIVE_TABLE_TYPE, "name", "sales_fact_daily_mv")));
+
+        lineage = getInputLineageInfo(entityGuid, 2);
+
+        Assert.assertEquals(lineage.getGuidEntityMap().size(), 6);
+        Assert.assertEquals(lineage.getRelations().size(), 5);
+        assertTrue(lineage.getGuidEntityMap().containsKey(getEntityId(HIVE_TABLE_TYPE, "name", "time_dim")));
+    }
+
+    @Test
+    public void testParallelLineageMatchesLineageInfo() throws Exception {
+        TestUtils.skipForGremlin3EnabledGraphDb();
+        Configuration configuration = new PropertiesConfiguration();
+
+        // levels of 2 or more datasets, like sales_fact and time_dim, are split among workers
+        configuration.setProperty(EntityLineageService.NUM_WORKERS_PROPERTY, 4);
+        configuration.setProperty(EntityLineageService.PARALLEL_LEVEL_SIZE_PROPERTY, 2);
+
+        EntityLineageService parallelService = new EntityLineageService(typeRegistry, atlasGraph, configuration);
+        String               monthlyGuid     = getEntityId(HIVE_TABLE_TYPE, "name", "sales_fact_monthly_mv");
+        String               circularGuid    = getEntityId(HIVE_TABLE_TYPE, "name", "table2");
+
+        // depths not used by other tests, so that results aren't served by the lineage cache
+        AtlasLineageInfo inputLineage = parallelService.getAtlasLineageInfo(monthlyGuid, LineageDirection.INPUT, 6);
+        AtlasLineageInfo bothLineage  = parallelService.getAtlasLineageInfo(monthlyGuid, LineageDirection.BOTH, 6);
+        AtlasLineageInfo circular     = parallelService.getAtlasLineageInfo(circularGuid, LineageDirection.INPUT, 6);
+
+        assertEquals(inputLineage.getGuidEntityMap().keySet(), getInputLineageInfo(monthlyGuid, 4).getGuidEntityMap().keySet());
+        assertEquals(inputLineage.getRelations(), getInputLineageInfo(monthlyGuid, 4).getRelations());
+        assertEquals(bothLineage.getGuidEntityMap().keySet(), getBothLineageInfo(monthlyGuid, 5).getGuidEntityMap().keySet());
+        assertEquals(bothLineage.getRelations(), getBothLineageInfo(monthlyGuid, 5).getRelations());
+        assertEquals(circular.getGuidEntityMap().keySet(), getInputLineageInfo(circularGuid, 5).getGuidEntityMap().keySet());
+        assertEquals(circular.getRelations(), getInputLineageInfo(circularGuid, 5).getRelations());
+    }
+
+    @Test
+    public void testOutputLineageDepthLimit() throws Exception {
+        String entityGuid  = getEntityId(HIVE_TABLE_TYPE, "name", "sales_fact");
+        String dailyGuid   = getEntityId(HIVE_TABLE_TYPE, "name", "sales_fact_daily_mv");
+        String monthlyGuid = getEntityId(HIVE_TABLE_TYPE, "name", "sales_fact_monthly_mv");
+
+        // sales_fact -> loadSalesDaily -> sales_fact_daily_mv -> loadSalesMonthly -> sales_fact_monthly_mv
+        AtlasLineageInfo lineage = getOutputLineageInfo(entityGuid, 1);
+
+        assertTrue(lineage.getGuidEntityMap().containsKey(dailyGuid));
+        assertFalse(lineage.getGuidEntityMap().containsKey(monthlyGuid));
+
+        for (LineageRelation relation : lineage.getRelations()) {
+            assertTrue(lineage.getGuidEntityMap().containsKey(relation.getFromEntityId()));
+            assertTrue(lineage.getGuidEntityMap().containsKey(relation.getToEntityId()));
+        }
+
+        lineage = getOutputLineageInfo(entityGuid, 2);
+
+        assertTrue(lineage.getGuidEntityMap().containsKey(monthlyGuid));
+    }
+
+    @Test
+    public void testBothLineageIsUnionOfInputAndOutputLineage() throws Exception {
+        String entityGuid = getEntityId(HIVE_TABLE_TYPE, "name", "sales_fact_daily_mv");
+
+        AtlasLineageInfo inputLineage  = getInputLineageInfo(entityGuid, 3);
+        AtlasLineageInfo outputLineage = getOutputLineageInfo(entityGuid, 3);
+        AtlasLineageInfo bothLineage   = getBothLineageInfo(entityGuid, 3);
+
+        Set<String>          expectedGuids     = new HashSet<>(inputLineage.getGuidEntityMap().keySet());
+        Set<LineageRelation> expectedRelations = new HashSet<>(inputLineage.getRelations());
+
+        expectedGuids.addAll(outputLineage.getGuidEntityMap().keySet());
+        expectedRelations.addAll(outputLineage.getRelations());
+
+        assertEquals(inputLineage.getLineageDirection(), LineageDirection.INPUT);
+        assertEquals(outputLineage.getLineageDirection(), LineageDirection.OUTPUT);
+        assertEquals(bothLineage.getLineageDirection(), LineageDirection.BOTH);
+        assertFalse(inputLineage.getRelations().isEmpty());
+        assertFalse(outputLineage.getRelations().isEmpty());
+        assertEquals(bothLineage.getGuidEntityMap().keySet(), expectedGuids);
+        assertEquals(bothLineage.getRelations(), expectedRelations);
+    }
+
+    @Test
+    public void testEntityHeadersAreBuiltOncePerGuid() throws Exception {
+        EntityGraphRetriever entityRetriever = spy(new EntityGraphRetriever(typeRegistry));
+        EntityLineageService service         = new EntityLineageService(atlasGraph, entityRetriever, null);
+        String               entityGuid      = getEntityId(HIVE_TABLE_TYPE, "name", "sales_fact_monthly_mv");
+
+        // a depth not used by other tests, so that the result isn't served by the lineage cache
+        AtlasLineageInfo lineage = service.getAtlasLineageInfo(entityGuid, LineageDirection.BOTH, 7);
+
+        ArgumentCaptor<AtlasVertex> vertices = ArgumentCaptor.forClass(AtlasVertex.class);
+
+        verify(entityRetriever, atLeastOnce()).toAtlasEntityHeader(vertices.capture());
+
+        List<String> guids = new ArrayList<>();
+
+        for (AtlasVertex vertex : vertices.getAllValues()) {
+            guids.add(GraphHelper.getGuid(vertex));
+        }
+
+        // the base entity is in both input and output lineage; and more than one path may lead to an entity
+        assertEquals(guids.size(), new HashSet<>(guids).size());
+        assertEquals(new HashSet<>(guids), lineage.getGuidEntityMap().keySet());
+    }
+
     /**
      * Input Lineage Tests.
      */
@@ -206,6 +365,98 @@ public class EntityLineageServiceTest extends BaseRepositoryTest {
         assertTrue(entities.containsKey(bothLineage.getBaseEntityGuid()));
     }
 
+    /**
+     * Paged Lineage Tests.
+     */
+    @Test
+    public void testPagedLineageMatchesLineageInfo() throws Exception {
+        TestUtils.skipForGremlin3EnabledGraphDb();
+        String monthlyGuid  = getEntityId(HIVE_TABLE_TYPE, "name", "sales_fact_monthly_mv");
+        String circularGuid = getEntityId(HIVE_TABLE_TYPE, "name", "table2");
+
+        assertPagedLineage(monthlyGuid, LineageDirection.INPUT, 4);
+        assertPagedLineage(monthlyGuid, LineageDirection.BOTH, 5);
+        assertPagedLineage(getEntityId(HIVE_TABLE_TYPE, "name", "sales_fact"), LineageDirection.OUTPUT, 4);
+        assertPagedLineage(circularGuid, LineageDirection.INPUT, 5);
+        assertPagedLineage(circularGuid, LineageDirection.INPUT, 0);
+    }
+
+    @Test
+    public void testPagedLineageInvalidCursor() throws Exception {
+        final String entityGuid = getEntityId(HIVE_TABLE_TYPE, "name", "sales_fact_monthly_mv");
+
+        for (final String cursor : new String[] { "", "INPUT:0:0:0", "OUTPUT:1:0:0", "INPUT:1", "INPUT:x:0:0", "INPUT:1:-1:0", "INPUT:1:0:0:a:b" }) {
+            testInvalidQueryParams(AtlasErrorCode.INSTANCE_LINEAGE_INVALID_PARAMS, new Invoker() {
+                @Override
+                void run() throws AtlasBaseException {
+                    lineageService.getAtlasLineagePage(entityGuid, LineageDirection.INPUT, 3, cursor, 10);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testPagedLineageInvalidLimit() throws Exception {
+        final String entityGuid = getEntityId(HIVE_TABLE_TYPE, "name", "sales_fact_monthly_mv");
+
+        // a page must have room for the 3 entities of a path
+        testInvalidQueryParams(AtlasErrorCode.INSTANCE_LINEAGE_INVALID_PARAMS, new Invoker() {
+            @Override
+            void run() throws AtlasBaseException {
+                lineageService.getAtlasLineagePage(entityGuid, LineageDirection.INPUT, 3, null, 2);
+            }
+        });
+    }
+
+    @Test
+    public void testPagedLineageWithoutCursorState() throws Exception {
+        TestUtils.skipForGremlin3EnabledGraphDb();
+        String entityGuid = getEntityId(HIVE_TABLE_TYPE, "name", "sales_fact_monthly_mv");
+        String cursor     = lineageService.getAtlasLineagePage(entityGuid, LineageDirection.INPUT, 4, null, 3).getNextCursor();
+
+        // without the state kept for the cursor, like after a restart, earlier levels are walked again
+        AtlasLineagePage withoutState = lineageService.getAtlasLineagePage(entityGuid, LineageDirection.INPUT, 4, withoutStateId(cursor), 3);
+        AtlasLineagePage withState    = lineageService.getAtlasLineagePage(entityGuid, LineageDirection.INPUT, 4, cursor, 3);
+
+        assertEquals(withoutState.getGuidEntityMap().keySet(), withState.getGuidEntityMap().keySet());
+        assertEquals(withoutState.getRelations(), withState.getRelations());
+        assertEquals(withoutState.getLineageLevel(), withState.getLineageLevel());
+        assertNotNull(withState.getNextCursor());
+        assertEquals(withoutStateId(withoutState.getNextCursor()), withoutStateId(withState.getNextCursor()));
+    }
+
+    private String withoutStateId(String cursor) {
+        String[] parts = cursor.split(":");
+
+        return parts.length == 5 ? cursor.substring(0, cursor.lastIndexOf(':')) : cursor;
+    }
+
+    private void assertPagedLineage(String guid, LineageDirection direction, int depth) throws Exception {
+        AtlasLineageInfo               lineageInfo = lineageService.getAtlasLineageInfo(guid, direction, depth);
+        Map<String, AtlasEntityHeader> entities    = new HashMap<>();
+        Set<LineageRelation>           relations   = new HashSet<>();
+        String                         cursor      = null;
+        int                            pageCount   = 0;
+
+        do {
+            AtlasLineagePage page = lineageService.getAtlasLineagePage(guid, direction, depth, cursor, 3);
+
+            assertTrue(page.getGuidEntityMap().size() <= 3);
+            assertTrue(depth < 1 || page.getLineageLevel() <= depth);
+
+            entities.putAll(page.getGuidEntityMap());
+            relations.addAll(page.getRelations());
+
+            cursor = page.getNextCursor();
+
+            assertTrue(++pageCount < 100, "too many pages");
+        } while (cursor != null);
+
+        assertEquals(entities.keySet(), lineageInfo.getGuidEntityMap().keySet());
+        assertEquals(relations, lineageInfo.getRelations());
+        assertTrue(pageCount > 1);
+    }
+
     @DataProvider(name = "invalidQueryParamsProvider")
     private Object[][] params() throws Exception {
         String entityGuid = getEntityId(HIVE_TABLE_TYPE, "name", "sales_fact_monthly_mv");
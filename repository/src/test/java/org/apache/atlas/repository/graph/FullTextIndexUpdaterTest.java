@@ -0,0 +1,194 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graph;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.atlas.GraphTransactionInterceptor;
+import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class FullTextIndexUpdaterTest {
+    private GraphTransactionInterceptor interceptor;
+    private FullTextIndexUpdater        updater;
+    private AtlasGraph                  graph;
+
+    @BeforeMethod
+    public void setup() {
+        Configuration configuration = new BaseConfiguration();
+
+        configuration.setProperty(FullTextIndexUpdater.DEFERRED_PROPERTY, true);
+        configuration.setProperty(FullTextIndexUpdater.BATCH_SIZE_PROPERTY, 2);
+
+        interceptor = new GraphTransactionInterceptor(mock(AtlasGraph.class));
+        graph       = mock(AtlasGraph.class);
+        updater     = new FullTextIndexUpdater(mock(FullTextMapperV2.class), graph, configuration);
+    }
+
+    @Test
+    public void testEntitiesAreQueuedOnCommit() throws Throwable {
+        inTransaction(new Runnable() {
+            @Override
+            public void run() {
+                updater.scheduleUpdate(vertices("guid1", "guid2"));
+
+                assertEquals(updater.getQueueSize(), 0);
+            }
+        }, true);
+
+        assertEquals(updater.getQueueSize(), 2);
+    }
+
+    @Test
+    public void testEntitiesAreNotQueuedOnRollback() throws Throwable {
+        inTransaction(new Runnable() {
+            @Override
+            public void run() {
+                updater.scheduleUpdate(vertices("guid1", "guid2"));
+            }
+        }, false);
+
+        assertEquals(updater.getQueueSize(), 0);
+    }
+
+    @Test
+    public void testRepeatedUpdatesAreCoalesced() throws Throwable {
+        for (final String guid : Arrays.asList("guid1", "guid2", "guid1", "guid3", "guid2")) {
+            inTransaction(new Runnable() {
+                @Override
+                public void run() {
+                    updater.scheduleUpdate(vertices(guid));
+                }
+            }, true);
+        }
+
+        assertEquals(updater.getQueueSize(), 3);
+        assertEquals(updater.takeBatch(), Arrays.asList("guid1", "guid2"));
+        assertEquals(updater.takeBatch(), Arrays.asList("guid3"));
+        assertTrue(updater.takeBatch().isEmpty());
+    }
+
+    @Test
+    public void testScheduledEntitiesAreMarked() throws Throwable {
+        final List<AtlasVertex> vertices = vertices("guid1", "guid2");
+
+        inTransaction(new Runnable() {
+            @Override
+            public void run() {
+                updater.scheduleUpdate(vertices);
+            }
+        }, true);
+
+        for (AtlasVertex vertex : vertices) {
+            verify(vertex).setProperty(Constants.ENTITY_TEXT_PENDING_PROPERTY_KEY, Boolean.TRUE);
+        }
+    }
+
+    @Test
+    public void testMarkedEntitiesAreQueued() {
+        AtlasGraphQuery query = mock(AtlasGraphQuery.class);
+
+        when(graph.query()).thenReturn(query);
+        when(query.has(Constants.ENTITY_TEXT_PENDING_PROPERTY_KEY, Boolean.TRUE)).thenReturn(query);
+        when(query.vertices()).thenReturn(vertices("guid1", "guid2"));
+
+        updater.enqueueMarkedEntities();
+
+        assertEquals(updater.getQueueSize(), 2);
+        assertEquals(updater.takeBatch(), Arrays.asList("guid1", "guid2"));
+        verify(graph).rollback();
+    }
+
+    @Test
+    public void testUpdatesAreInlineUntilStarted() throws Exception {
+        assertFalse(updater.isDeferred());
+
+        updater.start();
+
+        try {
+            assertTrue(updater.isDeferred());
+        } finally {
+            updater.stop();
+        }
+
+        assertFalse(updater.isDeferred());
+    }
+
+    private List<AtlasVertex> vertices(String... guids) {
+        List<AtlasVertex> ret = new ArrayList<>();
+
+        for (String guid : guids) {
+            AtlasVertex vertex = mock(AtlasVertex.class);
+
+            when(vertex.getProperty(Constants.GUID_PROPERTY_KEY, String.class)).thenReturn(guid);
+
+            ret.add(vertex);
+        }
+
+        return ret;
+    }
+
+    private void inTransaction(final Runnable work, final boolean isSuccess) throws Throwable {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+
+        when(invocation.proceed()).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocationOnMock) throws Throwable {
+                work.run();
+
+                if (!isSuccess) {
+                    throw new IllegalStateException("Simulating failure");
+                }
+
+                return null;
+            }
+        });
+
+        try {
+            interceptor.invoke(invocation);
+
+            if (!isSuccess) {
+                fail("Expected IllegalStateException");
+            }
+        } catch (IllegalStateException excp) {
+            if (isSuccess) {
+                throw excp;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graph;
+
+import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+public class FullTextSegmentsTest {
+    private Map<String, Object> properties;
+    private AtlasVertex         vertex;
+
+    @BeforeMethod
+    public void setup() {
+        properties = new HashMap<>();
+        vertex     = mock(AtlasVertex.class);
+
+        when(vertex.getProperty(anyString(), any(Class.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return properties.get((String) invocation.getArguments()[0]);
+            }
+        });
+
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                properties.put((String) invocation.getArguments()[0], invocation.getArguments()[1]);
+
+                return null;
+            }
+        }).when(vertex).setProperty(anyString(), any());
+
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                properties.remove((String) invocation.getArguments()[0]);
+
+                return null;
+            }
+        }).when(vertex).removeProperty(anyString());
+    }
+
+    @Test
+    public void testClassificationSegmentsAreUpdatedIndividually() {
+        FullTextSegments segments = new FullTextSegments();
+
+        segments.setEntityText("hive_table name t1 ");
+        segments.setClassificationText("PII", "PII ");
+        segments.setClassificationText("Finance", "Finance owner o1 ");
+        segments.toVertex(vertex);
+
+        assertEquals(properties.get(Constants.ENTITY_TEXT_PROPERTY_KEY), "hive_table name t1 PII Finance owner o1 ");
+
+        FullTextSegments stored = FullTextSegments.fromVertex(vertex);
+
+        assertNotNull(stored);
+
+        stored.setClassificationText("PII", "PII level high ");
+        stored.removeClassificationText("Finance");
+        stored.toVertex(vertex);
+
+        assertEquals(properties.get(Constants.ENTITY_TEXT_PROPERTY_KEY), "hive_table name t1 PII level high ");
+    }
+
+    @Test
+    public void testSegmentsAreNotAvailableAfterRemoval() {
+        new FullTextSegments().toVertex(vertex);
+
+        assertNotNull(FullTextSegments.fromVertex(vertex));
+
+        FullTextSegments.removeFromVertex(vertex);
+
+        assertNull(FullTextSegments.fromVertex(vertex));
+    }
+}
@@ -28,6 +28,7 @@ import org.apache.atlas.model.instance.AtlasEntity;
 import org.apache.atlas.model.instance.AtlasObjectId;
 import org.apache.atlas.model.typedef.AtlasTypesDef;
 import org.apache.atlas.repository.graph.AtlasGraphProvider;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.repository.store.bootstrap.AtlasTypeDefStoreInitializer;
 import org.apache.atlas.repository.store.graph.v1.AtlasEntityChangeNotifier;
 import org.apache.atlas.repository.store.graph.v1.AtlasEntityStoreV1;
@@ -37,6 +38,8 @@ import org.apache.atlas.repository.store.graph.v1.EntityGraphMapper;
 import org.apache.atlas.repository.store.graph.v1.SoftDeleteHandlerV1;
 import org.apache.atlas.store.AtlasTypeDefStore;
 import org.apache.atlas.type.AtlasTypeRegistry;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
 import org.powermock.reflect.Whitebox;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,6 +80,10 @@ public class ExportServiceTest {
     private EntityGraphMapper graphMapper;
     @Inject
     ExportService exportService;
+
+    @Inject
+    private AtlasGraph atlasGraph;
+
     private DeleteHandlerV1 deleteHandler = mock(SoftDeleteHandlerV1.class);;
     private AtlasEntityChangeNotifier mockChangeNotifier = mock(AtlasEntityChangeNotifier.class);
     private AtlasEntityStoreV1 entityStore;
@@ -168,6 +175,10 @@ public class ExportServiceTest {
     }
 
     private ZipSource runExportWithParameters(AtlasExportRequest request) throws AtlasBaseException, IOException {
+        return runExportWithParameters(exportService, request);
+    }
+
+    private ZipSource runExportWithParameters(ExportService exportService, AtlasExportRequest request) throws AtlasBaseException, IOException {
         final String requestingIP = "1.0.0.0";
         final String hostName = "localhost";
         final String userName = "admin";
@@ -254,6 +265,22 @@ public class ExportServiceTest {
         verifyExportForHrDataForConnected(source);
     }
 
+    @Test
+    public void requestingDeptEntityFoundParallelFetch_ContainsData() throws Exception {
+        Configuration configuration = new BaseConfiguration();
+
+        configuration.setProperty(ExportService.FETCH_WORKERS_PROPERTY, 3);
+        configuration.setProperty(ExportService.FETCH_BATCH_SIZE_PROPERTY, 2);
+
+        ExportService parallelExportService = new ExportService(typeRegistry, atlasGraph, configuration);
+
+        ZipSource source   = runExportWithParameters(parallelExportService, getRequestForDept(true, "FULL", false, ""));
+        ZipSource expected = runExportWithParameters(getRequestForDept(true, "FULL", false, ""));
+
+        assertEquals(source.getCreationOrder(), expected.getCreationOrder());
+        verifyExportForHrData(source);
+    }
+
     @Test
     public void requestingEmployeeEntityFoundConnectedFetch_ContainsData() throws Exception {
         ZipSource zipSource = runExportWithParameters(getRequestForEmployee());
@@ -22,7 +22,9 @@ import org.apache.atlas.RequestContextV1;
 import org.apache.atlas.TestModules;
 import org.apache.atlas.TestUtilsV2;
 import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.impexp.AtlasExportResult;
 import org.apache.atlas.model.impexp.AtlasImportRequest;
+import org.apache.atlas.model.impexp.AtlasImportResult;
 import org.apache.atlas.repository.store.graph.AtlasEntityStore;
 import org.apache.atlas.store.AtlasTypeDefStore;
 import org.apache.atlas.type.AtlasTypeRegistry;
@@ -36,6 +38,7 @@ import org.testng.annotations.Test;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.apache.atlas.repository.impexp.ZipFileResourceTestUtils.*;
@@ -94,6 +97,25 @@ public class ImportServiceTest {
         runAndVerifyQuickStart_v1_Import(new ImportService(typeDefStore, entityStore, typeRegistry), zipSource);
     }
 
+    @Test(dataProvider = "reporting")
+    public void importInParallelBatches(ZipSource zipSource) throws AtlasBaseException, IOException {
+        loadModelFromJson("0010-base_model.json", typeDefStore, typeRegistry);
+
+        AtlasExportResult   exportResult  = zipSource.getExportResult();
+        List<String>        creationOrder = zipSource.getCreationOrder();
+        AtlasImportRequest  request       = getDefaultImportRequest();
+        Map<String, String> options       = new HashMap<>();
+
+        options.put(AtlasImportRequest.BATCH_SIZE_KEY, "2");
+        options.put(AtlasImportRequest.NUM_WORKERS_KEY, "3");
+        request.setOptions(options);
+
+        AtlasImportResult result = runImportWithParameters(getImportService(), request, zipSource);
+
+        verifyImportedMetrics(exportResult, result);
+        verifyImportedEntities(creationOrder, result.getProcessedEntities());
+    }
+
     @DataProvider(name = "salesNewTypeAttrs")
     public static Object[][] getDataFromSalesNewTypeAttrs(ITestContext context) throws IOException {
         return getZipSource("salesNewTypeAttrs.zip");
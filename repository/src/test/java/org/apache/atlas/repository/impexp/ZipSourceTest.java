@@ -26,6 +26,7 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.List;
@@ -146,6 +147,26 @@ public class ZipSourceTest {
         assertTrue(zipSource.hasNext());
     }
 
+    @Test
+    public void readFromFile_BehavesAsExpected() throws IOException, AtlasBaseException {
+        File      file      = new File(System.getProperty("user.dir") + "/src/test/resources/stocks.zip");
+        ZipSource zipSource = new ZipSource(file, null);
+
+        List<String> creationOrder = zipSource.getCreationOrder();
+
+        assertNotNull(creationOrder);
+        assertEquals(creationOrder.size(), 4);
+        assertNotNull(zipSource.getTypesDef());
+
+        useCreationOrderToFetchEntitiesWithExtInfo(zipSource, creationOrder);
+        verifyGuidRemovalOnImportComplete(zipSource, creationOrder.get(0));
+
+        zipSource.close();
+
+        assertTrue(file.exists());
+        Assert.assertNull(zipSource.getByGuid(creationOrder.get(1)));
+    }
+
     @Test(dataProvider = "zipFileStocksFloat")
     public void attemptToSerializeLongFloats(ZipSource zipSource) throws IOException, AtlasBaseException {
         Assert.assertTrue(zipSource.hasNext());
@@ -33,6 +33,7 @@ import org.apache.atlas.model.instance.AtlasEntity.AtlasEntityWithExtInfo;
 import org.apache.atlas.model.instance.AtlasEntityHeader;
 import org.apache.atlas.model.instance.AtlasObjectId;
 import org.apache.atlas.model.instance.AtlasStruct;
+import org.apache.atlas.model.instance.ClassificationAssociateResponse;
 import org.apache.atlas.model.instance.EntityMutationResponse;
 import org.apache.atlas.model.instance.EntityMutations;
 import org.apache.atlas.model.instance.EntityMutations.EntityOperation;
@@ -70,6 +71,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -894,6 +896,54 @@ public class AtlasEntityStoreV1Test {
         assertEquals(deletedDb2Entity.getStatus(), AtlasEntity.Status.DELETED);
     }
 
+    @Test
+    public void testResolveReferencesByUniqueAttributes() throws Exception {
+        List<AtlasEntity>        dbEntities = new ArrayList<>();
+        AtlasEntitiesWithExtInfo tables     = new AtlasEntitiesWithExtInfo();
+
+        for (int i = 0; i < 3; i++) {
+            AtlasEntity dbEntity = TestUtilsV2.createDBEntity();
+
+            entityStore.createOrUpdate(new AtlasEntityStream(dbEntity), false);
+            dbEntities.add(dbEntity);
+        }
+
+        init();
+
+        // two tables referencing the same database, with distinct but equal object-ids
+        for (AtlasEntity dbEntity : dbEntities) {
+            tables.addEntity(createTableReferringDb(dbEntity));
+        }
+
+        tables.addEntity(createTableReferringDb(dbEntities.get(0)));
+
+        EntityMutationResponse response = entityStore.createOrUpdate(new AtlasEntityStream(tables), false);
+
+        validateMutationResponse(response, EntityOperation.CREATE, tables.getEntities().size());
+
+        for (AtlasEntityHeader header : response.getCreatedEntities()) {
+            AtlasEntity   createdTblEntity = getEntityFromStore(header);
+            AtlasObjectId dbId             = (AtlasObjectId) createdTblEntity.getAttribute("database");
+            AtlasEntity   dbEntity         = getEntityFromStore(dbId.getGuid());
+
+            assertEquals(dbEntity.getAttribute(NAME), getReferredDbName(tables, createdTblEntity));
+        }
+
+        init();
+
+        AtlasEntity tableEntity = TestUtilsV2.createTableEntity(dbEntities.get(0));
+
+        tableEntity.setAttribute("database", new AtlasObjectId(TestUtilsV2.DATABASE_TYPE, NAME, randomString()));
+
+        try {
+            entityStore.createOrUpdate(new AtlasEntityStream(tableEntity), false);
+
+            fail("Expected table creation to fail for reference to a non-existing database");
+        } catch (AtlasBaseException e) {
+            assertEquals(e.getAtlasErrorCode(), AtlasErrorCode.REFERENCED_ENTITY_NOT_FOUND);
+        }
+    }
+
     @Test
     public void testTagAssociationAfterRedefinition(){
         AtlasClassificationDef aTag = new AtlasClassificationDef("testTag");
@@ -946,6 +996,45 @@ public class AtlasEntityStoreV1Test {
 
     }
 
+    @Test
+    public void testAddClassificationToEntities() throws Exception {
+        AtlasTypesDef typesDef = new AtlasTypesDef();
+
+        typesDef.setClassificationDefs(Arrays.asList(new AtlasClassificationDef("bulkTag")));
+        typeDefStore.createTypesDef(typesDef);
+
+        EntityMutationResponse response = entityStore.createOrUpdate(new AtlasEntityStream(new AtlasEntitiesWithExtInfo(
+                                                                     Arrays.asList(TestUtilsV2.createDBEntity(), TestUtilsV2.createDBEntity()))), false);
+        String guid1 = response.getCreatedEntities().get(0).getGuid();
+        String guid2 = response.getCreatedEntities().get(1).getGuid();
+
+        entityStore.addClassifications(guid1, Collections.singletonList(new AtlasClassification("bulkTag")));
+
+        ClassificationAssociateResponse associateResponse = entityStore.addClassificationToEntities(Arrays.asList(guid1, guid2, "unknown-guid"), new AtlasClassification("bulkTag"));
+
+        assertEquals(associateResponse.getAssociatedEntityGuids(), Collections.singletonList(guid2));
+        assertEquals(associateResponse.getFailedEntityGuids().keySet(), new HashSet<>(Arrays.asList(guid1, "unknown-guid")));
+        assertEquals(entityStore.getClassification(guid2, "bulkTag").getTypeName(), "bulkTag");
+    }
+
+    private AtlasEntity createTableReferringDb(AtlasEntity dbEntity) {
+        AtlasEntity tableEntity = TestUtilsV2.createTableEntity(dbEntity);
+
+        tableEntity.setAttribute("database", new AtlasObjectId(TestUtilsV2.DATABASE_TYPE, NAME, dbEntity.getAttribute(NAME)));
+
+        return tableEntity;
+    }
+
+    private Object getReferredDbName(AtlasEntitiesWithExtInfo tables, AtlasEntity createdTblEntity) {
+        for (AtlasEntity tableEntity : tables.getEntities()) {
+            if (tableEntity.getAttribute(NAME).equals(createdTblEntity.getAttribute(NAME))) {
+                return ((AtlasObjectId) tableEntity.getAttribute("database")).getUniqueAttributes().get(NAME);
+            }
+        }
+
+        return null;
+    }
+
     private String randomStrWithReservedChars() {
         return randomString() + "\"${}%";
     }
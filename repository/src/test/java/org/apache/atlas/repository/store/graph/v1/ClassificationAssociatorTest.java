@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v1;
+
+import org.apache.atlas.AtlasErrorCode;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.instance.AtlasClassification;
+import org.apache.atlas.model.instance.ClassificationAssociateResponse;
+import org.apache.atlas.repository.store.graph.AtlasEntityStore;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class ClassificationAssociatorTest {
+    private static final String FAILING_GUID = "guid3";
+
+    private AtlasEntityStore         entityStore;
+    private ClassificationAssociator associator;
+    private List<List<String>>       chunks;
+
+    @BeforeMethod
+    public void setup() throws AtlasBaseException {
+        Configuration configuration = new BaseConfiguration();
+
+        configuration.setProperty(ClassificationAssociator.CHUNK_SIZE_PROPERTY, 2);
+
+        chunks      = new ArrayList<>();
+        entityStore = mock(AtlasEntityStore.class);
+        associator  = new ClassificationAssociator(entityStore, configuration);
+
+        when(entityStore.addClassificationToEntities(any(List.class), any(AtlasClassification.class))).thenAnswer(new Answer<ClassificationAssociateResponse>() {
+            @Override
+            public ClassificationAssociateResponse answer(InvocationOnMock invocation) throws Throwable {
+                List<String>        guids          = new ArrayList<>((List<String>) invocation.getArguments()[0]);
+                AtlasClassification classification = (AtlasClassification) invocation.getArguments()[1];
+
+                chunks.add(guids);
+
+                if (classification.getTypeName() == null) {
+                    throw new AtlasBaseException(AtlasErrorCode.CLASSIFICATION_NOT_FOUND, "null");
+                }
+
+                if (guids.contains(FAILING_GUID)) {
+                    throw new IllegalStateException("Simulating failure");
+                }
+
+                ClassificationAssociateResponse ret = new ClassificationAssociateResponse();
+
+                for (String guid : guids) {
+                    ret.addAssociatedEntityGuid(guid);
+                }
+
+                return ret;
+            }
+        });
+    }
+
+    @Test
+    public void testEntitiesAreAssociatedInChunks() throws AtlasBaseException {
+        ClassificationAssociateResponse response = associator.associate(Arrays.asList("guid1", "guid2", "guid1", "guid4", "guid5"), new AtlasClassification("PII"));
+
+        assertEquals(chunks, Arrays.asList(Arrays.asList("guid1", "guid2"), Arrays.asList("guid4", "guid5")));
+        assertEquals(response.getAssociatedEntityGuids(), Arrays.asList("guid1", "guid2", "guid4", "guid5"));
+        assertTrue(response.getFailedEntityGuids().isEmpty());
+    }
+
+    @Test
+    public void testFailedEntityDoesNotFailItsChunk() throws AtlasBaseException {
+        ClassificationAssociateResponse response = associator.associate(Arrays.asList("guid1", "guid2", FAILING_GUID, "guid4"), new AtlasClassification("PII"));
+
+        assertEquals(chunks, Arrays.asList(Arrays.asList("guid1", "guid2"), Arrays.asList(FAILING_GUID, "guid4"),
+                                           Arrays.asList(FAILING_GUID), Arrays.asList("guid4")));
+        assertEquals(response.getAssociatedEntityGuids(), Arrays.asList("guid1", "guid2", "guid4"));
+        assertEquals(response.getFailedEntityGuids().keySet(), Collections.singleton(FAILING_GUID));
+    }
+
+    @Test
+    public void testInvalidClassificationFailsRequest() {
+        try {
+            associator.associate(Arrays.asList("guid1", "guid2", "guid4"), new AtlasClassification());
+
+            fail("Expected AtlasBaseException");
+        } catch (AtlasBaseException excp) {
+            assertEquals(excp.getAtlasErrorCode(), AtlasErrorCode.CLASSIFICATION_NOT_FOUND);
+        }
+
+        assertEquals(chunks.size(), 1);
+    }
+}
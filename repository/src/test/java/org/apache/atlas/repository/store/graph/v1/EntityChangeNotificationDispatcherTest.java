@@ -0,0 +1,368 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v1;
+
+import com.google.common.collect.ImmutableSet;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.atlas.AtlasException;
+import org.apache.atlas.GraphTransactionInterceptor;
+import org.apache.atlas.listener.EntityChangeListener;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.store.graph.v1.EntityChangeNotificationDispatcher.EntityChangeEvent;
+import org.apache.atlas.repository.store.graph.v1.EntityChangeNotificationDispatcher.EntityChangeEvent.EventType;
+import org.apache.atlas.services.MetadataService;
+import org.apache.atlas.typesystem.IStruct;
+import org.apache.atlas.typesystem.ITypedReferenceableInstance;
+import org.apache.atlas.typesystem.Referenceable;
+import org.apache.atlas.typesystem.types.ClassType;
+import org.apache.atlas.typesystem.types.DataTypes;
+import org.apache.atlas.typesystem.types.Multiplicity;
+import org.apache.atlas.typesystem.types.TypeSystem;
+import org.apache.atlas.typesystem.types.utils.TypesUtil;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.io.FileUtils;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class EntityChangeNotificationDispatcherTest {
+    private static final String TYPE_TABLE = "notification_dispatcher_test_table";
+    private static final long   WAIT_MS    = 10000;
+
+    private ClassType                          tableType;
+    private GraphTransactionInterceptor        interceptor;
+    private File                               journalDir;
+    private RecordingListener                  listener;
+    private EntityChangeNotificationDispatcher dispatcher;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        TypeSystem typeSystem = TypeSystem.getInstance();
+
+        if (!typeSystem.isRegistered(TYPE_TABLE)) {
+            typeSystem.defineClassType(TypesUtil.createClassTypeDef(TYPE_TABLE, ImmutableSet.<String>of(),
+                                       TypesUtil.createRequiredAttrDef("name", DataTypes.STRING_TYPE)));
+        }
+
+        tableType   = typeSystem.getDataType(ClassType.class, TYPE_TABLE);
+        interceptor = new GraphTransactionInterceptor(mock(AtlasGraph.class));
+    }
+
+    @BeforeMethod
+    public void createJournalDir() throws Exception {
+        journalDir = Files.createTempDirectory("entity-notifications").toFile();
+        listener   = new RecordingListener();
+    }
+
+    @AfterMethod
+    public void cleanup() throws Exception {
+        if (dispatcher != null) {
+            dispatcher.stopPartitions();
+        }
+
+        FileUtils.deleteQuietly(journalDir);
+    }
+
+    @Test
+    public void testNotificationsAreDeliveredInlineByDefault() throws Exception {
+        dispatcher = createDispatcher(false);
+
+        dispatcher.start();
+        dispatcher.notifyListeners(updateEvent("guid1", "t1"));
+
+        assertFalse(dispatcher.isAsync());
+        assertEquals(listener.getNames(), Arrays.asList("t1"));
+    }
+
+    @Test
+    public void testNotificationsAreDeliveredAfterCommit() throws Throwable {
+        dispatcher = createDispatcher(true);
+
+        dispatcher.start();
+        assertTrue(dispatcher.isAsync());
+
+        inTransaction(new Runnable() {
+            @Override
+            public void run() {
+                notifyListeners(updateEvent("guid1", "rolled-back"));
+            }
+        }, false);
+
+        inTransaction(new Runnable() {
+            @Override
+            public void run() {
+                notifyListeners(updateEvent("guid1", "committed"));
+
+                assertTrue(listener.getNames().isEmpty());
+            }
+        }, true);
+
+        listener.waitFor(1);
+
+        assertEquals(listener.getNames(), Arrays.asList("committed"));
+    }
+
+    @Test
+    public void testNotificationsOutsideOfTransactionAreQueuedRightAway() throws Exception {
+        dispatcher = createDispatcher(true);
+
+        dispatcher.start();
+
+        // like v1 API changes, notified after their transaction commits
+        dispatcher.notifyListeners(updateEvent("guid1", "committed"));
+
+        listener.waitFor(1);
+
+        assertEquals(listener.getNames(), Arrays.asList("committed"));
+    }
+
+    @Test
+    public void testNotificationsOfAnEntityAreDeliveredInOrder() throws Throwable {
+        dispatcher = createDispatcher(true);
+
+        dispatcher.start();
+
+        final int numUpdates = 100;
+
+        for (int i = 0; i < numUpdates; i++) {
+            final String name = Integer.toString(i);
+
+            inTransaction(new Runnable() {
+                @Override
+                public void run() {
+                    notifyListeners(new EntityChangeEvent(EventType.ENTITIES_UPDATED, false,
+                                                          Arrays.asList(entity("guid1", name), entity("guid2", "other-" + name))));
+                }
+            }, true);
+        }
+
+        listener.waitFor(numUpdates * 2);
+
+        List<String> guid1Names = new ArrayList<>();
+
+        for (String name : listener.getNames()) {
+            if (!name.startsWith("other-")) {
+                guid1Names.add(name);
+            }
+        }
+
+        assertEquals(guid1Names.size(), numUpdates);
+
+        for (int i = 0; i < numUpdates; i++) {
+            assertEquals(guid1Names.get(i), Integer.toString(i));
+        }
+
+        // the journal is truncated once all notifications are delivered
+        for (File file : journalDir.listFiles()) {
+            long deadline = System.currentTimeMillis() + WAIT_MS;
+
+            while (file.length() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+
+            assertEquals(file.length(), 0, file.getName());
+        }
+    }
+
+    @Test
+    public void testNotificationsAreDeliveredInlineWhenStoppedBeforeCommit() throws Throwable {
+        dispatcher = createDispatcher(true);
+
+        dispatcher.start();
+
+        inTransaction(new Runnable() {
+            @Override
+            public void run() {
+                notifyListeners(updateEvent("guid1", "committed"));
+
+                dispatcher.stopPartitions();
+            }
+        }, true);
+
+        assertFalse(dispatcher.isAsync());
+        assertEquals(listener.getNames(), Arrays.asList("committed"));
+    }
+
+    @Test
+    public void testUndeliveredNotificationsAreReplayedOnStart() throws Exception {
+        byte[] delivered = EntityChangeNotificationDispatcher.serialize(updateEvent("guid1", "delivered"));
+        byte[] pending1  = EntityChangeNotificationDispatcher.serialize(updateEvent("guid1", "pending1"));
+        byte[] pending2  = EntityChangeNotificationDispatcher.serialize(updateEvent("guid2", "pending2"));
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(journalDir, "entity-changes-0.journal")))) {
+            for (byte[] record : Arrays.asList(delivered, pending1, pending2)) {
+                out.writeInt(record.length);
+                out.write(record);
+            }
+
+            // partially written record, at the time of a crash
+            out.writeInt(pending1.length);
+            out.write(pending1, 0, pending1.length / 2);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(journalDir, "entity-changes-0.offset")))) {
+            out.writeLong(4 + delivered.length);
+        }
+
+        dispatcher = createDispatcher(true);
+
+        dispatcher.start();
+
+        assertEquals(listener.getNames(), Arrays.asList("pending1", "pending2"));
+    }
+
+    private EntityChangeNotificationDispatcher createDispatcher(boolean isAsync) {
+        Configuration configuration = new BaseConfiguration();
+
+        configuration.setProperty(EntityChangeNotificationDispatcher.ASYNC_ENABLED_PROPERTY, isAsync);
+        configuration.setProperty(EntityChangeNotificationDispatcher.PARTITIONS_PROPERTY, 3);
+        configuration.setProperty(EntityChangeNotificationDispatcher.QUEUE_SIZE_PROPERTY, 10);
+        configuration.setProperty(EntityChangeNotificationDispatcher.JOURNAL_DIR_PROPERTY, journalDir.getAbsolutePath());
+
+        return new EntityChangeNotificationDispatcher(Collections.<EntityChangeListener>singleton(listener),
+                                                      TypeSystem.getInstance(), mock(MetadataService.class), configuration);
+    }
+
+    private EntityChangeEvent updateEvent(String guid, String name) {
+        return new EntityChangeEvent(EventType.ENTITIES_UPDATED, false, Collections.singletonList(entity(guid, name)));
+    }
+
+    private ITypedReferenceableInstance entity(String guid, String name) {
+        try {
+            return tableType.convert(new Referenceable(guid, TYPE_TABLE, Collections.<String, Object>singletonMap("name", name)),
+                                     Multiplicity.REQUIRED);
+        } catch (AtlasException excp) {
+            throw new RuntimeException(excp);
+        }
+    }
+
+    private void notifyListeners(EntityChangeEvent event) {
+        try {
+            dispatcher.notifyListeners(event);
+        } catch (Exception excp) {
+            throw new RuntimeException(excp);
+        }
+    }
+
+    private void inTransaction(final Runnable work, final boolean isSuccess) throws Throwable {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+
+        when(invocation.proceed()).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocationOnMock) throws Throwable {
+                work.run();
+
+                if (!isSuccess) {
+                    throw new IllegalStateException("Simulating failure");
+                }
+
+                return null;
+            }
+        });
+
+        try {
+            interceptor.invoke(invocation);
+
+            if (!isSuccess) {
+                fail("Expected IllegalStateException");
+            }
+        } catch (IllegalStateException excp) {
+            if (isSuccess) {
+                throw excp;
+            }
+        }
+    }
+
+    private static class RecordingListener implements EntityChangeListener {
+        private final List<String> names = new ArrayList<>();
+
+        synchronized List<String> getNames() {
+            return new ArrayList<>(names);
+        }
+
+        synchronized void waitFor(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + WAIT_MS;
+
+            while (names.size() < count && System.currentTimeMillis() < deadline) {
+                wait(100);
+            }
+
+            assertEquals(names.size(), count);
+        }
+
+        @Override
+        public void onEntitiesAdded(Collection<ITypedReferenceableInstance> entities, boolean isImport) {
+            record(entities);
+        }
+
+        @Override
+        public void onEntitiesUpdated(Collection<ITypedReferenceableInstance> entities, boolean isImport) {
+            record(entities);
+        }
+
+        @Override
+        public void onEntitiesDeleted(Collection<ITypedReferenceableInstance> entities, boolean isImport) {
+            record(entities);
+        }
+
+        @Override
+        public void onTraitsAdded(ITypedReferenceableInstance entity, Collection<? extends IStruct> traits) {
+        }
+
+        @Override
+        public void onTraitsDeleted(ITypedReferenceableInstance entity, Collection<String> traitNames) {
+        }
+
+        @Override
+        public void onTraitsUpdated(ITypedReferenceableInstance entity, Collection<? extends IStruct> traits) {
+        }
+
+        private synchronized void record(Collection<ITypedReferenceableInstance> entities) {
+            for (ITypedReferenceableInstance entity : entities) {
+                try {
+                    names.add((String) entity.get("name"));
+                } catch (AtlasException excp) {
+                    throw new RuntimeException(excp);
+                }
+            }
+
+            notifyAll();
+        }
+    }
+}
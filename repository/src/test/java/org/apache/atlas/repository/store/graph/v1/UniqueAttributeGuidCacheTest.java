@@ -0,0 +1,217 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v1;
+
+import com.google.common.collect.ImmutableSet;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.atlas.GraphTransactionInterceptor;
+import org.apache.atlas.model.typedef.AtlasEntityDef;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.type.AtlasEntityType;
+import org.apache.atlas.type.AtlasStructType.AtlasAttribute;
+import org.apache.atlas.type.AtlasTypeRegistry;
+import org.apache.atlas.type.AtlasTypeRegistry.AtlasTransientTypeRegistry;
+import org.apache.atlas.type.AtlasTypeUtil;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class UniqueAttributeGuidCacheTest {
+    private static final String TYPE_TABLE = "cache_test_table";
+    private static final String ATTR_NAME  = "name";
+
+    private AtlasEntityType             tableType;
+    private AtlasAttribute              nameAttribute;
+    private UniqueAttributeGuidCache    cache;
+    private GraphTransactionInterceptor interceptor;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        AtlasTypeRegistry          typeRegistry = new AtlasTypeRegistry();
+        AtlasTransientTypeRegistry ttr          = typeRegistry.lockTypeRegistryForUpdate();
+        AtlasEntityDef             tableDef     = AtlasTypeUtil.createClassTypeDef(TYPE_TABLE, ImmutableSet.<String>of(),
+                                                                                   AtlasTypeUtil.createUniqueRequiredAttrDef(ATTR_NAME, "string"));
+
+        ttr.addType(tableDef);
+        typeRegistry.releaseTypeRegistryForUpdate(ttr, true);
+
+        tableType     = typeRegistry.getEntityTypeByName(TYPE_TABLE);
+        nameAttribute = tableType.getAttribute(ATTR_NAME);
+        interceptor   = new GraphTransactionInterceptor(mock(AtlasGraph.class));
+    }
+
+    @BeforeMethod
+    public void createCache() {
+        cache = new UniqueAttributeGuidCache(100);
+    }
+
+    @Test
+    public void testLookupsAreCached() {
+        assertNull(cache.getGuid(tableType, attrValues("db.t1")));
+
+        cache.put(tableType, nameAttribute, "db.t1", "guid1", cache.getInvalidationSeq());
+
+        assertEquals(cache.getGuid(tableType, attrValues("db.t1")), "guid1");
+        assertNull(cache.getGuid(tableType, attrValues("db.t2")));
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 2);
+        assertEquals(cache.getSize(), 1);
+    }
+
+    @Test
+    public void testLookupStartedBeforeInvalidationIsNotCached() {
+        cache.put(tableType, nameAttribute, "db.t1", "guid1", cache.getInvalidationSeq());
+
+        long seq = cache.getInvalidationSeq();
+
+        cache.invalidate(Collections.singleton("guid1"));
+        cache.put(tableType, nameAttribute, "db.t1", "guid1", seq);
+
+        assertNull(cache.getGuid(tableType, attrValues("db.t1")));
+    }
+
+    @Test
+    public void testCreatedEntityIsCachedOnCommit() throws Throwable {
+        inTransaction(new Runnable() {
+            @Override
+            public void run() {
+                cache.recordCreate(tableType, attrValues("db.t1"), "guid1");
+
+                assertNull(cache.getGuid(tableType, attrValues("db.t1")));
+            }
+        }, true);
+
+        assertEquals(cache.getGuid(tableType, attrValues("db.t1")), "guid1");
+    }
+
+    @Test
+    public void testCreatedEntityIsNotCachedOnRollback() throws Throwable {
+        inTransaction(new Runnable() {
+            @Override
+            public void run() {
+                cache.recordCreate(tableType, attrValues("db.t1"), "guid1");
+                cache.put(tableType, nameAttribute, "db.t1", "guid1", cache.getInvalidationSeq());
+            }
+        }, false);
+
+        assertNull(cache.getGuid(tableType, attrValues("db.t1")));
+    }
+
+    @Test
+    public void testDeletedOrRenamedEntityIsInvalidatedAfterTransaction() throws Throwable {
+        cache.put(tableType, nameAttribute, "db.t1", "guid1", cache.getInvalidationSeq());
+        cache.put(tableType, nameAttribute, "db.t2", "guid2", cache.getInvalidationSeq());
+
+        inTransaction(new Runnable() {
+            @Override
+            public void run() {
+                cache.recordInvalidation("guid1");
+
+                // entries are removed only after commit; lookups of entities changed by the transaction aren't cached
+                assertEquals(cache.getGuid(tableType, attrValues("db.t1")), "guid1");
+
+                cache.put(tableType, nameAttribute, "db.t1-renamed", "guid1", cache.getInvalidationSeq());
+            }
+        }, true);
+
+        assertNull(cache.getGuid(tableType, attrValues("db.t1")));
+        assertNull(cache.getGuid(tableType, attrValues("db.t1-renamed")));
+        assertEquals(cache.getGuid(tableType, attrValues("db.t2")), "guid2");
+    }
+
+    @Test
+    public void testRemovedEntriesAreRemovedFromIndex() {
+        cache.put(tableType, nameAttribute, "db.t1", "guid1", cache.getInvalidationSeq());
+        cache.put(tableType, nameAttribute, "db.t2", "guid2", cache.getInvalidationSeq());
+
+        assertEquals(cache.getIndexSize(), 2);
+
+        cache.invalidate(Collections.singleton("guid1"));
+
+        assertNull(cache.getGuid(tableType, attrValues("db.t1")));
+        assertEquals(cache.getGuid(tableType, attrValues("db.t2")), "guid2");
+        assertEquals(cache.getIndexSize(), 1);
+
+        // an entry replaced with another guid is removed from the index of the earlier guid
+        cache.put(tableType, nameAttribute, "db.t2", "guid3", cache.getInvalidationSeq());
+
+        assertEquals(cache.getIndexSize(), 1);
+
+        cache.invalidate(Collections.singleton("guid3"));
+
+        assertNull(cache.getGuid(tableType, attrValues("db.t2")));
+        assertEquals(cache.getIndexSize(), 0);
+    }
+
+    @Test
+    public void testEvictedEntriesAreRemovedFromIndex() {
+        cache = new UniqueAttributeGuidCache(10);
+
+        for (int i = 0; i < 100; i++) {
+            cache.put(tableType, nameAttribute, "db.t" + i, "guid" + i, cache.getInvalidationSeq());
+        }
+
+        assertTrue(cache.getSize() <= 10);
+        assertEquals(cache.getIndexSize(), cache.getSize());
+    }
+
+    private void inTransaction(final Runnable work, final boolean isSuccess) throws Throwable {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+
+        when(invocation.proceed()).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocationOnMock) throws Throwable {
+                work.run();
+
+                if (!isSuccess) {
+                    throw new IllegalStateException("Simulating failure");
+                }
+
+                return null;
+            }
+        });
+
+        try {
+            interceptor.invoke(invocation);
+
+            if (!isSuccess) {
+                fail("Expected IllegalStateException");
+            }
+        } catch (IllegalStateException excp) {
+            if (isSuccess) {
+                throw excp;
+            }
+        }
+    }
+
+    private Map<String, Object> attrValues(String name) {
+        return Collections.<String, Object>singletonMap(ATTR_NAME, name);
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import org.apache.atlas.kafka.AtlasKafkaMessage;
+import org.apache.atlas.notification.hook.HookNotification.HookNotificationMessage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chunks of messages received so far, to be reassembled once all chunks of a message are received.
+ *
+ * The buffer is bounded by the number of messages and by the total length of chunks held: when either is exceeded,
+ * the messages received earliest are evicted. Messages not completed within the timeout are evicted as well.
+ *
+ * Not thread-safe: to be used only from the consumer thread.
+ */
+class ChunkedMessageBuffer {
+    private final int                           maxMessages;
+    private final long                          maxLength;
+    private final long                          timeoutMs;
+    private final Map<String, ChunkedMessage>   messages = new LinkedHashMap<>();
+    private       long                          length   = 0;
+
+    ChunkedMessageBuffer(int maxMessages, long maxLength, long timeoutMs) {
+        this.maxMessages = maxMessages;
+        this.maxLength   = maxLength;
+        this.timeoutMs   = timeoutMs;
+    }
+
+    public int size() { return messages.size(); }
+
+    public long getLength() { return length; }
+
+    /**
+     * Add a chunk to the buffer.
+     *
+     * @return the message the chunk is part of, if all its chunks have been received; null otherwise
+     */
+    public ChunkedMessage add(AtlasKafkaMessage<HookNotificationMessage> kafkaMsg, long now) {
+        MessageChunk   chunk   = kafkaMsg.getChunk();
+        ChunkedMessage message = messages.get(chunk.getMsgId());
+
+        if (message == null) {
+            message = new ChunkedMessage(chunk.getMsgId(), chunk.getMsgSplitCount(), now);
+
+            messages.put(chunk.getMsgId(), message);
+        }
+
+        length += message.add(kafkaMsg);
+
+        if (message.isComplete()) {
+            remove(message);
+
+            return message;
+        }
+
+        return null;
+    }
+
+    /**
+     * Evict messages that timed out, and the earliest messages while the buffer exceeds its bounds.
+     *
+     * @return the evicted messages, which are incomplete
+     */
+    public List<ChunkedMessage> evict(long now) {
+        List<ChunkedMessage> ret = new ArrayList<>();
+
+        for (Iterator<ChunkedMessage> iter = messages.values().iterator(); iter.hasNext(); ) {
+            ChunkedMessage message = iter.next();
+
+            boolean isTimedOut    = (now - message.getFirstReceivedTime()) >= timeoutMs;
+            boolean isOverBounds  = messages.size() > maxMessages || length > maxLength;
+
+            if (!isTimedOut && !isOverBounds) {
+                break; // messages are in the order received: the rest are neither timed out nor to be evicted
+            }
+
+            iter.remove();
+
+            length -= message.getLength();
+
+            ret.add(message);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Remove messages having chunks received from any of the given partitions.
+     *
+     * @return the removed messages, which are incomplete
+     */
+    public List<ChunkedMessage> remove(Collection<Integer> partitions) {
+        List<ChunkedMessage> ret = new ArrayList<>();
+
+        for (Iterator<ChunkedMessage> iter = messages.values().iterator(); iter.hasNext(); ) {
+            ChunkedMessage message = iter.next();
+
+            for (AtlasKafkaMessage<HookNotificationMessage> kafkaMsg : message.getKafkaMessages()) {
+                if (partitions.contains(kafkaMsg.getPartition())) {
+                    iter.remove();
+
+                    length -= message.getLength();
+
+                    ret.add(message);
+
+                    break;
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private void remove(ChunkedMessage message) {
+        messages.remove(message.getMsgId());
+
+        length -= message.getLength();
+    }
+
+    /**
+     * Chunks received for a message.
+     */
+    static class ChunkedMessage {
+        private final String                                           msgId;
+        private final String[]                                         chunks;
+        private final List<AtlasKafkaMessage<HookNotificationMessage>> kafkaMessages = new ArrayList<>();
+        private final long                                             firstReceivedTime;
+        private       int                                              numReceived = 0;
+        private       long                                             length      = 0;
+
+        ChunkedMessage(String msgId, int msgSplitCount, long firstReceivedTime) {
+            this.msgId             = msgId;
+            this.chunks            = new String[msgSplitCount];
+            this.firstReceivedTime = firstReceivedTime;
+        }
+
+        public String getMsgId() { return msgId; }
+
+        public int getNumChunks() { return chunks.length; }
+
+        public int getNumReceived() { return numReceived; }
+
+        public long getFirstReceivedTime() { return firstReceivedTime; }
+
+        public long getLength() { return length; }
+
+        public boolean isComplete() { return numReceived == chunks.length; }
+
+        /**
+         * @return Kafka messages of the chunks received, including duplicates, in the order received
+         */
+        public List<AtlasKafkaMessage<HookNotificationMessage>> getKafkaMessages() { return kafkaMessages; }
+
+        /**
+         * @return the reassembled message
+         */
+        public String getMessage() {
+            StringBuilder sb = new StringBuilder((int) length);
+
+            for (String chunk : chunks) {
+                sb.append(chunk);
+            }
+
+            return sb.toString();
+        }
+
+        private int add(AtlasKafkaMessage<HookNotificationMessage> kafkaMsg) {
+            MessageChunk chunk = kafkaMsg.getChunk();
+            int          idx   = chunk.getMsgSplitIdx();
+
+            kafkaMessages.add(kafkaMsg);
+
+            // a chunk may be received again, for example after a consumer restart
+            if (idx < 0 || idx >= chunks.length || chunks[idx] != null) {
+                return 0;
+            }
+
+            chunks[idx] = chunk.getMessage();
+            numReceived++;
+            length += chunks[idx].length();
+
+            return chunks[idx].length();
+        }
+    }
+}
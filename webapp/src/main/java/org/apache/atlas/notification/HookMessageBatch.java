@@ -0,0 +1,219 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import org.apache.atlas.kafka.AtlasKafkaMessage;
+import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.model.instance.AtlasEntity.AtlasEntitiesWithExtInfo;
+import org.apache.atlas.model.instance.AtlasObjectId;
+import org.apache.atlas.model.instance.AtlasStruct;
+import org.apache.atlas.notification.hook.HookNotification.HookNotificationMessage;
+import org.apache.atlas.type.AtlasEntityType;
+import org.apache.atlas.type.AtlasStructType.AtlasAttribute;
+import org.apache.atlas.type.AtlasTypeRegistry;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Consecutive ENTITY_CREATE/ENTITY_FULL_UPDATE hook messages merged into a single set of entities, so that they can
+ * be written to the graph in one transaction.
+ *
+ * Entities are de-duplicated by guid and by unique attributes: the attributes of a later occurrence override those
+ * of an earlier one, and references to the guid of a duplicate are updated to refer to the retained entity.
+ */
+class HookMessageBatch {
+    private final AtlasTypeRegistry                               typeRegistry;
+    private final List<AtlasKafkaMessage<HookNotificationMessage>> messages       = new ArrayList<>();
+    private final Map<String, AtlasEntity>                        entities       = new LinkedHashMap<>();
+    private final Set<String>                                     topLevelGuids  = new LinkedHashSet<>();
+    private final Map<String, String>                             uniqKeyToGuid  = new HashMap<>();
+    private final Map<String, String>                             guidRemap      = new HashMap<>();
+    private       String                                          user;
+
+    HookMessageBatch(AtlasTypeRegistry typeRegistry) {
+        this.typeRegistry = typeRegistry;
+    }
+
+    public List<AtlasKafkaMessage<HookNotificationMessage>> getMessages() { return messages; }
+
+    public String getUser() { return user; }
+
+    public int size() { return messages.size(); }
+
+    public boolean isEmpty() { return messages.isEmpty(); }
+
+    /**
+     * A message can be added only if it was sent by the same user, as the batch is processed under a single user.
+     */
+    public boolean canAdd(HookNotificationMessage message) {
+        return messages.isEmpty() || StringUtils.equals(user, message.getUser());
+    }
+
+    public void add(AtlasKafkaMessage<HookNotificationMessage> kafkaMsg) {
+        if (messages.isEmpty()) {
+            user = kafkaMsg.getMessage().getUser();
+        }
+
+        messages.add(kafkaMsg);
+    }
+
+    /**
+     * Merge the entities of a message in this batch into the entities to be written.
+     */
+    public void addEntities(AtlasEntitiesWithExtInfo msgEntities) {
+        if (msgEntities != null) {
+            if (msgEntities.getEntities() != null) {
+                for (AtlasEntity entity : msgEntities.getEntities()) {
+                    topLevelGuids.add(addEntity(entity));
+                }
+            }
+
+            if (MapUtils.isNotEmpty(msgEntities.getReferredEntities())) {
+                for (AtlasEntity entity : msgEntities.getReferredEntities().values()) {
+                    addEntity(entity);
+                }
+            }
+        }
+    }
+
+    public AtlasEntitiesWithExtInfo getEntities() {
+        AtlasEntitiesWithExtInfo ret = new AtlasEntitiesWithExtInfo(new ArrayList<AtlasEntity>());
+
+        for (AtlasEntity entity : entities.values()) {
+            updateReferences(entity);
+
+            if (topLevelGuids.contains(entity.getGuid())) {
+                ret.addEntity(entity);
+            } else {
+                ret.addReferredEntity(entity);
+            }
+        }
+
+        return ret;
+    }
+
+    public void clear() {
+        messages.clear();
+        clearEntities();
+        user = null;
+    }
+
+    public void clearEntities() {
+        entities.clear();
+        topLevelGuids.clear();
+        uniqKeyToGuid.clear();
+        guidRemap.clear();
+    }
+
+    private String addEntity(AtlasEntity entity) {
+        String uniqKey = getUniqueKey(entity);
+        String guid    = uniqKey != null ? uniqKeyToGuid.get(uniqKey) : null;
+
+        if (guid == null) {
+            guid = entity.getGuid();
+
+            if (uniqKey != null) {
+                uniqKeyToGuid.put(uniqKey, guid);
+            }
+        } else if (!StringUtils.equals(guid, entity.getGuid())) {
+            guidRemap.put(entity.getGuid(), guid);
+
+            entity.setGuid(guid);
+        }
+
+        AtlasEntity existing = entities.get(guid);
+
+        if (existing != null) {
+            if (MapUtils.isNotEmpty(entity.getAttributes())) {
+                for (Map.Entry<String, Object> attribute : entity.getAttributes().entrySet()) {
+                    existing.setAttribute(attribute.getKey(), attribute.getValue());
+                }
+            }
+
+            if (entity.getClassifications() != null) {
+                existing.setClassifications(entity.getClassifications());
+            }
+        } else {
+            entities.put(guid, entity);
+        }
+
+        return guid;
+    }
+
+    private String getUniqueKey(AtlasEntity entity) {
+        AtlasEntityType entityType = typeRegistry.getEntityTypeByName(entity.getTypeName());
+
+        if (entityType == null || MapUtils.isEmpty(entityType.getUniqAttributes())) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder(entity.getTypeName());
+
+        for (AtlasAttribute attribute : entityType.getUniqAttributes().values()) {
+            Object value = entity.getAttribute(attribute.getName());
+
+            if (value == null) {
+                return null;
+            }
+
+            sb.append('|').append(attribute.getName()).append('=').append(value);
+        }
+
+        return sb.toString();
+    }
+
+    private void updateReferences(AtlasStruct struct) {
+        if (guidRemap.isEmpty() || MapUtils.isEmpty(struct.getAttributes())) {
+            return;
+        }
+
+        for (Object value : struct.getAttributes().values()) {
+            updateReferences(value);
+        }
+    }
+
+    private void updateReferences(Object value) {
+        if (value instanceof AtlasObjectId) {
+            AtlasObjectId objectId = (AtlasObjectId) value;
+            String        guid     = guidRemap.get(objectId.getGuid());
+
+            if (guid != null) {
+                objectId.setGuid(guid);
+            }
+        } else if (value instanceof AtlasStruct) {
+            updateReferences((AtlasStruct) value);
+        } else if (value instanceof Collection) {
+            for (Object element : (Collection) value) {
+                updateReferences(element);
+            }
+        } else if (value instanceof Map) {
+            for (Object element : ((Map) value).values()) {
+                updateReferences(element);
+            }
+        }
+    }
+}
@@ -25,8 +25,10 @@ import org.apache.atlas.AtlasException;
 import org.apache.atlas.AtlasServiceException;
 import org.apache.atlas.RequestContext;
 import org.apache.atlas.RequestContextV1;
+import org.apache.atlas.exception.AtlasBaseException;
 import org.apache.atlas.ha.HAConfiguration;
 import org.apache.atlas.kafka.AtlasKafkaMessage;
+import org.apache.atlas.kafka.KafkaNotification;
 import org.apache.atlas.listener.ActiveStateChangeHandler;
 import org.apache.atlas.model.instance.AtlasEntity;
 import org.apache.atlas.notification.hook.HookNotification.EntityCreateRequest;
@@ -34,6 +36,7 @@ import org.apache.atlas.notification.hook.HookNotification.EntityDeleteRequest;
 import org.apache.atlas.notification.hook.HookNotification.EntityPartialUpdateRequest;
 import org.apache.atlas.notification.hook.HookNotification.EntityUpdateRequest;
 import org.apache.atlas.notification.hook.HookNotification.HookNotificationMessage;
+import org.apache.atlas.notification.hook.HookNotification.HookNotificationType;
 import org.apache.atlas.repository.converters.AtlasInstanceConverter;
 import org.apache.atlas.repository.store.graph.AtlasEntityStore;
 import org.apache.atlas.repository.store.graph.v1.AtlasEntityStream;
@@ -58,7 +61,13 @@ import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -79,11 +88,19 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
     private static Logger FAILED_LOG = LoggerFactory.getLogger("FAILED");
 
     private static final String THREADNAME_PREFIX = NotificationHookConsumer.class.getSimpleName();
+    private static final String CONSUMER_THREAD_NAME = "atlas-hook-consumer-thread";
 
     public static final String CONSUMER_THREADS_PROPERTY = "atlas.notification.hook.numthreads";
     public static final String CONSUMER_RETRIES_PROPERTY = "atlas.notification.hook.maxretries";
     public static final String CONSUMER_FAILEDCACHESIZE_PROPERTY = "atlas.notification.hook.failedcachesize";
     public static final String CONSUMER_RETRY_INTERVAL = "atlas.notification.consumer.retry.interval";
+    public static final String CONSUMER_BATCH_SIZE_PROPERTY = "atlas.notification.hook.batch.size";
+    public static final String CONSUMER_RETRY_NONBLOCKING_PROPERTY = "atlas.notification.hook.retry.nonblocking";
+    public static final String CONSUMER_MAX_RETRY_INTERVAL = "atlas.notification.consumer.retry.max.interval";
+    public static final String CONSUMER_DLQ_ENABLED_PROPERTY = KafkaNotification.HOOK_DLQ_ENABLED_PROPERTY;
+    public static final String CONSUMER_CHUNKS_TIMEOUT_PROPERTY = "atlas.notification.hook.chunks.timeout.ms";
+    public static final String CONSUMER_CHUNKS_MAX_MESSAGES_PROPERTY = "atlas.notification.hook.chunks.max.messages";
+    public static final String CONSUMER_CHUNKS_MAX_LENGTH_PROPERTY = "atlas.notification.hook.chunks.max.length";
 
     public static final int SERVER_READY_WAIT_TIME_MS = 1000;
     private final AtlasEntityStore atlasEntityStore;
@@ -93,6 +110,14 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
     private final int maxRetries;
     private final int failedMsgCacheSize;
     private final int consumerRetryInterval;
+    private final int batchSize;
+    private final boolean nonBlockingRetryEnabled;
+    private final int consumerMaxRetryInterval;
+    private final boolean deadLetterQueueEnabled;
+    private final long chunksTimeoutMs;
+    private final int chunksMaxMessages;
+    private final long chunksMaxLength;
+    private final String hookTopic;
 
     private NotificationInterface notificationInterface;
     private ExecutorService executors;
@@ -114,6 +139,14 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         maxRetries = applicationProperties.getInt(CONSUMER_RETRIES_PROPERTY, 3);
         failedMsgCacheSize = applicationProperties.getInt(CONSUMER_FAILEDCACHESIZE_PROPERTY, 20);
         consumerRetryInterval = applicationProperties.getInt(CONSUMER_RETRY_INTERVAL, 500);
+        batchSize = applicationProperties.getInt(CONSUMER_BATCH_SIZE_PROPERTY, 1);
+        nonBlockingRetryEnabled = applicationProperties.getBoolean(CONSUMER_RETRY_NONBLOCKING_PROPERTY, false);
+        consumerMaxRetryInterval = applicationProperties.getInt(CONSUMER_MAX_RETRY_INTERVAL, 60000);
+        deadLetterQueueEnabled = applicationProperties.getBoolean(CONSUMER_DLQ_ENABLED_PROPERTY, false);
+        chunksTimeoutMs = applicationProperties.getLong(CONSUMER_CHUNKS_TIMEOUT_PROPERTY, 300000L);
+        chunksMaxMessages = applicationProperties.getInt(CONSUMER_CHUNKS_MAX_MESSAGES_PROPERTY, 100);
+        chunksMaxLength = applicationProperties.getLong(CONSUMER_CHUNKS_MAX_LENGTH_PROPERTY, 100 * 1000 * 1000L);
+        hookTopic = applicationProperties.getString(KafkaNotification.HOOK_TOPIC_PROPERTY, KafkaNotification.ATLAS_HOOK_TOPIC);
 
     }
 
@@ -139,13 +172,23 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         int numThreads = applicationProperties.getInt(CONSUMER_THREADS_PROPERTY, 1);
         List<NotificationConsumer<HookNotificationMessage>> notificationConsumers =
                 notificationInterface.createConsumers(NotificationInterface.NotificationType.HOOK, numThreads);
+
+        if (notificationConsumers == null || notificationConsumers.isEmpty()) {
+            LOG.warn("No hook consumers created; hook notifications will not be processed");
+
+            return;
+        }
+
         if (executorService == null) {
             executorService = Executors.newFixedThreadPool(notificationConsumers.size(),
                     new ThreadFactoryBuilder().setNameFormat(THREADNAME_PREFIX + " thread-%d").build());
         }
         executors = executorService;
-        for (final NotificationConsumer<HookNotificationMessage> consumer : notificationConsumers) {
-            HookConsumer hookConsumer = new HookConsumer(consumer);
+
+        LOG.info("Starting {} hook consumer thread(s)", notificationConsumers.size());
+
+        for (int i = 0; i < notificationConsumers.size(); i++) {
+            HookConsumer hookConsumer = new HookConsumer(CONSUMER_THREAD_NAME + "-" + i, notificationConsumers.get(i));
             consumers.add(hookConsumer);
             executors.submit(hookConsumer);
         }
@@ -212,13 +255,47 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         }
     }
 
+    /**
+     * A failed message waiting for its next attempt, while the messages after it are processed.
+     */
+    static class ParkedMessage implements Comparable<ParkedMessage> {
+        private final AtlasKafkaMessage<HookNotificationMessage> kafkaMessage;
+        private final int                                        numAttempts;
+        private final long                                       nextAttemptTime;
+
+        ParkedMessage(AtlasKafkaMessage<HookNotificationMessage> kafkaMessage, int numAttempts, long nextAttemptTime) {
+            this.kafkaMessage    = kafkaMessage;
+            this.numAttempts     = numAttempts;
+            this.nextAttemptTime = nextAttemptTime;
+        }
+
+        public AtlasKafkaMessage<HookNotificationMessage> getKafkaMessage() { return kafkaMessage; }
+
+        public int getNumAttempts() { return numAttempts; }
+
+        public long getNextAttemptTime() { return nextAttemptTime; }
+
+        @Override
+        public int compareTo(ParkedMessage other) {
+            return Long.compare(nextAttemptTime, other.nextAttemptTime);
+        }
+    }
+
     class HookConsumer extends ShutdownableThread {
         private final NotificationConsumer<HookNotificationMessage> consumer;
         private final AtomicBoolean shouldRun = new AtomicBoolean(false);
         private List<HookNotificationMessage> failedMessages = new ArrayList<>();
+        private List<AtlasKafkaMessage<HookNotificationMessage>> uncommittedFailedMessages = new ArrayList<>();
+        private final PriorityQueue<ParkedMessage> parkedMessages = new PriorityQueue<>();
+        private final ChunkedMessageBuffer chunkBuffer = new ChunkedMessageBuffer(chunksMaxMessages, chunksMaxLength, chunksTimeoutMs);
+        private final Map<AtlasKafkaMessage<HookNotificationMessage>, List<AtlasKafkaMessage<HookNotificationMessage>>> reassembledChunks = new IdentityHashMap<>();
 
         public HookConsumer(NotificationConsumer<HookNotificationMessage> consumer) {
-            super("atlas-hook-consumer-thread", false);
+            this(CONSUMER_THREAD_NAME, consumer);
+        }
+
+        public HookConsumer(String name, NotificationConsumer<HookNotificationMessage> consumer) {
+            super(name, false);
             this.consumer = consumer;
         }
 
@@ -235,10 +312,21 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
             try {
                 while (shouldRun.get()) {
                     try {
-                        List<AtlasKafkaMessage<HookNotificationMessage>> messages = consumer.receive();
-                        for (AtlasKafkaMessage<HookNotificationMessage> msg : messages) {
-                            handleMessage(msg);
+                        List<AtlasKafkaMessage<HookNotificationMessage>> received = consumer.receive();
+
+                        dropRevokedPartitions(consumer.getRevokedPartitions());
+
+                        List<AtlasKafkaMessage<HookNotificationMessage>> messages = reassembleChunks(received, System.currentTimeMillis());
+
+                        if (batchSize > 1) {
+                            handleMessages(messages);
+                        } else {
+                            for (AtlasKafkaMessage<HookNotificationMessage> msg : messages) {
+                                handleMessage(msg);
+                            }
                         }
+
+                        retryParkedMessages(System.currentTimeMillis());
                     } catch (Exception e) {
                         if (shouldRun.get()) {
                             LOG.warn("Exception in NotificationHookConsumer", e);
@@ -256,102 +344,279 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
             }
         }
 
+        /**
+         * Replace chunks of messages with the messages reassembled from them. A message is reassembled when its last
+         * chunk is received, and takes the place of that chunk; until then, the chunks are held in a bounded buffer.
+         * Messages evicted from the buffer before all their chunks are received are dropped as failed messages.
+         */
+        @VisibleForTesting
+        List<AtlasKafkaMessage<HookNotificationMessage>> reassembleChunks(List<AtlasKafkaMessage<HookNotificationMessage>> kafkaMsgs, long now) {
+            List<AtlasKafkaMessage<HookNotificationMessage>> ret = new ArrayList<>(kafkaMsgs.size());
+
+            for (AtlasKafkaMessage<HookNotificationMessage> kafkaMsg : kafkaMsgs) {
+                if (!kafkaMsg.isChunk()) {
+                    ret.add(kafkaMsg);
+
+                    continue;
+                }
+
+                ChunkedMessageBuffer.ChunkedMessage chunkedMessage = chunkBuffer.add(kafkaMsg, now);
+
+                if (chunkedMessage != null) {
+                    AtlasKafkaMessage<HookNotificationMessage> reassembled = reassemble(chunkedMessage);
+
+                    if (reassembled != null) {
+                        ret.add(reassembled);
+                    }
+                }
+            }
+
+            for (ChunkedMessageBuffer.ChunkedMessage evicted : chunkBuffer.evict(now)) {
+                LOG.warn("Dropping message {}: received {} of {} chunks", evicted.getMsgId(), evicted.getNumReceived(), evicted.getNumChunks());
+
+                dropChunks(evicted, null);
+            }
+
+            return ret;
+        }
+
+        /**
+         * Drop parked messages, chunks and failed messages received from partitions revoked from this consumer: their
+         * offsets were not committed, so they are delivered again to the consumer the partitions are assigned to.
+         */
+        @VisibleForTesting
+        void dropRevokedPartitions(List<TopicPartition> revokedPartitions) {
+            if (revokedPartitions.isEmpty()) {
+                return;
+            }
+
+            Set<Integer> partitions = new HashSet<>();
+
+            for (TopicPartition revokedPartition : revokedPartitions) {
+                partitions.add(revokedPartition.partition());
+            }
+
+            int numDroppedParked = 0;
+
+            for (Iterator<ParkedMessage> iter = parkedMessages.iterator(); iter.hasNext(); ) {
+                if (partitions.contains(iter.next().getKafkaMessage().getPartition())) {
+                    iter.remove();
+
+                    numDroppedParked++;
+                }
+            }
+
+            for (Iterator<AtlasKafkaMessage<HookNotificationMessage>> iter = reassembledChunks.keySet().iterator(); iter.hasNext(); ) {
+                if (partitions.contains(iter.next().getPartition())) {
+                    iter.remove();
+                }
+            }
+
+            for (Iterator<AtlasKafkaMessage<HookNotificationMessage>> iter = uncommittedFailedMessages.iterator(); iter.hasNext(); ) {
+                if (partitions.contains(iter.next().getPartition())) {
+                    iter.remove();
+                }
+            }
+
+            int numDroppedChunked = chunkBuffer.remove(partitions).size();
+
+            LOG.info("Partitions {} revoked: dropped {} parked messages and {} incomplete chunked messages", partitions, numDroppedParked, numDroppedChunked);
+        }
+
+        private AtlasKafkaMessage<HookNotificationMessage> reassemble(ChunkedMessageBuffer.ChunkedMessage chunkedMessage) {
+            List<AtlasKafkaMessage<HookNotificationMessage>> chunks      = chunkedMessage.getKafkaMessages();
+            AtlasKafkaMessage<HookNotificationMessage>       lastChunk   = chunks.get(chunks.size() - 1);
+            String                                           messageJson = chunkedMessage.getMessage();
+
+            try {
+                MessageDeserializer<HookNotificationMessage> deserializer = NotificationInterface.NotificationType.HOOK.getDeserializer();
+
+                AtlasKafkaMessage<HookNotificationMessage> ret = new AtlasKafkaMessage<>(deserializer.deserialize(messageJson), lastChunk.getOffset(), lastChunk.getPartition());
+
+                // offsets of the other chunks are committed along with the reassembled message
+                reassembledChunks.put(ret, new ArrayList<>(chunks.subList(0, chunks.size() - 1)));
+
+                return ret;
+            } catch (Exception e) {
+                LOG.error("Failed to deserialize message {} reassembled from {} chunks", chunkedMessage.getMsgId(), chunkedMessage.getNumChunks(), e);
+
+                dropChunks(chunkedMessage, messageJson);
+
+                return null;
+            }
+        }
+
+        /**
+         * Drop the chunks of a message that can't be processed. The chunks are published to the dead-letter topic, when
+         * enabled, to be replayed later; otherwise, or if that fails, they are logged as failed messages. Their offsets
+         * are committed along with the next message.
+         *
+         * @param chunkedMessage  the chunks received
+         * @param messageJson     the message reassembled from the chunks, to be logged instead of them; null if incomplete
+         */
+        private void dropChunks(ChunkedMessageBuffer.ChunkedMessage chunkedMessage, String messageJson) {
+            List<AtlasKafkaMessage<HookNotificationMessage>> kafkaMsgs = chunkedMessage.getKafkaMessages();
+            List<MessageChunk>                               chunks    = new ArrayList<>(kafkaMsgs.size());
+
+            for (AtlasKafkaMessage<HookNotificationMessage> kafkaMsg : kafkaMsgs) {
+                chunks.add(kafkaMsg.getChunk());
+            }
+
+            boolean isSentToDeadLetterQueue = false;
+
+            if (deadLetterQueueEnabled) {
+                try {
+                    notificationInterface.send(NotificationInterface.NotificationType.HOOK_DLQ, chunks);
+
+                    isSentToDeadLetterQueue = true;
+                } catch (Exception e) {
+                    LOG.error("Failed to send chunks of message {} to dead-letter topic", chunkedMessage.getMsgId(), e);
+                }
+            }
+
+            if (!isSentToDeadLetterQueue) {
+                if (messageJson != null) {
+                    FAILED_LOG.error("[DROPPED_NOTIFICATION] {}", messageJson);
+                } else {
+                    for (MessageChunk chunk : chunks) {
+                        FAILED_LOG.error("[DROPPED_NOTIFICATION] {}", AbstractNotification.getMessageJson(chunk));
+                    }
+                }
+            }
+
+            uncommittedFailedMessages.addAll(kafkaMsgs);
+        }
+
+        /**
+         * Handle messages received in a poll: consecutive ENTITY_CREATE/ENTITY_FULL_UPDATE messages are written to
+         * the graph in batches of up to atlas.notification.hook.batch.size messages, other messages one at a time.
+         */
+        @VisibleForTesting
+        void handleMessages(List<AtlasKafkaMessage<HookNotificationMessage>> kafkaMsgs) throws AtlasServiceException, AtlasException {
+            HookMessageBatch batch = new HookMessageBatch(typeRegistry);
+
+            for (AtlasKafkaMessage<HookNotificationMessage> kafkaMsg : kafkaMsgs) {
+                HookNotificationMessage message = kafkaMsg.getMessage();
+
+                if (!isBatchable(message)) {
+                    handleBatch(batch);
+                    handleMessage(kafkaMsg);
+
+                    continue;
+                }
+
+                if (batch.size() >= batchSize || !batch.canAdd(message)) {
+                    handleBatch(batch);
+                }
+
+                batch.add(kafkaMsg);
+            }
+
+            handleBatch(batch);
+        }
+
+        private boolean isBatchable(HookNotificationMessage message) {
+            switch (message.getType()) {
+                case ENTITY_CREATE:
+                case ENTITY_FULL_UPDATE:
+                    return true;
+
+                default:
+                    return false;
+            }
+        }
+
+        private void handleBatch(HookMessageBatch batch) throws AtlasServiceException, AtlasException {
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            if (batch.size() == 1) {
+                handleMessage(batch.getMessages().get(0));
+                batch.clear();
+
+                return;
+            }
+
+            AtlasPerfTracer perf      = null;
+            boolean         isSuccess = false;
+
+            if (AtlasPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
+                perf = AtlasPerfTracer.getPerfTracer(PERF_LOG, "ENTITY_BATCH(" + batch.size() + ")");
+            }
+
+            try {
+                RequestContext requestContext = RequestContext.createContext();
+                requestContext.setUser(batch.getUser());
+
+                for (AtlasKafkaMessage<HookNotificationMessage> kafkaMsg : batch.getMessages()) {
+                    EntityCreateRequest request = (EntityCreateRequest) kafkaMsg.getMessage();
+
+                    batch.addEntities(instanceConverter.toAtlasEntities(request.getEntities()));
+                }
+
+                atlasEntityStore.createOrUpdate(new AtlasEntityStream(batch.getEntities()), false);
+
+                isSuccess = true;
+            } catch (Throwable e) {
+                LOG.warn("Error handling batch of {} messages. Will process the messages one at a time", batch.size(), e);
+            } finally {
+                RequestContext.clear();
+                RequestContextV1.clear();
+
+                AtlasPerfTracer.log(perf);
+            }
+
+            if (isSuccess) {
+                for (AtlasKafkaMessage<HookNotificationMessage> kafkaMsg : batch.getMessages()) {
+                    if (kafkaMsg.getMessage().getType() == HookNotificationType.ENTITY_CREATE) {
+                        audit(batch.getUser(), CREATE_ENTITY.getMethod(), CREATE_ENTITY.getPath());
+                    } else {
+                        audit(batch.getUser(), UPDATE_ENTITY.getMethod(), UPDATE_ENTITY.getPath());
+                    }
+                }
+
+                // commit each message: with asynchronous commit, offsets not reported as processed hold back the commit
+                for (AtlasKafkaMessage<HookNotificationMessage> kafkaMsg : batch.getMessages()) {
+                    commit(kafkaMsg);
+                }
+            } else {
+                for (AtlasKafkaMessage<HookNotificationMessage> kafkaMsg : batch.getMessages()) {
+                    handleMessage(kafkaMsg);
+                }
+            }
+
+            batch.clear();
+        }
+
         @VisibleForTesting
         void handleMessage(AtlasKafkaMessage<HookNotificationMessage> kafkaMsg) throws AtlasServiceException, AtlasException {
             AtlasPerfTracer perf = null;
 
             HookNotificationMessage message = kafkaMsg.getMessage();
-            String messageUser = message.getUser();
 
             if (AtlasPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
                 perf = AtlasPerfTracer.getPerfTracer(PERF_LOG, message.getType().name());
             }
 
             try {
-                // Used for intermediate conversions during create and update
-                AtlasEntity.AtlasEntitiesWithExtInfo entities;
                 for (int numRetries = 0; numRetries < maxRetries; numRetries++) {
                     if (LOG.isDebugEnabled()) {
                         LOG.debug("handleMessage({}): attempt {}", message.getType().name(), numRetries);
                     }
                     try {
-                        RequestContext requestContext = RequestContext.createContext();
-                        requestContext.setUser(messageUser);
-
-                        switch (message.getType()) {
-                            case ENTITY_CREATE:
-                                EntityCreateRequest createRequest = (EntityCreateRequest) message;
-
-                                if (numRetries == 0) { // audit only on the first attempt
-                                    audit(messageUser, CREATE_ENTITY.getMethod(), CREATE_ENTITY.getPath());
-                                }
-
-                                entities = instanceConverter.toAtlasEntities(createRequest.getEntities());
-
-                                atlasEntityStore.createOrUpdate(new AtlasEntityStream(entities), false);
-                                break;
-
-                            case ENTITY_PARTIAL_UPDATE:
-                                final EntityPartialUpdateRequest partialUpdateRequest = (EntityPartialUpdateRequest) message;
-
-                                if (numRetries == 0) { // audit only on the first attempt
-                                    audit(messageUser, UPDATE_ENTITY_BY_ATTRIBUTE.getMethod(),
-                                            String.format(UPDATE_ENTITY_BY_ATTRIBUTE.getPath(), partialUpdateRequest.getTypeName()));
-                                }
-
-                                Referenceable referenceable = partialUpdateRequest.getEntity();
-                                entities = instanceConverter.toAtlasEntity(referenceable);
-
-                                AtlasEntityType entityType = typeRegistry.getEntityTypeByName(partialUpdateRequest.getTypeName());
-                                String guid = AtlasGraphUtilsV1.getGuidByUniqueAttributes(entityType, new HashMap<String, Object>() {
-                                    {
-                                        put(partialUpdateRequest.getAttribute(), partialUpdateRequest.getAttributeValue());
-                                    }
-                                });
-
-                                // There should only be one root entity
-                                entities.getEntities().get(0).setGuid(guid);
-
-                                atlasEntityStore.createOrUpdate(new AtlasEntityStream(entities), true);
-                                break;
-
-                            case ENTITY_DELETE:
-                                final EntityDeleteRequest deleteRequest = (EntityDeleteRequest) message;
-
-                                if (numRetries == 0) { // audit only on the first attempt
-                                    audit(messageUser, DELETE_ENTITY_BY_ATTRIBUTE.getMethod(),
-                                            String.format(DELETE_ENTITY_BY_ATTRIBUTE.getPath(), deleteRequest.getTypeName()));
-                                }
-
-                                try {
-                                    AtlasEntityType type = (AtlasEntityType) typeRegistry.getType(deleteRequest.getTypeName());
-                                    atlasEntityStore.deleteByUniqueAttributes(type,
-                                            new HashMap<String, Object>() {{
-                                                put(deleteRequest.getAttribute(), deleteRequest.getAttributeValue());
-                                            }});
-                                } catch (ClassCastException cle) {
-                                    LOG.error("Failed to do a partial update on Entity");
-                                }
-                                break;
-
-                            case ENTITY_FULL_UPDATE:
-                                EntityUpdateRequest updateRequest = (EntityUpdateRequest) message;
-
-                                if (numRetries == 0) { // audit only on the first attempt
-                                    audit(messageUser, UPDATE_ENTITY.getMethod(), UPDATE_ENTITY.getPath());
-                                }
-
-                                entities = instanceConverter.toAtlasEntities(updateRequest.getEntities());
-                                atlasEntityStore.createOrUpdate(new AtlasEntityStream(entities), false);
-                                break;
-
-                            default:
-                                throw new IllegalStateException("Unknown notification type: " + message.getType().name());
-                        }
+                        processMessage(message, numRetries);
 
                         break;
                     } catch (Throwable e) {
                         LOG.warn("Error handling message", e);
+
+                        if (nonBlockingRetryEnabled) {
+                            parkMessage(kafkaMsg, numRetries + 1, e);
+
+                            return;
+                        }
+
                         try {
                             LOG.info("Sleeping for {} ms before retry", consumerRetryInterval);
                             Thread.sleep(consumerRetryInterval);
@@ -360,16 +625,9 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
                         }
 
                         if (numRetries == (maxRetries - 1)) {
-                            LOG.warn("Max retries exceeded for message {}", message, e);
-                            failedMessages.add(message);
-                            if (failedMessages.size() >= failedMsgCacheSize) {
-                                recordFailedMessages();
-                            }
+                            handleRetriesExhausted(kafkaMsg, e);
                             return;
                         }
-                    } finally {
-                        RequestContext.clear();
-                        RequestContextV1.clear();
                     }
                 }
                 commit(kafkaMsg);
@@ -378,6 +636,159 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
             }
         }
 
+        /**
+         * Retry the parked messages whose backoff has elapsed. Messages that fail again are parked with a longer
+         * backoff, until maxRetries attempts have been made.
+         */
+        @VisibleForTesting
+        void retryParkedMessages(long now) {
+            while (!parkedMessages.isEmpty() && parkedMessages.peek().getNextAttemptTime() <= now) {
+                ParkedMessage           parked  = parkedMessages.poll();
+                HookNotificationMessage message = parked.getKafkaMessage().getMessage();
+
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("retryParkedMessages({}): attempt {}", message.getType().name(), parked.getNumAttempts());
+                }
+
+                try {
+                    processMessage(message, parked.getNumAttempts());
+
+                    commit(parked.getKafkaMessage());
+                } catch (Throwable e) {
+                    LOG.warn("Error handling parked message", e);
+
+                    parkMessage(parked.getKafkaMessage(), parked.getNumAttempts() + 1, e);
+                }
+            }
+        }
+
+        private void parkMessage(AtlasKafkaMessage<HookNotificationMessage> kafkaMsg, int numAttempts, Throwable excp) {
+            if (numAttempts >= maxRetries) {
+                handleRetriesExhausted(kafkaMsg, excp);
+
+                return;
+            }
+
+            long backoff = Math.min((long) consumerRetryInterval << (numAttempts - 1), consumerMaxRetryInterval);
+
+            LOG.info("Parking message at partition {}, offset {} for {} ms before retry", kafkaMsg.getPartition(), kafkaMsg.getOffset(), backoff);
+
+            // don't let commits of the messages after it go beyond the parked message, so that it isn't lost on restart
+            consumer.holdOffset(new TopicPartition(hookTopic, kafkaMsg.getPartition()), kafkaMsg.getOffset());
+
+            parkedMessages.add(new ParkedMessage(kafkaMsg, numAttempts, System.currentTimeMillis() + backoff));
+        }
+
+        private void handleRetriesExhausted(AtlasKafkaMessage<HookNotificationMessage> kafkaMsg, Throwable excp) {
+            HookNotificationMessage message = kafkaMsg.getMessage();
+
+            LOG.warn("Max retries exceeded for message {}", message, excp);
+
+            if (deadLetterQueueEnabled) {
+                try {
+                    notificationInterface.send(NotificationInterface.NotificationType.HOOK_DLQ, message);
+
+                    commit(kafkaMsg);
+
+                    return;
+                } catch (Exception e) {
+                    LOG.error("Failed to send message to dead-letter topic", e);
+                }
+            }
+
+            failedMessages.add(message);
+            uncommittedFailedMessages.add(kafkaMsg);
+            if (failedMessages.size() >= failedMsgCacheSize) {
+                recordFailedMessages();
+            }
+        }
+
+        private void processMessage(HookNotificationMessage message, int numRetries) throws AtlasBaseException {
+            String messageUser = message.getUser();
+
+            // Used for intermediate conversions during create and update
+            AtlasEntity.AtlasEntitiesWithExtInfo entities;
+
+            try {
+                RequestContext requestContext = RequestContext.createContext();
+                requestContext.setUser(messageUser);
+
+                switch (message.getType()) {
+                    case ENTITY_CREATE:
+                        EntityCreateRequest createRequest = (EntityCreateRequest) message;
+
+                        if (numRetries == 0) { // audit only on the first attempt
+                            audit(messageUser, CREATE_ENTITY.getMethod(), CREATE_ENTITY.getPath());
+                        }
+
+                        entities = instanceConverter.toAtlasEntities(createRequest.getEntities());
+
+                        atlasEntityStore.createOrUpdate(new AtlasEntityStream(entities), false);
+                        break;
+
+                    case ENTITY_PARTIAL_UPDATE:
+                        final EntityPartialUpdateRequest partialUpdateRequest = (EntityPartialUpdateRequest) message;
+
+                        if (numRetries == 0) { // audit only on the first attempt
+                            audit(messageUser, UPDATE_ENTITY_BY_ATTRIBUTE.getMethod(),
+                                    String.format(UPDATE_ENTITY_BY_ATTRIBUTE.getPath(), partialUpdateRequest.getTypeName()));
+                        }
+
+                        Referenceable referenceable = partialUpdateRequest.getEntity();
+                        entities = instanceConverter.toAtlasEntity(referenceable);
+
+                        AtlasEntityType entityType = typeRegistry.getEntityTypeByName(partialUpdateRequest.getTypeName());
+                        String guid = AtlasGraphUtilsV1.getGuidByUniqueAttributes(entityType, new HashMap<String, Object>() {
+                            {
+                                put(partialUpdateRequest.getAttribute(), partialUpdateRequest.getAttributeValue());
+                            }
+                        });
+
+                        // There should only be one root entity
+                        entities.getEntities().get(0).setGuid(guid);
+
+                        atlasEntityStore.createOrUpdate(new AtlasEntityStream(entities), true);
+                        break;
+
+                    case ENTITY_DELETE:
+                        final EntityDeleteRequest deleteRequest = (EntityDeleteRequest) message;
+
+                        if (numRetries == 0) { // audit only on the first attempt
+                            audit(messageUser, DELETE_ENTITY_BY_ATTRIBUTE.getMethod(),
+                                    String.format(DELETE_ENTITY_BY_ATTRIBUTE.getPath(), deleteRequest.getTypeName()));
+                        }
+
+                        try {
+                            AtlasEntityType type = (AtlasEntityType) typeRegistry.getType(deleteRequest.getTypeName());
+                            atlasEntityStore.deleteByUniqueAttributes(type,
+                                    new HashMap<String, Object>() {{
+                                        put(deleteRequest.getAttribute(), deleteRequest.getAttributeValue());
+                                    }});
+                        } catch (ClassCastException cle) {
+                            LOG.error("Failed to do a partial update on Entity");
+                        }
+                        break;
+
+                    case ENTITY_FULL_UPDATE:
+                        EntityUpdateRequest updateRequest = (EntityUpdateRequest) message;
+
+                        if (numRetries == 0) { // audit only on the first attempt
+                            audit(messageUser, UPDATE_ENTITY.getMethod(), UPDATE_ENTITY.getPath());
+                        }
+
+                        entities = instanceConverter.toAtlasEntities(updateRequest.getEntities());
+                        atlasEntityStore.createOrUpdate(new AtlasEntityStream(entities), false);
+                        break;
+
+                    default:
+                        throw new IllegalStateException("Unknown notification type: " + message.getType().name());
+                }
+            } finally {
+                RequestContext.clear();
+                RequestContextV1.clear();
+            }
+        }
+
         private void recordFailedMessages() {
             //logging failed messages
             for (HookNotificationMessage message : failedMessages) {
@@ -388,7 +799,26 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
 
         private void commit(AtlasKafkaMessage<HookNotificationMessage> kafkaMessage) {
             recordFailedMessages();
-            TopicPartition partition = new TopicPartition("ATLAS_HOOK", kafkaMessage.getPartition());
+
+            // dropped messages are done with as well: commit them so that they don't hold back offsets tracked by the consumer
+            for (AtlasKafkaMessage<HookNotificationMessage> failedMessage : uncommittedFailedMessages) {
+                commitOffset(failedMessage);
+            }
+            uncommittedFailedMessages.clear();
+
+            commitOffset(kafkaMessage);
+        }
+
+        private void commitOffset(AtlasKafkaMessage<HookNotificationMessage> kafkaMessage) {
+            List<AtlasKafkaMessage<HookNotificationMessage>> chunks = reassembledChunks.remove(kafkaMessage);
+
+            if (chunks != null) {
+                for (AtlasKafkaMessage<HookNotificationMessage> chunk : chunks) {
+                    consumer.commit(new TopicPartition(hookTopic, chunk.getPartition()), chunk.getOffset() + 1);
+                }
+            }
+
+            TopicPartition partition = new TopicPartition(hookTopic, kafkaMessage.getPartition());
             consumer.commit(partition, kafkaMessage.getOffset() + 1);
         }
 
@@ -24,10 +24,12 @@ import org.apache.atlas.model.instance.AtlasClassification;
 import org.apache.atlas.model.instance.AtlasEntity.AtlasEntitiesWithExtInfo;
 import org.apache.atlas.model.instance.AtlasEntity.AtlasEntityWithExtInfo;
 import org.apache.atlas.model.instance.ClassificationAssociateRequest;
+import org.apache.atlas.model.instance.ClassificationAssociateResponse;
 import org.apache.atlas.model.instance.EntityMutationResponse;
 import org.apache.atlas.model.typedef.AtlasStructDef.AtlasAttributeDef;
 import org.apache.atlas.repository.store.graph.AtlasEntityStore;
 import org.apache.atlas.repository.store.graph.v1.AtlasEntityStream;
+import org.apache.atlas.repository.store.graph.v1.ClassificationAssociator;
 import org.apache.atlas.repository.store.graph.v1.EntityStream;
 import org.apache.atlas.type.AtlasClassificationType;
 import org.apache.atlas.type.AtlasEntityType;
@@ -73,11 +75,13 @@ public class EntityREST {
 
     private final AtlasTypeRegistry         typeRegistry;
     private final AtlasEntityStore          entitiesStore;
+    private final ClassificationAssociator  classificationAssociator;
 
     @Inject
-    public EntityREST(AtlasTypeRegistry typeRegistry, AtlasEntityStore entitiesStore) {
-        this.typeRegistry    = typeRegistry;
-        this.entitiesStore   = entitiesStore;
+    public EntityREST(AtlasTypeRegistry typeRegistry, AtlasEntityStore entitiesStore, ClassificationAssociator classificationAssociator) {
+        this.typeRegistry             = typeRegistry;
+        this.entitiesStore            = entitiesStore;
+        this.classificationAssociator = classificationAssociator;
     }
 
     /**
@@ -480,12 +484,13 @@ public class EntityREST {
 
     /**
      * Bulk API to associate a tag to multiple entities
+     * @return guids of entities the tag was associated to, and the reason for each entity it couldn't be associated to
      */
     @POST
     @Path("/bulk/classification")
     @Consumes({Servlets.JSON_MEDIA_TYPE, MediaType.APPLICATION_JSON})
     @Produces(Servlets.JSON_MEDIA_TYPE)
-    public void addClassification(ClassificationAssociateRequest request) throws AtlasBaseException {
+    public ClassificationAssociateResponse addClassification(ClassificationAssociateRequest request) throws AtlasBaseException {
         AtlasPerfTracer perf = null;
 
         try {
@@ -504,7 +509,7 @@ public class EntityREST {
                 throw new AtlasBaseException(AtlasErrorCode.INVALID_PARAMETERS, "empty guid list");
             }
 
-            entitiesStore.addClassification(entityGuids, classification);
+            return classificationAssociator.associate(entityGuids, classification);
         } finally {
             AtlasPerfTracer.log(perf);
         }
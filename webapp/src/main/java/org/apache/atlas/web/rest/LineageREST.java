@@ -23,6 +23,7 @@ import org.apache.atlas.discovery.AtlasLineageService;
 import org.apache.atlas.exception.AtlasBaseException;
 import org.apache.atlas.model.lineage.AtlasLineageInfo;
 import org.apache.atlas.model.lineage.AtlasLineageInfo.LineageDirection;
+import org.apache.atlas.model.lineage.AtlasLineagePage;
 import org.apache.atlas.utils.AtlasPerfTracer;
 import org.apache.atlas.web.util.Servlets;
 import org.slf4j.Logger;
@@ -52,6 +53,7 @@ public class LineageREST {
     private final AtlasLineageService atlasLineageService;
     private static final String DEFAULT_DIRECTION = "BOTH";
     private static final String DEFAULT_DEPTH     = "3";
+    private static final String DEFAULT_LIMIT     = "1000";
 
     @Context
     private HttpServletRequest httpServletRequest;
@@ -92,4 +94,40 @@ public class LineageREST {
             AtlasPerfTracer.log(perf);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns a page of lineage info about entity, to read large lineage level by level.
+     * @param guid - unique entity id
+     * @param direction - input, output or both
+     * @param depth - number of hops for lineage
+     * @param cursor - nextCursor of the previous page; not specified for the first page
+     * @param limit - maximum number of entities in the page; at least 3
+     * @return AtlasLineagePage
+     * @throws AtlasBaseException
+     * @HTTP 200 If Lineage exists for the given entity
+     * @HTTP 400 Bad query parameters
+     * @HTTP 404 If no lineage is found for the given entity
+     */
+    @GET
+    @Path("/{guid}/page")
+    @Consumes(Servlets.JSON_MEDIA_TYPE)
+    @Produces(Servlets.JSON_MEDIA_TYPE)
+    public AtlasLineagePage getLineagePage(@PathParam("guid") String guid,
+                                           @QueryParam("direction") @DefaultValue(DEFAULT_DIRECTION)  LineageDirection direction,
+                                           @QueryParam("depth") @DefaultValue(DEFAULT_DEPTH) int depth,
+                                           @QueryParam("cursor") String cursor,
+                                           @QueryParam("limit") @DefaultValue(DEFAULT_LIMIT) int limit) throws AtlasBaseException {
+        AtlasPerfTracer perf = null;
+
+        try {
+            if (AtlasPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
+                perf = AtlasPerfTracer.getPerfTracer(PERF_LOG, "LineageREST.getLineagePage(" + guid + "," + direction +
+                                                               "," + depth + "," + cursor + "," + limit + ")");
+            }
+
+            return atlasLineageService.getAtlasLineagePage(guid, direction, depth, cursor, limit);
+        } finally {
+            AtlasPerfTracer.log(perf);
+        }
+    }
+}
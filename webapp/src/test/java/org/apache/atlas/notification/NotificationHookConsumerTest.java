@@ -17,6 +17,7 @@
  */
 package org.apache.atlas.notification;
 
+import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.AtlasServiceException;
 import org.apache.atlas.exception.AtlasBaseException;
@@ -40,10 +41,14 @@ import org.testng.annotations.Test;
 import org.apache.kafka.common.TopicPartition;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 
 import static org.mockito.Mockito.*;
+import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertTrue;
 
@@ -146,6 +151,310 @@ public class NotificationHookConsumerTest {
         verifyZeroInteractions(consumer);
     }
 
+    @Test
+    public void testBatchOfMessagesIsWrittenOnce() throws Exception {
+        NotificationHookConsumer notificationHookConsumer = createBatchingConsumer();
+        NotificationConsumer consumer = mock(NotificationConsumer.class);
+        NotificationHookConsumer.HookConsumer hookConsumer =
+                notificationHookConsumer.new HookConsumer(consumer);
+
+        List<AtlasKafkaMessage<HookNotification.HookNotificationMessage>> messages = new ArrayList<>();
+        messages.add(new AtlasKafkaMessage(createRequest("user"), 1, 0));
+        messages.add(new AtlasKafkaMessage(updateRequest("user"), 2, 0));
+        messages.add(new AtlasKafkaMessage(createRequest("user"), 3, 1));
+
+        hookConsumer.handleMessages(messages);
+
+        verify(atlasEntityStore, times(1)).createOrUpdate(any(EntityStream.class), anyBoolean());
+        verify(consumer).commit(new TopicPartition("ATLAS_HOOK", 0), 2);
+        verify(consumer).commit(new TopicPartition("ATLAS_HOOK", 0), 3);
+        verify(consumer).commit(new TopicPartition("ATLAS_HOOK", 1), 4);
+    }
+
+    @Test
+    public void testBatchIsSplitOnNonBatchableMessage() throws Exception {
+        NotificationHookConsumer notificationHookConsumer = createBatchingConsumer();
+        NotificationConsumer consumer = mock(NotificationConsumer.class);
+        NotificationHookConsumer.HookConsumer hookConsumer =
+                notificationHookConsumer.new HookConsumer(consumer);
+
+        List<AtlasKafkaMessage<HookNotification.HookNotificationMessage>> messages = new ArrayList<>();
+        messages.add(new AtlasKafkaMessage(createRequest("user"), 1, 0));
+        messages.add(new AtlasKafkaMessage(createRequest("user"), 2, 0));
+        messages.add(new AtlasKafkaMessage(new HookNotification.EntityDeleteRequest("user", "type", "attr", "value"), 3, 0));
+        messages.add(new AtlasKafkaMessage(createRequest("user"), 4, 0));
+        messages.add(new AtlasKafkaMessage(createRequest("otheruser"), 5, 0));
+
+        hookConsumer.handleMessages(messages);
+
+        // first two messages in a batch, the others one at a time
+        verify(atlasEntityStore, times(3)).createOrUpdate(any(EntityStream.class), anyBoolean());
+        verify(consumer).commit(new TopicPartition("ATLAS_HOOK", 0), 3);
+        verify(consumer).commit(new TopicPartition("ATLAS_HOOK", 0), 4);
+        verify(consumer).commit(new TopicPartition("ATLAS_HOOK", 0), 6);
+    }
+
+    @Test
+    public void testFailedBatchIsReplayedPerMessage() throws Exception {
+        NotificationHookConsumer notificationHookConsumer = createBatchingConsumer();
+        NotificationConsumer consumer = mock(NotificationConsumer.class);
+        NotificationHookConsumer.HookConsumer hookConsumer =
+                notificationHookConsumer.new HookConsumer(consumer);
+
+        when(atlasEntityStore.createOrUpdate(any(EntityStream.class), anyBoolean()))
+                .thenThrow(new RuntimeException("Simulating exception in processing batch"))
+                .thenReturn(mock(EntityMutationResponse.class));
+
+        List<AtlasKafkaMessage<HookNotification.HookNotificationMessage>> messages = new ArrayList<>();
+        messages.add(new AtlasKafkaMessage(createRequest("user"), 1, 0));
+        messages.add(new AtlasKafkaMessage(createRequest("user"), 2, 0));
+
+        hookConsumer.handleMessages(messages);
+
+        verify(atlasEntityStore, times(3)).createOrUpdate(any(EntityStream.class), anyBoolean());
+        verify(consumer).commit(new TopicPartition("ATLAS_HOOK", 0), 2);
+        verify(consumer).commit(new TopicPartition("ATLAS_HOOK", 0), 3);
+    }
+
+    @Test
+    public void testFailedMessageIsParkedWithoutBlockingLaterMessages() throws Exception {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(NotificationHookConsumer.CONSUMER_RETRY_NONBLOCKING_PROPERTY, true);
+        configs.put(NotificationHookConsumer.CONSUMER_RETRY_INTERVAL, 60000);
+
+        NotificationHookConsumer notificationHookConsumer = createNotificationHookConsumer(configs);
+        NotificationConsumer consumer = mock(NotificationConsumer.class);
+        NotificationHookConsumer.HookConsumer hookConsumer =
+                notificationHookConsumer.new HookConsumer(consumer);
+
+        when(atlasEntityStore.createOrUpdate(any(EntityStream.class), anyBoolean()))
+                .thenThrow(new RuntimeException("Simulating exception in processing message"))
+                .thenReturn(mock(EntityMutationResponse.class));
+
+        long startTime = System.currentTimeMillis();
+
+        hookConsumer.handleMessage(new AtlasKafkaMessage(createRequest("user"), 1, 0));
+        hookConsumer.handleMessage(new AtlasKafkaMessage(createRequest("user"), 2, 0));
+
+        // the failed message is parked, the next one is processed right away; commits don't go beyond the parked message
+        verify(atlasEntityStore, times(2)).createOrUpdate(any(EntityStream.class), anyBoolean());
+        verify(consumer).holdOffset(new TopicPartition("ATLAS_HOOK", 0), 1);
+        verify(consumer).commit(new TopicPartition("ATLAS_HOOK", 0), 3);
+
+        hookConsumer.retryParkedMessages(startTime);
+        verify(atlasEntityStore, times(2)).createOrUpdate(any(EntityStream.class), anyBoolean());
+
+        hookConsumer.retryParkedMessages(startTime + 60000 + 1000);
+        verify(atlasEntityStore, times(3)).createOrUpdate(any(EntityStream.class), anyBoolean());
+        verify(consumer).commit(new TopicPartition("ATLAS_HOOK", 0), 2);
+    }
+
+    @Test
+    public void testMessageIsSentToDeadLetterTopicWhenRetriesAreExhausted() throws Exception {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(NotificationHookConsumer.CONSUMER_RETRY_NONBLOCKING_PROPERTY, true);
+        configs.put(NotificationHookConsumer.CONSUMER_DLQ_ENABLED_PROPERTY, true);
+        configs.put(NotificationHookConsumer.CONSUMER_RETRIES_PROPERTY, 2);
+        configs.put(NotificationHookConsumer.CONSUMER_RETRY_INTERVAL, 10);
+
+        NotificationHookConsumer notificationHookConsumer = createNotificationHookConsumer(configs);
+        NotificationConsumer consumer = mock(NotificationConsumer.class);
+        NotificationHookConsumer.HookConsumer hookConsumer =
+                notificationHookConsumer.new HookConsumer(consumer);
+
+        when(atlasEntityStore.createOrUpdate(any(EntityStream.class), anyBoolean()))
+                .thenThrow(new RuntimeException("Simulating exception in processing message"));
+
+        HookNotification.EntityCreateRequest message = createRequest("user");
+
+        hookConsumer.handleMessage(new AtlasKafkaMessage(message, 1, 0));
+        hookConsumer.retryParkedMessages(System.currentTimeMillis() + 60000);
+
+        verify(atlasEntityStore, times(2)).createOrUpdate(any(EntityStream.class), anyBoolean());
+        verify(notificationInterface).send(NotificationInterface.NotificationType.HOOK_DLQ, message);
+        verify(consumer).commit(new TopicPartition("ATLAS_HOOK", 0), 2);
+    }
+
+    @Test
+    public void testChunksAreReassembled() throws Exception {
+        NotificationHookConsumer notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasEntityStore, serviceState, instanceConverter, typeRegistry);
+        NotificationConsumer consumer = mock(NotificationConsumer.class);
+        NotificationHookConsumer.HookConsumer hookConsumer =
+                notificationHookConsumer.new HookConsumer(consumer);
+
+        List<AtlasKafkaMessage<HookNotification.HookNotificationMessage>> chunks = createChunks(createLargeRequest("user"), 3, 1000, 0);
+        long now = System.currentTimeMillis();
+
+        List<AtlasKafkaMessage<HookNotification.HookNotificationMessage>> messages = new ArrayList<>();
+        messages.add(chunks.get(0));
+        messages.add(new AtlasKafkaMessage(createRequest("user"), 2, 0));
+        messages.addAll(chunks.subList(1, chunks.size()));
+
+        List<AtlasKafkaMessage<HookNotification.HookNotificationMessage>> reassembled = hookConsumer.reassembleChunks(messages, now);
+
+        assertEquals(2, reassembled.size());
+        assertEquals(2, reassembled.get(0).getOffset());
+        assertEquals(chunks.get(chunks.size() - 1).getOffset(), reassembled.get(1).getOffset());
+        assertEquals(HookNotification.HookNotificationType.ENTITY_CREATE, reassembled.get(1).getMessage().getType());
+        assertEquals("user", reassembled.get(1).getMessage().getUser());
+
+        hookConsumer.handleMessage(reassembled.get(1));
+
+        // offsets of all chunks are committed along with the reassembled message
+        for (AtlasKafkaMessage<HookNotification.HookNotificationMessage> chunk : chunks) {
+            verify(consumer).commit(new TopicPartition("ATLAS_HOOK", 0), chunk.getOffset() + 1);
+        }
+    }
+
+    @Test
+    public void testIncompleteChunksAreDroppedAfterTimeout() throws Exception {
+        NotificationHookConsumer notificationHookConsumer = createNotificationHookConsumer(Collections.<String, Object>singletonMap(NotificationHookConsumer.CONSUMER_CHUNKS_TIMEOUT_PROPERTY, 1000L));
+        NotificationConsumer consumer = mock(NotificationConsumer.class);
+        NotificationHookConsumer.HookConsumer hookConsumer =
+                notificationHookConsumer.new HookConsumer(consumer);
+
+        List<AtlasKafkaMessage<HookNotification.HookNotificationMessage>> chunks = createChunks(createLargeRequest("user"), 1, 1000, 0);
+        long now = System.currentTimeMillis();
+
+        assertTrue(hookConsumer.reassembleChunks(chunks.subList(0, chunks.size() - 1), now).isEmpty());
+        assertTrue(hookConsumer.reassembleChunks(Collections.<AtlasKafkaMessage<HookNotification.HookNotificationMessage>>emptyList(), now + 500).isEmpty());
+        verifyZeroInteractions(consumer);
+
+        assertTrue(hookConsumer.reassembleChunks(Collections.<AtlasKafkaMessage<HookNotification.HookNotificationMessage>>emptyList(), now + 1000).isEmpty());
+
+        // offsets of the dropped chunks are committed along with the next message
+        AtlasKafkaMessage<HookNotification.HookNotificationMessage> next = new AtlasKafkaMessage(createRequest("user"), chunks.size() + 1, 0);
+
+        hookConsumer.handleMessage(next);
+
+        for (AtlasKafkaMessage<HookNotification.HookNotificationMessage> chunk : chunks.subList(0, chunks.size() - 1)) {
+            verify(consumer).commit(new TopicPartition("ATLAS_HOOK", 0), chunk.getOffset() + 1);
+        }
+
+        verify(consumer).commit(new TopicPartition("ATLAS_HOOK", 0), next.getOffset() + 1);
+    }
+
+    @Test
+    public void testIncompleteChunksAreSentToDeadLetterTopic() throws Exception {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(NotificationHookConsumer.CONSUMER_CHUNKS_TIMEOUT_PROPERTY, 1000L);
+        configs.put(NotificationHookConsumer.CONSUMER_DLQ_ENABLED_PROPERTY, true);
+
+        NotificationHookConsumer notificationHookConsumer = createNotificationHookConsumer(configs);
+        NotificationConsumer consumer = mock(NotificationConsumer.class);
+        NotificationHookConsumer.HookConsumer hookConsumer =
+                notificationHookConsumer.new HookConsumer(consumer);
+
+        List<AtlasKafkaMessage<HookNotification.HookNotificationMessage>> chunks = createChunks(createLargeRequest("user"), 1, 1000, 0);
+        List<MessageChunk> received = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        for (AtlasKafkaMessage<HookNotification.HookNotificationMessage> chunk : chunks.subList(0, chunks.size() - 1)) {
+            received.add(chunk.getChunk());
+        }
+
+        assertTrue(hookConsumer.reassembleChunks(chunks.subList(0, chunks.size() - 1), now).isEmpty());
+        assertTrue(hookConsumer.reassembleChunks(Collections.<AtlasKafkaMessage<HookNotification.HookNotificationMessage>>emptyList(), now + 1000).isEmpty());
+
+        verify(notificationInterface).send(NotificationInterface.NotificationType.HOOK_DLQ, received);
+
+        // offsets of the chunks are committed along with the next message
+        AtlasKafkaMessage<HookNotification.HookNotificationMessage> next = new AtlasKafkaMessage(createRequest("user"), chunks.size() + 1, 0);
+
+        hookConsumer.handleMessage(next);
+
+        for (AtlasKafkaMessage<HookNotification.HookNotificationMessage> chunk : chunks.subList(0, chunks.size() - 1)) {
+            verify(consumer).commit(new TopicPartition("ATLAS_HOOK", 0), chunk.getOffset() + 1);
+        }
+    }
+
+    @Test
+    public void testMessagesOfRevokedPartitionsAreDropped() throws Exception {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(NotificationHookConsumer.CONSUMER_RETRY_NONBLOCKING_PROPERTY, true);
+        configs.put(NotificationHookConsumer.CONSUMER_RETRY_INTERVAL, 10);
+
+        NotificationHookConsumer notificationHookConsumer = createNotificationHookConsumer(configs);
+        NotificationConsumer consumer = mock(NotificationConsumer.class);
+        NotificationHookConsumer.HookConsumer hookConsumer =
+                notificationHookConsumer.new HookConsumer(consumer);
+
+        when(atlasEntityStore.createOrUpdate(any(EntityStream.class), anyBoolean()))
+                .thenThrow(new RuntimeException("Simulating exception in processing message"))
+                .thenReturn(mock(EntityMutationResponse.class));
+
+        List<AtlasKafkaMessage<HookNotification.HookNotificationMessage>> chunks = createChunks(createLargeRequest("user"), 1, 1000, 1);
+        long now = System.currentTimeMillis();
+
+        hookConsumer.handleMessage(new AtlasKafkaMessage(createRequest("user"), 1, 0));
+        assertTrue(hookConsumer.reassembleChunks(chunks.subList(0, 1), now).isEmpty());
+
+        hookConsumer.dropRevokedPartitions(Arrays.asList(new TopicPartition("ATLAS_HOOK", 0), new TopicPartition("ATLAS_HOOK", 1)));
+
+        // the parked message is not retried, and chunks received earlier don't complete the message
+        hookConsumer.retryParkedMessages(now + 60000);
+        assertTrue(hookConsumer.reassembleChunks(chunks.subList(1, chunks.size()), now).isEmpty());
+
+        verify(atlasEntityStore, times(1)).createOrUpdate(any(EntityStream.class), anyBoolean());
+        verify(consumer, never()).commit(any(TopicPartition.class), anyLong());
+    }
+
+    private List<AtlasKafkaMessage<HookNotification.HookNotificationMessage>> createChunks(HookNotification.HookNotificationMessage message, long startOffset, int maxLength, int partition) {
+        List<AtlasKafkaMessage<HookNotification.HookNotificationMessage>> ret = new ArrayList<>();
+        long offset = startOffset;
+
+        for (String chunkJson : MessageChunk.split(AbstractNotification.getMessageJson(message), maxLength)) {
+            MessageChunk chunk = MessageChunk.fromJson(chunkJson, AbstractNotification.CHUNKED_MESSAGE_VERSION);
+
+            ret.add(new AtlasKafkaMessage<HookNotification.HookNotificationMessage>(null, chunk, offset++, partition));
+        }
+
+        assertTrue(ret.size() > 1);
+
+        return ret;
+    }
+
+    private HookNotification.EntityCreateRequest createLargeRequest(String user) {
+        Referenceable entity      = new Referenceable("type");
+        StringBuilder description = new StringBuilder();
+
+        for (int i = 0; i < 500; i++) {
+            description.append("description ").append(i).append(' ');
+        }
+
+        entity.set("description", description.toString());
+
+        return new HookNotification.EntityCreateRequest(user, entity);
+    }
+
+    private NotificationHookConsumer createBatchingConsumer() throws AtlasException {
+        return createNotificationHookConsumer(Collections.<String, Object>singletonMap(NotificationHookConsumer.CONSUMER_BATCH_SIZE_PROPERTY, 10));
+    }
+
+    private NotificationHookConsumer createNotificationHookConsumer(Map<String, Object> configs) throws AtlasException {
+        Configuration properties = ApplicationProperties.get();
+
+        for (Map.Entry<String, Object> config : configs.entrySet()) {
+            properties.setProperty(config.getKey(), config.getValue());
+        }
+
+        try {
+            return new NotificationHookConsumer(notificationInterface, atlasEntityStore, serviceState, instanceConverter, typeRegistry);
+        } finally {
+            for (String key : configs.keySet()) {
+                properties.clearProperty(key);
+            }
+        }
+    }
+
+    private HookNotification.EntityCreateRequest createRequest(String user) {
+        return new HookNotification.EntityCreateRequest(user, new Referenceable("type"));
+    }
+
+    private HookNotification.EntityUpdateRequest updateRequest(String user) {
+        return new HookNotification.EntityUpdateRequest(user, new Referenceable("type"));
+    }
+
     @Test
     public void testConsumerProceedsWithFalseIfInterrupted() throws Exception {
         NotificationHookConsumer notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasEntityStore, serviceState, instanceConverter, typeRegistry);
@@ -172,6 +481,21 @@ public class NotificationHookConsumerTest {
         verify(executorService).submit(any(NotificationHookConsumer.HookConsumer.class));
     }
 
+    @Test
+    public void testNoConsumersStartedIfNoneAreCreated() throws Exception {
+        when(configuration.getBoolean(HAConfiguration.ATLAS_SERVER_HA_ENABLED_KEY, false)).thenReturn(false);
+        when(configuration.getInt(NotificationHookConsumer.CONSUMER_THREADS_PROPERTY, 1)).thenReturn(1);
+        when(notificationInterface.createConsumers(NotificationInterface.NotificationType.HOOK, 1)).
+                thenReturn(new ArrayList());
+        NotificationHookConsumer notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasEntityStore, serviceState, instanceConverter, typeRegistry);
+
+        // no executor is created for an empty list of consumers
+        notificationHookConsumer.startInternal(configuration, null);
+        notificationHookConsumer.stop();
+
+        verify(notificationInterface).createConsumers(NotificationInterface.NotificationType.HOOK, 1);
+    }
+
     @Test
     public void testConsumersAreNotStartedIfHAIsEnabled() throws Exception {
         when(configuration.containsKey(HAConfiguration.ATLAS_SERVER_HA_ENABLED_KEY)).thenReturn(true);